@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.benchmarks;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pfg.kraken.robot.Cinematique;
+import pfg.kraken.utils.IntHashSet;
+
+/**
+ * The closed set work of the A* : for each expanded node, one add() and one contains() per successor.
+ * The keys are the hashcodes of cinematiques along random walks on the table.
+ * Run with "-prof gc" : the allocation per operation is zero with the IntHashSet.
+ *
+ * @author pf
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClosedSetBenchmark
+{
+	private static final int NB_EXPANSIONS = 5000;
+	private static final int NB_SUCCESSORS = 9;
+
+	@Param({"IntHashSet", "HashSet"})
+	public String implementation;
+
+	private int[] keys = new int[NB_EXPANSIONS * (NB_SUCCESSORS + 1)];
+	private IntHashSet intSet = new IntHashSet(NB_EXPANSIONS);
+	private HashSet<Integer> boxedSet = new HashSet<Integer>(NB_EXPANSIONS);
+
+	@Setup
+	public void setUp()
+	{
+		Random r = new Random(0);
+		double x = 0, y = 1000, o = 0;
+		int k = 0;
+		for(int i = 0; i < NB_EXPANSIONS; i++)
+		{
+			x = Math.max(-1400, Math.min(1400, x + r.nextGaussian() * 40));
+			y = Math.max(100, Math.min(1900, y + r.nextGaussian() * 40));
+			o += r.nextGaussian() * 0.3;
+			keys[k++] = new Cinematique(x, y, o, true, 0, false).hashCode();
+			for(int j = 0; j < NB_SUCCESSORS; j++)
+				keys[k++] = new Cinematique(x + 40 * Math.cos(o), y + 40 * Math.sin(o), o + (j - NB_SUCCESSORS / 2) * 0.1, r.nextBoolean(), (j - NB_SUCCESSORS / 2) * 0.5, false).hashCode();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NB_EXPANSIONS)
+	public void search(Blackhole bh)
+	{
+		if(implementation.equals("IntHashSet"))
+		{
+			intSet.clear();
+			for(int k = 0; k < keys.length; k += NB_SUCCESSORS + 1)
+			{
+				bh.consume(intSet.add(keys[k]));
+				for(int j = 1; j <= NB_SUCCESSORS; j++)
+					bh.consume(intSet.contains(keys[k + j]));
+			}
+		}
+		else
+		{
+			boxedSet.clear();
+			for(int k = 0; k < keys.length; k += NB_SUCCESSORS + 1)
+			{
+				bh.consume(boxedSet.add(keys[k]));
+				for(int j = 1; j <= NB_SUCCESSORS; j++)
+					bh.consume(boxedSet.contains(keys[k + j]));
+			}
+		}
+	}
+}
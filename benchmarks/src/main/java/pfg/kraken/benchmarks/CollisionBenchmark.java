@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.benchmarks;
+
+import java.awt.Graphics;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pfg.config.Config;
+import pfg.graphic.GraphicPanel;
+import pfg.kraken.ConfigInfoKraken;
+import pfg.kraken.SeverityCategoryKraken;
+import pfg.kraken.astar.engine.DefaultPhysicsEngine;
+import pfg.kraken.astar.engine.OccupancyGridPhysicsEngine;
+import pfg.kraken.astar.tentacles.StaticTentacle;
+import pfg.kraken.astar.tentacles.Tentacle;
+import pfg.kraken.obstacles.Obstacle;
+import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.obstacles.container.EmptyDynamicObstacles;
+import pfg.kraken.obstacles.container.StaticObstacles;
+import pfg.kraken.utils.BoundingBox;
+import pfg.kraken.utils.XY;
+import pfg.log.Log;
+
+/**
+ * The collision check of the tentacles against the fixed obstacles of the Eurobot maps :
+ * - tentacle : the DefaultPhysicsEngine with the swept box of the tentacle (as in the A*)
+ * - point : the DefaultPhysicsEngine point by point
+ * - naive : the test of the walls and of every obstacle for every point
+ * - occupancy_grid : the OccupancyGridPhysicsEngine (its bitmap is computed at the first run)
+ * The tentacles are random arcs of the vehicle on the table. The obstacles count their narrow phase checks :
+ * the "isColliding" counter divided by the "tentacles" counter is the number of checks per tentacle.
+ *
+ * @author pf
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark
+{
+	private static final int NB_TENTACLES = 1000;
+
+	@Param({"2016", "2017", "2018"})
+	public int year;
+
+	@Param({"tentacle", "point", "naive", "occupancy_grid"})
+	public String broadPhase;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Counters
+	{
+		public long isColliding;
+		public long tentacles;
+	}
+
+	/**
+	 * An obstacle that counts the calls to isColliding(RectangularObstacle)
+	 */
+	private static class CountingObstacle extends Obstacle
+	{
+		private static final long serialVersionUID = 1L;
+		private final Obstacle o;
+		private long count = 0;
+
+		public CountingObstacle(Obstacle o)
+		{
+			super(new XY(0, 0));
+			this.o = o;
+		}
+
+		@Override
+		public boolean isColliding(RectangularObstacle obs)
+		{
+			count++;
+			return o.isColliding(obs);
+		}
+
+		@Override
+		public boolean isColliding(XY pointA, XY pointB)
+		{
+			return o.isColliding(pointA, pointB);
+		}
+
+		@Override
+		public boolean isInObstacle(XY pos)
+		{
+			return o.isInObstacle(pos);
+		}
+
+		@Override
+		public double squaredDistance(XY position)
+		{
+			return o.squaredDistance(position);
+		}
+
+		@Override
+		public XY[] getExpandedConvexHull(double expansion, double longestAllowedLength)
+		{
+			return o.getExpandedConvexHull(expansion, longestAllowedLength);
+		}
+
+		@Override
+		public BoundingBox getBoundingBox()
+		{
+			return o.getBoundingBox();
+		}
+
+		@Override
+		public void print(Graphics g, GraphicPanel f)
+		{
+			o.print(g, f);
+		}
+	}
+
+	private List<StaticTentacle> tentacles = new ArrayList<StaticTentacle>();
+	private List<CountingObstacle> obstacles = new ArrayList<CountingObstacle>();
+	private XY[] coins;
+	private DefaultPhysicsEngine engine;
+	private OccupancyGridPhysicsEngine occupancyEngine;
+
+	@Setup
+	public void setUp()
+	{
+		StaticObstacles fixes = new StaticObstacles();
+		for(Obstacle o : EurobotMaps.getObstacles(year))
+		{
+			CountingObstacle c = new CountingObstacle(o);
+			obstacles.add(c);
+			fixes.add(c);
+		}
+		XY bottomLeft = new XY(-1500, 0), topRight = new XY(1500, 2000);
+		fixes.setCorners(bottomLeft, topRight);
+		coins = new XY[] {bottomLeft, new XY(bottomLeft.getX(), topRight.getY()), topRight, new XY(topRight.getX(), bottomLeft.getY())};
+		Config config = new Config(ConfigInfoKraken.values(), false, EurobotMaps.CONFIG_FILE, "eurobot" + year);
+		engine = new DefaultPhysicsEngine(fixes, new EmptyDynamicObstacles(), config);
+		engine.update();
+		RectangularObstacle vehicle = EurobotMaps.getVehicle(year);
+		if(broadPhase.equals("occupancy_grid"))
+		{
+			occupancyEngine = new OccupancyGridPhysicsEngine(new Log(SeverityCategoryKraken.INFO, EurobotMaps.CONFIG_FILE, "eurobot" + year), config, fixes, engine, vehicle);
+			occupancyEngine.update();
+		}
+
+		Random r = new Random(0);
+		for(int i = 0; i < NB_TENTACLES; i++)
+		{
+			double x = bottomLeft.getX() + r.nextDouble() * (topRight.getX() - bottomLeft.getX());
+			double y = bottomLeft.getY() + r.nextDouble() * (topRight.getY() - bottomLeft.getY());
+			double o = r.nextDouble() * 2 * Math.PI;
+			double courbure = r.nextDouble() * 10 - 5;
+			StaticTentacle tentacle = new StaticTentacle(vehicle);
+			for(int j = 0; j < Tentacle.NB_POINTS; j++)
+			{
+				double angle = o + courbure * Tentacle.PRECISION_TRACE * j;
+				tentacle.arcselems[j].update(x + j * Tentacle.PRECISION_TRACE_MM * Math.cos(angle), y + j * Tentacle.PRECISION_TRACE_MM * Math.sin(angle), angle, true, courbure, 1, false);
+			}
+			tentacle.updateSweptBox();
+			tentacles.add(tentacle);
+		}
+	}
+
+	private boolean naiveCollision(Tentacle tentacle)
+	{
+		for(int j = 0; j < tentacle.getNbPoints(); j++)
+		{
+			RectangularObstacle co = tentacle.getPoint(j).obstacle;
+			for(int i = 0; i < 4; i++)
+				if(co.isColliding(coins[i], coins[(i + 1) & 3]))
+					return true;
+			for(Obstacle o : obstacles)
+				if(o.isColliding(co))
+					return true;
+		}
+		return false;
+	}
+
+	private long getCount()
+	{
+		long count = 0;
+		for(CountingObstacle o : obstacles)
+			count += o.count;
+		return count;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NB_TENTACLES)
+	public void isThereCollision(Blackhole bh, Counters counters)
+	{
+		long before = getCount();
+		if(broadPhase.equals("tentacle"))
+			for(Tentacle tentacle : tentacles)
+				bh.consume(engine.isThereCollision(tentacle));
+		else if(broadPhase.equals("occupancy_grid"))
+			for(Tentacle tentacle : tentacles)
+				bh.consume(occupancyEngine.isThereCollision(tentacle));
+		else if(broadPhase.equals("point"))
+			for(Tentacle tentacle : tentacles)
+				bh.consume(engine.isThereCollision((Iterable<RectangularObstacle>) tentacle));
+		else
+			for(Tentacle tentacle : tentacles)
+				bh.consume(naiveCollision(tentacle));
+		counters.isColliding += getCount() - before;
+		counters.tentacles += NB_TENTACLES;
+	}
+}
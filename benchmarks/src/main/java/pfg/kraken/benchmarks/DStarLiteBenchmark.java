@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pfg.kraken.Kraken;
+import pfg.kraken.SearchParameters;
+import pfg.kraken.dstarlite.DStarLite;
+import pfg.kraken.exceptions.NoPathException;
+import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.obstacles.container.DefaultDynamicObstacles;
+import pfg.kraken.utils.XY;
+
+/**
+ * The D* Lite on the navmesh of the Eurobot maps : a new path to another goal ("computeNewPath", the goals alternate)
+ * and the update of the edges after a dynamic obstacle moved ("updateObstacles", the obstacle alternates between two positions).
+ *
+ * @author pf
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DStarLiteBenchmark
+{
+	@Param({"2016", "2017", "2018"})
+	public int year;
+
+	private DStarLite dstarlite;
+	private RectangularObstacle movingObstacle;
+	private XY start;
+	private XY[] goals;
+	private int nb = 0;
+
+	@Setup
+	public void setUp() throws Exception
+	{
+		DefaultDynamicObstacles dynObs = new DefaultDynamicObstacles();
+		movingObstacle = new RectangularObstacle(new XY(0, 1000), 200, 200);
+		dynObs.add(movingObstacle);
+		Kraken kraken = new Kraken(EurobotMaps.getVehicle(year), EurobotMaps.getObstacles(year), dynObs, new XY(-1500,0), new XY(1500, 2000), EurobotMaps.CONFIG_FILE, "eurobot" + year);
+		dstarlite = kraken.getInternalService(DStarLite.class);
+		SearchParameters query = EurobotMaps.getQuery(year);
+		start = query.start.getPosition();
+		goals = new XY[] {query.arrival.getPosition(), new XY(0, 1800)};
+		dstarlite.computeNewPath(start, goals[0]);
+	}
+
+	@Benchmark
+	public boolean computeNewPath() throws NoPathException
+	{
+		nb++;
+		return dstarlite.computeNewPath(start, goals[nb & 1]);
+	}
+
+	@Benchmark
+	public int updateObstacles()
+	{
+		nb++;
+		movingObstacle.update(300 * (nb & 1), 1000, 0);
+		dstarlite.updateObstacles();
+		return dstarlite.getGeneration();
+	}
+}
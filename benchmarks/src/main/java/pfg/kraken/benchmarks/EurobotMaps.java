@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import pfg.kraken.Kraken;
+import pfg.kraken.SearchParameters;
+import pfg.kraken.obstacles.CircularObstacle;
+import pfg.kraken.obstacles.Obstacle;
+import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.utils.XY;
+import pfg.kraken.utils.XYO;
+
+/**
+ * The maps of the Eurobot examples (2016, 2017 and 2018), with the query of each example.
+ * The navmeshes are generated in the working directory the first time.
+ *
+ * @author pf
+ *
+ */
+
+public class EurobotMaps
+{
+	public static final String CONFIG_FILE = "kraken-benchmarks.conf";
+
+	public static List<Obstacle> getObstacles(int year)
+	{
+		List<Obstacle> obs = new ArrayList<Obstacle>();
+		if(year == 2016)
+		{
+			obs.add(new RectangularObstacle(new XY(0,1250), 1200, 22));
+			obs.add(new RectangularObstacle(new XY(0,950), 48, 600));
+
+			obs.add(new RectangularObstacle(new XY(-700,1900), 22, 200));
+			obs.add(new RectangularObstacle(new XY(700,1900), 22, 200));
+
+			obs.add(new CircularObstacle(new XY(-1500,0), 250));
+			obs.add(new CircularObstacle(new XY(1500,0), 250));
+
+			obs.add(new RectangularObstacle(new XY(-1200,1950), 100, 100));
+			obs.add(new RectangularObstacle(new XY(-900,1950), 100, 100));
+			obs.add(new RectangularObstacle(new XY(1200,1950), 100, 100));
+			obs.add(new RectangularObstacle(new XY(900,1950), 100, 100));
+
+			obs.add(new RectangularObstacle(new XY(-561,11), 22, 22));
+			obs.add(new RectangularObstacle(new XY(561,11), 22, 22));
+		}
+		else if(year == 2017)
+		{
+			obs.add(new RectangularObstacle(new XY(-(1140 - 350 / 2), 2000 - 360 / 2), 350, 360));
+			obs.add(new RectangularObstacle(new XY(-(1500 - 360 / 2), 2000 - 360 / 2), 360, 360));
+			obs.add(new RectangularObstacle(new XY(-(790 - 360 / 2), 2000 - 360 / 2), 360, 360));
+
+			obs.add(new RectangularObstacle(new XY(1140 - 350 / 2, 2000 - 360 / 2), 350, 360));
+			obs.add(new RectangularObstacle(new XY(1500 - 360 / 2, 2000 - 360 / 2), 360, 360));
+			obs.add(new RectangularObstacle(new XY(790 - 360 / 2, 2000 - 360 / 2), 360, 360));
+
+			obs.add(new RectangularObstacle(new XY(1500 - 710 / 2, 2000 - 360 - 11), 710, 22));
+			obs.add(new RectangularObstacle(new XY(-1500 + 710 / 2, 2000 - 360 - 11), 710, 22));
+
+			obs.add(new RectangularObstacle(new XY(54 - 1500, 1075), 108, 494));
+			obs.add(new RectangularObstacle(new XY(1500 - 54, 1075), 108, 494));
+
+			obs.add(new CircularObstacle(new XY(0, 0), 200));
+
+			obs.add(new RectangularObstacle(new XY(0, 500).rotateNewVector(-Math.PI / 4, new XY(0, 0)), 140, 600, -Math.PI / 4));
+			obs.add(new RectangularObstacle(new XY(0, 500), 140, 600));
+			obs.add(new RectangularObstacle(new XY(0, 500).rotateNewVector(Math.PI / 4, new XY(0, 0)), 140, 600, Math.PI / 4));
+
+			obs.add(new CircularObstacle(new XY(-1500, 0), 540));
+			obs.add(new CircularObstacle(new XY(1500, 0), 540));
+
+			obs.add(new CircularObstacle(new XY(-350, 1960), 40));
+			obs.add(new CircularObstacle(new XY(350, 1960), 40));
+
+			obs.add(new CircularObstacle(new XY(-1460, 650), 40));
+			obs.add(new CircularObstacle(new XY(1460, 650), 40));
+
+			obs.add(new CircularObstacle(new XY(650 - 1500, 2000 - 555), 125));
+			obs.add(new CircularObstacle(new XY(1500 - 650, 2000 - 555), 125));
+
+			obs.add(new CircularObstacle(new XY(1070 - 1500, 2000 - 1870), 125));
+			obs.add(new CircularObstacle(new XY(1500 - 1070, 2000 - 1870), 125));
+
+			obs.add(new CircularObstacle(new XY(200 - 1500, 1400), 32));
+			obs.add(new CircularObstacle(new XY(1500 - 200, 1400), 32));
+			obs.add(new CircularObstacle(new XY(1000 - 1500, 1400), 32));
+			obs.add(new CircularObstacle(new XY(1500 - 1000, 1400), 32));
+			obs.add(new CircularObstacle(new XY(500 - 1500, 900), 32));
+			obs.add(new CircularObstacle(new XY(1500 - 500, 900), 32));
+			obs.add(new CircularObstacle(new XY(900 - 1500, 600), 32));
+			obs.add(new CircularObstacle(new XY(1500 - 900, 600), 32));
+			obs.add(new CircularObstacle(new XY(800 - 1500, 150), 32));
+			obs.add(new CircularObstacle(new XY(1500 - 800, 150), 32));
+		}
+		else if(year == 2018)
+		{
+			obs.add(new RectangularObstacle(new XY(0, 250 / 2), 1200, 250));
+
+			obs.add(new RectangularObstacle(new XY(1450, 2000-840), 100, 55));
+			obs.add(new RectangularObstacle(new XY(-1450, 2000-840), 100, 55));
+
+			obs.add(new RectangularObstacle(new XY(-890, 50), 55, 100));
+			obs.add(new RectangularObstacle(new XY(890, 50), 55, 100));
+
+			obs.add(new RectangularObstacle(new XY(1100-560/2, 2000-180/2), 560, 180));
+			obs.add(new RectangularObstacle(new XY(-1100+560/2, 2000-180/2), 560, 180));
+
+			XY[] centers = new XY[]{new XY(-650,1460), new XY(650,1460), new XY(-400, 500), new XY(400, 500), new XY(-1200, 810), new XY(1200, 810)};
+
+			for(XY c : centers)
+			{
+				obs.add(new RectangularObstacle(new XY(c.getX(), c.getY()), 58, 58));
+				obs.add(new RectangularObstacle(new XY(c.getX()+58, c.getY()), 58, 58));
+				obs.add(new RectangularObstacle(new XY(c.getX()-58, c.getY()), 58, 58));
+				obs.add(new RectangularObstacle(new XY(c.getX(), c.getY()+58), 58, 58));
+				obs.add(new RectangularObstacle(new XY(c.getX(), c.getY()-58), 58, 58));
+			}
+		}
+		else
+			throw new IllegalArgumentException("Unknown map : " + year);
+		return obs;
+	}
+
+	public static RectangularObstacle getVehicle(int year)
+	{
+		if(year == 2018)
+			return new RectangularObstacle(248, 167, 182, 182);
+		return new RectangularObstacle(250, 80, 110, 110);
+	}
+
+	/**
+	 * The query of the example of this year
+	 *
+	 * @param year
+	 * @return
+	 */
+	public static SearchParameters getQuery(int year)
+	{
+		if(year == 2016)
+			return new SearchParameters(new XYO(0, 1500, 0), new XY(1000, 500));
+		if(year == 2017)
+			return new SearchParameters(new XYO(-850, 400, Math.PI/2), new XYO(850, 400, -Math.PI/2));
+		return new SearchParameters(new XYO(1200, 1600, -Math.PI/2), new XYO(365, 1355, 5));
+	}
+
+	/**
+	 * A Kraken on this map. The profiles of kraken-benchmarks.conf are added to the profile of the map.
+	 *
+	 * @param year
+	 * @param profiles
+	 * @return
+	 */
+	public static Kraken getKraken(int year, String... profiles)
+	{
+		String[] allProfiles = new String[profiles.length + 1];
+		allProfiles[0] = "eurobot" + year;
+		System.arraycopy(profiles, 0, allProfiles, 1, profiles.length);
+		return new Kraken(getVehicle(year), getObstacles(year), new XY(-1500,0), new XY(1500, 2000), CONFIG_FILE, allProfiles);
+	}
+}
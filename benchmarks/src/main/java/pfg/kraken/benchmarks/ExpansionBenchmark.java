@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pfg.kraken.Kraken;
+import pfg.kraken.SearchParameters;
+import pfg.kraken.astar.AStarNode;
+import pfg.kraken.astar.tentacles.TentacleManager;
+import pfg.kraken.exceptions.PathfindingException;
+import pfg.kraken.memory.NodePool;
+import pfg.kraken.robot.RobotState;
+
+/**
+ * The latency of one expansion of the A* (all the tentacles from one node) with each executor of the tentacles
+ * (the TENTACLE_EXECUTOR key of the config) : one task per tentacle in a blocking queue ("queue") or one batch
+ * per thread in a fork-join pool ("fork_join").
+ *
+ * @author pf
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpansionBenchmark
+{
+	@Param({"queue", "fork_join"})
+	public String executor;
+
+	@Param({"2", "4"})
+	public int threads;
+
+	private TentacleManager tentacles;
+	private NodePool memory;
+	private AStarNode current;
+
+	@Setup
+	public void setUp() throws Exception
+	{
+		Kraken kraken = EurobotMaps.getKraken(2018, executor, "threads" + threads);
+		SearchParameters query = EurobotMaps.getQuery(2018);
+		// configures the tentacle manager
+		kraken.initializeNewSearch(query);
+		tentacles = kraken.getInternalService(TentacleManager.class);
+		memory = kraken.getInternalService(NodePool.class);
+		current = new AStarNode(new RobotState(), EurobotMaps.getVehicle(2018));
+		current.robot.setCinematique(query.start);
+	}
+
+	@Benchmark
+	public int expand() throws PathfindingException
+	{
+		int nbSuccessors = 0;
+		tentacles.computeTentacles(current);
+		while(tentacles.hasNext())
+		{
+			memory.destroyNode(tentacles.next());
+			nbSuccessors++;
+		}
+		return nbSuccessors;
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import pfg.config.Config;
+import pfg.kraken.ConfigInfoKraken;
+import pfg.kraken.SeverityCategoryKraken;
+import pfg.kraken.memory.CinemObsPool;
+import pfg.kraken.robot.CinematiqueObs;
+import pfg.log.Log;
+
+/**
+ * Allocations and destructions in a memory pool shared by several threads, as the tentacle threads do :
+ * - synchronized : the default pool, locked at each allocation and destruction
+ * - thread_local : the pool with MEMORY_POOL_THREAD_LOCAL, each thread uses its own slab
+ * The number of threads can be changed with the -t option of JMH.
+ *
+ * @author pf
+ *
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class MemoryPoolBenchmark
+{
+	private static final int NB_OBJECTS = 64;
+
+	@Param({"synchronized", "thread_local"})
+	public String mode;
+
+	private CinemObsPool pool;
+
+	@State(Scope.Thread)
+	public static class Objects
+	{
+		public CinematiqueObs[] objects = new CinematiqueObs[NB_OBJECTS];
+	}
+
+	@Setup
+	public void setUp()
+	{
+		Config config = new Config(ConfigInfoKraken.values(), false, EurobotMaps.CONFIG_FILE, "eurobot2018");
+		config.override(ConfigInfoKraken.MEMORY_POOL_THREAD_LOCAL, mode.equals("thread_local"));
+		pool = new CinemObsPool(new Log(SeverityCategoryKraken.INFO, EurobotMaps.CONFIG_FILE, "eurobot2018"), config, EurobotMaps.getVehicle(2018));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NB_OBJECTS)
+	public void allocateAndDestroy(Objects o)
+	{
+		for(int i = 0; i < NB_OBJECTS; i++)
+			o.objects[i] = pool.getNewNode();
+		for(int i = 0; i < NB_OBJECTS; i++)
+			pool.destroyNode(o.objects[i]);
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pfg.kraken.Kraken;
+import pfg.kraken.dstarlite.navmesh.NavmeshComputer;
+import pfg.kraken.dstarlite.navmesh.TriangulatedMesh;
+import pfg.kraken.obstacles.container.StaticObstacles;
+
+/**
+ * The generation of the navmesh of the Eurobot maps with each generator (the NAVMESH_GENERATION key of the config),
+ * with the default resolution ("default_navmesh") and with smaller triangles and edges ("fine_navmesh", about
+ * 15 000 nodes).
+ *
+ * @author pf
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NavmeshBenchmark
+{
+	@Param({"2016", "2017", "2018"})
+	public int year;
+
+	@Param({"navmesh_indexed", "navmesh_priority_queue"})
+	public String generation;
+
+	@Param({"default_navmesh", "fine_navmesh"})
+	public String resolution;
+
+	private NavmeshComputer computer;
+	private StaticObstacles obstacles;
+
+	@Setup
+	public void setUp() throws Exception
+	{
+		Kraken kraken = EurobotMaps.getKraken(year, generation, resolution);
+		computer = kraken.getInternalService(NavmeshComputer.class);
+		obstacles = kraken.getInternalService(StaticObstacles.class);
+	}
+
+	@Benchmark
+	public TriangulatedMesh generateNavMesh()
+	{
+		return computer.generateNavMesh(obstacles);
+	}
+}
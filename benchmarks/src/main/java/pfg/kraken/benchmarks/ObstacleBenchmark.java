@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.utils.XY;
+
+/**
+ * The narrow phase : RectangularObstacle.isColliding between two rectangles, and with a segment (as the edges of the navmesh).
+ * The rectangles are random vehicles on the table ; "near" puts them in a small area, so most of the
+ * pairs are close and the separating axis test can't stop early.
+ *
+ * @author pf
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObstacleBenchmark
+{
+	private static final int NB_OBSTACLES = 1024;
+
+	@Param({"near", "table"})
+	public String area;
+
+	private RectangularObstacle[] obstacles = new RectangularObstacle[NB_OBSTACLES];
+	private XY[] points = new XY[NB_OBSTACLES];
+
+	@Setup
+	public void setUp()
+	{
+		Random r = new Random(0);
+		double size = area.equals("near") ? 400 : 3000;
+		for(int i = 0; i < NB_OBSTACLES; i++)
+		{
+			obstacles[i] = EurobotMaps.getVehicle(2018);
+			obstacles[i].update(new XY(r.nextDouble() * size - size / 2, r.nextDouble() * size * 2 / 3), r.nextDouble() * 2 * Math.PI);
+			points[i] = new XY(r.nextDouble() * size - size / 2, r.nextDouble() * size * 2 / 3);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NB_OBSTACLES)
+	public int rectangles()
+	{
+		int nbCollisions = 0;
+		for(int i = 0; i < NB_OBSTACLES; i++)
+			if(obstacles[i].isColliding(obstacles[(i + 1) & (NB_OBSTACLES - 1)]))
+				nbCollisions++;
+		return nbCollisions;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NB_OBSTACLES)
+	public int segments()
+	{
+		int nbCollisions = 0;
+		for(int i = 0; i < NB_OBSTACLES; i++)
+			if(obstacles[i].isColliding(points[i], points[(i + 1) & (NB_OBSTACLES - 1)]))
+				nbCollisions++;
+		return nbCollisions;
+	}
+}
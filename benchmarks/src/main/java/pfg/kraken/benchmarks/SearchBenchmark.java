@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pfg.kraken.Kraken;
+import pfg.kraken.SearchParameters;
+import pfg.kraken.exceptions.PathfindingException;
+import pfg.kraken.robot.ItineraryPoint;
+
+/**
+ * A complete search (initialization and A*) on the Eurobot maps with each collision check strategy
+ * (the COLLISION_CHECK key of the config). With -prof gc, gc.alloc.rate.norm is the allocation of one search.
+ *
+ * @author pf
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark
+{
+	@Param({"2016", "2017", "2018"})
+	public int year;
+
+	@Param({"lazy", "eager", "hybrid"})
+	public String collisionCheck;
+
+	private Kraken kraken;
+	private SearchParameters query;
+
+	@Setup
+	public void setUp()
+	{
+		kraken = EurobotMaps.getKraken(year, collisionCheck);
+		query = EurobotMaps.getQuery(year);
+	}
+
+	@Benchmark
+	public List<ItineraryPoint> search() throws PathfindingException
+	{
+		kraken.initializeNewSearch(query);
+		return kraken.search();
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.benchmarks;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pfg.config.Config;
+import pfg.kraken.ConfigInfoKraken;
+import pfg.kraken.Kraken;
+import pfg.kraken.SearchParameters;
+import pfg.kraken.astar.AStarNode;
+import pfg.kraken.astar.engine.CollisionCounters;
+import pfg.kraken.astar.engine.CollisionStrategy;
+import pfg.kraken.astar.engine.PhysicsEngine;
+import pfg.kraken.astar.tentacles.TentacleManager;
+import pfg.kraken.astar.tentacles.computethread.TentacleTask;
+import pfg.kraken.astar.tentacles.computethread.TentacleThread;
+import pfg.kraken.astar.tentacles.types.BezierTentacle;
+import pfg.kraken.astar.tentacles.types.ClothoTentacle;
+import pfg.kraken.astar.tentacles.types.SpinTentacle;
+import pfg.kraken.astar.tentacles.types.TentacleType;
+import pfg.kraken.memory.NodePool;
+import pfg.kraken.robot.RobotState;
+import pfg.log.Log;
+
+/**
+ * The computation of one tentacle by a tentacle thread (the computer of the tentacle, the swept box, the duration
+ * and the heuristic of the successor) from the start of the Eurobot 2018 query, for each kind of tentacle (clothoid, Bézier curve and spin).
+ * The collision check isn't included (LAZY).
+ *
+ * @author pf
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TentacleBenchmark
+{
+	@Param({"COURBURE_IDENTIQUE", "GAUCHE_2", "COURBURE_IDENTIQUE_REBROUSSE", "BEZIER_XYOC_TO_XY", "INTERMEDIATE_BEZIER_XYO_TO_XYO", "UP"})
+	public String tentacle;
+
+	private TentacleThread thread;
+	private TentacleTask task = new TentacleTask();
+	private NodePool memory;
+
+	@Setup
+	public void setUp() throws Exception
+	{
+		Kraken kraken = EurobotMaps.getKraken(2018);
+		SearchParameters query = EurobotMaps.getQuery(2018);
+		// configures the tentacle manager and the D* Lite for the heuristic
+		kraken.initializeNewSearch(query);
+		Config config = kraken.getInternalService(Config.class);
+		memory = kraken.getInternalService(NodePool.class);
+		thread = new TentacleThread(kraken.getInternalService(Log.class), config, memory, 0, new LinkedBlockingQueue<AStarNode>(), new LinkedBlockingQueue<TentacleTask>(), kraken.getInternalService(PhysicsEngine.class), CollisionStrategy.LAZY, kraken.getInternalService(CollisionCounters.class));
+
+		task.current = new AStarNode(new RobotState(), EurobotMaps.getVehicle(2018));
+		task.current.robot.setCinematique(query.start);
+		task.v = getTentacleType(tentacle);
+		task.arrivee = query.arrival;
+		task.computer = kraken.getInternalService(task.v.getComputer());
+		task.vitesseMax = config.getDouble(ConfigInfoKraken.DEFAULT_MAX_SPEED);
+		task.arcmanager = kraken.getInternalService(TentacleManager.class);
+	}
+
+	private static TentacleType getTentacleType(String name)
+	{
+		Class<?>[] types = new Class<?>[] {ClothoTentacle.class, BezierTentacle.class, SpinTentacle.class};
+		for(Class<?> c : types)
+			for(Object t : c.getEnumConstants())
+				if(((Enum<?>) t).name().equals(name))
+					return (TentacleType) t;
+		throw new IllegalArgumentException("Unknown tentacle : " + name);
+	}
+
+	@Benchmark
+	public boolean compute()
+	{
+		AStarNode successor = thread.computeSuccessor(task);
+		if(successor == null)
+			return false;
+		memory.destroyNode(successor);
+		return true;
+	}
+}
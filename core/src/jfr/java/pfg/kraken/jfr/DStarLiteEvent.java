@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * An update of the D* Lite : a new path (computeNewPath) or new obstacles (updateObstacles)
+ *
+ * @author pf
+ *
+ */
+
+@Name("pfg.kraken.DStarLite")
+@Label("D* Lite Update")
+@Category("Kraken")
+@Description("An update of the D* Lite on the navmesh")
+final class DStarLiteEvent extends Event
+{
+	@Label("Operation")
+	String operation;
+
+	@Label("Checked Edges")
+	@Description("The edges near the obstacles that appeared, moved or disappeared")
+	int checkedEdges;
+
+	@Label("Changed")
+	@Description("Whether the heuristic has changed (always true for computeNewPath)")
+	boolean changed;
+}
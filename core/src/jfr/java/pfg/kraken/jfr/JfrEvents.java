@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.jfr;
+
+/**
+ * The events of Java Flight Recorder, with jdk.jfr. It is compiled for Java 11 and loaded by FlightRecorder.
+ *
+ * @author pf
+ *
+ */
+
+public final class JfrEvents implements Events
+{
+	@Override
+	public Object beginSearch()
+	{
+		SearchEvent event = new SearchEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endSearch(Object search, String outcome, int expandedNodes, int generatedNodes, long collisionChecks)
+	{
+		SearchEvent event = (SearchEvent) search;
+		event.end();
+		if(event.shouldCommit())
+		{
+			event.outcome = outcome;
+			event.expandedNodes = expandedNodes;
+			event.generatedNodes = generatedNodes;
+			event.collisionChecks = collisionChecks;
+			event.commit();
+		}
+	}
+
+	@Override
+	public Object beginDStarLite()
+	{
+		DStarLiteEvent event = new DStarLiteEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endDStarLite(Object update, String operation, int checkedEdges, boolean changed)
+	{
+		DStarLiteEvent event = (DStarLiteEvent) update;
+		event.end();
+		if(event.shouldCommit())
+		{
+			event.operation = operation;
+			event.checkedEdges = checkedEdges;
+			event.changed = changed;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void partialRebuild(int addedPoints, int pathSize)
+	{
+		PartialRebuildEvent event = new PartialRebuildEvent();
+		if(event.shouldCommit())
+		{
+			event.addedPoints = addedPoints;
+			event.pathSize = pathSize;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void notFastEnough(int missingPoints)
+	{
+		NotFastEnoughEvent event = new NotFastEnoughEvent();
+		if(event.shouldCommit())
+		{
+			event.missingPoints = missingPoints;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void poolGrowth(String pool, int capacity)
+	{
+		PoolGrowthEvent event = new PoolGrowthEvent();
+		if(event.shouldCommit())
+		{
+			event.pool = pool;
+			event.capacity = capacity;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The replanning has been stopped because it is too slow (NotFastEnoughException)
+ *
+ * @author pf
+ *
+ */
+
+@Name("pfg.kraken.NotFastEnough")
+@Label("Not Fast Enough")
+@Category("Kraken")
+@Description("The replanning couldn't give enough margin to the robot")
+final class NotFastEnoughEvent extends Event
+{
+	@Label("Missing Points")
+	int missingPoints;
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A partial path added to the dynamic path, because the robot is about to reach the end of the current path
+ *
+ * @author pf
+ *
+ */
+
+@Name("pfg.kraken.PartialRebuild")
+@Label("Partial Rebuild")
+@Category("Kraken")
+@Description("A partial path given while the replanning is in progress")
+final class PartialRebuildEvent extends Event
+{
+	@Label("Added Points")
+	int addedPoints;
+
+	@Label("Path Size")
+	int pathSize;
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A memory pool has been enlarged
+ *
+ * @author pf
+ *
+ */
+
+@Name("pfg.kraken.PoolGrowth")
+@Label("Memory Pool Growth")
+@Category("Kraken")
+@Description("New objects have been allocated by a memory pool")
+final class PoolGrowthEvent extends Event
+{
+	@Label("Pool")
+	String pool;
+
+	@Label("Capacity")
+	int capacity;
+}
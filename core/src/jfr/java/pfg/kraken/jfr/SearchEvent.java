@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A search of the A*, from its beginning to its end
+ *
+ * @author pf
+ *
+ */
+
+@Name("pfg.kraken.Search")
+@Label("Search")
+@Category("Kraken")
+@Description("A search of the tentacular A*")
+final class SearchEvent extends Event
+{
+	@Label("Outcome")
+	String outcome;
+
+	@Label("Expanded Nodes")
+	int expandedNodes;
+
+	@Label("Generated Nodes")
+	int generatedNodes;
+
+	@Label("Collision Checks")
+	long collisionChecks;
+}
@@ -40,6 +40,7 @@ public enum ConfigInfoKraken implements ConfigInfo
 	LARGEST_TRIANGLE_AREA_IN_NAVMESH(20000), // in mm²
 	LONGEST_EDGE_IN_NAVMESH(200), // in mm
 	NAVMESH_FILENAME("navmesh.krk"), // the filename of the navmesh
+	NAVMESH_GENERATION("INDEXED"), // the queues of the navmesh generation : INDEXED (the index of each element is kept, and the points are located by walking in the triangulation) or PRIORITY_QUEUE (slower). Both give the same navmesh
 	
 	NECESSARY_MARGIN(40), // minimun distance that MUST be available in the current path, in mm
 	PREFERRED_MARGIN(60), // preferred distance that should be available in the current path, in mm
@@ -59,6 +60,20 @@ public enum ConfigInfoKraken implements ConfigInfo
 						// (par exemple à cause d'un rebroussement) in ms
 	SEARCH_TIMEOUT(10000), // in ms
 	THREAD_NUMBER(1), // the number of threads for the tentacle computing. Recommended value for highest performance : nb cores + 1
+	SEARCH_CONTEXTS(2), // the number of searches that Kraken.searchAsync runs at once, each with its own memory pools, D* Lite and tentacle threads
+	TENTACLE_EXECUTOR("QUEUE"), // how the tentacles are given to the threads : QUEUE (one task per tentacle in a blocking queue) or FORK_JOIN (one batch per thread in a fork-join pool)
+	OPEN_SET("HEAP"), // the open set of the A* : HEAP (indexed 4-ary heap), BUCKET (bucket queue on the f score) or PRIORITY_QUEUE
+	NODE_STORAGE("OBJECTS"), // the storage of the nodes of the A* : OBJECTS (one AStarNode per node) or ARRAYS (primitive arrays, smaller for large searches)
+	SPECULATIVE_EXPANSION(1), // the number of best nodes of the open set that are expanded together by the threads (1 : one node at a time). The fork-join executor is used if greater than 1. Ignored with CHECK_NEW_OBSTACLES
+	COLLISION_CHECK("LAZY"), // when the tentacles are checked against the obstacles : LAZY (when the node is chosen), EAGER (by the tentacle threads) or HYBRID (cheap swept box test by the tentacle threads, complete check when the node is chosen). LAZY with CHECK_NEW_OBSTACLES
+	HEURISTIC_CACHE(false), // cache the heuristic of the discretized states (the cells of Cinematique.hashCode()) : faster, but the heuristic is approximated
+	FINAL_ANGLE_ERROR_DISTANCE(100), // under this distance to the arrival, in mm, the error of the final orientation is added to the heuristic (with the coefficient of the research profile) and the heuristic isn't cached
+	COLLISION_GRID_CELL_SIZE(200), // size of the cells of the grid that filters the obstacles before the collision checks, in mm
+	PHYSICS_ENGINE("DEFAULT"), // the physics engine if none is given : DEFAULT or OCCUPANCY_GRID (precomputed bitmap of the fixed obstacles)
+	OCCUPANCY_GRID_FILENAME("occupancy.krk"), // the filename of the bitmap of the occupancy grid
+	OCCUPANCY_GRID_RESOLUTION(20), // size of the cells of the occupancy grid, in mm
+	OCCUPANCY_GRID_ORIENTATIONS(64), // number of orientation buckets of the occupancy grid
+	ARTIFACT_CACHE_DIRECTORY(""), // the directory of the precomputed files (navmesh, occupancy grid, unitary clothoid), named by a digest of the obstacles and of the parameters. If empty, NAVMESH_FILENAME and OCCUPANCY_GRID_FILENAME are used
 //	ALLOW_SPINNING(false), // can the robot spin ?
 	
 	ENABLE_DEBUG_MODE(false), // enable the debug mode
@@ -70,6 +85,7 @@ public enum ConfigInfoKraken implements ConfigInfo
 	 */
 	NODE_MEMORY_POOL_SIZE(20000),
 	OBSTACLES_MEMORY_POOL_SIZE(50000), // nombre d'instances pour les obstacles
+	MEMORY_POOL_THREAD_LOCAL(false), // each tentacle thread allocates from its own slab
 			
 	/**
 	 * Interface graphique
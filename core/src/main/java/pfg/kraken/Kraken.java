@@ -7,8 +7,22 @@ package pfg.kraken;
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import pfg.config.Config;
 import pfg.config.ConfigInfo;
 import pfg.graphic.Vec2RO;
@@ -19,11 +33,14 @@ import pfg.graphic.ConfigInfoGraphic;
 import pfg.graphic.DebugTool;
 import pfg.injector.Injector;
 import pfg.injector.InjectorException;
+import pfg.kraken.astar.SearchStatistics;
 import pfg.kraken.astar.TentacularAStar;
 import pfg.kraken.astar.autoreplanning.CollisionDetectionThread;
 import pfg.kraken.astar.autoreplanning.DynamicPath;
 import pfg.kraken.astar.autoreplanning.ReplanningThread;
+import pfg.kraken.astar.engine.CollisionCounters;
 import pfg.kraken.astar.engine.DefaultPhysicsEngine;
+import pfg.kraken.astar.engine.OccupancyGridPhysicsEngine;
 import pfg.kraken.astar.engine.PhysicsEngine;
 import pfg.kraken.astar.tentacles.ResearchProfile;
 import pfg.kraken.astar.tentacles.ResearchProfileManager;
@@ -43,6 +60,7 @@ import pfg.kraken.obstacles.container.EmptyDynamicObstacles;
 import pfg.kraken.obstacles.container.StaticObstacles;
 import pfg.kraken.robot.ItineraryPoint;
 import pfg.kraken.utils.XY;
+import pfg.kraken.utils.XYO;
 
 /**
  * The manager of the tentacle pathfinder.
@@ -59,6 +77,11 @@ public final class Kraken
 	private TentacleManager tentaclemanager;
 	private DynamicPath dpath;
 	private boolean autoReplanningEnable = false;
+	private PhysicsEngine customEngine;
+	private ExecutorService searchExecutor = null;
+	private final Queue<SearchContext> idleSearchContexts = new ConcurrentLinkedQueue<SearchContext>(); // at most one per thread of the executor
+	private volatile boolean closed = false;
+	private volatile MetricsRegistry metricsRegistry = null; // also given to the search contexts
 	
 	/**
 	 * Get Kraken with :
@@ -119,10 +142,19 @@ public final class Kraken
 			injector.addService(this);
 			injector.addService(injector);
 
+			customEngine = engine;
 			if(engine != null)
-				injector.addService(engine);
+				injector.addService(PhysicsEngine.class, engine);
 			else
-				injector.addService(PhysicsEngine.class, injector.getService(DefaultPhysicsEngine.class));
+			{
+				String type = config.getString(ConfigInfoKraken.PHYSICS_ENGINE);
+				if(type.equals("DEFAULT"))
+					injector.addService(PhysicsEngine.class, injector.getService(DefaultPhysicsEngine.class));
+				else if(type.equals("OCCUPANCY_GRID"))
+					injector.addService(PhysicsEngine.class, injector.getService(OccupancyGridPhysicsEngine.class));
+				else
+					throw new IllegalArgumentException("Unknown physics engine : "+type);
+			}
 			
 
 			/*
@@ -221,6 +253,191 @@ public final class Kraken
 			throw new NotInitializedPathfindingException("search() isn't permitted in autoreplanning mode.");
 	}
 	
+	/**
+	 * Search a path in another thread. Up to SEARCH_CONTEXTS searches run at once, each in its own search context
+	 * (memory pools, D* Lite, tentacle threads) ; the navmesh and the fixed obstacles are shared. This method is
+	 * thread-safe and independent of search() and of the autoreplanning.
+	 * If a physics engine has been given to the constructor, it is shared by the contexts and must be thread-safe.
+	 * The modes should be added before the first call.
+	 * The future fails with the PathfindingException of the search, wrapped in a CompletionException.
+	 * The threads of the contexts are stopped by close().
+	 * @param sp
+	 * @return
+	 */
+	public CompletableFuture<List<ItineraryPoint>> searchAsync(final SearchParameters sp)
+	{
+		return CompletableFuture.supplyAsync(new Supplier<List<ItineraryPoint>>()
+		{
+			@Override
+			public List<ItineraryPoint> get()
+			{
+				SearchContext context = null;
+				try {
+					context = takeSearchContext();
+					return context.search(sp);
+				} catch(PathfindingException | InjectorException e) {
+					throw new CompletionException(e);
+				} finally {
+					if(context != null)
+						releaseSearchContext(context);
+				}
+			}
+		}, getSearchExecutor());
+	}
+	
+	/**
+	 * Search the paths of many queries, for example to evaluate the travel times between some places.
+	 * The queries with the same arrival are searched one after the other in the same search context, so the
+	 * backward search of the D* Lite from this arrival is done once ; the groups run in parallel, like searchAsync.
+	 * A query without path doesn't stop the others : its result contains the exception.
+	 * @param queries
+	 * @param keepPaths : if false, only the durations are kept
+	 * @return the results, in the order of the queries
+	 */
+	public List<SearchResult> searchBatch(final List<SearchParameters> queries, final boolean keepPaths)
+	{
+		Map<XY, List<Integer>> groups = new LinkedHashMap<XY, List<Integer>>();
+		for(int i = 0; i < queries.size(); i++)
+		{
+			XY arrival = queries.get(i).arrival.getPosition();
+			List<Integer> group = groups.get(arrival);
+			if(group == null)
+			{
+				group = new ArrayList<Integer>();
+				groups.put(arrival, group);
+			}
+			group.add(i);
+		}
+		
+		final SearchResult[] results = new SearchResult[queries.size()];
+		List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+		for(final List<Integer> group : groups.values())
+			futures.add(CompletableFuture.runAsync(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					SearchContext context = null;
+					try {
+						context = takeSearchContext();
+						for(int i : group)
+							results[i] = context.evaluate(queries.get(i), keepPaths);
+					} catch(InjectorException e) {
+						throw new CompletionException(e);
+					} finally {
+						if(context != null)
+							releaseSearchContext(context);
+					}
+				}
+			}, getSearchExecutor()));
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).join();
+		return Arrays.asList(results);
+	}
+	
+	/**
+	 * The durations of the paths (XY mode) from each start to each arrival, in ms (-1 if there is no path).
+	 * See searchBatch.
+	 * @param starts
+	 * @param arrivals
+	 * @return durations[i][j] from starts[i] to arrivals[j]
+	 */
+	public long[][] computeDurations(List<XYO> starts, List<XY> arrivals)
+	{
+		List<SearchParameters> queries = new ArrayList<SearchParameters>();
+		for(XYO start : starts)
+			for(XY arrival : arrivals)
+				queries.add(new SearchParameters(start, arrival));
+		
+		List<SearchResult> results = searchBatch(queries, false);
+		long[][] durations = new long[starts.size()][arrivals.size()];
+		for(int i = 0; i < starts.size(); i++)
+			for(int j = 0; j < arrivals.size(); j++)
+				durations[i][j] = results.get(i * arrivals.size() + j).duration;
+		return durations;
+	}
+	
+	/**
+	 * The idle threads of the executor stop after a while, but not the tentacle threads of the search contexts :
+	 * see close()
+	 * @return
+	 */
+	private synchronized ExecutorService getSearchExecutor()
+	{
+		if(closed)
+			throw new IllegalStateException("Kraken is closed");
+		if(searchExecutor == null)
+		{
+			int nbContexts = config.getInt(ConfigInfoKraken.SEARCH_CONTEXTS);
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(nbContexts, nbContexts, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+			{
+				private AtomicInteger nb = new AtomicInteger();
+				
+				@Override
+				public Thread newThread(Runnable r)
+				{
+					Thread t = new Thread(r, "Kraken search context "+nb.getAndIncrement());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			executor.allowCoreThreadTimeOut(true);
+			searchExecutor = executor;
+		}
+		return searchExecutor;
+	}
+	
+	/**
+	 * An idle search context, or a new one. There are never more contexts than threads in the executor.
+	 * @return
+	 * @throws InjectorException
+	 */
+	private SearchContext takeSearchContext() throws InjectorException
+	{
+		if(closed)
+			throw new IllegalStateException("Kraken is closed");
+		SearchContext context = idleSearchContexts.poll();
+		if(context == null)
+			context = new SearchContext(injector, customEngine);
+		context.setMetricsRegistry(metricsRegistry);
+		return context;
+	}
+	
+	/**
+	 * A search context is idle again. If Kraken has been closed meanwhile, it is closed.
+	 * @param context
+	 */
+	private void releaseSearchContext(SearchContext context)
+	{
+		idleSearchContexts.add(context);
+		if(closed)
+			closeIdleSearchContexts();
+	}
+	
+	private void closeIdleSearchContexts()
+	{
+		SearchContext context;
+		while((context = idleSearchContexts.poll()) != null)
+			context.close();
+	}
+	
+	/**
+	 * Stops all the threads of Kraken : the autoreplanning, the tentacle threads (or the fork-join pools) of the main
+	 * search and of the search contexts, and the threads of searchAsync and searchBatch. The asynchronous searches
+	 * in progress end normally and their contexts are closed afterwards ; the other ones fail.
+	 * Kraken can't be used afterwards. It is only necessary with THREAD_NUMBER > 1 or with the asynchronous searches.
+	 */
+	public synchronized void close()
+	{
+		if(closed)
+			return;
+		closed = true;
+		endAutoReplanning();
+		if(searchExecutor != null)
+			searchExecutor.shutdown();
+		closeIdleSearchContexts();
+		tentaclemanager.shutdown();
+	}
+	
 	/**
 	 * Used by the unit tests
 	 * @return
@@ -230,6 +447,47 @@ public final class Kraken
 		return injector;
 	}
 
+	/**
+	 * A service of Kraken that isn't part of the API (the D* Lite, the navmesh computer, the tentacle manager…), for
+	 * the benchmarks and the debugging tools. These services may change from a version to another.
+	 * @param service
+	 * @return
+	 * @throws InjectorException
+	 */
+	public <S> S getInternalService(Class<S> service) throws InjectorException
+	{
+		return injector.getService(service);
+	}
+
+	/**
+	 * The collision checks of the last search (see COLLISION_CHECK)
+	 * @return
+	 */
+	public CollisionCounters getCollisionCounters()
+	{
+		return injector.getExistingService(CollisionCounters.class);
+	}
+	
+	/**
+	 * The statistics of the last search
+	 * @return
+	 */
+	public SearchStatistics getSearchStatistics()
+	{
+		return injector.getExistingService(SearchStatistics.class);
+	}
+	
+	/**
+	 * The registry that gets the statistics at the end of each search, to monitor them (null to disable it).
+	 * It gets the searches of search() and of the autoreplanning, and those of searchAsync and searchBatch.
+	 * @param registry
+	 */
+	public void setMetricsRegistry(MetricsRegistry registry)
+	{
+		metricsRegistry = registry;
+		getSearchStatistics().setRegistry(registry);
+	}
+	
 	/**
 	 * Get the graphic display
 	 * @return
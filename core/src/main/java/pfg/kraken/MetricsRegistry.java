@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken;
+
+/**
+ * A hook to monitor the searches (see Kraken.setMetricsRegistry). The statistics of each search are
+ * recorded at its end. The methods match the meters of Micrometer, so an implementation can just
+ * forward them to a MeterRegistry (a Timer with a percentile histogram for the durations, a DistributionSummary
+ * for the amounts, a Counter for the events).
+ * The calls come from the thread that did the search, so the implementation must be thread-safe.
+ *
+ * @author pf
+ *
+ */
+
+public interface MetricsRegistry
+{
+	/**
+	 * A duration, like Timer.record(nanoseconds, TimeUnit.NANOSECONDS)
+	 *
+	 * @param name
+	 * @param nanoseconds
+	 */
+	public void recordDuration(String name, long nanoseconds);
+
+	/**
+	 * An amount, like DistributionSummary.record(amount)
+	 *
+	 * @param name
+	 * @param amount
+	 */
+	public void recordAmount(String name, double amount);
+
+	/**
+	 * Some events, like Counter.increment(amount)
+	 *
+	 * @param name
+	 * @param amount
+	 */
+	public void increment(String name, double amount);
+}
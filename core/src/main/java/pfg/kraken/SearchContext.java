@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken;
+
+import java.util.List;
+import pfg.config.Config;
+import pfg.graphic.GraphicDisplay;
+import pfg.injector.Injector;
+import pfg.injector.InjectorException;
+import pfg.kraken.astar.SearchStatistics;
+import pfg.kraken.astar.TentacularAStar;
+import pfg.kraken.astar.engine.DefaultPhysicsEngine;
+import pfg.kraken.astar.engine.OccupancyGridPhysicsEngine;
+import pfg.kraken.astar.engine.PhysicsEngine;
+import pfg.kraken.astar.tentacles.ResearchProfileManager;
+import pfg.kraken.astar.tentacles.TentacleManager;
+import pfg.kraken.dstarlite.navmesh.Navmesh;
+import pfg.kraken.exceptions.PathfindingException;
+import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.obstacles.container.DynamicObstacles;
+import pfg.kraken.obstacles.container.StaticObstacles;
+import pfg.kraken.robot.ItineraryPoint;
+import pfg.log.Log;
+
+/**
+ * An independent search used by Kraken.searchAsync. The read-only parts (the configuration, the navmesh, the fixed
+ * obstacles, the research profiles, the clothoid table and the occupancy grid) are shared with Kraken ; the memory
+ * pools, the D* Lite, the tentacle threads and the A* belong to the context.
+ * A context is used by one thread at a time. It owns some threads (see TentacleManager) : it must be closed when
+ * it isn't used anymore.
+ *
+ * @author pf
+ *
+ */
+
+final class SearchContext
+{
+	private final TentacularAStar astar;
+	private final TentacleManager tentaclemanager;
+	private final SearchStatistics statistics;
+	private final ResearchProfileManager profiles;
+
+	/**
+	 * @param parent : the injector of Kraken
+	 * @param customEngine : the physics engine given to Kraken, if any (it is then shared)
+	 * @throws InjectorException
+	 */
+	SearchContext(Injector parent, PhysicsEngine customEngine) throws InjectorException
+	{
+		Injector injector = new Injector();
+		Config config = parent.getExistingService(Config.class);
+		profiles = parent.getExistingService(ResearchProfileManager.class);
+
+		injector.addService(config);
+		injector.addService(parent.getExistingService(Log.class));
+		injector.addService(RectangularObstacle.class, parent.getExistingService(RectangularObstacle.class));
+		injector.addService(DynamicObstacles.class, parent.getExistingService(DynamicObstacles.class));
+		injector.addService(parent.getExistingService(StaticObstacles.class));
+		injector.addService(parent.getExistingService(Navmesh.class));
+		injector.addService(parent.getExistingService(GraphicDisplay.class));
+		injector.addService(profiles);
+		injector.addService(injector);
+
+		if(customEngine != null)
+			injector.addService(PhysicsEngine.class, customEngine);
+		else
+		{
+			String type = config.getString(ConfigInfoKraken.PHYSICS_ENGINE);
+			if(type.equals("DEFAULT"))
+				injector.addService(PhysicsEngine.class, injector.getService(DefaultPhysicsEngine.class));
+			else if(type.equals("OCCUPANCY_GRID"))
+				injector.addService(PhysicsEngine.class, parent.getExistingService(OccupancyGridPhysicsEngine.class).copy(injector.getService(DefaultPhysicsEngine.class)));
+			else
+				throw new IllegalArgumentException("Unknown physics engine : "+type);
+		}
+
+		astar = injector.getService(TentacularAStar.class);
+		tentaclemanager = injector.getService(TentacleManager.class);
+		statistics = injector.getService(SearchStatistics.class);
+	}
+
+	List<ItineraryPoint> search(SearchParameters sp) throws PathfindingException
+	{
+		// the mode may have been added after the creation of this context
+		tentaclemanager.updateProfiles(profiles.getProfile(sp.mode));
+		astar.initializeNewSearch(sp.start, sp.arrival, sp.directionstrategy, sp.mode, sp.maxSpeed, sp.timeout);
+		return astar.searchWithoutReplanning();
+	}
+
+	/**
+	 * A search whose failure is kept in the result
+	 * @param sp
+	 * @param keepPath
+	 * @return
+	 */
+	SearchResult evaluate(SearchParameters sp, boolean keepPath)
+	{
+		try {
+			List<ItineraryPoint> path = search(sp);
+			return new SearchResult(sp, keepPath ? path : null, statistics.getPathDuration());
+		} catch(PathfindingException e) {
+			return new SearchResult(sp, e);
+		}
+	}
+
+	void setMetricsRegistry(MetricsRegistry registry)
+	{
+		statistics.setRegistry(registry);
+	}
+
+	/**
+	 * Stops the tentacle threads of this context
+	 */
+	void close()
+	{
+		tentaclemanager.shutdown();
+	}
+}
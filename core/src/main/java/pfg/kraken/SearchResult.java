@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken;
+
+import java.util.List;
+import pfg.kraken.exceptions.PathfindingException;
+import pfg.kraken.robot.ItineraryPoint;
+
+/**
+ * The result of a query of Kraken.searchBatch
+ * @author pf
+ *
+ */
+
+public final class SearchResult
+{
+	public final SearchParameters parameters;
+
+	/**
+	 * The path, or null if no path has been found or if the paths aren't kept
+	 */
+	public final List<ItineraryPoint> path;
+
+	/**
+	 * The duration of the path, in ms, or -1 if no path has been found
+	 */
+	public final long duration;
+
+	/**
+	 * Why no path has been found, or null
+	 */
+	public final PathfindingException exception;
+
+	SearchResult(SearchParameters parameters, List<ItineraryPoint> path, long duration)
+	{
+		this.parameters = parameters;
+		this.path = path;
+		this.duration = duration;
+		this.exception = null;
+	}
+
+	SearchResult(SearchParameters parameters, PathfindingException exception)
+	{
+		this.parameters = parameters;
+		this.path = null;
+		this.duration = -1;
+		this.exception = exception;
+	}
+
+	public boolean isPathFound()
+	{
+		return exception == null;
+	}
+
+	@Override
+	public String toString()
+	{
+		if(exception != null)
+			return "No path : "+exception.getMessage();
+		return "Path of "+duration+" ms";
+	}
+}
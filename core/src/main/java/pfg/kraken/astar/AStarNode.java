@@ -32,6 +32,7 @@ public final class AStarNode implements Memorizable, Printable
 	public int f_score; // g_score + heuristique = meilleure distance qu'on
 							// peut espérer avec ce point
 	public AStarNode parent; // the parent of this node (used for reconstruction when a path is found)
+	public boolean collisionChecked; // the tentacle that reaches this node is known to be collision-free (COLLISION_CHECK = EAGER or HYBRID)
 	
 	/*
 	 * If a node has a parent, then we must have the arc between the parent and the node
@@ -47,6 +48,13 @@ public final class AStarNode implements Memorizable, Printable
 	 * Used by the memory pool
 	 */
 	private volatile int indiceMemoryManager;
+	
+	/*
+	 * Used by the node store (NODE_STORAGE = ARRAYS) : the id of the node in the store.
+	 * A handle of the store has no robot : its state is the hashcode of its cinematique.
+	 */
+	int storeId = -1;
+	int storeHash;
 
 	/**
 	 * Dummy node
@@ -93,6 +101,8 @@ public final class AStarNode implements Memorizable, Printable
 	@Override
 	public int hashCode()
 	{
+		if(robot == null)
+			return storeHash;
 		return robot.getCinematique().hashCode();
 	}
 
@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.astar;
+
+import java.util.Arrays;
+import pfg.kraken.utils.IntIntHashMap;
+
+/**
+ * An open set that is a bucket queue : the f scores are integers (in ms), so there is one bucket per f score.
+ * Push is in O(1) and poll is in O(1) amortized (the pointer to the lowest bucket moves forward, except when
+ * a node has a lower f score than the current minimum, which is allowed because the heuristic isn't monotone).
+ * In a bucket, the node with the lowest g score is polled first.
+ * As the indexed heap, a node can replace a worse node of the same state.
+ *
+ * @author pf
+ *
+ */
+
+public final class BucketOpenSet implements OpenSet
+{
+	/*
+	 * The entries : each node is in the doubly linked list of its bucket
+	 */
+	private AStarNode[] nodes;
+	private int[] f;
+	private int[] g;
+	private int[] next;
+	private int[] prev;
+	private boolean[] indexed;
+	private int nbEntries = 0; // entries above are never used
+	private int firstFree = -1; // the list of the free entries (linked by "next")
+
+	/*
+	 * The buckets : head[f - base] is the first entry with this f score, or -1
+	 */
+	private int[] head;
+	private int base;
+	private int minBucket;
+	private int maxBucket;
+	private int size = 0;
+
+	/*
+	 * Discretized state -> entry (-1 if this state isn't in the open set anymore)
+	 */
+	private final IntIntHashMap index;
+
+	public BucketOpenSet(int initialCapacity)
+	{
+		nodes = new AStarNode[initialCapacity];
+		f = new int[initialCapacity];
+		g = new int[initialCapacity];
+		next = new int[initialCapacity];
+		prev = new int[initialCapacity];
+		indexed = new boolean[initialCapacity];
+		head = new int[1024];
+		Arrays.fill(head, -1);
+		index = new IntIntHashMap(initialCapacity);
+	}
+
+	@Override
+	public void add(AStarNode node)
+	{
+		insert(node, false);
+	}
+
+	@Override
+	public AStarNode addOrReplace(AStarNode node)
+	{
+		int e = index.get(node.hashCode());
+		if(e < 0)
+		{
+			insert(node, true);
+			return null;
+		}
+		if(node.f_score > f[e] || (node.f_score == f[e] && node.g_score >= g[e]))
+			return node;
+		AStarNode old = nodes[e];
+		unlink(e);
+		nodes[e] = node;
+		f[e] = node.f_score;
+		g[e] = node.g_score;
+		link(e);
+		return old;
+	}
+
+	@Override
+	public AStarNode poll()
+	{
+		int best = best();
+		AStarNode out = nodes[best];
+		unlink(best);
+		if(indexed[best])
+			index.put(out.hashCode(), -1);
+		nodes[best] = null;
+		next[best] = firstFree;
+		firstFree = best;
+		size--;
+		return out;
+	}
+
+	@Override
+	public AStarNode peek()
+	{
+		return nodes[best()];
+	}
+
+	/**
+	 * The entry of the node with the lowest score
+	 */
+	private int best()
+	{
+		assert size > 0;
+		while(head[minBucket] < 0)
+			minBucket++;
+
+		// the lowest g score of the bucket
+		int best = head[minBucket];
+		for(int e = next[best]; e >= 0; e = next[e])
+			if(g[e] < g[best])
+				best = e;
+		return best;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public void clear()
+	{
+		if(nbEntries > 0)
+		{
+			Arrays.fill(head, minBucket, maxBucket + 1, -1);
+			Arrays.fill(nodes, 0, nbEntries, null);
+		}
+		nbEntries = 0;
+		firstFree = -1;
+		size = 0;
+		index.clear();
+	}
+
+	private void insert(AStarNode node, boolean indexState)
+	{
+		int e;
+		if(firstFree >= 0)
+		{
+			e = firstFree;
+			firstFree = next[e];
+		}
+		else
+		{
+			if(nbEntries == nodes.length)
+			{
+				int capacity = 2 * nbEntries;
+				nodes = Arrays.copyOf(nodes, capacity);
+				f = Arrays.copyOf(f, capacity);
+				g = Arrays.copyOf(g, capacity);
+				next = Arrays.copyOf(next, capacity);
+				prev = Arrays.copyOf(prev, capacity);
+				indexed = Arrays.copyOf(indexed, capacity);
+			}
+			e = nbEntries++;
+		}
+
+		if(size == 0 && nbEntries == 1) // first node since the last clear
+		{
+			base = node.f_score - head.length / 4; // some room for lower f scores
+			minBucket = head.length / 4;
+			maxBucket = minBucket;
+		}
+
+		nodes[e] = node;
+		f[e] = node.f_score;
+		g[e] = node.g_score;
+		indexed[e] = indexState;
+		if(indexState)
+			index.put(node.hashCode(), e);
+		link(e);
+		size++;
+	}
+
+	/**
+	 * Inserts the entry at the head of its bucket
+	 *
+	 * @param e
+	 */
+	private void link(int e)
+	{
+		int b = f[e] - base;
+		if(b < 0)
+		{
+			int shift = Math.max(-b, head.length / 2);
+			int[] newHead = new int[head.length + shift];
+			Arrays.fill(newHead, 0, shift, -1);
+			System.arraycopy(head, 0, newHead, shift, head.length);
+			head = newHead;
+			base -= shift;
+			minBucket += shift;
+			maxBucket += shift;
+			b += shift;
+		}
+		else if(b >= head.length)
+		{
+			int length = head.length;
+			head = Arrays.copyOf(head, Math.max(2 * length, b + 1));
+			Arrays.fill(head, length, head.length, -1);
+		}
+		next[e] = head[b];
+		prev[e] = -1;
+		if(head[b] >= 0)
+			prev[head[b]] = e;
+		head[b] = e;
+		if(b < minBucket)
+			minBucket = b;
+		if(b > maxBucket)
+			maxBucket = b;
+	}
+
+	/**
+	 * Removes the entry from its bucket
+	 *
+	 * @param e
+	 */
+	private void unlink(int e)
+	{
+		if(prev[e] >= 0)
+			next[prev[e]] = next[e];
+		else
+			head[f[e] - base] = next[e];
+		if(next[e] >= 0)
+			prev[next[e]] = prev[e];
+	}
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.astar;
+
+import java.util.Arrays;
+
+/**
+ * An open set that is a 4-ary heap whose f and g scores are stored in parallel arrays
+ * (ordered by f, then by g).
+ * The heap is indexed by the discretized state (the hashcode of the node) so that a node can
+ * replace a worse node of the same state (decrease-key) instead of being enqueued too.
+ *
+ * @author pf
+ *
+ */
+
+public final class IndexedHeapOpenSet implements OpenSet
+{
+	private static final int ARITY = 4;
+
+	/*
+	 * The heap
+	 */
+	private AStarNode[] nodes;
+	private int[] f;
+	private int[] g;
+	private int[] slot; // the slot of the state of each node in the index, or -1
+	private int size = 0;
+
+	/*
+	 * The index : discretized state -> position in the heap (-1 if this state isn't in the heap anymore)
+	 * Open addressing, cleared with a generation number
+	 */
+	private int[] keys;
+	private int[] stamps;
+	private int[] positions;
+	private int generation = 1;
+	private int mask;
+	private int used = 0;
+
+	public IndexedHeapOpenSet(int initialCapacity)
+	{
+		nodes = new AStarNode[initialCapacity];
+		f = new int[initialCapacity];
+		g = new int[initialCapacity];
+		slot = new int[initialCapacity];
+		allocateIndex(Integer.highestOneBit(Math.max(initialCapacity, 8) * 2 - 1) << 1);
+	}
+
+	private void allocateIndex(int capacity)
+	{
+		keys = new int[capacity];
+		stamps = new int[capacity];
+		positions = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public void clear()
+	{
+		Arrays.fill(nodes, 0, size, null);
+		size = 0;
+		used = 0;
+		generation++;
+		if(generation == 0)
+		{
+			Arrays.fill(stamps, 0);
+			generation = 1;
+		}
+	}
+
+	@Override
+	public void add(AStarNode node)
+	{
+		insert(node, -1);
+	}
+
+	@Override
+	public AStarNode addOrReplace(AStarNode node)
+	{
+		int key = node.hashCode();
+		int i = mix(key) & mask;
+		while(stamps[i] == generation)
+		{
+			if(keys[i] == key)
+			{
+				int pos = positions[i];
+				if(pos < 0) // this state has already left the heap
+				{
+					insert(node, i);
+					return null;
+				}
+				if(!lesser(node.f_score, node.g_score, f[pos], g[pos]))
+					return node;
+				AStarNode old = nodes[pos];
+				nodes[pos] = node;
+				f[pos] = node.f_score;
+				g[pos] = node.g_score;
+				pos = percolateUp(pos);
+				assert check(pos);
+				return old;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		stamps[i] = generation;
+		positions[i] = -1;
+		if(++used > keys.length / 2)
+		{
+			growIndex();
+			i = find(key);
+		}
+		insert(node, i);
+		return null;
+	}
+
+	@Override
+	public AStarNode poll()
+	{
+		assert size > 0;
+		AStarNode out = nodes[0];
+		if(slot[0] >= 0)
+			positions[slot[0]] = -1;
+		size--;
+		if(size > 0)
+		{
+			move(size, 0);
+			nodes[size] = null;
+			int pos = percolateDown(0);
+			assert check(pos) && check(0);
+		}
+		else
+			nodes[0] = null;
+		return out;
+	}
+
+	@Override
+	public AStarNode peek()
+	{
+		assert size > 0;
+		return nodes[0];
+	}
+
+	private void insert(AStarNode node, int indexSlot)
+	{
+		if(size == nodes.length)
+		{
+			int capacity = 2 * size;
+			nodes = Arrays.copyOf(nodes, capacity);
+			f = Arrays.copyOf(f, capacity);
+			g = Arrays.copyOf(g, capacity);
+			slot = Arrays.copyOf(slot, capacity);
+		}
+		nodes[size] = node;
+		f[size] = node.f_score;
+		g[size] = node.g_score;
+		slot[size] = indexSlot;
+		if(indexSlot >= 0)
+			positions[indexSlot] = size;
+		int pos = percolateUp(size++);
+		assert check(pos);
+	}
+
+	private static boolean lesser(int f1, int g1, int f2, int g2)
+	{
+		return f1 < f2 || (f1 == f2 && g1 < g2);
+	}
+
+	/**
+	 * Moves the node at position "from" to position "to" (and updates the index)
+	 */
+	private void move(int from, int to)
+	{
+		nodes[to] = nodes[from];
+		f[to] = f[from];
+		g[to] = g[from];
+		slot[to] = slot[from];
+		if(slot[to] >= 0)
+			positions[slot[to]] = to;
+	}
+
+	/**
+	 * @return the new position of the node
+	 */
+	private int percolateUp(int pos)
+	{
+		AStarNode node = nodes[pos];
+		int nodeF = f[pos], nodeG = g[pos], nodeSlot = slot[pos];
+		while(pos > 0)
+		{
+			int pere = (pos - 1) / ARITY;
+			if(!lesser(nodeF, nodeG, f[pere], g[pere]))
+				break;
+			move(pere, pos);
+			pos = pere;
+		}
+		place(node, nodeF, nodeG, nodeSlot, pos);
+		return pos;
+	}
+
+	/**
+	 * @return the new position of the node
+	 */
+	private int percolateDown(int pos)
+	{
+		AStarNode node = nodes[pos];
+		int nodeF = f[pos], nodeG = g[pos], nodeSlot = slot[pos];
+		while(true)
+		{
+			int first = ARITY * pos + 1;
+			if(first >= size)
+				break;
+			int best = first;
+			int last = Math.min(first + ARITY, size);
+			for(int fils = first + 1; fils < last; fils++)
+				if(lesser(f[fils], g[fils], f[best], g[best]))
+					best = fils;
+			if(!lesser(f[best], g[best], nodeF, nodeG))
+				break;
+			move(best, pos);
+			pos = best;
+		}
+		place(node, nodeF, nodeG, nodeSlot, pos);
+		return pos;
+	}
+
+	private void place(AStarNode node, int nodeF, int nodeG, int nodeSlot, int pos)
+	{
+		nodes[pos] = node;
+		f[pos] = nodeF;
+		g[pos] = nodeG;
+		slot[pos] = nodeSlot;
+		if(nodeSlot >= 0)
+			positions[nodeSlot] = pos;
+	}
+
+	private static int mix(int key)
+	{
+		key ^= key >>> 16;
+		key *= 0x85ebca6b;
+		key ^= key >>> 13;
+		return key;
+	}
+
+	private int find(int key)
+	{
+		int i = mix(key) & mask;
+		while(keys[i] != key || stamps[i] != generation)
+			i = (i + 1) & mask;
+		return i;
+	}
+
+	/**
+	 * Doubles the size of the index and reinserts the states
+	 */
+	private void growIndex()
+	{
+		int[] oldKeys = keys;
+		int[] oldStamps = stamps;
+		int[] oldPositions = positions;
+		int oldGeneration = generation;
+		allocateIndex(2 * keys.length);
+		generation = 1;
+		for(int j = 0; j < oldKeys.length; j++)
+			if(oldStamps[j] == oldGeneration)
+			{
+				int i = mix(oldKeys[j]) & mask;
+				while(stamps[i] == generation)
+					i = (i + 1) & mask;
+				keys[i] = oldKeys[j];
+				stamps[i] = generation;
+				positions[i] = oldPositions[j];
+				if(positions[i] >= 0)
+					slot[positions[i]] = i;
+			}
+	}
+
+	/**
+	 * Heap property and consistency of the index around a node that has just moved : between this node, its parent
+	 * and its children. Only these links may have changed, so the assertions don't scan the whole heap.
+	 *
+	 * @param pos
+	 * @return
+	 */
+	private boolean check(int pos)
+	{
+		if(!consistent(pos))
+			return false;
+		int pere = (pos - 1) / ARITY;
+		if(pos > 0 && (!consistent(pere) || lesser(f[pos], g[pos], f[pere], g[pere])))
+			return false;
+		int last = Math.min(ARITY * pos + 1 + ARITY, size);
+		for(int fils = ARITY * pos + 1; fils < last; fils++)
+			if(!consistent(fils) || lesser(f[fils], g[fils], f[pos], g[pos]))
+				return false;
+		return true;
+	}
+
+	private boolean consistent(int i)
+	{
+		return f[i] == nodes[i].f_score && g[i] == nodes[i].g_score && (slot[i] < 0 || positions[slot[i]] == i);
+	}
+}
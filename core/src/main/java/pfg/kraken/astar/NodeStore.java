@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.astar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import pfg.kraken.astar.tentacles.DynamicTentacle;
+import pfg.kraken.astar.tentacles.Tentacle;
+import pfg.kraken.astar.tentacles.types.TentacleType;
+import pfg.kraken.memory.CinemObsPool;
+import pfg.kraken.memory.MemPoolState;
+import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.robot.Cinematique;
+import pfg.kraken.robot.CinematiqueObs;
+
+/**
+ * The nodes of the A* stored in primitive arrays indexed by the id of the node (NODE_STORAGE = ARRAYS).
+ * A node is stored with its scores, its parent, its cinematic state and the points of the tentacle that reaches it.
+ * The open set only gets a handle (an AStarNode without robot nor tentacle). When a node is polled, it is
+ * restored into an AStarNode of the pool ; the CinematiqueObs of the path are only created for the reconstruction.
+ * The ids are never reused before clear().
+ *
+ * @author pf
+ *
+ */
+
+public final class NodeStore
+{
+	private CinemObsPool cinemMemory;
+	private RectangularObstacle vehicleTemplate;
+
+	/*
+	 * The parent of the restored nodes : the real parent is in the store
+	 */
+	final AStarNode storedParent = new AStarNode();
+
+	/*
+	 * The nodes
+	 */
+	private int size = 0;
+	private AStarNode[] handles;
+	private int[] g, f, parent, hash;
+	private long[] date;
+	private double[] x, y, orientationGeometrique, orientationReelle, courbureGeometrique, courbureReelle;
+	private boolean[] enMarcheAvant, stop, collisionChecked;
+	private TentacleType[] tentacle; // the type of the tentacle that reaches this node
+	private boolean[] dynamic; // static or dynamic tentacle
+	private int[] firstPoint; // the points of the node i are in [firstPoint[i], firstPoint[i+1])
+
+	/*
+	 * The points of the tentacles
+	 */
+	private int nbPoints = 0;
+	private double[] px, py, pOrientationGeometrique, pOrientationReelle, pCourbureGeometrique, pCourbureReelle, pMaxSpeed, pPossibleSpeed;
+	private boolean[] pEnMarcheAvant, pStop;
+
+	public NodeStore(CinemObsPool cinemMemory, RectangularObstacle vehicleTemplate, int initialCapacity)
+	{
+		this.cinemMemory = cinemMemory;
+		this.vehicleTemplate = vehicleTemplate;
+		storedParent.setState(MemPoolState.STANDBY);
+		handles = new AStarNode[initialCapacity];
+		g = new int[initialCapacity];
+		f = new int[initialCapacity];
+		parent = new int[initialCapacity];
+		hash = new int[initialCapacity];
+		date = new long[initialCapacity];
+		x = new double[initialCapacity];
+		y = new double[initialCapacity];
+		orientationGeometrique = new double[initialCapacity];
+		orientationReelle = new double[initialCapacity];
+		courbureGeometrique = new double[initialCapacity];
+		courbureReelle = new double[initialCapacity];
+		enMarcheAvant = new boolean[initialCapacity];
+		stop = new boolean[initialCapacity];
+		collisionChecked = new boolean[initialCapacity];
+		tentacle = new TentacleType[initialCapacity];
+		dynamic = new boolean[initialCapacity];
+		firstPoint = new int[initialCapacity + 1];
+
+		int pointCapacity = initialCapacity * Tentacle.NB_POINTS;
+		px = new double[pointCapacity];
+		py = new double[pointCapacity];
+		pOrientationGeometrique = new double[pointCapacity];
+		pOrientationReelle = new double[pointCapacity];
+		pCourbureGeometrique = new double[pointCapacity];
+		pCourbureReelle = new double[pointCapacity];
+		pMaxSpeed = new double[pointCapacity];
+		pPossibleSpeed = new double[pointCapacity];
+		pEnMarcheAvant = new boolean[pointCapacity];
+		pStop = new boolean[pointCapacity];
+	}
+
+	/**
+	 * Forgets all the nodes. Very fast.
+	 */
+	public void clear()
+	{
+		size = 0;
+		nbPoints = 0;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Stores a node
+	 *
+	 * @param node
+	 * @param parentId : the id of its parent, or -1
+	 * @return the handle of the stored node
+	 */
+	public AStarNode add(AStarNode node, int parentId)
+	{
+		Tentacle arc = node.getArc();
+		int nb = arc == null ? 0 : arc.getNbPoints();
+		if(size == handles.length)
+			growNodes();
+		while(nbPoints + nb > px.length)
+			growPoints();
+
+		int id = size++;
+		g[id] = node.g_score;
+		f[id] = node.f_score;
+		parent[id] = parentId;
+		hash[id] = node.hashCode();
+		date[id] = node.robot.getDate();
+		Cinematique c = node.robot.getCinematique();
+		x[id] = c.getPosition().getX();
+		y[id] = c.getPosition().getY();
+		orientationGeometrique[id] = c.orientationGeometrique;
+		orientationReelle[id] = c.orientationReelle;
+		courbureGeometrique[id] = c.courbureGeometrique;
+		courbureReelle[id] = c.courbureReelle;
+		enMarcheAvant[id] = c.enMarcheAvant;
+		stop[id] = c.stop;
+		collisionChecked[id] = node.collisionChecked;
+		tentacle[id] = arc == null ? null : arc.vitesse;
+		dynamic[id] = arc instanceof DynamicTentacle;
+
+		for(int i = 0; i < nb; i++)
+		{
+			CinematiqueObs p = arc.getPoint(i);
+			px[nbPoints] = p.getPosition().getX();
+			py[nbPoints] = p.getPosition().getY();
+			pOrientationGeometrique[nbPoints] = p.orientationGeometrique;
+			pOrientationReelle[nbPoints] = p.orientationReelle;
+			pCourbureGeometrique[nbPoints] = p.courbureGeometrique;
+			pCourbureReelle[nbPoints] = p.courbureReelle;
+			pMaxSpeed[nbPoints] = p.maxSpeed;
+			pPossibleSpeed[nbPoints] = p.possibleSpeed;
+			pEnMarcheAvant[nbPoints] = p.enMarcheAvant;
+			pStop[nbPoints] = p.stop;
+			nbPoints++;
+		}
+		firstPoint[id + 1] = nbPoints;
+
+		AStarNode handle = handles[id];
+		if(handle == null)
+		{
+			handle = new AStarNode();
+			handle.storeId = id;
+			handles[id] = handle;
+		}
+		handle.g_score = g[id];
+		handle.f_score = f[id];
+		handle.storeHash = hash[id];
+		handle.setState(MemPoolState.NEXT);
+		return handle;
+	}
+
+	/**
+	 * Forgets a node that hasn't been kept. Only the last stored node is really removed.
+	 *
+	 * @param handle
+	 */
+	public void remove(AStarNode handle)
+	{
+		if(handle.storeId == size - 1)
+		{
+			size--;
+			nbPoints = firstPoint[size];
+		}
+	}
+
+	/**
+	 * Restores a stored node. Its parent is storedParent.
+	 *
+	 * @param handle
+	 * @param out : a node from the pool
+	 * @return out
+	 */
+	public AStarNode restore(AStarNode handle, AStarNode out)
+	{
+		int id = handle.storeId;
+		assert id < size;
+		out.storeId = id;
+		out.g_score = g[id];
+		out.f_score = f[id];
+		out.robot.getCinematique().set(x[id], y[id], orientationGeometrique[id], orientationReelle[id], enMarcheAvant[id], courbureGeometrique[id], courbureReelle[id], stop[id]);
+		out.robot.setDate(date[id]);
+		out.collisionChecked = collisionChecked[id];
+		out.parent = parent[id] < 0 ? null : storedParent;
+
+		int first = firstPoint[id], nb = firstPoint[id + 1] - first;
+		Tentacle arc;
+		if(dynamic[id])
+		{
+			List<CinematiqueObs> points = new ArrayList<CinematiqueObs>(nb);
+			for(int i = 0; i < nb; i++)
+				points.add(restorePoint(first + i, cinemMemory.getNewNode()));
+			out.cameFromArcDynamique = new DynamicTentacle(points, tentacle[id]);
+			arc = out.cameFromArcDynamique;
+		}
+		else
+		{
+			assert nb == 0 || nb == Tentacle.NB_POINTS;
+			for(int i = 0; i < nb; i++)
+				restorePoint(first + i, out.cameFromArcStatique.arcselems[i]);
+			out.cameFromArcStatique.vitesse = tentacle[id];
+			arc = out.cameFromArcStatique;
+		}
+		if(nb > 0)
+			arc.updateSweptBox();
+		return out;
+	}
+
+	private CinematiqueObs restorePoint(int i, CinematiqueObs out)
+	{
+		out.set(px[i], py[i], pOrientationGeometrique[i], pOrientationReelle[i], pEnMarcheAvant[i], pCourbureGeometrique[i], pCourbureReelle[i], pStop[i], pMaxSpeed[i], pPossibleSpeed[i]);
+		return out;
+	}
+
+	/**
+	 * The id of the parent of this node, or -1
+	 *
+	 * @param id
+	 * @return
+	 */
+	public int getParent(int id)
+	{
+		return parent[id];
+	}
+
+	/**
+	 * The date of this node (the duration of the path from the start), in ms
+	 *
+	 * @param id
+	 * @return
+	 */
+	public long getDate(int id)
+	{
+		return date[id];
+	}
+
+	/**
+	 * Creates the tentacle that reaches this node (only used for the reconstruction)
+	 *
+	 * @param id
+	 * @return
+	 */
+	public Tentacle getArc(int id)
+	{
+		List<CinematiqueObs> points = new ArrayList<CinematiqueObs>();
+		for(int i = firstPoint[id]; i < firstPoint[id + 1]; i++)
+			points.add(restorePoint(i, new CinematiqueObs(vehicleTemplate)));
+		return new DynamicTentacle(points, tentacle[id]);
+	}
+
+	private void growNodes()
+	{
+		int capacity = 2 * handles.length;
+		handles = Arrays.copyOf(handles, capacity);
+		g = Arrays.copyOf(g, capacity);
+		f = Arrays.copyOf(f, capacity);
+		parent = Arrays.copyOf(parent, capacity);
+		hash = Arrays.copyOf(hash, capacity);
+		date = Arrays.copyOf(date, capacity);
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		orientationGeometrique = Arrays.copyOf(orientationGeometrique, capacity);
+		orientationReelle = Arrays.copyOf(orientationReelle, capacity);
+		courbureGeometrique = Arrays.copyOf(courbureGeometrique, capacity);
+		courbureReelle = Arrays.copyOf(courbureReelle, capacity);
+		enMarcheAvant = Arrays.copyOf(enMarcheAvant, capacity);
+		stop = Arrays.copyOf(stop, capacity);
+		collisionChecked = Arrays.copyOf(collisionChecked, capacity);
+		tentacle = Arrays.copyOf(tentacle, capacity);
+		dynamic = Arrays.copyOf(dynamic, capacity);
+		firstPoint = Arrays.copyOf(firstPoint, capacity + 1);
+	}
+
+	private void growPoints()
+	{
+		int capacity = 2 * px.length;
+		px = Arrays.copyOf(px, capacity);
+		py = Arrays.copyOf(py, capacity);
+		pOrientationGeometrique = Arrays.copyOf(pOrientationGeometrique, capacity);
+		pOrientationReelle = Arrays.copyOf(pOrientationReelle, capacity);
+		pCourbureGeometrique = Arrays.copyOf(pCourbureGeometrique, capacity);
+		pCourbureReelle = Arrays.copyOf(pCourbureReelle, capacity);
+		pMaxSpeed = Arrays.copyOf(pMaxSpeed, capacity);
+		pPossibleSpeed = Arrays.copyOf(pPossibleSpeed, capacity);
+		pEnMarcheAvant = Arrays.copyOf(pEnMarcheAvant, capacity);
+		pStop = Arrays.copyOf(pStop, capacity);
+	}
+}
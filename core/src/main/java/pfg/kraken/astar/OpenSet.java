@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.astar;
+
+/**
+ * The open set of the A*. The nodes are ordered by f score, then by g score.
+ * The implementation is chosen with the OPEN_SET key of the config.
+ *
+ * @author pf
+ *
+ */
+
+public interface OpenSet
+{
+	/**
+	 * Adds a node without indexing its state : it will never be replaced.
+	 *
+	 * @param node
+	 */
+	public void add(AStarNode node);
+
+	/**
+	 * Adds a node, unless a node of the same state with a better score is already waiting.
+	 * If there is a worse node of the same state, the new node takes its place.
+	 *
+	 * @param node
+	 * @return the node that must be destroyed by the caller (either node or the node it replaces), or null
+	 */
+	public AStarNode addOrReplace(AStarNode node);
+
+	/**
+	 * Removes and returns the node with the lowest score
+	 *
+	 * @return
+	 */
+	public AStarNode poll();
+
+	/**
+	 * Returns the node with the lowest score, without removing it
+	 *
+	 * @return
+	 */
+	public AStarNode peek();
+
+	public boolean isEmpty();
+
+	public int size();
+
+	public void clear();
+}
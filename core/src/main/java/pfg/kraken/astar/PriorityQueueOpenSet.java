@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.astar;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * An open set based on java.util.PriorityQueue. The states aren't indexed : the duplicates
+ * are enqueued and filtered by the closed set when they are polled.
+ *
+ * @author pf
+ *
+ */
+
+public final class PriorityQueueOpenSet implements OpenSet
+{
+	/**
+	 * Comparateur de noeud utilisé par la priority queue.
+	 * 
+	 * @author pf
+	 *
+	 */
+	private static class AStarCourbeNodeComparator implements Comparator<AStarNode>
+	{
+		@Override
+		public final int compare(AStarNode arg0, AStarNode arg1)
+		{
+			// Ordre lexico : on compare d'abord first, puis second
+			int tmp = (arg0.f_score - arg1.f_score);
+			if(tmp != 0)
+				return tmp;
+			return arg0.g_score - arg1.g_score;
+		}
+	}
+
+	private final PriorityQueue<AStarNode> openset;
+
+	public PriorityQueueOpenSet(int initialCapacity)
+	{
+		openset = new PriorityQueue<AStarNode>(initialCapacity, new AStarCourbeNodeComparator());
+	}
+
+	@Override
+	public void add(AStarNode node)
+	{
+		openset.add(node);
+	}
+
+	@Override
+	public AStarNode addOrReplace(AStarNode node)
+	{
+		openset.add(node);
+		return null;
+	}
+
+	@Override
+	public AStarNode poll()
+	{
+		return openset.poll();
+	}
+
+	@Override
+	public AStarNode peek()
+	{
+		return openset.peek();
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return openset.isEmpty();
+	}
+
+	@Override
+	public int size()
+	{
+		return openset.size();
+	}
+
+	@Override
+	public void clear()
+	{
+		openset.clear();
+	}
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.astar;
+
+import java.util.concurrent.atomic.LongAdder;
+import pfg.kraken.MetricsRegistry;
+import pfg.kraken.astar.engine.CollisionCounters;
+import pfg.kraken.memory.CinemObsPool;
+import pfg.kraken.memory.NodePool;
+
+/**
+ * The statistics of the last search (see Kraken.getSearchStatistics). They are reset by the initialization of
+ * a search (and by each replanning) and must be read once the search is over.
+ * The durations are in nanoseconds. The phases overlap : the D* Lite updates are in the initialization, and the
+ * expansions and collision checks are in the search.
+ *
+ * @author pf
+ *
+ */
+
+public final class SearchStatistics
+{
+	public enum Outcome
+	{
+		NOT_STARTED,
+		PATH_FOUND, // the best path has been found
+		FAST_AND_DIRTY_PATH, // the first path found (FAST_AND_DIRTY)
+		BACKUP_PATH, // timeout, but a path had been found
+		TIMEOUT, // timeout without any path
+		NO_PATH, // the whole space has been searched
+		FAILED; // any other exception
+	}
+
+	private final CollisionCounters collisionCounters;
+	private final NodePool nodePool;
+	private final CinemObsPool cinemPool;
+	private volatile MetricsRegistry registry = null;
+
+	/*
+	 * Updated by the search thread
+	 */
+	int nbExpandedNodes;
+	int nbGeneratedNodes;
+	int nbPrunedNodes;
+	int nbStoredNodes;
+	long initializationDuration;
+	long dstarliteDuration;
+	long searchDuration;
+	long expansionDuration;
+	long collisionDuration;
+	long reconstructionDuration;
+	long pathDuration;
+	private Outcome outcome = Outcome.NOT_STARTED;
+
+	/*
+	 * Updated by the tentacle threads
+	 */
+	private final LongAdder heuristicCalls = new LongAdder();
+	private final LongAdder heuristicCacheHits = new LongAdder();
+
+	public SearchStatistics(CollisionCounters collisionCounters, NodePool nodePool, CinemObsPool cinemPool)
+	{
+		this.collisionCounters = collisionCounters;
+		this.nodePool = nodePool;
+		this.cinemPool = cinemPool;
+	}
+
+	/**
+	 * The hook that gets the statistics at the end of each search (null to disable it)
+	 *
+	 * @param registry
+	 */
+	public void setRegistry(MetricsRegistry registry)
+	{
+		this.registry = registry;
+	}
+
+	void reset()
+	{
+		nbExpandedNodes = 0;
+		nbGeneratedNodes = 0;
+		nbPrunedNodes = 0;
+		nbStoredNodes = 0;
+		initializationDuration = 0;
+		dstarliteDuration = 0;
+		searchDuration = 0;
+		expansionDuration = 0;
+		collisionDuration = 0;
+		reconstructionDuration = 0;
+		pathDuration = 0;
+		outcome = Outcome.NOT_STARTED;
+		heuristicCalls.reset();
+		heuristicCacheHits.reset();
+		nodePool.resetHighWaterMark();
+		cinemPool.resetHighWaterMark();
+	}
+
+	/**
+	 * A heuristic has been computed (or read from the cache)
+	 *
+	 * @param cacheHit
+	 */
+	public void addHeuristicCall(boolean cacheHit)
+	{
+		heuristicCalls.increment();
+		if(cacheHit)
+			heuristicCacheHits.increment();
+	}
+
+	/**
+	 * The end of the search : the statistics are given to the registry, if any
+	 *
+	 * @param outcome
+	 */
+	void end(Outcome outcome)
+	{
+		this.outcome = outcome;
+		MetricsRegistry r = registry;
+		if(r != null)
+		{
+			r.recordDuration("kraken.search.duration", searchDuration);
+			r.recordDuration("kraken.search.initialization.duration", initializationDuration);
+			r.recordDuration("kraken.search.dstarlite.duration", dstarliteDuration);
+			r.recordDuration("kraken.search.expansion.duration", expansionDuration);
+			r.recordDuration("kraken.search.collision.duration", collisionDuration);
+			r.recordAmount("kraken.search.expanded.nodes", nbExpandedNodes);
+			r.recordAmount("kraken.search.generated.nodes", nbGeneratedNodes);
+			r.recordAmount("kraken.search.collision.checks", collisionCounters.getNbChecks());
+			r.recordAmount("kraken.search.heuristic.calls", getNbHeuristicCalls());
+			r.recordAmount("kraken.search.node.pool.high", getNodePoolHighWaterMark());
+			r.increment("kraken.search.outcome." + outcome.name().toLowerCase(), 1);
+		}
+	}
+
+	public Outcome getOutcome()
+	{
+		return outcome;
+	}
+
+	/**
+	 * The number of nodes taken from the open set and expanded
+	 *
+	 * @return
+	 */
+	public int getNbExpandedNodes()
+	{
+		return nbExpandedNodes;
+	}
+
+	/**
+	 * The number of successors received by the search thread
+	 *
+	 * @return
+	 */
+	public int getNbGeneratedNodes()
+	{
+		return nbGeneratedNodes;
+	}
+
+	/**
+	 * The number of nodes discarded by the search thread : already in the closed set, worse than a node of
+	 * the open set with the same state, or colliding when chosen
+	 *
+	 * @return
+	 */
+	public int getNbPrunedNodes()
+	{
+		return nbPrunedNodes;
+	}
+
+	/**
+	 * The number of nodes in the primitive arrays at the end of the search (NODE_STORAGE = ARRAYS), 0 otherwise
+	 *
+	 * @return
+	 */
+	public int getNbStoredNodes()
+	{
+		return nbStoredNodes;
+	}
+
+	/**
+	 * The collision checks of this search (see COLLISION_CHECK)
+	 *
+	 * @return
+	 */
+	public CollisionCounters getCollisionCounters()
+	{
+		return collisionCounters;
+	}
+
+	public long getNbHeuristicCalls()
+	{
+		return heuristicCalls.sum();
+	}
+
+	/**
+	 * The heuristics read from the cache (HEURISTIC_CACHE)
+	 *
+	 * @return
+	 */
+	public long getNbHeuristicCacheHits()
+	{
+		return heuristicCacheHits.sum();
+	}
+
+	/**
+	 * The duration of the initialization of the search (or of the replanning), D* Lite included
+	 *
+	 * @return
+	 */
+	public long getInitializationDuration()
+	{
+		return initializationDuration;
+	}
+
+	/**
+	 * The duration of the updates of the D* Lite
+	 *
+	 * @return
+	 */
+	public long getDStarLiteDuration()
+	{
+		return dstarliteDuration;
+	}
+
+	/**
+	 * The duration of the A*
+	 *
+	 * @return
+	 */
+	public long getSearchDuration()
+	{
+		return searchDuration;
+	}
+
+	/**
+	 * The time the search thread waited for the tentacles
+	 *
+	 * @return
+	 */
+	public long getExpansionDuration()
+	{
+		return expansionDuration;
+	}
+
+	/**
+	 * The duration of the collision checks done by the search thread
+	 *
+	 * @return
+	 */
+	public long getCollisionDuration()
+	{
+		return collisionDuration;
+	}
+
+	/**
+	 * The duration of the reconstruction of the path
+	 *
+	 * @return
+	 */
+	public long getReconstructionDuration()
+	{
+		return reconstructionDuration;
+	}
+
+	/**
+	 * The duration of the path found (the date of its last node), in ms ; 0 if none
+	 *
+	 * @return
+	 */
+	public long getPathDuration()
+	{
+		return pathDuration;
+	}
+
+	/**
+	 * The maximal number of nodes used at once during the search
+	 *
+	 * @return
+	 */
+	public int getNodePoolHighWaterMark()
+	{
+		return nodePool.getHighWaterMark();
+	}
+
+	/**
+	 * The maximal number of trajectory points used at once during the search
+	 *
+	 * @return
+	 */
+	public int getCinemPoolHighWaterMark()
+	{
+		return cinemPool.getHighWaterMark();
+	}
+
+	@Override
+	public String toString()
+	{
+		return outcome + " : " + nbExpandedNodes + " expanded nodes, " + nbGeneratedNodes + " generated, " + nbPrunedNodes + " pruned, " + getNbHeuristicCalls() + " heuristics (" + getNbHeuristicCacheHits() + " from the cache), " + collisionCounters + ", initialization " + initializationDuration / 1000 + " µs (D* Lite " + dstarliteDuration / 1000 + " µs), search " + searchDuration / 1000 + " µs (expansions " + expansionDuration / 1000 + " µs, collisions " + collisionDuration / 1000 + " µs, reconstruction " + reconstructionDuration / 1000 + " µs), pools " + getNodePoolHighWaterMark() + " nodes and " + getCinemPoolHighWaterMark() + " points";
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.astar;
+
+import java.util.ArrayList;
+import java.util.List;
+import pfg.kraken.astar.engine.CollisionCounters;
+import pfg.kraken.astar.engine.PhysicsEngine;
+
+/**
+ * A node polled in advance from the open set by the speculative expansion (SPECULATIVE_EXPANSION > 1).
+ * Its collision check and its successors are computed by the threads together with the other nodes of the window,
+ * then the A* uses them when the node comes first.
+ * 
+ * @author pf
+ *
+ */
+
+public final class SpeculativeNode
+{
+	AStarNode polled; // the node given by the open set (a handle with the node store)
+	public AStarNode current;
+	public boolean collision;
+	public final List<AStarNode> successors = new ArrayList<AStarNode>();
+	
+	/**
+	 * Is there a collision on the tentacle that reaches this node ?
+	 * 
+	 * @param engine
+	 * @param counters
+	 */
+	public void checkCollision(PhysicsEngine engine, CollisionCounters counters)
+	{
+		collision = false;
+		if(current.parent != null && !current.collisionChecked)
+		{
+			collision = engine.isThereCollision(current.getArc());
+			counters.addCheck(collision);
+		}
+	}
+}
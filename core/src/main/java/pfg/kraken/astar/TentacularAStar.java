@@ -7,17 +7,18 @@ package pfg.kraken.astar;
 
 import java.awt.Color;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.PriorityQueue;
 import pfg.config.Config;
 import pfg.graphic.GraphicDisplay;
 import pfg.graphic.printable.Layer;
 import pfg.kraken.ConfigInfoKraken;
 import pfg.kraken.LogCategoryKraken;
+import pfg.kraken.astar.SearchStatistics.Outcome;
 import pfg.kraken.astar.autoreplanning.DynamicPath;
+import pfg.kraken.astar.engine.CollisionCounters;
+import pfg.kraken.astar.engine.CollisionStrategy;
 import pfg.kraken.astar.engine.PhysicsEngine;
 import pfg.kraken.astar.tentacles.TentacleManager;
 import pfg.kraken.dstarlite.DStarLite;
@@ -27,6 +28,7 @@ import pfg.kraken.exceptions.NotFastEnoughException;
 import pfg.kraken.exceptions.NotInitializedPathfindingException;
 import pfg.kraken.exceptions.PathfindingException;
 import pfg.kraken.exceptions.TimeoutException;
+import pfg.kraken.jfr.FlightRecorder;
 import pfg.kraken.memory.CinemObsPool;
 import pfg.kraken.memory.MemPoolState;
 import pfg.kraken.memory.NodePool;
@@ -35,6 +37,7 @@ import pfg.kraken.robot.Cinematique;
 import pfg.kraken.robot.CinematiqueObs;
 import pfg.kraken.robot.ItineraryPoint;
 import pfg.kraken.robot.RobotState;
+import pfg.kraken.utils.IntHashSet;
 import pfg.kraken.utils.XY;
 import pfg.log.Log;
 
@@ -71,6 +74,9 @@ public final class TentacularAStar
 	private GraphicDisplay buffer;
 	
 	private PhysicsEngine engine;
+	private CollisionStrategy collisionStrategy;
+	private CollisionCounters collisionCounters;
+	private SearchStatistics statistics;
 	
 	/*
 	 * The departure node
@@ -118,40 +124,33 @@ public final class TentacularAStar
 	/*
 	 * Some debug variables
 	 */
-	private int nbExpandedNodes;
 	private boolean debugMode;
 	private boolean initialized = false;
 	private boolean checkEachIteration;
 	public volatile boolean stop = false;
 
-	/**
-	 * Comparateur de noeud utilisé par la priority queue.
-	 * 
-	 * @author pf
-	 *
+	/*
+	 * The set of processed nodes (their hashcode, i.e. their discretized cinematique)
 	 */
-	private class AStarCourbeNodeComparator implements Comparator<AStarNode>
-	{
-		@Override
-		public final int compare(AStarNode arg0, AStarNode arg1)
-		{
-			// Ordre lexico : on compare d'abord first, puis second
-			int tmp = (arg0.f_score - arg1.f_score);
-			if(tmp != 0)
-				return tmp;
-			return arg0.g_score - arg1.g_score;
-		}
-	}
-
+	private final IntHashSet closedset = new IntHashSet(5000);
+	
 	/*
-	 * The set of processed nodes
+	 * The set of nodes that need to be processed (at most one node per discretized state, except for the arrival nodes)
 	 */
-	private final HashSet<Integer> closedset = new HashSet<Integer>();
+	private final OpenSet openset;
 	
 	/*
-	 * The set of nodes that need to be processed
+	 * The storage of the nodes in primitive arrays (null if NODE_STORAGE = OBJECTS)
 	 */
-	private final PriorityQueue<AStarNode> openset = new PriorityQueue<AStarNode>(5000, new AStarCourbeNodeComparator());
+	private final NodeStore nodeStore;
+	
+	/*
+	 * The speculative expansion (SPECULATIVE_EXPANSION > 1) : the nodes polled in advance, in the order of the open set
+	 */
+	private final int nbSpeculative;
+	private final List<SpeculativeNode> window = new ArrayList<SpeculativeNode>();
+	private final List<SpeculativeNode> fresh = new ArrayList<SpeculativeNode>();
+	private final List<SpeculativeNode> freeSpeculative = new ArrayList<SpeculativeNode>();
 	
 	/*
 	 * Only used for the reconstruction
@@ -171,9 +170,11 @@ public final class TentacularAStar
 	/**
 	 * Constructeur du AStarCourbe
 	 */
-	public TentacularAStar(Log log, PhysicsEngine engine, DynamicPath defaultChemin, DStarLite dstarlite, TentacleManager arcmanager, NodePool memorymanager, CinemObsPool rectMemory, GraphicDisplay buffer, RobotState chrono, Config config, RectangularObstacle vehicleTemplate)
+	public TentacularAStar(Log log, PhysicsEngine engine, DynamicPath defaultChemin, DStarLite dstarlite, TentacleManager arcmanager, NodePool memorymanager, CinemObsPool rectMemory, GraphicDisplay buffer, RobotState chrono, Config config, RectangularObstacle vehicleTemplate, CollisionCounters collisionCounters, SearchStatistics statistics)
 	{
 		this.engine = engine;
+		this.collisionCounters = collisionCounters;
+		this.statistics = statistics;
 		this.chemin = defaultChemin;
 		this.log = log;
 		this.arcmanager = arcmanager;
@@ -185,6 +186,7 @@ public final class TentacularAStar
 		debugMode = config.getBoolean(ConfigInfoKraken.ENABLE_DEBUG_MODE);
 		fastMode = config.getBoolean(ConfigInfoKraken.FAST_AND_DIRTY);
 		checkEachIteration = config.getBoolean(ConfigInfoKraken.CHECK_NEW_OBSTACLES);
+		collisionStrategy = CollisionStrategy.get(config.getString(ConfigInfoKraken.COLLISION_CHECK), checkEachIteration);
 		if(debugMode)
 			defaultTimeout = Integer.MAX_VALUE;
 		else
@@ -195,6 +197,24 @@ public final class TentacularAStar
 		else
 			defaultStrategy = DirectionStrategy.FORCE_FORWARD_MOTION;
 		defaultSpeed = config.getDouble(ConfigInfoKraken.DEFAULT_MAX_SPEED);
+		String openSetType = config.getString(ConfigInfoKraken.OPEN_SET);
+		if(openSetType.equals("HEAP"))
+			openset = new IndexedHeapOpenSet(5000);
+		else if(openSetType.equals("BUCKET"))
+			openset = new BucketOpenSet(5000);
+		else if(openSetType.equals("PRIORITY_QUEUE"))
+			openset = new PriorityQueueOpenSet(5000);
+		else
+			throw new IllegalArgumentException("Unknown open set : " + openSetType);
+		String nodeStorage = config.getString(ConfigInfoKraken.NODE_STORAGE);
+		if(nodeStorage.equals("OBJECTS"))
+			nodeStore = null;
+		else if(nodeStorage.equals("ARRAYS"))
+			nodeStore = new NodeStore(rectMemory, vehicleTemplate, config.getInt(ConfigInfoKraken.NODE_MEMORY_POOL_SIZE));
+		else
+			throw new IllegalArgumentException("Unknown node storage : " + nodeStorage);
+		// the speculative collision checks would miss the obstacles updated at each iteration
+		nbSpeculative = checkEachIteration ? 1 : config.getInt(ConfigInfoKraken.SPECULATIVE_EXPANSION);
 		this.depart = new AStarNode(chrono, vehicleTemplate);
 		depart.setIndiceMemoryManager(-1);
 		this.vehicleTemplate = vehicleTemplate;		
@@ -251,14 +271,47 @@ public final class TentacularAStar
 	}
 	
 	/**
-	 * Le calcul du AStarCourbe
+	 * Le calcul du AStarCourbe, avec ses statistiques
 	 * 
-	 * @param depart
-	 * @return
 	 * @throws PathfindingException
-	 * @throws MemoryPoolException
 	 */
 	private final synchronized void search() throws PathfindingException
+	{
+		long start = System.nanoTime();
+		Object event = FlightRecorder.AVAILABLE ? FlightRecorder.EVENTS.beginSearch() : null;
+		Outcome outcome = Outcome.FAILED;
+		try
+		{
+			outcome = searchLoop();
+		}
+		catch(TimeoutException e)
+		{
+			outcome = Outcome.TIMEOUT;
+			throw e;
+		}
+		catch(NoPathException e)
+		{
+			outcome = Outcome.NO_PATH;
+			throw e;
+		}
+		finally
+		{
+			statistics.searchDuration += System.nanoTime() - start;
+			if(nodeStore != null)
+				statistics.nbStoredNodes = nodeStore.size();
+			statistics.end(outcome);
+			if(event != null)
+				FlightRecorder.EVENTS.endSearch(event, outcome.name(), statistics.nbExpandedNodes, statistics.nbGeneratedNodes, collisionCounters.getNbChecks());
+		}
+	}
+	
+	/**
+	 * Le calcul du AStarCourbe
+	 * 
+	 * @return how the search ended
+	 * @throws PathfindingException
+	 */
+	private Outcome searchLoop() throws PathfindingException
 	{
 		if(!initialized)
 			throw new NotInitializedPathfindingException("Search not initialized !");
@@ -267,7 +320,7 @@ public final class TentacularAStar
 		depart.parent = null;
 		depart.cameFromArcDynamique = null;
 		depart.g_score = 0;
-		nbExpandedNodes = 0;
+		collisionCounters.reset(collisionStrategy);
 		
 		Integer heuristique = arcmanager.heuristicCostCourbe((depart.robot).getCinematique());
 
@@ -275,28 +328,45 @@ public final class TentacularAStar
 
 		depart.f_score = heuristique;
 		openset.clear();
+		clearNodeStore();
+		clearWindow();
 		assert setState(depart, MemPoolState.WAITING);
 		openset.add(depart); // Les nœuds à évaluer
 		closedset.clear();
 
 		long debutRecherche = System.currentTimeMillis();
 
-		AStarNode current;
+		AStarNode current, polled;
+		SpeculativeNode speculative = null; // the precomputed expansion of current, or null
 		do
 		{
-			current = openset.poll();
+			if(nbSpeculative > 1)
+			{
+				if(speculative != null)
+					freeSpeculative.add(speculative);
+				speculative = pollSpeculative();
+				polled = speculative.polled;
+				current = speculative.current;
+			}
+			else
+			{
+				polled = openset.poll();
+				current = restore(polled);
+			}
 			if(checkEachIteration)
 			{
 				engine.update();
+				long startDStarLite = System.nanoTime();
 				dstarlite.updateObstacles();
+				statistics.dstarliteDuration += System.nanoTime() - startDStarLite;
 			}
 
 			assert current.parent != null || current == depart;
-			assert current == depart || current.parent == depart || current.parent.getArc() != null : current == depart ? "Départ" : current.parent.getArc();
+			assert current == depart || current.parent == depart || current.parent.getArc() != null || (nodeStore != null && current.parent == nodeStore.storedParent) : current == depart ? "Départ" : current.parent.getArc();
 			assert current.parent == null || current.parent.getState() == MemPoolState.STANDBY;
 			assert current.getState() == MemPoolState.WAITING && setState(current, MemPoolState.CURRENT) : current.getState();
 			
-			nbExpandedNodes++;
+			statistics.nbExpandedNodes++;
 			
 			if(chemin.isModeWithReplanning() && !chemin.isInitialSearch())
 			{
@@ -313,7 +383,11 @@ public final class TentacularAStar
 						partialReconstruct(current, chemin, margeDemandee, true);
 						
 						if(chemin.margeSupplementaireDemandee() > 0) // toujours pas assez de marge : on doit arrêter
+						{
+							if(FlightRecorder.AVAILABLE)
+								FlightRecorder.EVENTS.notFastEnough(chemin.margeSupplementaireDemandee());
 							throw new NotFastEnoughException("Not enough margin.");
+						}
 		
 						depart.robot.setCinematique(chemin.getNewStart());
 						trajetDeSecours = null;
@@ -331,9 +405,13 @@ public final class TentacularAStar
 						cinemMemory.empty();
 						closedset.clear();
 						openset.clear();
+						clearNodeStore();
+						clearWindow();
 						
 						debutRecherche = System.currentTimeMillis();
 						current = depart;
+						polled = depart;
+						speculative = null;
 					}
 				}
 			}
@@ -343,25 +421,29 @@ public final class TentacularAStar
 			if(!closedset.add(current.hashCode()) && (current.getArc() == null || !arcmanager.isArrived(current.getArc().getLast())))
 			{
 				// we skip this point
+				statistics.nbPrunedNodes++;
 				if(current != depart)
 				{
 					memorymanager.destroyNode(current);
 					assert current.getState() == MemPoolState.FREE;
 				}
+				destroySuccessors(speculative);
 				continue;
 			}
 
-			// ce calcul étant un peu lourd, on ne le fait que si le noeud a été
+			// ce calcul étant un peu lourd, on ne le fait par défaut que si le noeud a été
 			// choisi, et pas à la sélection des voisins (dans hasNext par
-			// exemple) (expérimentalement vérifié sur pc et raspi)
-			if(current.parent != null && engine.isThereCollision(current.getArc()))
+			// exemple) (expérimentalement vérifié sur pc et raspi). Voir COLLISION_CHECK
+			if(current.parent != null && (speculative == null ? isThereCollision(current) : speculative.collision))
 			{
 				assert current != depart;
+				statistics.nbPrunedNodes++;
 				if(current != depart)
 				{
 					memorymanager.destroyNode(current);
 					assert current.getState() == MemPoolState.FREE;
 				}
+				destroySuccessors(speculative);
 				continue; // collision mécanique attendue. On passe au suivant !
 			}
 
@@ -378,12 +460,12 @@ public final class TentacularAStar
 
 			// Si current est la trajectoire de secours, ça veut dire que cette
 			// trajectoire de secours est la meilleure possible, donc on a fini
-			if(current == trajetDeSecours)
+			if(polled == trajetDeSecours)
 			{
 				partialReconstruct(current, chemin, Integer.MAX_VALUE, false);
 				memorymanager.empty();
 				cinemMemory.empty();
-				return;
+				return Outcome.PATH_FOUND;
 			}
 
 			long elapsed = System.currentTimeMillis() - debutRecherche;
@@ -401,27 +483,40 @@ public final class TentacularAStar
 				 * Timeout !
 				 */
 
-				memorymanager.empty();
-				cinemMemory.empty();
 				if(trajetDeSecours != null) // si on a un trajet de secours, on l'utilise
 				{
 					log.write("The backup path is used.", LogCategoryKraken.PF);
+					// the nodes of the backup path are freed after the reconstruction
 					partialReconstruct(trajetDeSecours, chemin, Integer.MAX_VALUE, false);
-					return;
+					memorymanager.empty();
+					cinemMemory.empty();
+					return Outcome.BACKUP_PATH;
 				}
+				memorymanager.empty();
+				cinemMemory.empty();
 				
 				// sinon, on lève une exception
 				throw new TimeoutException("Timeout pathfinding !");
 			}
 
 			// On parcourt les voisins de current
-			arcmanager.computeTentacles(current);
+			Iterator<AStarNode> successors;
+			if(speculative == null)
+			{
+				long startExpansion = System.nanoTime();
+				arcmanager.computeTentacles(current);
+				statistics.expansionDuration += System.nanoTime() - startExpansion;
+				successors = arcmanager;
+			}
+			else
+				successors = speculative.successors.iterator(); // already computed
 			if(debugMode)
 				outTentacles.clear();
 
-			while(arcmanager.hasNext())
+			while(successors.hasNext())
 			{
-				AStarNode successeur = arcmanager.next();
+				AStarNode successeur = successors.next();
+				statistics.nbGeneratedNodes++;
 				assert successeur.getArc().getNbPoints() > 0;
 				
 				// Il y a une trop grande distance
@@ -432,53 +527,73 @@ public final class TentacularAStar
 					continue;
 				}
 				assert successeur.getState() == MemPoolState.NEXT : successeur.getState();
-				successeur.g_score += current.g_score; // successeur.g_score contient déjà la distance entre current et successeur
+				// the scores have been computed by the tentacle threads
 
 				// on a déjà visité un point proche?
 				// ceci est vraie seulement si l'heuristique est monotone. C'est
 				// normalement le cas.
 				if(closedset.contains(successeur.hashCode()))
 				{
+					statistics.nbPrunedNodes++;
 					memorymanager.destroyNode(successeur);
 					continue;
 				}
 
-				heuristique = arcmanager.heuristicCostCourbe(successeur.robot.getCinematique());
-				if(heuristique == null)
-				{
-					// Point inaccessible
-					memorymanager.destroyNode(successeur);
-					continue;
-				}
-
-				successeur.f_score = successeur.g_score + heuristique;
+				boolean arrived = arcmanager.isArrived(successeur.getArc().getLast());
 
 				// est qu'on est tombé sur l'arrivée ? alors ça fait un trajet de secours
 				// s'il y a déjà un trajet de secours, on prend le meilleur
-				if(successeur.getArc() != null && arcmanager.isArrived(successeur.getArc().getLast()) && (successeur.getArc() == null || !engine.isThereCollision(successeur.getArc())) && (trajetDeSecours == null || trajetDeSecours.f_score > successeur.f_score))
+				boolean secours = arrived && !isThereCollision(successeur) && (trajetDeSecours == null || trajetDeSecours.f_score > successeur.f_score);
+				
+				if(nodeStore != null)
+				{
+					// only a handle of the stored node is kept
+					AStarNode handle = nodeStore.add(successeur, current.storeId);
+					memorymanager.destroyNode(successeur);
+					successeur = handle;
+				}
+				
+				if(secours)
 				{
 					trajetDeSecours = successeur;
 					if(fastMode)
 					{
 						log.write("A fast-and-dirty path is used.", LogCategoryKraken.PF);
 						partialReconstruct(trajetDeSecours, chemin, Integer.MAX_VALUE, false);
+						arcmanager.abortExpansion(); // the other successors may still be computed
 						memorymanager.empty();
 						cinemMemory.empty();
-						return;
+						return Outcome.FAST_AND_DIRTY_PATH;
 					}
 				}
 					/*
 					 * Cela ne sert à rien de détruire l'ancien trajet de secours (qui est dans l'openset, car si on l'avait pioché de l'openset on aurait fini avec lui)
 					 * C'est juste qu'on garde le meilleur dans un coin.
+					 * Les nœuds d'arrivée ne sont jamais remplacés dans l'openset, pour que le trajet de secours reste valide.
 					 */
 				
+				if(arrived)
+					openset.add(successeur);
+				else
+				{
+					// s'il y a déjà un nœud de même état dans l'openset, on ne garde que le meilleur des deux
+					AStarNode worse = openset.addOrReplace(successeur);
+					if(worse != null)
+						statistics.nbPrunedNodes++;
+					if(worse == successeur)
+					{
+						destroyWaitingNode(successeur);
+						continue;
+					}
+					if(worse != null)
+						destroyWaitingNode(worse);
+				}
+
 				if(debugMode)
 				{
 					outTentacles.add(successeur);
 					buffer.addTemporaryPrintable(successeur, Color.BLUE, Layer.FOREGROUND.layer);
 				}
-
-				openset.add(successeur);
 				assert setState(successeur, MemPoolState.WAITING);
 			}
 			
@@ -495,15 +610,35 @@ public final class TentacularAStar
 				buffer.refresh();
 			}
 
-			assert setState(current, MemPoolState.STANDBY);
-		} while(!openset.isEmpty());
+			if(nodeStore != null && current != depart)
+				memorymanager.destroyNode(current); // it stays in the node store
+			else
+				assert setState(current, MemPoolState.STANDBY);
+		} while(!openset.isEmpty() || !window.isEmpty());
 
 		/**
 		 * Plus aucun nœud à explorer
 		 */
 		memorymanager.empty();
 		cinemMemory.empty();
-		throw new NoPathException("All the space has been searched and no path has been found ("+nbExpandedNodes+" expanded nodes)");
+		throw new NoPathException("All the space has been searched and no path has been found ("+statistics.nbExpandedNodes+" expanded nodes)");
+	}
+	
+	/**
+	 * The collision check of a chosen node, unless the tentacle threads already know it is collision-free
+	 * 
+	 * @param node
+	 * @return
+	 */
+	private boolean isThereCollision(AStarNode node)
+	{
+		if(node.collisionChecked)
+			return false;
+		long start = System.nanoTime();
+		boolean collision = engine.isThereCollision(node.getArc());
+		statistics.collisionDuration += System.nanoTime() - start;
+		collisionCounters.addCheck(collision);
+		return collision;
 	}
 	
 	/**
@@ -516,17 +651,27 @@ public final class TentacularAStar
 	 */
 	private final void partialReconstruct(AStarNode best, DynamicPath chemin, int nbPointsMax, boolean partial)
 	{
+		// with the node store, best may be a handle (the backup path) : its robot is in the store
+		long date = nodeStore == null ? best.robot.getDate() : nodeStore.getDate(best.storeId);
 		if(debugMode)
 		{
-			System.out.println("Path duration : "+best.robot.getDate());
-			System.out.println("Number of expanded nodes : "+nbExpandedNodes);
+			System.out.println("Path duration : "+date);
+			System.out.println("Number of expanded nodes : "+statistics.nbExpandedNodes);
+			System.out.println("Collision checks : "+collisionCounters);
 		}
 
-		LinkedList<CinematiqueObs> trajectory = arcmanager.reconstruct(best, nbPointsMax);
+		long start = System.nanoTime();
+		LinkedList<CinematiqueObs> trajectory;
+		if(nodeStore == null)
+			trajectory = arcmanager.reconstruct(best, nbPointsMax);
+		else
+			trajectory = arcmanager.reconstruct(nodeStore, best.storeId, nbPointsMax);
 		
 		assert trajectory.size() <= nbPointsMax : trajectory.size()+" "+nbPointsMax;
 		chemin.addToEnd(trajectory, partial);
-		
+		statistics.reconstructionDuration += System.nanoTime() - start;
+		if(!partial)
+			statistics.pathDuration = date;
 		
 		log.write("Research completed.", LogCategoryKraken.PF);
 	}
@@ -541,6 +686,8 @@ public final class TentacularAStar
 	 */
 	public void initializeNewSearch(Cinematique start, Cinematique arrival, DirectionStrategy directionstrategy, String mode, Double maxSpeed, Integer timeout) throws NoPathException
 	{
+		long startInitialization = System.nanoTime();
+		statistics.reset();
 		stop = false;
 		initialized = true;
 		depart.init();
@@ -564,10 +711,31 @@ public final class TentacularAStar
 		 * dstarlite.computeNewPath updates the heuristic.
 		 * It returns false if there is no path between start and arrival
 		 */
-		if(!dstarlite.computeNewPath(depart.robot.getCinematique().getPosition(), arrival.getPosition()))
+		boolean pathFound = computeNewPath();
+		statistics.initializationDuration += System.nanoTime() - startInitialization;
+		if(!pathFound)
 			throw new NoPathException("No path found by D* Lite !");
 	}
 	
+	/**
+	 * Updates the D* Lite from the start to the arrival
+	 * 
+	 * @return false if there is no path
+	 * @throws NoPathException
+	 */
+	private boolean computeNewPath() throws NoPathException
+	{
+		long start = System.nanoTime();
+		try
+		{
+			return dstarlite.computeNewPath(depart.robot.getCinematique().getPosition(), arrival.getPosition());
+		}
+		finally
+		{
+			statistics.dstarliteDuration += System.nanoTime() - start;
+		}
+	}
+	
 	/**
 	 * Replanification. On conserve la même DirectionStrategy ainsi que le même
 	 * SensFinal
@@ -588,13 +756,17 @@ public final class TentacularAStar
 		
 		log.write("Replanning started.", LogCategoryKraken.REPLANIF);
 
+		long startInitialization = System.nanoTime();
+		statistics.reset();
 		depart.init();
 		depart.robot.setCinematique(lastValid);
 
 		// On met à jour le D* Lite
 		engine.update();
 		
-		if(!dstarlite.computeNewPath(depart.robot.getCinematique().getPosition(), arrival.getPosition()))
+		boolean pathFound = computeNewPath();
+		statistics.initializationDuration += System.nanoTime() - startInitialization;
+		if(!pathFound)
 			throw new NoPathException("No path found by D* Lite !");
 
 		search();
@@ -608,6 +780,112 @@ public final class TentacularAStar
 		return null;
 	}*/
 	
+	/**
+	 * With the node store, the departure is the first stored node
+	 */
+	private void clearNodeStore()
+	{
+		if(nodeStore != null)
+		{
+			nodeStore.clear();
+			depart.storeId = nodeStore.add(depart, -1).storeId;
+		}
+	}
+	
+	/**
+	 * With the node store, a polled handle is restored into a node of the pool
+	 * 
+	 * @param polled
+	 * @return
+	 */
+	private AStarNode restore(AStarNode polled)
+	{
+		if(nodeStore == null || polled == depart)
+			return polled;
+		AStarNode out = nodeStore.restore(polled, memorymanager.getNewNode());
+		assert setState(out, MemPoolState.WAITING);
+		return out;
+	}
+	
+	/**
+	 * Destroys a node that has left the open set (with the node store, it's only a handle)
+	 * 
+	 * @param node
+	 */
+	private void destroyWaitingNode(AStarNode node)
+	{
+		if(nodeStore == null)
+			memorymanager.destroyNode(node);
+		else
+			nodeStore.remove(node);
+	}
+	
+	/**
+	 * With the speculative expansion, gives the next node to expand. If the best node of the open set comes
+	 * before the nodes of the window, it is polled with the next best nodes (up to SPECULATIVE_EXPANSION nodes
+	 * in the window) and they are expanded together by the threads.
+	 * The nodes are expanded in the same order as without speculation, so the search stays deterministic.
+	 * 
+	 * @return
+	 */
+	private SpeculativeNode pollSpeculative()
+	{
+		if(window.isEmpty() || (!openset.isEmpty() && lesser(openset.peek(), window.get(0).polled)))
+		{
+			fresh.clear();
+			do
+			{
+				SpeculativeNode s = freeSpeculative.isEmpty() ? new SpeculativeNode() : freeSpeculative.remove(freeSpeculative.size() - 1);
+				s.polled = openset.poll();
+				s.current = restore(s.polled);
+				fresh.add(s);
+			} while(window.size() + fresh.size() < nbSpeculative && !openset.isEmpty());
+			
+			long startExpansion = System.nanoTime();
+			arcmanager.computeTentacles(fresh);
+			statistics.expansionDuration += System.nanoTime() - startExpansion;
+			
+			// the new nodes are inserted after the nodes of the window with the same score
+			int i = 0;
+			for(SpeculativeNode s : fresh)
+			{
+				while(i < window.size() && !lesser(s.polled, window.get(i).polled))
+					i++;
+				window.add(i++, s);
+			}
+		}
+		return window.remove(0);
+	}
+	
+	private static boolean lesser(AStarNode a, AStarNode b)
+	{
+		return a.f_score < b.f_score || (a.f_score == b.f_score && a.g_score < b.g_score);
+	}
+	
+	/**
+	 * The successors of a skipped node are destroyed
+	 * 
+	 * @param speculative
+	 */
+	private void destroySuccessors(SpeculativeNode speculative)
+	{
+		if(speculative != null)
+		{
+			for(AStarNode n : speculative.successors)
+				memorymanager.destroyNode(n);
+			speculative.successors.clear();
+		}
+	}
+	
+	/**
+	 * Forgets the nodes of the window (they are freed by the memory pool)
+	 */
+	private void clearWindow()
+	{
+		freeSpeculative.addAll(window);
+		window.clear();
+	}
+	
 	private boolean setState(AStarNode node, MemPoolState state)
 	{
 		node.setState(state);
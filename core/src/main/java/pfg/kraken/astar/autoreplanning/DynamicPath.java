@@ -12,6 +12,7 @@ import pfg.config.Config;
 import pfg.kraken.ConfigInfoKraken;
 import pfg.kraken.exceptions.NoPathException;
 import pfg.kraken.exceptions.PathfindingException;
+import pfg.kraken.jfr.FlightRecorder;
 import pfg.kraken.obstacles.RectangularObstacle;
 import pfg.kraken.obstacles.container.DynamicObstacles;
 import pfg.kraken.robot.Cinematique;
@@ -116,6 +117,9 @@ public final class DynamicPath
 		
 		pathSize += points.size();
 		
+		if(partial && FlightRecorder.AVAILABLE)
+			FlightRecorder.EVENTS.partialRebuild(points.size(), pathSize);
+		
 		if(!partial && isModeWithReplanning())
 			etat = State.UPTODATE_WITH_NEW_PATH;
 
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.astar.engine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The collision checks of the last search, to tune COLLISION_CHECK.
+ * The tentacle threads and the search thread update them without lock.
+ *
+ * @author pf
+ *
+ */
+
+public final class CollisionCounters
+{
+	private final LongAdder preTests = new LongAdder();
+	private final LongAdder preTestsClear = new LongAdder();
+	private final LongAdder checks = new LongAdder();
+	private final LongAdder collisions = new LongAdder();
+	private volatile CollisionStrategy strategy = CollisionStrategy.LAZY;
+
+	public void reset(CollisionStrategy strategy)
+	{
+		this.strategy = strategy;
+		preTests.reset();
+		preTestsClear.reset();
+		checks.reset();
+		collisions.reset();
+	}
+
+	/**
+	 * A cheap test on the swept box (HYBRID)
+	 *
+	 * @param mayCollide : the result of the test
+	 */
+	public void addPreTest(boolean mayCollide)
+	{
+		preTests.increment();
+		if(!mayCollide)
+			preTestsClear.increment();
+	}
+
+	/**
+	 * A complete collision check
+	 *
+	 * @param collision : the result of the check, i.e. the node is discarded
+	 */
+	public void addCheck(boolean collision)
+	{
+		checks.increment();
+		if(collision)
+			collisions.increment();
+	}
+
+	public CollisionStrategy getStrategy()
+	{
+		return strategy;
+	}
+
+	/**
+	 * The number of cheap tests on the swept box
+	 *
+	 * @return
+	 */
+	public long getNbPreTests()
+	{
+		return preTests.sum();
+	}
+
+	/**
+	 * The number of cheap tests that proved there is no collision
+	 *
+	 * @return
+	 */
+	public long getNbPreTestsClear()
+	{
+		return preTestsClear.sum();
+	}
+
+	/**
+	 * The number of complete collision checks
+	 *
+	 * @return
+	 */
+	public long getNbChecks()
+	{
+		return checks.sum();
+	}
+
+	/**
+	 * The number of nodes discarded because of a collision
+	 *
+	 * @return
+	 */
+	public long getNbDiscarded()
+	{
+		return collisions.sum();
+	}
+
+	@Override
+	public String toString()
+	{
+		return strategy + " : " + getNbChecks() + " checks, " + getNbDiscarded() + " discarded, " + getNbPreTests() + " swept box tests (" + getNbPreTestsClear() + " clear)";
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.astar.engine;
+
+/**
+ * When the tentacles are checked against the obstacles (COLLISION_CHECK)
+ *
+ * @author pf
+ *
+ */
+
+public enum CollisionStrategy
+{
+	LAZY, // when the node is chosen : the nodes that are never chosen aren't checked
+	EAGER, // by the tentacle threads : the colliding successors never enter the open set
+	HYBRID; // the tentacle threads only do a cheap test on the swept box : the successors far from any obstacle aren't checked again when they are chosen
+
+	/**
+	 * The strategy of this config value
+	 *
+	 * @param name
+	 * @param checkEachIteration : the obstacles may change during the search, so the check must be done when the node is chosen
+	 * @return
+	 */
+	public static CollisionStrategy get(String name, boolean checkEachIteration)
+	{
+		for(CollisionStrategy s : values())
+			if(s.name().equals(name))
+				return checkEachIteration ? LAZY : s;
+		throw new IllegalArgumentException("Unknown collision strategy : " + name);
+	}
+}
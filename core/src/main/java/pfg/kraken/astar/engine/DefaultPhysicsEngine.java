@@ -8,6 +8,9 @@ package pfg.kraken.astar.engine;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import pfg.config.Config;
+import pfg.kraken.ConfigInfoKraken;
+import pfg.kraken.astar.tentacles.Tentacle;
 import pfg.kraken.obstacles.Obstacle;
 import pfg.kraken.obstacles.RectangularObstacle;
 import pfg.kraken.obstacles.container.DynamicObstacles;
@@ -22,19 +25,27 @@ import pfg.kraken.utils.XY;
 
 public final class DefaultPhysicsEngine implements PhysicsEngine
 {
-	private List<Obstacle> fixed;
 	private DynamicObstacles dynamicObs;
 	private List<Obstacle> currentObstacles = new ArrayList<Obstacle>();
+	
+	/*
+	 * The broad phase : the fixed obstacles are indexed once, the current obstacles at each update
+	 */
+	private ObstacleGrid fixedGrid;
+	private ObstacleGrid currentGrid;
 
-	public DefaultPhysicsEngine(StaticObstacles fixes, DynamicObstacles dynamicObs)
+	public DefaultPhysicsEngine(StaticObstacles fixes, DynamicObstacles dynamicObs, Config config)
 	{
 //		this.fixes = fixes;
-		fixed = fixes.getObstacles();
 		this.dynamicObs = dynamicObs;
 		coins[0] = fixes.getBottomLeftCorner();
 		coins[2] = fixes.getTopRightCorner();
 		coins[1] = new XY(coins[0].getX(), coins[2].getY());
 		coins[3] = new XY(coins[2].getX(), coins[0].getY());
+		int cellSize = config.getInt(ConfigInfoKraken.COLLISION_GRID_CELL_SIZE);
+		fixedGrid = new ObstacleGrid(coins[0], coins[2], cellSize);
+		fixedGrid.build(fixes.getObstacles());
+		currentGrid = new ObstacleGrid(coins[0], coins[2], cellSize);
 	}
 	
 	private XY[] coins = new XY[4];
@@ -47,32 +58,100 @@ public final class DefaultPhysicsEngine implements PhysicsEngine
 		Iterator<Obstacle> iter = dynamicObs.getCurrentDynamicObstacles();
 		while(iter.hasNext())
 			currentObstacles.add(iter.next());
+		currentGrid.build(currentObstacles);
 	}
 	
-	@Override
-	public boolean isThereCollision(Iterable<RectangularObstacle> tentacle)
+	/**
+	 * Is the box near the borders of the search domain ? If not, the walls can't be hit
+	 */
+	private boolean isNearWalls(double minX, double minY, double maxX, double maxY)
 	{
-		for(RectangularObstacle co : tentacle)
-		{
-			// On vérifie la collision avec les murs
+		return minX <= coins[0].getX() || maxX >= coins[2].getX() || minY <= coins[0].getY() || maxY >= coins[2].getY();
+	}
+	
+	private boolean isCollidingWalls(RectangularObstacle co)
+	{
+		XY centre = co.getCentreGeometrique();
+		double rayon = co.getDemieDiagonale();
+		if(isNearWalls(centre.getX() - rayon, centre.getY() - rayon, centre.getX() + rayon, centre.getY() + rayon))
 			for(int i = 0; i < 4; i++)
 				if(co.isColliding(coins[i], coins[(i+1)&3]))
 					return true;
+		return false;
+	}
+	
+	@Override
+	public boolean isThereCollision(Iterable<RectangularObstacle> tentacle)
+	{
+		for(RectangularObstacle co : tentacle)
+			if(isCollidingFixed(co) || isCollidingCurrent(co))
+				return true;
 
-			// Collision avec un obstacle fixe?
-			for(Obstacle o : fixed)
-				if(o.isColliding(co))
-					// log.debug("Collision avec "+o);
-					return true;
+		return false;
+	}
+	
+	/**
+	 * Collision with a wall or a fixed obstacle ?
+	 * @param co
+	 * @return
+	 */
+	boolean isCollidingFixed(RectangularObstacle co)
+	{
+		// On vérifie la collision avec les murs, sauf si le cercle englobant est loin des bords
+		if(isCollidingWalls(co))
+			return true;
 
-			// Collision avec un obstacle de proximité ?
-			// TODO : utiliser getFutureDynamicObstacles
-			for(Obstacle n : currentObstacles)
-				if(n.isColliding(co))
+		// Collision avec un obstacle fixe?
+		return fixedGrid.isColliding(co);
+	}
+	
+	/**
+	 * Collision with a current dynamic obstacle ?
+	 * @param co
+	 * @return
+	 */
+	boolean isCollidingCurrent(RectangularObstacle co)
+	{
+		// Collision avec un obstacle de proximité ?
+		// TODO : utiliser getFutureDynamicObstacles
+		return currentGrid.isColliding(co);
+	}
+	
+	boolean isCollidingCurrent(Tentacle tentacle)
+	{
+		if(!tentacle.hasSweptBox())
+		{
+			for(int i = 0; i < tentacle.getNbPoints(); i++)
+				if(currentGrid.isColliding(tentacle.getPoint(i).obstacle))
 					return true;
+			return false;
 		}
+		return currentGrid.isColliding(tentacle);
+	}
+	
+	@Override
+	public boolean isThereCollision(Tentacle tentacle)
+	{
+		if(!tentacle.hasSweptBox())
+			return isThereCollision((Iterable<RectangularObstacle>) tentacle);
 
-		return false;
+		// the walls are checked point by point only if the whole tentacle is near a border
+		if(isNearWalls(tentacle.getSweptMinX(), tentacle.getSweptMinY(), tentacle.getSweptMaxX(), tentacle.getSweptMaxY()))
+			for(int i = 0; i < tentacle.getNbPoints(); i++)
+				if(isCollidingWalls(tentacle.getPoint(i).obstacle))
+					return true;
+
+		// the obstacles outside the swept box are rejected once for all the points
+		return fixedGrid.isColliding(tentacle) || currentGrid.isColliding(tentacle);
+	}
+	
+	@Override
+	public boolean mayCollide(Tentacle tentacle)
+	{
+		if(!tentacle.hasSweptBox())
+			return true;
+		double minX = tentacle.getSweptMinX(), minY = tentacle.getSweptMinY(), maxX = tentacle.getSweptMaxX(), maxY = tentacle.getSweptMaxY();
+		return isNearWalls(minX, minY, maxX, maxY) || fixedGrid.isNear(minX, minY, maxX, maxY) || currentGrid.isNear(minX, minY, maxX, maxY);
 	}
 
 }
@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.astar.engine;
+
+import java.util.Arrays;
+import pfg.kraken.astar.tentacles.Tentacle;
+import pfg.kraken.obstacles.Obstacle;
+import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.utils.BoundingBox;
+import pfg.kraken.utils.XY;
+
+/**
+ * The broad phase of the collision check : a uniform grid over the search domain.
+ * Each obstacle is referenced in every cell its bounding box overlaps (the obstacles outside the domain
+ * are clamped into the border cells). A query only tests the obstacles of the cells overlapped by the bounding
+ * circle of the rectangle.
+ * An obstacle that overlaps several queried cells is tested only in the first of them (the "reference point"
+ * of the intersection), so a query needs no allocation and no mark : the grid can be read by all the tentacle
+ * threads at the same time.
+ *
+ * @author pf
+ *
+ */
+
+public final class ObstacleGrid
+{
+	private final double minX, minY;
+	private final double cellSize;
+	private final int nbX, nbY;
+
+	/*
+	 * The cells, compressed : the obstacles of the cell c are entries[cellStart[c]] ... entries[cellStart[c+1]-1]
+	 */
+	private final int[] cellStart;
+	private int[] entries = new int[0];
+
+	/*
+	 * The obstacles with a finite bounding box
+	 */
+	private Obstacle[] obstacles = new Obstacle[0];
+	private double[] boxes = new double[0]; // minX, minY, maxX, maxY of each obstacle
+	private int[] firstCell = new int[0]; // the lowest cell coordinates (x, y) of each obstacle
+	private int nbObstacles = 0;
+
+	/*
+	 * The obstacles with an infinite bounding box, always tested
+	 */
+	private Obstacle[] unbounded = new Obstacle[0];
+	private int nbUnbounded = 0;
+
+	/*
+	 * The obstacles near the tentacle of the current query (one buffer per thread)
+	 */
+	private final ThreadLocal<int[]> candidates = new ThreadLocal<int[]>()
+	{
+		@Override
+		protected int[] initialValue()
+		{
+			return new int[16];
+		}
+	};
+
+	public ObstacleGrid(XY bottomLeftCorner, XY topRightCorner, double cellSize)
+	{
+		assert cellSize > 0;
+		this.minX = bottomLeftCorner.getX();
+		this.minY = bottomLeftCorner.getY();
+		this.cellSize = cellSize;
+		nbX = Math.max(1, (int) Math.ceil((topRightCorner.getX() - minX) / cellSize));
+		nbY = Math.max(1, (int) Math.ceil((topRightCorner.getY() - minY) / cellSize));
+		cellStart = new int[nbX * nbY + 1];
+	}
+
+	private int cellX(double x)
+	{
+		return Math.max(0, Math.min(nbX - 1, (int) Math.floor((x - minX) / cellSize)));
+	}
+
+	private int cellY(double y)
+	{
+		return Math.max(0, Math.min(nbY - 1, (int) Math.floor((y - minY) / cellSize)));
+	}
+
+	/**
+	 * Replaces the content of the grid. The arrays are reused when they are large enough.
+	 *
+	 * @param obs
+	 */
+	public void build(Iterable<Obstacle> obs)
+	{
+		nbObstacles = 0;
+		nbUnbounded = 0;
+		for(Obstacle o : obs)
+		{
+			BoundingBox box = o.getBoundingBox();
+			if(!box.isFinite())
+			{
+				if(nbUnbounded == unbounded.length)
+					unbounded = Arrays.copyOf(unbounded, 2 * nbUnbounded + 4);
+				unbounded[nbUnbounded++] = o;
+				continue;
+			}
+			if(nbObstacles == obstacles.length)
+			{
+				int capacity = 2 * nbObstacles + 4;
+				obstacles = Arrays.copyOf(obstacles, capacity);
+				boxes = Arrays.copyOf(boxes, 4 * capacity);
+				firstCell = Arrays.copyOf(firstCell, 2 * capacity);
+			}
+			obstacles[nbObstacles] = o;
+			boxes[4 * nbObstacles] = box.getMinX();
+			boxes[4 * nbObstacles + 1] = box.getMinY();
+			boxes[4 * nbObstacles + 2] = box.getMaxX();
+			boxes[4 * nbObstacles + 3] = box.getMaxY();
+			firstCell[2 * nbObstacles] = cellX(box.getMinX());
+			firstCell[2 * nbObstacles + 1] = cellY(box.getMinY());
+			nbObstacles++;
+		}
+		// on ne garde pas de référence vers les anciens obstacles
+		Arrays.fill(obstacles, nbObstacles, obstacles.length, null);
+		Arrays.fill(unbounded, nbUnbounded, unbounded.length, null);
+
+		// first pass : the number of obstacles of each cell
+		Arrays.fill(cellStart, 0);
+		for(int k = 0; k < nbObstacles; k++)
+		{
+			int x1 = cellX(boxes[4 * k + 2]), y1 = cellY(boxes[4 * k + 3]);
+			for(int y = firstCell[2 * k + 1]; y <= y1; y++)
+				for(int x = firstCell[2 * k]; x <= x1; x++)
+					cellStart[y * nbX + x + 1]++;
+		}
+		for(int c = 0; c < nbX * nbY; c++)
+			cellStart[c + 1] += cellStart[c];
+		if(entries.length < cellStart[nbX * nbY])
+			entries = new int[cellStart[nbX * nbY]];
+
+		// second pass : the entries. cellStart[c] is used as the insertion point of the cell c and ends at the start of c+1...
+		for(int k = 0; k < nbObstacles; k++)
+		{
+			int x1 = cellX(boxes[4 * k + 2]), y1 = cellY(boxes[4 * k + 3]);
+			for(int y = firstCell[2 * k + 1]; y <= y1; y++)
+				for(int x = firstCell[2 * k]; x <= x1; x++)
+					entries[cellStart[y * nbX + x]++] = k;
+		}
+		// ... so it is shifted back by one cell
+		for(int c = nbX * nbY; c > 0; c--)
+			cellStart[c] = cellStart[c - 1];
+		cellStart[0] = 0;
+	}
+
+	/**
+	 * Does the bounding box of the obstacle k intersect this box ?
+	 */
+	private boolean intersects(int k, double qMinX, double qMinY, double qMaxX, double qMaxY)
+	{
+		return boxes[4 * k] <= qMaxX && boxes[4 * k + 2] >= qMinX && boxes[4 * k + 1] <= qMaxY && boxes[4 * k + 3] >= qMinY;
+	}
+
+	/**
+	 * Is there a collision between this rectangle and an obstacle of the grid ?
+	 *
+	 * @param r
+	 * @return
+	 */
+	public boolean isColliding(RectangularObstacle r)
+	{
+		for(int i = 0; i < nbUnbounded; i++)
+			if(unbounded[i].isColliding(r))
+				return true;
+
+		if(nbObstacles == 0)
+			return false;
+
+		// the bounding box of the bounding circle of the rectangle
+		XY centre = r.getCentreGeometrique();
+		double radius = r.getDemieDiagonale();
+		double qMinX = centre.getX() - radius, qMaxX = centre.getX() + radius;
+		double qMinY = centre.getY() - radius, qMaxY = centre.getY() + radius;
+		int x0 = cellX(qMinX), x1 = cellX(qMaxX);
+		int y0 = cellY(qMinY), y1 = cellY(qMaxY);
+
+		for(int y = y0; y <= y1; y++)
+			for(int x = x0; x <= x1; x++)
+			{
+				int c = y * nbX + x;
+				for(int e = cellStart[c]; e < cellStart[c + 1]; e++)
+				{
+					int k = entries[e];
+					// this obstacle is tested in the first queried cell it overlaps only
+					if(x != Math.max(x0, firstCell[2 * k]) || y != Math.max(y0, firstCell[2 * k + 1]))
+						continue;
+					if(intersects(k, qMinX, qMinY, qMaxX, qMaxY) && obstacles[k].isColliding(r))
+						return true;
+				}
+			}
+		return false;
+	}
+
+	/**
+	 * Is there a collision between a point of this tentacle and an obstacle of the grid ?
+	 * The grid is read once with the swept bounding box of the tentacle ; only the obstacles that intersect
+	 * this box are then checked point by point.
+	 *
+	 * @param t : a tentacle whose swept box is computed
+	 * @return
+	 */
+	public boolean isColliding(Tentacle t)
+	{
+		assert t.hasSweptBox();
+		int nbPoints = t.getNbPoints();
+		for(int i = 0; i < nbUnbounded; i++)
+			for(int j = 0; j < nbPoints; j++)
+				if(unbounded[i].isColliding(t.getPoint(j).obstacle))
+					return true;
+
+		if(nbObstacles == 0)
+			return false;
+
+		double qMinX = t.getSweptMinX(), qMaxX = t.getSweptMaxX();
+		double qMinY = t.getSweptMinY(), qMaxY = t.getSweptMaxY();
+		int x0 = cellX(qMinX), x1 = cellX(qMaxX);
+		int y0 = cellY(qMinY), y1 = cellY(qMaxY);
+
+		// the obstacles near the tentacle
+		int[] near = candidates.get();
+		int nbNear = 0;
+		for(int y = y0; y <= y1; y++)
+			for(int x = x0; x <= x1; x++)
+			{
+				int c = y * nbX + x;
+				for(int e = cellStart[c]; e < cellStart[c + 1]; e++)
+				{
+					int k = entries[e];
+					if(x != Math.max(x0, firstCell[2 * k]) || y != Math.max(y0, firstCell[2 * k + 1]))
+						continue;
+					if(!intersects(k, qMinX, qMinY, qMaxX, qMaxY))
+						continue;
+					if(nbNear == near.length)
+					{
+						near = Arrays.copyOf(near, 2 * nbNear);
+						candidates.set(near);
+					}
+					near[nbNear++] = k;
+				}
+			}
+
+		// narrow phase, point by point (the first points are the most likely to collide)
+		for(int j = 0; nbNear > 0 && j < nbPoints; j++)
+		{
+			RectangularObstacle r = t.getPoint(j).obstacle;
+			XY centre = r.getCentreGeometrique();
+			double radius = r.getDemieDiagonale();
+			for(int i = 0; i < nbNear; i++)
+				if(intersects(near[i], centre.getX() - radius, centre.getY() - radius, centre.getX() + radius, centre.getY() + radius) && obstacles[near[i]].isColliding(r))
+					return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Does an obstacle of the grid have a bounding box that intersects this box ?
+	 * It's a cheap test : if not, nothing in this box collides an obstacle.
+	 *
+	 * @return
+	 */
+	public boolean isNear(double qMinX, double qMinY, double qMaxX, double qMaxY)
+	{
+		if(nbUnbounded > 0)
+			return true;
+
+		if(nbObstacles == 0)
+			return false;
+
+		int x0 = cellX(qMinX), x1 = cellX(qMaxX);
+		int y0 = cellY(qMinY), y1 = cellY(qMaxY);
+		for(int y = y0; y <= y1; y++)
+			for(int x = x0; x <= x1; x++)
+			{
+				int c = y * nbX + x;
+				for(int e = cellStart[c]; e < cellStart[c + 1]; e++)
+					if(intersects(entries[e], qMinX, qMinY, qMaxX, qMaxY))
+						return true;
+			}
+		return false;
+	}
+
+	/**
+	 * The number of obstacles in the grid
+	 *
+	 * @return
+	 */
+	public int size()
+	{
+		return nbObstacles + nbUnbounded;
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.astar.engine;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * A configuration-space bitmap : one bit per cell (x, y, orientation).
+ * A bit is set iff the vehicle may collide a fixed obstacle somewhere in this cell.
+ * It can be saved and loaded, like the navmesh.
+ *
+ * @author pf
+ *
+ */
+
+public final class OccupancyBitmap implements Serializable
+{
+	private static final long serialVersionUID = -4127520417985127337L;
+
+	/*
+	 * What the bitmap has been computed for
+	 */
+	final String geometryDigest; // the fixed obstacles and the vehicle (null in the files of the previous versions)
+	final double minX, minY;
+	final int resolution;
+	final int nbX, nbY, nbOrientations;
+	final double vehicleMinX, vehicleMinY, vehicleMaxX, vehicleMaxY; // the vehicle with orientation 0 at (0,0)
+
+	private final long[] bits;
+	private final double angleStep;
+
+	OccupancyBitmap(String geometryDigest, double minX, double minY, double maxX, double maxY, int resolution, int nbOrientations, double vehicleMinX, double vehicleMinY, double vehicleMaxX, double vehicleMaxY)
+	{
+		this.geometryDigest = geometryDigest;
+		this.minX = minX;
+		this.minY = minY;
+		this.resolution = resolution;
+		this.nbOrientations = nbOrientations;
+		this.vehicleMinX = vehicleMinX;
+		this.vehicleMinY = vehicleMinY;
+		this.vehicleMaxX = vehicleMaxX;
+		this.vehicleMaxY = vehicleMaxY;
+		nbX = Math.max(1, (int) Math.ceil((maxX - minX) / resolution));
+		nbY = Math.max(1, (int) Math.ceil((maxY - minY) / resolution));
+		angleStep = 2 * Math.PI / nbOrientations;
+		bits = new long[(int) (((long) nbX * nbY * nbOrientations + 63) / 64)];
+	}
+
+	/**
+	 * Has this bitmap been computed with these parameters ? The digest covers the whole geometry of the obstacles
+	 * and of the vehicle : a resized or rotated obstacle must never be seen as free.
+	 */
+	boolean matches(String geometryDigest, double minX, double minY, double maxX, double maxY, int resolution, int nbOrientations, double vehicleMinX, double vehicleMinY, double vehicleMaxX, double vehicleMaxY)
+	{
+		return geometryDigest.equals(this.geometryDigest) && this.minX == minX && this.minY == minY && nbX == Math.max(1, (int) Math.ceil((maxX - minX) / resolution)) && nbY == Math.max(1, (int) Math.ceil((maxY - minY) / resolution)) && this.resolution == resolution && this.nbOrientations == nbOrientations && this.vehicleMinX == vehicleMinX && this.vehicleMinY == vehicleMinY && this.vehicleMaxX == vehicleMaxX && this.vehicleMaxY == vehicleMaxY;
+	}
+
+	double getCellCenterX(int x)
+	{
+		return minX + (x + 0.5) * resolution;
+	}
+
+	double getCellCenterY(int y)
+	{
+		return minY + (y + 0.5) * resolution;
+	}
+
+	double getCellCenterOrientation(int o)
+	{
+		return (o + 0.5) * angleStep;
+	}
+
+	void set(int x, int y, int o)
+	{
+		long index = ((long) o * nbY + y) * nbX + x;
+		bits[(int) (index >>> 6)] |= 1L << index;
+	}
+
+	/**
+	 * Is this configuration in a free cell ? Outside the bitmap, no cell is free.
+	 *
+	 * @param x
+	 * @param y
+	 * @param orientation
+	 * @return
+	 */
+	boolean isFree(double x, double y, double orientation)
+	{
+		int i = (int) Math.floor((x - minX) / resolution);
+		int j = (int) Math.floor((y - minY) / resolution);
+		if(i < 0 || j < 0 || i >= nbX || j >= nbY)
+			return false;
+		double a = orientation % (2 * Math.PI);
+		if(a < 0)
+			a += 2 * Math.PI;
+		int o = (int) (a / angleStep);
+		if(o >= nbOrientations) // arrondi
+			o = nbOrientations - 1;
+		long index = ((long) o * nbY + j) * nbX + i;
+		return (bits[(int) (index >>> 6)] & (1L << index)) == 0;
+	}
+
+	/**
+	 * The proportion of cells that are not free
+	 *
+	 * @return
+	 */
+	double getOccupancy()
+	{
+		long nb = 0;
+		for(long l : bits)
+			nb += Long.bitCount(l);
+		return ((double) nb) / ((long) nbX * nbY * nbOrientations);
+	}
+
+	static OccupancyBitmap load(String filename) throws IOException, ClassNotFoundException
+	{
+		InputStream is = OccupancyBitmap.class.getResourceAsStream(filename);
+		if(is == null)
+			is = new FileInputStream(filename);
+		ObjectInputStream ois = new ObjectInputStream(is);
+		OccupancyBitmap o = (OccupancyBitmap) ois.readObject();
+		ois.close();
+		return o;
+	}
+
+	void save(String filename) throws IOException
+	{
+		new File(filename).createNewFile();
+		ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename));
+		oos.writeObject(this);
+		oos.flush();
+		oos.close();
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.astar.engine;
+
+import java.io.IOException;
+import pfg.config.Config;
+import pfg.kraken.ConfigInfoKraken;
+import pfg.kraken.LogCategoryKraken;
+import pfg.kraken.SeverityCategoryKraken;
+import pfg.kraken.astar.tentacles.Tentacle;
+import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.obstacles.container.StaticObstacles;
+import pfg.kraken.utils.ArtifactCache;
+import pfg.kraken.utils.BoundingBox;
+import pfg.kraken.utils.ContentDigest;
+import pfg.log.Log;
+
+/**
+ * A physics engine with a precomputed configuration-space bitmap of the fixed obstacles and of the walls.
+ * A cell (x, y, orientation bucket) is free if the vehicle, dilated by the size of the cell, doesn't collide
+ * anything at the center of the cell. Then a point in a free cell is checked by one bit lookup ; the other points
+ * (and the dynamic obstacles) are checked by the default engine, so the result is the same.
+ * The bitmap is saved and loaded like the navmesh. It keeps the digest of the obstacles and of the vehicle, checked at
+ * loading ; in the artifact cache, it is named by this digest and the parameters of the grid.
+ *
+ * @author pf
+ *
+ */
+
+public final class OccupancyGridPhysicsEngine implements PhysicsEngine
+{
+	protected Log log;
+	private DefaultPhysicsEngine exact;
+	private RectangularObstacle vehicleTemplate;
+	private OccupancyBitmap bitmap;
+
+	public OccupancyGridPhysicsEngine(Log log, Config config, StaticObstacles fixes, DefaultPhysicsEngine exact, RectangularObstacle vehicleTemplate)
+	{
+		this.log = log;
+		this.exact = exact;
+		this.vehicleTemplate = vehicleTemplate;
+
+		String filename = config.getString(ConfigInfoKraken.OCCUPANCY_GRID_FILENAME);
+		int resolution = config.getInt(ConfigInfoKraken.OCCUPANCY_GRID_RESOLUTION);
+		int nbOrientations = config.getInt(ConfigInfoKraken.OCCUPANCY_GRID_ORIENTATIONS);
+		double minX = fixes.getBottomLeftCorner().getX(), minY = fixes.getBottomLeftCorner().getY();
+		double maxX = fixes.getTopRightCorner().getX(), maxY = fixes.getTopRightCorner().getY();
+
+		// the vehicle with orientation 0 at (0,0)
+		RectangularObstacle vehicle = vehicleTemplate.clone();
+		vehicle.update(0, 0, 0);
+		BoundingBox v = vehicle.getBoundingBox();
+
+		// the hash code of the obstacles only depends on their positions
+		ContentDigest geometry = new ContentDigest();
+		fixes.updateDigest(geometry);
+		vehicle.updateDigest(geometry);
+		String geometryDigest = geometry.digest();
+
+		// the digest is checked at loading, with or without the artifact cache
+		String cache = config.getString(ConfigInfoKraken.ARTIFACT_CACHE_DIRECTORY);
+		if(ArtifactCache.isEnabled(cache))
+			filename = ArtifactCache.getFilename(cache, "occupancy", new ContentDigest().update(geometryDigest).update(resolution).update(nbOrientations).digest());
+
+		try {
+			log.write("Occupancy grid loading…", LogCategoryKraken.PF);
+			bitmap = OccupancyBitmap.load(filename);
+			if(!bitmap.matches(geometryDigest, minX, minY, maxX, maxY, resolution, nbOrientations, v.getMinX(), v.getMinY(), v.getMaxX(), v.getMaxY()))
+				throw new NullPointerException("different obstacles or parameters"); // l'objectif est juste d'entrer dans le catch ci-dessous…
+		}
+		catch(IOException | ClassNotFoundException | NullPointerException e)
+		{
+			log.write("The occupancy grid can't be loaded ("+e.getMessage()+") : computation of a new one.", SeverityCategoryKraken.WARNING, LogCategoryKraken.PF);
+			bitmap = new OccupancyBitmap(geometryDigest, minX, minY, maxX, maxY, resolution, nbOrientations, v.getMinX(), v.getMinY(), v.getMaxX(), v.getMaxY());
+			compute(v);
+			try {
+				bitmap.save(filename);
+				log.write("Occupancy grid saved into "+filename, LogCategoryKraken.PF);
+			}
+			catch(IOException e1)
+			{
+				log.write("Error during occupancy grid save ! " + e1, SeverityCategoryKraken.CRITICAL, LogCategoryKraken.PF);
+			}
+		}
+		log.write("Occupancy of the grid : "+Math.round(100 * bitmap.getOccupancy())+"%", LogCategoryKraken.PF);
+	}
+
+	private OccupancyGridPhysicsEngine(OccupancyGridPhysicsEngine other, DefaultPhysicsEngine exact)
+	{
+		log = other.log;
+		vehicleTemplate = other.vehicleTemplate;
+		bitmap = other.bitmap;
+		this.exact = exact;
+	}
+
+	/**
+	 * A copy that shares the bitmap (it is read-only once computed) but checks the other points with another
+	 * default engine. Used by the search contexts of Kraken.searchAsync
+	 *
+	 * @param exact
+	 * @return
+	 */
+	public OccupancyGridPhysicsEngine copy(DefaultPhysicsEngine exact)
+	{
+		return new OccupancyGridPhysicsEngine(this, exact);
+	}
+
+	/**
+	 * Rasterizes the fixed obstacles and the walls
+	 *
+	 * @param v : the bounding box of the vehicle with orientation 0 at (0,0)
+	 */
+	private void compute(BoundingBox v)
+	{
+		long avant = System.currentTimeMillis();
+		/*
+		 * Every configuration of a cell is at most at half a diagonal of the cell from its center,
+		 * and at most at half an orientation bucket : each point of the vehicle moves by less than
+		 * margin = resolution * sqrt(2) / 2 + radius * angleStep / 2, where radius is the distance
+		 * between the rotation center and the farthest corner. So if the vehicle expanded by this margin
+		 * doesn't collide at the center, the whole cell is free.
+		 */
+		double radius = Math.sqrt(Math.max(v.getMinX() * v.getMinX(), v.getMaxX() * v.getMaxX()) + Math.max(v.getMinY() * v.getMinY(), v.getMaxY() * v.getMaxY()));
+		double margin = bitmap.resolution * Math.sqrt(2) / 2 + radius * Math.PI / bitmap.nbOrientations + 1; // 1mm pour les arrondis
+		RectangularObstacle expanded = vehicleTemplate.getExpandedCopy(margin);
+		for(int o = 0; o < bitmap.nbOrientations; o++)
+			for(int y = 0; y < bitmap.nbY; y++)
+				for(int x = 0; x < bitmap.nbX; x++)
+				{
+					expanded.update(bitmap.getCellCenterX(x), bitmap.getCellCenterY(y), bitmap.getCellCenterOrientation(o));
+					if(exact.isCollidingFixed(expanded))
+						bitmap.set(x, y, o);
+				}
+		log.write("Occupancy grid computed in "+(System.currentTimeMillis() - avant)+" ms", LogCategoryKraken.PF);
+	}
+
+	@Override
+	public void update()
+	{
+		exact.update();
+	}
+
+	private boolean isCollidingFixed(RectangularObstacle co)
+	{
+		// the bitmap is only valid for the vehicle
+		if(co.isSameShape(vehicleTemplate) && bitmap.isFree(co.getPosition().getX(), co.getPosition().getY(), co.getAngle()))
+			return false;
+		return exact.isCollidingFixed(co);
+	}
+
+	@Override
+	public boolean isThereCollision(Iterable<RectangularObstacle> tentacle)
+	{
+		for(RectangularObstacle co : tentacle)
+			if(isCollidingFixed(co) || exact.isCollidingCurrent(co))
+				return true;
+		return false;
+	}
+
+	@Override
+	public boolean isThereCollision(Tentacle tentacle)
+	{
+		for(int i = 0; i < tentacle.getNbPoints(); i++)
+			if(isCollidingFixed(tentacle.getPoint(i).obstacle))
+				return true;
+		return exact.isCollidingCurrent(tentacle);
+	}
+	
+	@Override
+	public boolean mayCollide(Tentacle tentacle)
+	{
+		// the bitmap is only more precise than the obstacles
+		return exact.mayCollide(tentacle);
+	}
+}
@@ -5,6 +5,7 @@
 
 package pfg.kraken.astar.engine;
 
+import pfg.kraken.astar.tentacles.Tentacle;
 import pfg.kraken.obstacles.RectangularObstacle;
 
 /**
@@ -26,4 +27,28 @@ public interface PhysicsEngine
 	 * @return
 	 */
 	public boolean isThereCollision(Iterable<RectangularObstacle> tentacle);
+	
+	/**
+	 * Is there a collision between this tentacle and a current obstacle ?
+	 * An engine may use the swept bounding box of the tentacle (if it has one) to reject
+	 * the far obstacles once for all the points.
+	 * @param tentacle
+	 * @return
+	 */
+	public default boolean isThereCollision(Tentacle tentacle)
+	{
+		return isThereCollision((Iterable<RectangularObstacle>) tentacle);
+	}
+	
+	/**
+	 * A cheap test, used by COLLISION_CHECK = HYBRID : false only if this tentacle surely doesn't collide
+	 * (for example if its swept bounding box is far from all the obstacles).
+	 * By default, the tentacle must always be checked with isThereCollision.
+	 * @param tentacle
+	 * @return
+	 */
+	public default boolean mayCollide(Tentacle tentacle)
+	{
+		return true;
+	}
 }
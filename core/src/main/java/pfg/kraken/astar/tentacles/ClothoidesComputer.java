@@ -5,15 +5,18 @@
 
 package pfg.kraken.astar.tentacles;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
 import java.util.ArrayList;
 import java.util.List;
 import pfg.config.Config;
@@ -27,6 +30,8 @@ import pfg.kraken.astar.tentacles.types.TentacleType;
 import pfg.kraken.memory.CinemObsPool;
 import pfg.kraken.robot.Cinematique;
 import pfg.kraken.robot.CinematiqueObs;
+import pfg.kraken.utils.ArtifactCache;
+import pfg.kraken.utils.ContentDigest;
 import pfg.kraken.utils.XY;
 import pfg.kraken.utils.XY_RW;
 import pfg.log.Log;
@@ -45,14 +50,20 @@ public final class ClothoidesComputer implements TentacleComputer
 	private CinemObsPool memory;
 	private double rootedMaxAcceleration;
 	
-	private class PosBigDecimal
-	{
-		private BigDecimal x, y; // utilisés dans le calcul de trajectoire
-	}
-	
 	private static final int S_MAX = 10; // courbure max qu'on puisse gérer
 	private static final int INDICE_MAX = (int) (S_MAX / PRECISION_TRACE);
-	private XY[] trajectoire = new XY[2 * INDICE_MAX - 1];
+	private static final int NB_POINTS_CLOTHO = 2 * INDICE_MAX - 1;
+	private static final int MAGIC = 0x4C43524B; // "KRCL" in little-endian
+	private static final int VERSION = 1;
+	
+	/*
+	 * Les nœuds et les poids de la quadrature de Gauss-Legendre à cinq points
+	 */
+	private static final double[] GAUSS_NODES = {0, -0.5384693101056831, 0.5384693101056831, -0.9061798459386640, 0.9061798459386640};
+	private static final double[] GAUSS_WEIGHTS = {0.5688888888888889, 0.4786286704993665, 0.4786286704993665, 0.2369268850561891, 0.2369268850561891};
+	
+	private double[] trajectoireX, trajectoireY; // les points de la clothoïde unitaire, en mm
+	private static double[] loadedTrajectoireX = null, loadedTrajectoireY = null; // the points are immutable, so they are shared by all the instances
 	private XY_RW[] tmp;
 	private XY_RW[] delta;
 	private XY_RW[] centreCercle;
@@ -81,78 +92,91 @@ public final class ClothoidesComputer implements TentacleComputer
 			else
 				t.maxSpeed = config.getDouble(ConfigInfoKraken.MAX_CURVATURE_DERIVATIVE) / Math.abs(t.vitesse);
 		}
-		if(!chargePoints()) // le calcul est un peu long, donc on le sauvegarde
+		String cache = config.getString(ConfigInfoKraken.ARTIFACT_CACHE_DIRECTORY);
+		String cacheFilename = null;
+		if(ArtifactCache.isEnabled(cache))
 		{
-			init();
-			sauvegardePoints();
+			ContentDigest digest = new ContentDigest();
+			digest.update(VERSION).update(S_MAX).update(PRECISION_TRACE).update(NB_POINTS_CLOTHO);
+			cacheFilename = ArtifactCache.getFilename(cache, "clotho", digest.digest());
 		}
-	}
-
-	/**
-	 * Calcul grâce au développement limité d'Euler
-	 * Génère le point de la clothoïde unitaire de courbure = s
-	 * 
-	 * @param s
-	 */
-	private void calculeXY(BigDecimal sparam, PosBigDecimal out)
-	{
-		BigDecimal s = sparam;
-		out.x = s;
-		BigDecimal factorielle = new BigDecimal(1).setScale(15, RoundingMode.HALF_EVEN);
-		BigDecimal b2 = new BigDecimal(1).setScale(15, RoundingMode.HALF_EVEN);
-		BigDecimal s2 = s.multiply(s);
-		BigDecimal b = b2;
-		s = s.multiply(s2);
-		out.y = s.divide(b.multiply(new BigDecimal(3).setScale(15, RoundingMode.HALF_EVEN)), RoundingMode.HALF_EVEN);
-		BigDecimal seuil = new BigDecimal(0.000000000001).setScale(15, RoundingMode.HALF_EVEN);
-		BigDecimal tmp;
-
-		long i = 1;
-		do
+		
+		synchronized(ClothoidesComputer.class)
 		{
-			factorielle = factorielle.multiply(new BigDecimal(2 * i).setScale(15, RoundingMode.HALF_EVEN));
-			b = b.multiply(b2);
-			s = s.multiply(s2);
-
-			tmp = s.divide(factorielle.multiply(b).multiply(new BigDecimal(4 * i + 1).setScale(15, RoundingMode.HALF_EVEN)), RoundingMode.HALF_EVEN);
-
-			if((i & 1) == 0)
-				out.x = out.x.add(tmp);
-			else
-				out.x = out.x.subtract(tmp);
-
-			factorielle = factorielle.multiply(new BigDecimal(2 * i + 1).setScale(15, RoundingMode.HALF_EVEN));
-
-			b = b.multiply(b2);
-			s = s.multiply(s2);
-			tmp = s.divide(factorielle.multiply(b).multiply(new BigDecimal(4 * i + 3).setScale(15, RoundingMode.HALF_EVEN)), RoundingMode.HALF_EVEN);
-
-			if((i & 1) == 0)
-				out.y = out.y.add(tmp);
+			if(loadedTrajectoireX == null)
+			{
+				trajectoireX = new double[NB_POINTS_CLOTHO];
+				trajectoireY = new double[NB_POINTS_CLOTHO];
+				boolean loaded = chargePoints(cacheFilename);
+				if(!loaded)
+				{
+					log.write("Computation of the unitary clothoid.", LogCategoryKraken.PF);
+					computeUnitaryClothoid(trajectoireX, trajectoireY);
+				}
+				if(cacheFilename != null && (!loaded || !new File(cacheFilename).exists()))
+				{
+					try {
+						sauvegardePoints(cacheFilename);
+					}
+					catch(IOException e)
+					{
+						log.write("Error during clothoid save ! " + e, SeverityCategoryKraken.CRITICAL, LogCategoryKraken.PF);
+					}
+				}
+				loadedTrajectoireX = trajectoireX;
+				loadedTrajectoireY = trajectoireY;
+			}
 			else
-				out.y = out.y.subtract(tmp);
-
-			i++;
-		} while(tmp.abs().compareTo(seuil) > 0);
-		// On fait en sorte que tourner à gauche ait une courbure positive
-		out.y = out.y.multiply(new BigDecimal(1000)); // On considère que x et y sont en
-												// millimètre et que la courbure
-												// est en mètre^-1
-		out.x = out.x.multiply(new BigDecimal(1000));
+			{
+				trajectoireX = loadedTrajectoireX;
+				trajectoireY = loadedTrajectoireY;
+			}
+		}
 	}
 
 	/**
-	 * Calcule, une fois pour toutes, les points de la clothoïde unitaire
+	 * Calcule les points de la clothoïde unitaire : x(s) = ∫ cos(t²) dt et y(s) = ∫ sin(t²) dt entre 0 et s, en mm,
+	 * pour s entre -S_MAX et S_MAX par pas de PRECISION_TRACE.
+	 * Chaque pas est intégré par une quadrature de Gauss-Legendre à cinq points, exacte à 1e-15 près sur un pas
+	 * (la phase t² y varie de moins de 0,4 rad) ; l'erreur cumulée reste inférieure au nanomètre.
+	 * 
+	 * @param x : au moins 2 * INDICE_MAX - 1 valeurs
+	 * @param y : au moins 2 * INDICE_MAX - 1 valeurs
 	 */
-	private void init()
+	public static void computeUnitaryClothoid(double[] x, double[] y)
 	{
-		PosBigDecimal out = new PosBigDecimal();
-		log.write("Computation of the unitary clothoid, please wait (it should take at most one minute). This computation is made once and for all.", LogCategoryKraken.PF);
-		for(int s = 0; s < 2 * INDICE_MAX - 1; s++)
+		double sumX = 0, sumY = 0;
+		double errX = 0, errY = 0; // sommation compensée de Kahan
+		x[INDICE_MAX - 1] = 0;
+		y[INDICE_MAX - 1] = 0;
+		for(int k = 1; k < INDICE_MAX; k++)
 		{
-			calculeXY(new BigDecimal((s - INDICE_MAX + 1) * PRECISION_TRACE).setScale(15, RoundingMode.HALF_EVEN), out);
-			trajectoire[s] = new XY(out.x.doubleValue(), out.y.doubleValue());
-			trajectoire[2 * INDICE_MAX - 2 - s] = new XY(-out.x.doubleValue(), -out.y.doubleValue());
+			double a = (k - 1) * PRECISION_TRACE, b = k * PRECISION_TRACE;
+			double middle = (a + b) / 2, halfLength = (b - a) / 2;
+			double dx = 0, dy = 0;
+			for(int i = 0; i < GAUSS_NODES.length; i++)
+			{
+				double t = middle + halfLength * GAUSS_NODES[i];
+				dx += GAUSS_WEIGHTS[i] * Math.cos(t * t);
+				dy += GAUSS_WEIGHTS[i] * Math.sin(t * t);
+			}
+			
+			double termX = dx * halfLength - errX;
+			double newSumX = sumX + termX;
+			errX = (newSumX - sumX) - termX;
+			sumX = newSumX;
+
+			double termY = dy * halfLength - errY;
+			double newSumY = sumY + termY;
+			errY = (newSumY - sumY) - termY;
+			sumY = newSumY;
+
+			// On considère que x et y sont en millimètre et que la courbure est en mètre^-1
+			// La clothoïde est symétrique par rapport à l'origine
+			x[INDICE_MAX - 1 + k] = sumX * 1000;
+			y[INDICE_MAX - 1 + k] = sumY * 1000;
+			x[INDICE_MAX - 1 - k] = -sumX * 1000;
+			y[INDICE_MAX - 1 - k] = -sumY * 1000;
 		}
 	}
 
@@ -233,7 +257,7 @@ public final class ClothoidesComputer implements TentacleComputer
 																						// un
 																						// arrondi
 
-		if(pointDepart < 0 || pointDepart >= trajectoire.length)
+		if(pointDepart < 0 || pointDepart >= NB_POINTS_CLOTHO)
 			log.write("Sorti de la clothoïde précalculée !", SeverityCategoryKraken.CRITICAL, LogCategoryKraken.PF);
 
 		double orientationClothoDepart = sDepart * sDepart; // orientation au
@@ -298,7 +322,7 @@ public final class ClothoidesComputer implements TentacleComputer
 																						// un
 																						// arrondi
 
-		if(pointDepart < 0 || pointDepart >= trajectoire.length)
+		if(pointDepart < 0 || pointDepart >= NB_POINTS_CLOTHO)
 			log.write("Sorti de la clothoïde précalculée !", SeverityCategoryKraken.CRITICAL, LogCategoryKraken.PF);
 
 		double orientationClothoDepart = sDepart * sDepart; // orientation au
@@ -357,8 +381,10 @@ public final class ClothoidesComputer implements TentacleComputer
 	 */
 	private void computePoint(int pointDepart, ClothoTentacle vitesse, double sDepart, double coeffMultiplicatif, int i, double baseOrientation, double cos, double sin, boolean marcheAvant, XY positionInitiale, CinematiqueObs c, int indexThread)
 	{
-		trajectoire[pointDepart + vitesse.squaredRootVitesse * (i + 1)].copy(tmp[indexThread]);
-		tmp[indexThread].minus(trajectoire[pointDepart]).scalar(coeffMultiplicatif).Ysym(!vitesse.positif).rotate(cos, sin).plus(positionInitiale);
+		int point = pointDepart + vitesse.squaredRootVitesse * (i + 1);
+		tmp[indexThread].setX(trajectoireX[point] - trajectoireX[pointDepart]);
+		tmp[indexThread].setY(trajectoireY[point] - trajectoireY[pointDepart]);
+		tmp[indexThread].scalar(coeffMultiplicatif).Ysym(!vitesse.positif).rotate(cos, sin).plus(positionInitiale);
 		
 		double orientationClotho = sDepart * sDepart;
 		if(!vitesse.positif)
@@ -434,60 +460,122 @@ public final class ClothoidesComputer implements TentacleComputer
 	}
 
 	/**
-	 * Sauvegarde les points de la clothoïde unitaire
+	 * Chargement des points de la clothoïde unitaire, depuis le classpath ou depuis un fichier (projeté en mémoire).
+	 * Le fichier contient, en little-endian : le nombre magique, la version, le nombre de points (int), les abscisses
+	 * puis les ordonnées (double) et le CRC32 de ce qui précède (long).
+	 * Les fichiers sérialisés par les versions précédentes (XY[]) sont aussi acceptés.
+	 * Le fichier du cache des artefacts, s'il existe, est lu en premier (il est sauvegardé au premier chargement).
+	 * 
+	 * @param cacheFilename : le fichier dans le cache des artefacts, ou null
+	 * @return
 	 */
-	private void sauvegardePoints()
+	private boolean chargePoints(String cacheFilename)
 	{
-		log.write("Sauvegarde des points de la clothoïde unitaire", LogCategoryKraken.PF);
+		String filename = "clotho-" + S_MAX + ".krk";
 		try
 		{
-			FileOutputStream fichier;
-			ObjectOutputStream oos;
-
-			new File("clotho-" + S_MAX + ".dat").createNewFile();
-			fichier = new FileOutputStream("clotho-" + S_MAX + ".krk");
-			oos = new ObjectOutputStream(fichier);
-			oos.writeObject(trajectoire);
-			oos.flush();
-			oos.close();
+			ByteBuffer buffer;
+			InputStream fichier;
+			if(cacheFilename != null && new File(cacheFilename).exists())
+				buffer = map(cacheFilename);
+			else if((fichier = getClass().getResourceAsStream("/" + filename)) != null)
+				buffer = ByteBuffer.wrap(readAll(fichier));
+			else if(new File(filename).exists())
+				buffer = map(filename);
+			else
+				return false;
+
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if(buffer.limit() >= 4 && buffer.getInt(0) == MAGIC)
+				readPoints(buffer);
+			else
+				readSerializedPoints(buffer);
+			log.write("Clothoid points loaded.", LogCategoryKraken.PF);
+			return true;
+		}
+		catch(IOException | ClassNotFoundException | ClassCastException e)
+		{
+			log.write("Chargement échoué ! "+e.getMessage(), SeverityCategoryKraken.CRITICAL, LogCategoryKraken.PF);
 		}
-		catch(IOException e)
+		return false;
+	}
+	
+	private void readPoints(ByteBuffer buffer) throws IOException
+	{
+		int size = 12 + 2 * 8 * NB_POINTS_CLOTHO + 8;
+		if(buffer.getInt(4) != VERSION)
+			throw new IOException("Unknown clothoid version : " + buffer.getInt(4));
+		if(buffer.getInt(8) != NB_POINTS_CLOTHO || buffer.limit() != size)
+			throw new IOException("Wrong number of clothoid points");
+
+		CRC32 crc = new CRC32();
+		ByteBuffer content = buffer.duplicate();
+		content.position(0).limit(size - 8);
+		crc.update(content);
+		if(crc.getValue() != buffer.getLong(size - 8))
+			throw new IOException("Corrupted clothoid points (wrong checksum)");
+
+		for(int i = 0; i < NB_POINTS_CLOTHO; i++)
 		{
-			log.write("Erreur lors de la sauvegarde des points de la clothoïde ! " + e, SeverityCategoryKraken.CRITICAL, LogCategoryKraken.PF);
+			trajectoireX[i] = buffer.getDouble(12 + 8 * i);
+			trajectoireY[i] = buffer.getDouble(12 + 8 * (NB_POINTS_CLOTHO + i));
 		}
 	}
-
-	/**
-	 * Chargement des points de la clothoïde unitaire
-	 * 
-	 * @return
-	 */
-	private boolean chargePoints()
+	
+	private void readSerializedPoints(ByteBuffer buffer) throws IOException, ClassNotFoundException
 	{
-		log.write("Clothoid points loaded.",LogCategoryKraken.PF);
-		try
+		byte[] content = new byte[buffer.remaining()];
+		buffer.get(content);
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(content));
+		XY[] points = (XY[]) ois.readObject();
+		ois.close();
+		if(points.length != NB_POINTS_CLOTHO)
+			throw new IOException("Wrong number of clothoid points");
+		for(int i = 0; i < NB_POINTS_CLOTHO; i++)
 		{
-			InputStream fichier = getClass().getResourceAsStream("/clotho-"+S_MAX+".krk");
-			ObjectInputStream ois = new ObjectInputStream(fichier);
-			trajectoire = (XY[]) ois.readObject();
-			ois.close();
-			return true;
+			trajectoireX[i] = points[i].getX();
+			trajectoireY[i] = points[i].getY();
 		}
-		catch(IOException | ClassNotFoundException | NullPointerException e)
+	}
+	
+	private static ByteBuffer map(String filename) throws IOException
+	{
+		try(FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ))
 		{
-			try {
-				FileInputStream fichier = new FileInputStream("clotho-" + S_MAX + ".krk");
-				ObjectInputStream ois = new ObjectInputStream(fichier);
-				trajectoire = (XY[]) ois.readObject();
-				ois.close();
-				return true;
-			}
-			catch(IOException | ClassNotFoundException e1)
-			{
-				log.write("Chargement échoué ! "+e1.getMessage(), SeverityCategoryKraken.CRITICAL, LogCategoryKraken.PF);
-			}
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
 		}
-		return false;
+	}
+	
+	private static byte[] readAll(InputStream is) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] tmp = new byte[65536];
+		int nb;
+		while((nb = is.read(tmp)) != -1)
+			out.write(tmp, 0, nb);
+		is.close();
+		return out.toByteArray();
+	}
+	
+	/**
+	 * Sauvegarde les points de la clothoïde unitaire dans le format lu par chargePoints
+	 * 
+	 * @param filename
+	 * @throws IOException
+	 */
+	public void sauvegardePoints(String filename) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(12 + 2 * 8 * NB_POINTS_CLOTHO + 8).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(NB_POINTS_CLOTHO);
+		for(double x : trajectoireX)
+			buffer.putDouble(x);
+		for(double y : trajectoireY)
+			buffer.putDouble(y);
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, buffer.position());
+		buffer.putLong(crc.getValue());
+		buffer.flip();
+		ArtifactCache.write(filename, buffer);
 	}
 /*
 	private XY_RW vecteurOrientationDepart = new XY_RW();
@@ -571,8 +659,8 @@ public final class ClothoidesComputer implements TentacleComputer
 																						// arrondi
 
 		
-		assert pointDepart >= 0 && pointDepart < trajectoire.length;
-//		if(pointDepart < 0 || pointDepart >= trajectoire.length)
+		assert pointDepart >= 0 && pointDepart < NB_POINTS_CLOTHO;
+//		if(pointDepart < 0 || pointDepart >= NB_POINTS_CLOTHO)
 //			log.critical("Sorti de la clothoïde précalculée !", SeverityCategoryKraken.CRITICAL, LogCategoryKraken.PF);
 
 		double orientationClothoDepart = sDepart * sDepart; // orientation au
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.astar.tentacles;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A cache of the heuristic, keyed by the discretized state of the robot (Cinematique.hashCode()).
+ * It is direct-mapped : an entry replaces the previous entry of its slot. Each entry is a single long
+ * (key, stamp, value), so the reads and the writes are lock-free and an entry is never seen half-written.
+ * The stamp is the generation of the D* Lite when the value was computed : the older entries are ignored.
+ * The values that don't fit in VALUE_BITS aren't cached.
+ *
+ * @author pf
+ *
+ */
+
+public final class HeuristicCache
+{
+	private static final int VALUE_BITS = 20;
+	private static final int STAMP_BITS = 12;
+	private static final long NULL_VALUE = (1 << VALUE_BITS) - 1; // a state without heuristic
+	public static final int MAX_STAMP = (1 << STAMP_BITS) - 1;
+
+	private final AtomicLongArray entries;
+	private final int shift;
+
+	/**
+	 * @param log2Size : the cache has 2^log2Size entries
+	 */
+	public HeuristicCache(int log2Size)
+	{
+		assert log2Size > 0 && log2Size < 31;
+		entries = new AtomicLongArray(1 << log2Size);
+		shift = 32 - log2Size;
+	}
+
+	private int index(int key)
+	{
+		return (key * 0x9E3779B9) >>> shift;
+	}
+
+	/**
+	 * The cached heuristic (null if there is no heuristic for this state), or missing if it isn't in the cache.
+	 * An entry may be replaced by another thread at any time, so the key and the stamp are checked with the value they come from.
+	 *
+	 * @param key
+	 * @param stamp
+	 * @param missing
+	 * @return
+	 */
+	public Integer get(int key, int stamp, Integer missing)
+	{
+		long e = entries.get(index(key));
+		if(!matches(e, key, stamp))
+			return missing;
+		long value = e & NULL_VALUE;
+		return value == NULL_VALUE ? null : (int) value;
+	}
+
+	/**
+	 * Caches a heuristic
+	 *
+	 * @param key
+	 * @param stamp : between 1 and MAX_STAMP
+	 * @param value : the heuristic, or null
+	 */
+	public void put(int key, int stamp, Integer value)
+	{
+		assert stamp > 0 && stamp <= MAX_STAMP;
+		long v;
+		if(value == null)
+			v = NULL_VALUE;
+		else if(value < 0 || value >= NULL_VALUE)
+			return;
+		else
+			v = value;
+		entries.set(index(key), ((long) key << 32) | ((long) stamp << VALUE_BITS) | v);
+	}
+
+	private static boolean matches(long e, int key, int stamp)
+	{
+		return (int) (e >>> 32) == key && (int) ((e >>> VALUE_BITS) & MAX_STAMP) == stamp;
+	}
+
+	/**
+	 * Forgets all the entries. Must not be called during a search.
+	 */
+	public void clear()
+	{
+		for(int i = 0; i < entries.length(); i++)
+			entries.set(i, 0);
+	}
+}
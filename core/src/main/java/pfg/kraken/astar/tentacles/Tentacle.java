@@ -14,6 +14,7 @@ import pfg.graphic.printable.PrintablePoint;
 import pfg.kraken.astar.tentacles.types.TentacleType;
 import pfg.kraken.obstacles.RectangularObstacle;
 import pfg.kraken.robot.CinematiqueObs;
+import pfg.kraken.utils.XY;
 
 /**
  * Un arc de trajectoire courbe. Juste une succession de points.
@@ -49,6 +50,12 @@ public abstract class Tentacle implements Printable, Iterable<RectangularObstacl
 	
 	private int indexIter;
 	
+	/*
+	 * The swept bounding box : it contains the bounding circles of all the points
+	 */
+	private double sweptMinX, sweptMinY, sweptMaxX, sweptMaxY;
+	private boolean sweptBoxComputed = false;
+	
 	public abstract int getNbPoints();
 
 	public abstract CinematiqueObs getPoint(int indice);
@@ -129,6 +136,57 @@ public abstract class Tentacle implements Printable, Iterable<RectangularObstacl
 		return out + vitesse.getNbArrets(firstMove) * tempsArret + deltaDuration;
 	}
 
+	/**
+	 * Computes the swept bounding box. Must be called each time the points are modified.
+	 */
+	public final void updateSweptBox()
+	{
+		sweptMinX = Double.POSITIVE_INFINITY;
+		sweptMinY = Double.POSITIVE_INFINITY;
+		sweptMaxX = Double.NEGATIVE_INFINITY;
+		sweptMaxY = Double.NEGATIVE_INFINITY;
+		for(int i = 0; i < getNbPoints(); i++)
+		{
+			RectangularObstacle o = getPoint(i).obstacle;
+			XY centre = o.getCentreGeometrique();
+			double rayon = o.getDemieDiagonale();
+			sweptMinX = Math.min(sweptMinX, centre.getX() - rayon);
+			sweptMinY = Math.min(sweptMinY, centre.getY() - rayon);
+			sweptMaxX = Math.max(sweptMaxX, centre.getX() + rayon);
+			sweptMaxY = Math.max(sweptMaxY, centre.getY() + rayon);
+		}
+		sweptBoxComputed = getNbPoints() > 0;
+	}
+	
+	/**
+	 * Has the swept bounding box been computed ? If not, the collision check is done point by point.
+	 * @return
+	 */
+	public final boolean hasSweptBox()
+	{
+		return sweptBoxComputed;
+	}
+	
+	public final double getSweptMinX()
+	{
+		return sweptMinX;
+	}
+	
+	public final double getSweptMinY()
+	{
+		return sweptMinY;
+	}
+	
+	public final double getSweptMaxX()
+	{
+		return sweptMaxX;
+	}
+	
+	public final double getSweptMaxY()
+	{
+		return sweptMaxY;
+	}
+
 	@Override
 	public String toString()
 	{
@@ -6,11 +6,14 @@
 package pfg.kraken.astar.tentacles;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
 import pfg.config.Config;
 import pfg.injector.Injector;
 import pfg.injector.InjectorException;
@@ -18,6 +21,13 @@ import pfg.kraken.ColorKraken;
 import pfg.kraken.ConfigInfoKraken;
 import pfg.kraken.astar.AStarNode;
 import pfg.kraken.astar.DirectionStrategy;
+import pfg.kraken.astar.NodeStore;
+import pfg.kraken.astar.SearchStatistics;
+import pfg.kraken.astar.SpeculativeNode;
+import pfg.kraken.astar.engine.CollisionCounters;
+import pfg.kraken.astar.engine.CollisionStrategy;
+import pfg.kraken.astar.engine.PhysicsEngine;
+import pfg.kraken.astar.tentacles.computethread.TentacleBatch;
 import pfg.kraken.astar.tentacles.computethread.TentacleTask;
 import pfg.kraken.astar.tentacles.computethread.TentacleThread;
 import pfg.kraken.astar.tentacles.types.TentacleType;
@@ -49,6 +59,9 @@ public final class TentacleManager implements Iterator<AStarNode>
 	private double deltaSpeedFromStop;
 	private GraphicDisplay display;
 	private TentacleThread[] threads;
+	private PhysicsEngine engine;
+	private CollisionCounters collisionCounters;
+	private SearchStatistics statistics;
 	private ResearchProfile currentProfile;
 	
 	private DirectionStrategy directionstrategyactuelle;
@@ -60,9 +73,40 @@ public final class TentacleManager implements Iterator<AStarNode>
 	
 	private int nbLeft;
 	
-	public TentacleManager(Log log, NodePool memorymanager, DStarLite dstarlite, Config config, Injector injector, ResearchProfileManager profiles, GraphicDisplay display) throws InjectorException
+	/*
+	 * Only used with HEURISTIC_CACHE
+	 */
+	private static final Integer MISSING = Integer.MIN_VALUE;
+	private HeuristicCache heuristicCache;
+	private int firstGeneration; // the generation of the D* Lite when the cache was cleared
+	private final double finalAngleErrorDistance;
+	
+	/*
+	 * Only used with TENTACLE_EXECUTOR = FORK_JOIN
+	 */
+	private ForkJoinPool forkJoinPool;
+	private TentacleBatch[] batches;
+	private List<TentacleBatch> activeBatches = new ArrayList<TentacleBatch>();
+	private AStarNode[] results = new AStarNode[100];
+	private int[] taskNode = new int[100]; // the index of the expanded node of each task (speculative expansion)
+	private int nbResults, nextResult;
+	private final RecursiveAction expansion = new RecursiveAction()
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected void compute()
+		{
+			invokeAll(activeBatches);
+		}
+	};
+	
+	public TentacleManager(Log log, NodePool memorymanager, DStarLite dstarlite, Config config, Injector injector, ResearchProfileManager profiles, GraphicDisplay display, PhysicsEngine engine, CollisionCounters collisionCounters, SearchStatistics statistics) throws InjectorException
 	{
+		this.collisionCounters = collisionCounters;
+		this.statistics = statistics;
 		this.injector = injector;
+		this.engine = engine;
 		this.log = log;
 		this.dstarlite = dstarlite;
 		this.display = display;
@@ -77,15 +121,46 @@ public final class TentacleManager implements Iterator<AStarNode>
 		printObstacles = config.getBoolean(ConfigInfoKraken.GRAPHIC_ROBOT_COLLISION);
 		int nbThreads = config.getInt(ConfigInfoKraken.THREAD_NUMBER);
 		
+		String executor = config.getString(ConfigInfoKraken.TENTACLE_EXECUTOR);
+		if(!executor.equals("QUEUE") && !executor.equals("FORK_JOIN"))
+			throw new IllegalArgumentException("Unknown tentacle executor : " + executor);
+		// the speculative expansion needs the results in the order of the tasks
+		boolean forkJoin = nbThreads != 1 && (executor.equals("FORK_JOIN") || config.getInt(ConfigInfoKraken.SPECULATIVE_EXPANSION) > 1);
+		
+		CollisionStrategy collisionStrategy = CollisionStrategy.get(config.getString(ConfigInfoKraken.COLLISION_CHECK), config.getBoolean(ConfigInfoKraken.CHECK_NEW_OBSTACLES));
 		threads = new TentacleThread[nbThreads];
 		for(int i = 0; i < nbThreads; i++)
 		{
-			threads[i] = new TentacleThread(log, config, memorymanager, i, successeurs, buffer);
-			if(nbThreads != 1)
+			threads[i] = new TentacleThread(log, config, memorymanager, i, successeurs, buffer, engine, collisionStrategy, collisionCounters);
+			if(nbThreads != 1 && !forkJoin)
 				threads[i].start();
 		}
 		
+		if(forkJoin)
+		{
+			// the threads aren't started : they only compute the batches
+			forkJoinPool = new ForkJoinPool(nbThreads);
+			batches = new TentacleBatch[nbThreads];
+			for(int i = 0; i < nbThreads; i++)
+				batches[i] = new TentacleBatch(threads[i], engine, collisionCounters);
+		}
+		
 		courbureMax = config.getDouble(ConfigInfoKraken.MAX_CURVATURE);
+		finalAngleErrorDistance = config.getDouble(ConfigInfoKraken.FINAL_ANGLE_ERROR_DISTANCE);
+		if(config.getBoolean(ConfigInfoKraken.HEURISTIC_CACHE))
+			heuristicCache = new HeuristicCache(16);
+	}
+
+	/**
+	 * Stops the tentacle threads or the fork-join pool. The manager can't expand any node afterwards.
+	 */
+	public void shutdown()
+	{
+		if(forkJoinPool != null)
+			forkJoinPool.shutdown();
+		else if(threads.length != 1)
+			for(TentacleThread t : threads)
+				t.interrupt();
 	}
 
 	public void updateProfiles(ResearchProfile mode)
@@ -115,6 +190,12 @@ public final class TentacleManager implements Iterator<AStarNode>
 		this.directionstrategyactuelle = directionstrategyactuelle;
 		currentProfile = profiles.getProfile(mode);
 		arrivee.copy(this.arrivee);	
+		// the D* Lite is updated before the search, so the entries of the previous searches have an older generation : the cache is cleared only when the stamps run out
+		if(heuristicCache != null && dstarlite.getGeneration() - firstGeneration >= HeuristicCache.MAX_STAMP / 2)
+		{
+			heuristicCache.clear();
+			firstGeneration = dstarlite.getGeneration();
+		}
 	}
 	
 	/*
@@ -124,59 +205,97 @@ public final class TentacleManager implements Iterator<AStarNode>
 
 	public LinkedList<CinematiqueObs> reconstruct(AStarNode best, int nbPointsMax)
 	{
-		trajectory.clear();
+		startReconstruction(nbPointsMax);
 		AStarNode noeudParent = best;
-		Tentacle arcParent = best.getArc();
+
+		while(noeudParent.parent != null)
+		{
+			addArc(noeudParent.getArc(), nbPointsMax);
+			noeudParent = noeudParent.parent;
+		}
+		
+		return trajectory;
+	}
+	
+	/**
+	 * Reconstruction from the node store (NODE_STORAGE = ARRAYS)
+	 * 
+	 * @param store
+	 * @param best : the id of the last node
+	 * @param nbPointsMax
+	 * @return
+	 */
+	public LinkedList<CinematiqueObs> reconstruct(NodeStore store, int best, int nbPointsMax)
+	{
+		startReconstruction(nbPointsMax);
+		int noeudParent = best;
+
+		while(store.getParent(noeudParent) >= 0)
+		{
+			addArc(store.getArc(noeudParent), nbPointsMax);
+			noeudParent = store.getParent(noeudParent);
+		}
 		
+		return trajectory;
+	}
+	
+	private boolean lastStop;
+	private double lastPossibleSpeed;
+	
+	private void startReconstruction(int nbPointsMax)
+	{
+		trajectory.clear();
+		lastStop = nbPointsMax == Integer.MAX_VALUE; // le dernier point n'est pas un stop en cas de replanification partielle
+		lastPossibleSpeed = 0;
+	}
+	
+	/**
+	 * Adds the points of an arc at the beginning of the trajectory
+	 * 
+	 * @param arcParent
+	 * @param nbPointsMax
+	 */
+	private void addArc(Tentacle arcParent, int nbPointsMax)
+	{
 		CinematiqueObs current;
-		boolean lastStop = nbPointsMax == Integer.MAX_VALUE; // le dernier point n'est pas un stop en cas de replanification partielle
 		boolean nextStop;
-		double lastPossibleSpeed = 0;
-
-		while(noeudParent.parent != null)
+		
+		for(int i = arcParent.getNbPoints() - 1; i >= 0; i--)
 		{
-			for(int i = arcParent.getNbPoints() - 1; i >= 0; i--)
+			current = arcParent.getPoint(i);
+			if(printObstacles)
+				display.addTemporaryPrintable(current.obstacle.clone(), ColorKraken.ROBOT.color, Layer.BACKGROUND.layer);
+			
+			// vitesse maximale du robot à ce point
+			double maxSpeed = current.possibleSpeed;
+			double currentSpeed = lastPossibleSpeed;
+			
+			nextStop = current.stop;
+			if(lastStop)
+				current.possibleSpeed = 0;
+			else if(currentSpeed < maxSpeed)
 			{
-				current = arcParent.getPoint(i);
-				if(printObstacles)
-					display.addTemporaryPrintable(current.obstacle.clone(), ColorKraken.ROBOT.color, Layer.BACKGROUND.layer);
-				
-				// vitesse maximale du robot à ce point
-				double maxSpeed = current.possibleSpeed;
-				double currentSpeed = lastPossibleSpeed;
-				
-				nextStop = current.stop;
-				if(lastStop)
-					current.possibleSpeed = 0;
-				else if(currentSpeed < maxSpeed)
-				{
-					double deltaVitesse;
-					if(currentSpeed < 0.1)
-						deltaVitesse = deltaSpeedFromStop;
-					else
-						deltaVitesse = 2 * maxLinearAcceleration * PRECISION_TRACE / currentSpeed;
+				double deltaVitesse;
+				if(currentSpeed < 0.1)
+					deltaVitesse = deltaSpeedFromStop;
+				else
+					deltaVitesse = 2 * maxLinearAcceleration * PRECISION_TRACE / currentSpeed;
 
-					currentSpeed += deltaVitesse;
-					currentSpeed = Math.min(currentSpeed, maxSpeed);
-					current.possibleSpeed = currentSpeed;
-				}
-				current.stop = lastStop;
-				
-				trajectory.addFirst(current);
-				
-				// stop : on va devoir s'arrêter
-				lastPossibleSpeed = current.possibleSpeed;
-				lastStop = nextStop;
+				currentSpeed += deltaVitesse;
+				currentSpeed = Math.min(currentSpeed, maxSpeed);
+				current.possibleSpeed = currentSpeed;
 			}
-
-			if(nbPointsMax < trajectory.size())
-				trajectory.subList(nbPointsMax, trajectory.size()).clear();
+			current.stop = lastStop;
 			
-			noeudParent = noeudParent.parent;
-			arcParent = noeudParent.getArc();
+			trajectory.addFirst(current);
+			
+			// stop : on va devoir s'arrêter
+			lastPossibleSpeed = current.possibleSpeed;
+			lastStop = nextStop;
 		}
-		
-		return trajectory;
+
+		if(nbPointsMax < trajectory.size())
+			trajectory.subList(nbPointsMax, trajectory.size()).clear();
 	}
 	
 	/**
@@ -187,9 +306,13 @@ public final class TentacleManager implements Iterator<AStarNode>
 	 */
 	public void computeTentacles(AStarNode current)
 	{
-		successeurs.clear();
-//		assert nbLeft == 0; // non, à cause du fast and dirty
-		nbLeft = 0;
+		if(forkJoinPool != null)
+		{
+			computeTentaclesForkJoin(current);
+			return;
+		}
+		
+		assert nbLeft == 0 && successeurs.isEmpty(); // see abortExpansion
 		int index = 0;
 
 		/*
@@ -201,13 +324,7 @@ public final class TentacleManager implements Iterator<AStarNode>
 			if(v.isAcceptable(current.robot.getCinematique(), directionstrategyactuelle, courbureMax))
 			{
 				nbLeft++;
-				assert tasks.size() > index;
-				TentacleTask tt = tasks.get(index++);
-				tt.arrivee = arrivee;
-				tt.current = current;
-				tt.v = v;
-				tt.computer = injector.getExistingService(v.getComputer());
-				tt.vitesseMax = vitesseMax;
+				TentacleTask tt = prepareTask(index++, current, v);
 				
 				if(threads.length == 1) // no multithreading in this case
 					threads[0].compute(tt);
@@ -218,19 +335,162 @@ public final class TentacleManager implements Iterator<AStarNode>
 		
 		assert threads.length > 1 || successeurs.size() == nbLeft;
 	}
+	
+	/**
+	 * The acceptable tentacles are split into one batch per thread. The batches are computed by the fork-join pool
+	 * and this method returns when all the successors are in the results array.
+	 * 
+	 * @param current
+	 */
+	private void computeTentaclesForkJoin(AStarNode current)
+	{
+		int index = 0;
+		for(TentacleType v : currentProfile.tentacles)
+			if(v.isAcceptable(current.robot.getCinematique(), directionstrategyactuelle, courbureMax))
+				prepareTask(index++, current, v);
+		
+		nbResults = index;
+		nextResult = 0;
+		invokeBatches(null);
+	}
+	
+	/**
+	 * Computes the successors and checks the collision of several nodes at once (speculative expansion).
+	 * The successors of each node are in the same order as with computeTentacles.
+	 * 
+	 * @param nodes
+	 */
+	public void computeTentacles(List<SpeculativeNode> nodes)
+	{
+		int index = 0;
+		for(int j = 0; j < nodes.size(); j++)
+		{
+			AStarNode current = nodes.get(j).current;
+			nodes.get(j).successors.clear();
+			for(TentacleType v : currentProfile.tentacles)
+				if(v.isAcceptable(current.robot.getCinematique(), directionstrategyactuelle, courbureMax))
+				{
+					if(taskNode.length == index)
+						taskNode = Arrays.copyOf(taskNode, 2 * index);
+					taskNode[index] = j;
+					prepareTask(index++, current, v);
+				}
+		}
+		
+		nbResults = index;
+		if(forkJoinPool == null)
+		{
+			if(results.length < nbResults)
+				results = new AStarNode[nbResults];
+			for(int k = 0; k < nbResults; k++)
+				results[k] = threads[0].computeSuccessor(tasks.get(k));
+			for(SpeculativeNode n : nodes)
+				n.checkCollision(engine, collisionCounters);
+		}
+		else
+			invokeBatches(nodes);
+		
+		for(int k = 0; k < nbResults; k++)
+			if(results[k] != null)
+				nodes.get(taskNode[k]).successors.add(results[k]);
+		
+		// the successors have been given to the nodes
+		nbResults = 0;
+		nextResult = 0;
+	}
+	
+	private TentacleTask prepareTask(int index, AStarNode current, TentacleType v)
+	{
+		if(tasks.size() == index)
+			tasks.add(new TentacleTask());
+		TentacleTask tt = tasks.get(index);
+		tt.arrivee = arrivee;
+		tt.current = current;
+		tt.v = v;
+		tt.computer = injector.getExistingService(v.getComputer());
+		tt.vitesseMax = vitesseMax;
+		tt.arcmanager = this;
+		return tt;
+	}
+	
+	/**
+	 * Computes the nbResults first tasks in the fork-join pool
+	 * 
+	 * @param nodes : the nodes whose collision must be checked, or null
+	 */
+	private void invokeBatches(List<SpeculativeNode> nodes)
+	{
+		if(results.length < nbResults)
+			results = new AStarNode[nbResults];
+		
+		int nbBatches = Math.min(batches.length, Math.max(nbResults, nodes == null ? 0 : nodes.size()));
+		activeBatches.clear();
+		for(int i = 0; i < nbBatches; i++)
+		{
+			batches[i].prepare(tasks, nbResults, nbBatches, results, nodes);
+			activeBatches.add(batches[i]);
+		}
+		
+		if(nbBatches > 0)
+		{
+			expansion.reinitialize();
+			forkJoinPool.invoke(expansion);
+		}
+	}
 
-	public synchronized Integer heuristicCostCourbe(Cinematique c)
+	/**
+	 * The heuristic of this state, or null if there is none.
+	 * With HEURISTIC_CACHE, the heuristic is the same for all the states of a cell of Cinematique.hashCode() (except under FINAL_ANGLE_ERROR_DISTANCE from the arrival),
+	 * as long as the D* Lite doesn't change. The cached heuristics are read without lock.
+	 * It is called by the tentacle threads, while the D* Lite isn't updated.
+	 * 
+	 * @param c
+	 * @return
+	 */
+	public Integer heuristicCostCourbe(Cinematique c)
+	{
+		/*
+		 * Near the arrival, the heuristic depends on the exact orientation (the final angle error), not on its cell
+		 * of 30° : it isn't cached
+		 */
+		if(heuristicCache == null || isNearArrival(c))
+			return computeHeuristic(c);
+		
+		// read before the computation : if the D* Lite changes meanwhile, this entry will be ignored
+		int stamp = dstarlite.getGeneration() - firstGeneration + 1;
+		if(stamp > HeuristicCache.MAX_STAMP)
+			return computeHeuristic(c);
+		
+		int key = c.hashCode();
+		Integer h = heuristicCache.get(key, stamp, MISSING);
+		if(h != MISSING)
+		{
+			statistics.addHeuristicCall(true);
+			return h;
+		}
+		h = computeHeuristic(c);
+		heuristicCache.put(key, stamp, h);
+		return h;
+	}
+	
+	private Integer computeHeuristic(Cinematique c)
 	{
+		statistics.addHeuristicCall(false);
 		Double h = dstarlite.heuristicCostCourbe(c, currentProfile.coeffDistanceError, currentProfile.coeffAngleError);
 		if(h == null)
 			return null;
-		if(currentProfile.coeffFinalAngleError > 0 && c.getPosition().distanceFast(arrivee.getPosition()) < 100)
+		if(currentProfile.coeffFinalAngleError > 0 && isNearArrival(c))
 		{
 			h += currentProfile.coeffFinalAngleError*Math.abs(XYO.angleDifference(c.orientationReelle, arrivee.orientationReelle));
 		}
 		return (int) (1000.*(h / vitesseMax));
 	}
 	
+	private boolean isNearArrival(Cinematique c)
+	{
+		return c.getPosition().distanceFast(arrivee.getPosition()) < finalAngleErrorDistance;
+	}
+	
 	public final boolean isNearXYO(Cinematique a, Cinematique b)
 	{
 		return a.getPosition().squaredDistance(b.getPosition()) - PRECISION_TRACE_MM * PRECISION_TRACE_MM < 1
@@ -242,11 +502,40 @@ public final class TentacleManager implements Iterator<AStarNode>
 		return currentProfile.end.isArrived(arrivee, last);
 	}
 
+	/**
+	 * The search ends before all the successors of the current expansion have been read (FAST_AND_DIRTY) : the tasks
+	 * that haven't started are cancelled and the running ones are awaited, so that no tentacle thread still reads the
+	 * D* Lite when the next search updates it. The successors aren't destroyed : the caller empties the node pool.
+	 */
+	public void abortExpansion()
+	{
+		nextResult = nbResults; // the fork-join pool has already computed everything
+		nbLeft -= buffer.drainTo(new ArrayList<TentacleTask>());
+		try {
+			for(; nbLeft > 0; nbLeft--)
+				successeurs.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	private AStarNode next;
 	
 	@Override
 	public boolean hasNext()
 	{
+		if(forkJoinPool != null)
+		{
+			// the successors are in the same order as with only one thread
+			while(nextResult < nbResults)
+			{
+				next = results[nextResult++];
+				if(next != null)
+					return true;
+			}
+			return false;
+		}
+		
 		assert threads.length > 1 || successeurs.size() == nbLeft : successeurs.size() + " " + nbLeft; // s'il n'y a qu'un seul thread, alors tous les successeurs sont dans la liste
 		if(nbLeft == 0)
 		{
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.astar.tentacles.computethread;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import pfg.kraken.astar.AStarNode;
+import pfg.kraken.astar.SpeculativeNode;
+import pfg.kraken.astar.engine.CollisionCounters;
+import pfg.kraken.astar.engine.PhysicsEngine;
+
+/**
+ * A batch of tentacles computed by a worker of the fork-join pool (TENTACLE_EXECUTOR = FORK_JOIN).
+ * The batch number i computes the tasks i, i + nbBatches, i + 2 * nbBatches, etc. so the expensive
+ * tentacles are spread over the batches. The successor of the task k is written in results[k]
+ * (null if the tentacle can't be computed). With the speculative expansion, the batch also checks the collision
+ * of some of the expanded nodes.
+ * 
+ * @author pf
+ *
+ */
+
+public final class TentacleBatch extends RecursiveAction
+{
+	private static final long serialVersionUID = 1L;
+	
+	private final TentacleThread computer; // only used as a computer, this thread isn't started
+	private final PhysicsEngine engine;
+	private final CollisionCounters counters;
+	private List<TentacleTask> tasks;
+	private List<SpeculativeNode> nodes;
+	private AStarNode[] results;
+	private int nbTasks, nbBatches;
+	
+	public TentacleBatch(TentacleThread computer, PhysicsEngine engine, CollisionCounters counters)
+	{
+		this.computer = computer;
+		this.engine = engine;
+		this.counters = counters;
+	}
+	
+	/**
+	 * Prepares the batch before its (re)submission
+	 * 
+	 * @param tasks
+	 * @param nbTasks
+	 * @param nbBatches
+	 * @param results
+	 * @param nodes : the nodes whose collision must be checked, or null
+	 */
+	public void prepare(List<TentacleTask> tasks, int nbTasks, int nbBatches, AStarNode[] results, List<SpeculativeNode> nodes)
+	{
+		reinitialize();
+		this.tasks = tasks;
+		this.nbTasks = nbTasks;
+		this.nbBatches = nbBatches;
+		this.results = results;
+		this.nodes = nodes;
+	}
+
+	@Override
+	protected void compute()
+	{
+		for(int k = computer.nb; k < nbTasks; k += nbBatches)
+			results[k] = computer.computeSuccessor(tasks.get(k));
+		if(nodes != null)
+			for(int j = computer.nb; j < nodes.size(); j += nbBatches)
+				nodes.get(j).checkCollision(engine, counters);
+	}
+}
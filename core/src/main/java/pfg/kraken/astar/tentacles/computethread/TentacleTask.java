@@ -7,6 +7,7 @@ package pfg.kraken.astar.tentacles.computethread;
 
 import pfg.kraken.astar.AStarNode;
 import pfg.kraken.astar.tentacles.TentacleComputer;
+import pfg.kraken.astar.tentacles.TentacleManager;
 import pfg.kraken.astar.tentacles.types.TentacleType;
 import pfg.kraken.robot.Cinematique;
 
@@ -23,4 +24,5 @@ public class TentacleTask {
 	public volatile Cinematique arrivee;
 	public volatile TentacleComputer computer;
 	public volatile double vitesseMax;
+	public volatile TentacleManager arcmanager; // for the heuristic
 }
@@ -13,6 +13,9 @@ import pfg.config.Config;
 import pfg.log.Log;
 import pfg.kraken.ConfigInfoKraken;
 import pfg.kraken.astar.AStarNode;
+import pfg.kraken.astar.engine.CollisionCounters;
+import pfg.kraken.astar.engine.CollisionStrategy;
+import pfg.kraken.astar.engine.PhysicsEngine;
 import pfg.kraken.memory.NodePool;
 
 /**
@@ -29,13 +32,19 @@ public final class TentacleThread extends Thread
 	private double maxLinearAcceleration;
 	private int tempsArret;
 	private double deltaSpeedFromStop;
-	private int nb;
+	private PhysicsEngine engine;
+	private CollisionStrategy collisionStrategy;
+	private CollisionCounters counters;
+	final int nb;
 	public final BlockingQueue<TentacleTask> buffer;
 	public final BlockingQueue<AStarNode> successeurs;
 	public final static AStarNode placeholder = new AStarNode();
 	
-	public TentacleThread(Log log, Config config, NodePool memorymanager, int nb, BlockingQueue<AStarNode> successeurs, BlockingQueue<TentacleTask> buffer)
+	public TentacleThread(Log log, Config config, NodePool memorymanager, int nb, BlockingQueue<AStarNode> successeurs, BlockingQueue<TentacleTask> buffer, PhysicsEngine engine, CollisionStrategy collisionStrategy, CollisionCounters counters)
 	{
+		this.engine = engine;
+		this.collisionStrategy = collisionStrategy;
+		this.counters = counters;
 		this.log = log;
 		this.buffer = buffer;
 		this.successeurs = successeurs;
@@ -68,6 +77,18 @@ public final class TentacleThread extends Thread
 	}
 
 	public void compute(TentacleTask task)
+	{
+		AStarNode successeur = computeSuccessor(task);
+		successeurs.add(successeur == null ? placeholder : successeur);
+	}
+
+	/**
+	 * Computes the successor given by a tentacle, with its scores
+	 * 
+	 * @param task
+	 * @return the successor, or null if the tentacle can't be computed, if the successor has no heuristic or if it collides (COLLISION_CHECK = EAGER)
+	 */
+	public AStarNode computeSuccessor(TentacleTask task)
 	{
 		AStarNode successeur = memorymanager.getNewNode();
 		assert successeur.cameFromArcDynamique == null;
@@ -76,17 +97,51 @@ public final class TentacleThread extends Thread
 		task.current.robot.copy(successeur.robot);
 		if(task.computer.compute(task.current, task.v, task.arrivee, successeur, nb))
 		{
+			// Whatever the computer, the swept box is computed here for the collision check
+			successeur.getArc().updateSweptBox();
 			// Compute the travel time
 			int duration = (int) (1000*successeur.getArc().getDuree(successeur.parent.getArc(), task.vitesseMax, tempsArret, maxLinearAcceleration, deltaSpeedFromStop));
 			successeur.robot.suitArcCourbe(successeur.getArc(), duration);
-			successeur.g_score = duration;
+			successeur.g_score = task.current.g_score + duration;
 			assert successeur.getArc().vitesse == task.v : successeur.getArc().vitesse +" != "+ task.v;
-			successeurs.add(successeur);
+			
+			// the heuristic is computed here too : the search thread only does the open set operations
+			Integer heuristique = task.arcmanager.heuristicCostCourbe(successeur.robot.getCinematique());
+			if(heuristique != null && !checkCollision(successeur))
+			{
+				successeur.f_score = successeur.g_score + heuristique;
+				return successeur;
+			}
+		}
+
+		// destroyed before the main thread is notified : it may empty the pool as soon as it has all the successors
+		memorymanager.destroyNode(successeur);
+		return null;
+	}
+	
+	/**
+	 * The collision check of the successor in the thread, according to COLLISION_CHECK.
+	 * If the successor isn't known to be collision-free, it will be checked when it is chosen.
+	 * 
+	 * @param successeur
+	 * @return true if the successor collides an obstacle
+	 */
+	private boolean checkCollision(AStarNode successeur)
+	{
+		successeur.collisionChecked = false;
+		if(collisionStrategy == CollisionStrategy.EAGER)
+		{
+			boolean collision = engine.isThereCollision(successeur.getArc());
+			counters.addCheck(collision);
+			successeur.collisionChecked = !collision;
+			return collision;
 		}
-		else
+		if(collisionStrategy == CollisionStrategy.HYBRID)
 		{
-			successeurs.add(placeholder);
-			memorymanager.destroyNode(successeur);
+			boolean mayCollide = engine.mayCollide(successeur.getArc());
+			counters.addPreTest(mayCollide);
+			successeur.collisionChecked = !mayCollide;
 		}
+		return false;
 	}
 }
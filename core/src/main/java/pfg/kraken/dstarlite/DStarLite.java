@@ -6,23 +6,31 @@
 package pfg.kraken.dstarlite;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import pfg.config.Config;
 import pfg.graphic.GraphicDisplay;
 import pfg.graphic.printable.Layer;
 import pfg.kraken.ColorKraken;
 import pfg.kraken.ConfigInfoKraken;
+import pfg.kraken.dstarlite.navmesh.EdgeGrid;
 import pfg.kraken.dstarlite.navmesh.Navmesh;
 import pfg.kraken.dstarlite.navmesh.NavmeshEdge;
+import pfg.kraken.dstarlite.navmesh.NavmeshGraph;
 import pfg.kraken.dstarlite.navmesh.NavmeshNode;
 import pfg.kraken.exceptions.NoPathException;
+import pfg.kraken.jfr.FlightRecorder;
 import pfg.kraken.obstacles.Obstacle;
 import pfg.kraken.obstacles.container.DynamicObstacles;
 import pfg.kraken.obstacles.container.StaticObstacles;
 import pfg.kraken.robot.Cinematique;
+import pfg.kraken.utils.BoundingBox;
+import pfg.kraken.utils.GeometryHash;
 import pfg.kraken.utils.XY;
 import pfg.kraken.utils.XYO;
+import pfg.kraken.utils.XY_RW;
 import pfg.log.Log;
 
 /**
@@ -41,11 +49,39 @@ public final class DStarLite
 {
 	protected Log log;
 	private Navmesh navmesh;
+	private NavmeshGraph graph; // the adjacency of the navmesh, read directly by the search
 	private boolean graphicHeuristique;
 	private DynamicObstacles dynObs;
 	private StaticObstacles statObs;
 	private XY positionArrivee;
-	private List<Obstacle> previousObstacles = new ArrayList<Obstacle>(), newObstacles = new ArrayList<Obstacle>();
+	private XY_RW lastGoal = null; // the goal of the last backward search, kept while the goal doesn't change
+	private List<Obstacle> newObstacles = new ArrayList<Obstacle>();
+	
+	/*
+	 * An obstacle at the last update : its bounding box and the hash of its geometry at that time
+	 */
+	private static final class Snapshot
+	{
+		private BoundingBox box;
+		private long geometry;
+	}
+	
+	/*
+	 * The dynamic obstacles of the last update. The snapshots are reused from an update to the next one.
+	 */
+	private Map<Obstacle, Snapshot> previousSnapshots = new IdentityHashMap<Obstacle, Snapshot>(), newSnapshots = new IdentityHashMap<Obstacle, Snapshot>();
+	private final GeometryHash geometryHash = new GeometryHash();
+	
+	/*
+	 * To find the edges near the obstacles that have changed
+	 */
+	private EdgeGrid edgeGrid;
+	
+	/*
+	 * The obstacles that block each edge, indexed by the number of the edge (null if none). This state is kept
+	 * here rather than in the edges, so the navmesh can be shared by several searches
+	 */
+	private List<Obstacle>[] obstructingObstacles;
 
 	private List<DStarLiteNode> overconsistentExpansion = new ArrayList<DStarLiteNode>(); 
 	private List<DStarLiteNode> underconsistentExpansion = new ArrayList<DStarLiteNode>(); 
@@ -56,6 +92,7 @@ public final class DStarLite
 	private DStarLiteNode arrivee;
 	private GraphicDisplay buffer;
 	private long nbPF = 0;
+	private volatile int generation = 0; // changes each time the heuristic may change
 	private boolean printItineraire;
 
 	private Cle knew = new Cle();
@@ -76,6 +113,7 @@ public final class DStarLite
 		this.dynObs = dynObs;
 		this.statObs = statObs;
 		
+		graph = navmesh.mesh.getGraph();
 		int nbPoints = navmesh.mesh.nodes.length;
 		openset = new EnhancedPriorityQueue(nbPoints);
 		
@@ -83,6 +121,9 @@ public final class DStarLite
 		for(int i = 0; i < nbPoints; i++)
 			memory[i] = new DStarLiteNode(navmesh.mesh.nodes[i]);
 
+		edgeGrid = new EdgeGrid(navmesh.mesh.edges, config.getInt(ConfigInfoKraken.LONGEST_EDGE_IN_NAVMESH));
+		obstructingObstacles = newObstaclesArray(navmesh.mesh.edges.length);
+
 		graphicHeuristique = config.getBoolean(ConfigInfoKraken.GRAPHIC_HEURISTIC);
 		printItineraire = config.getBoolean(ConfigInfoKraken.GRAPHIC_D_STAR_LITE);
 	}
@@ -111,14 +152,87 @@ public final class DStarLite
 		return copy;
 	}
 
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static List<Obstacle>[] newObstaclesArray(int nbEdges)
+	{
+		return new List[nbEdges];
+	}
+
+	/**
+	 * Returns the distance of the edge.
+	 * If the edge is blocked, returns infinity
+	 * @param e
+	 * @return
+	 */
+	private int getDistance(int edge)
+	{
+		if(isBlocked(edge))
+			return Integer.MAX_VALUE;
+		return graph.getLength(edge);
+	}
+
+	private boolean isBlocked(int edge)
+	{
+		List<Obstacle> obs = obstructingObstacles[edge];
+		return obs != null && !obs.isEmpty();
+	}
+
+	/**
+	 * Update the "blocked" state of an edge
+	 * @param e
+	 * @param currentList
+	 */
+	private void updateState(NavmeshEdge e, List<Obstacle> currentList)
+	{
+		List<Obstacle> obs = obstructingObstacles[e.nb];
+		if(obs == null)
+		{
+			obs = new ArrayList<Obstacle>();
+			obstructingObstacles[e.nb] = obs;
+		}
+
+		// Add the new obstacles that collide the edge
+		for(Obstacle o : currentList)
+			if(!obs.contains(o) && o.isColliding(e.points[0].position, e.points[1].position))
+				obs.add(o);
+
+		// Remove the obstacles that are *absent* from the list or the obstacles that moved (not colliding anymore)
+		Iterator<Obstacle> iter = obs.iterator();
+		while(iter.hasNext())
+		{
+			Obstacle o = iter.next();
+			if(!currentList.contains(o) || !o.isColliding(e.points[0].position, e.points[1].position))
+				iter.remove();
+		}
+	}
+
 	private DStarLiteNode getFromMemory(NavmeshNode gridpoint)
 	{
-		DStarLiteNode out = memory[gridpoint.nb];
+		return getFromMemory(gridpoint.nb);
+	}
+
+	private DStarLiteNode getFromMemory(int nb)
+	{
+		DStarLiteNode out = memory[nb];
 		out.update(nbPF);
 
 		return out;
 	}
 
+	/**
+	 * The rhs of a node, computed from the g of its neighbours
+	 * @param nb
+	 * @return
+	 */
+	private int computeRhs(int nb)
+	{
+		int rhs = Integer.MAX_VALUE;
+		int end = graph.getEndNeighbour(nb);
+		for(int k = graph.getFirstNeighbour(nb); k < end; k++)
+			rhs = Math.min(rhs, add(getDistance(graph.getNeighbourEdge(k)), getFromMemory(graph.getNeighbourNode(k)).g));
+		return rhs;
+	}
+
 	/**
 	 * Met à jour l'openset selon la cohérence de u
 	 * afin de conserver l'invariant : consistent <=> in openset
@@ -188,11 +302,11 @@ public final class DStarLite
 				openset.poll();
 				u.inOpenSet = false;
 
-				int nbNeighbours = u.node.getNbNeighbours();
-				for(int i = 0; i < nbNeighbours; i++)
+				int end = graph.getEndNeighbour(u.node.nb);
+				for(int k = graph.getFirstNeighbour(u.node.nb); k < end; k++)
 				{
-					DStarLiteNode s = getFromMemory(u.node.getNeighbour(i));
-					s.rhs = Math.min(s.rhs, add(u.node.getNeighbourEdge(i).getDistance(), u.g));
+					DStarLiteNode s = getFromMemory(graph.getNeighbourNode(k));
+					s.rhs = Math.min(s.rhs, add(getDistance(graph.getNeighbourEdge(k)), u.g));
 					updateVertex(s);
 				}
 
@@ -202,39 +316,19 @@ public final class DStarLite
 //				System.out.println("Cas 3");
 				int gold = u.g;
 				u.g = Integer.MAX_VALUE;
-				int nbNeighbours = u.node.getNbNeighbours();
-				for(int i = 0; i < nbNeighbours; i++)
+				int end = graph.getEndNeighbour(u.node.nb);
+				for(int k = graph.getFirstNeighbour(u.node.nb); k < end; k++)
 				{
-					NavmeshNode n = u.node.getNeighbour(i);
+					int n = graph.getNeighbourNode(k);
 					DStarLiteNode s = getFromMemory(n);
 
-					if(s.rhs == add(u.node.getNeighbourEdge(i).getDistance(), gold) && !s.equals(arrivee))
-					{
-						s.rhs = Integer.MAX_VALUE;
-						int nbNeighbours2 = n.getNbNeighbours();
-						for(int j = 0; j < nbNeighbours2; j++)
-						{
-							NavmeshNode n2 = n.getNeighbour(j);
-							DStarLiteNode s2 = getFromMemory(n2);
-
-							s.rhs = Math.min(s.rhs, add(n.getNeighbourEdge(j).getDistance(), s2.g));
-						}
-					}
+					if(s.rhs == add(getDistance(graph.getNeighbourEdge(k)), gold) && !s.equals(arrivee))
+						s.rhs = computeRhs(n);
 					updateVertex(s);
 				}
 				// Dans la boucle, il faut aussi faire u.
 				if(u.rhs == gold && !u.equals(arrivee))
-				{
-					u.rhs = Integer.MAX_VALUE;
-					int nbNeighbours2 = u.node.getNbNeighbours();
-					for(int i = 0; i < nbNeighbours2; i++)
-					{
-						NavmeshNode n = u.node.getNeighbour(i);
-						DStarLiteNode s2 = getFromMemory(n);
-
-						u.rhs = Math.min(u.rhs, add(u.node.getNeighbourEdge(i).getDistance(), s2.g));
-					}
-				}
+					u.rhs = computeRhs(u.node.nb);
 
 				updateVertex(u);
 			}
@@ -249,10 +343,13 @@ public final class DStarLite
 		for(int i = 0; i < memory.length; i++)
 			if(memory[i].nbPF == nbPF) // ceux qui ne sont pas à jour auront de toute façon une heuristique nulle
 				updateOrientationHeuristic(memory[i]);
+		generation++;
 	}
 
 	/**
 	 * Calcule un nouvel itinéraire.
+	 * If the goal is the same as before, the backward search isn't done again : it is only updated with the
+	 * obstacles that have changed, so the searches toward the same goal share it.
 	 * 
 	 * @param arrivee (un Vec2)
 	 * @param depart (un Vec2)
@@ -268,9 +365,18 @@ public final class DStarLite
 				throw new NoPathException("Finish point in obstacle "+o);
 		
 		
-		changeGoal(arrivee);
+		Object event = FlightRecorder.AVAILABLE ? FlightRecorder.EVENTS.beginDStarLite() : null;
+		if(lastGoal == null || !lastGoal.equals(arrivee))
+		{
+			changeGoal(arrivee);
+			lastGoal = arrivee.clone();
+		}
+		else
+			positionArrivee = arrivee; // same goal : the previous search is only updated with the obstacles
 		updateObstacles();
 		updateHeuristic();
+		if(event != null)
+			FlightRecorder.EVENTS.endDStarLite(event, "computeNewPath", 0, true);
 		return getFromMemory(navmesh.getNearest(depart)).rhs != Integer.MAX_VALUE;
 	}
 
@@ -298,34 +404,70 @@ public final class DStarLite
 	}
 
 	/**
-	 * Met à jour le pathfinding
+	 * Met à jour le pathfinding.
+	 * Only the edges near the obstacles that have been added, moved or removed since the last update are checked.
+	 * An obstacle has moved if its bounding box or its geometry (see Obstacle.updateDigest) has changed. An obstacle
+	 * without a finite bounding box is always checked.
 	 */
 	public synchronized void updateObstacles()
 	{
+		Object event = FlightRecorder.AVAILABLE ? FlightRecorder.EVENTS.beginDStarLite() : null;
 		Iterator<Obstacle> iter = dynObs.getCurrentDynamicObstacles();		
 		while(iter.hasNext())
-			newObstacles.add(iter.next());
+		{
+			Obstacle o = iter.next();
+			newObstacles.add(o);
+			BoundingBox box = o.getBoundingBox();
+			o.updateDigest(geometryHash);
+			long geometry = geometryHash.getHash();
+			Snapshot snapshot = previousSnapshots.remove(o);
+			if(snapshot == null)
+			{
+				// a new obstacle
+				edgeGrid.query(box);
+				snapshot = new Snapshot();
+			}
+			else if(!box.isFinite() || !box.equals(snapshot.box) || geometry != snapshot.geometry)
+			{
+				// an obstacle that moved or changed
+				edgeGrid.query(box);
+				edgeGrid.query(snapshot.box);
+			}
+			snapshot.box = box;
+			snapshot.geometry = geometry;
+			newSnapshots.put(o, snapshot);
+		}
+		
+		// the obstacles that have disappeared
+		for(Snapshot snapshot : previousSnapshots.values())
+			edgeGrid.query(snapshot.box);
 		
-		for(NavmeshEdge e: navmesh.mesh.edges)
+		// in the order of the navmesh, as if all the edges were checked
+		int nbEdges = edgeGrid.sortFound();
+		boolean changed = false;
+		for(int n = 0; n < nbEdges; n++)
 		{
-			boolean previousState = e.isBlocked();
+			NavmeshEdge e = edgeGrid.getFound(n);
+			boolean previousState = isBlocked(e.nb);
 			
-			e.updateState(newObstacles);
+			updateState(e, newObstacles);
 			
 			// Nothing change
-			if(e.isBlocked() == previousState)
+			if(isBlocked(e.nb) == previousState)
 				continue;
+
+			changed = true;
 			
-//			System.out.println("État edge a changé, bloqué = "+e.isBlocked()+": "+e);
+//			System.out.println("État edge a changé, bloqué = "+isBlocked(e.nb)+": "+e);
 
-			if(!e.isBlocked())
+			if(previousState)
 			{
 				for(int k = 0; k < 2; k++)
 				{
 					DStarLiteNode u = getFromMemory(e.points[k]);
 					DStarLiteNode v = getFromMemory(e.points[(k+1)%2]);
 	
-					u.rhs = Math.min(u.rhs, add(e.getDistance(), v.g));
+					u.rhs = Math.min(u.rhs, add(getDistance(e.nb), v.g));
 					updateVertex(u);
 				}
 			}
@@ -338,26 +480,25 @@ public final class DStarLite
 	
 					// l'ancienne distance est la distance statique car c'est un
 					// ajout d'obstacle
-					if(u.rhs == add(e.getUnblockedDistance(), v.g) && !u.equals(arrivee))
-					{
-						u.rhs = Integer.MAX_VALUE;
-						int nbNeighbours = u.node.getNbNeighbours();
-						for(int i = 0; i < nbNeighbours; i++)
-						{
-							NavmeshNode s = u.node.getNeighbour(i);
-							u.rhs = Math.min(u.rhs, add(u.node.getNeighbourEdge(i).getDistance(), getFromMemory(s).g));
-						}
-					}
+					if(u.rhs == add(graph.getLength(e.nb), v.g) && !u.equals(arrivee))
+						u.rhs = computeRhs(u.node.nb);
 					updateVertex(u);
 				}
 				
 			}
 		}
 
-		// Inversion des deux listes
-		List<Obstacle> tmp = previousObstacles;
-		previousObstacles = newObstacles;
-		newObstacles = tmp;
+		edgeGrid.clear();
+		if(changed)
+			generation++;
+		if(event != null)
+			FlightRecorder.EVENTS.endDStarLite(event, "updateObstacles", nbEdges, changed);
+
+		// Inversion des deux tables
+		Map<Obstacle, Snapshot> tmp = previousSnapshots;
+		previousSnapshots = newSnapshots;
+		newSnapshots = tmp;
+		newSnapshots.clear();
 		newObstacles.clear();
 
 		String str;
@@ -394,18 +535,19 @@ public final class DStarLite
 
 			coutMin = Integer.MAX_VALUE;
 
-			int nbNeighbours = node.node.getNbNeighbours();
+			int first = graph.getFirstNeighbour(node.node.nb);
+			int end = graph.getEndNeighbour(node.node.nb);
 			int indexMin = -1;
 			min = null;
-			for(int i = 0; i < nbNeighbours; i++)
+			for(int k = first; k < end; k++)
 			{
-				DStarLiteNode s = getFromMemory(node.node.getNeighbour(i));
-				int coutTmp = add(node.node.getNeighbourEdge(i).getDistance(), s.g);
+				DStarLiteNode s = getFromMemory(graph.getNeighbourNode(k));
+				int coutTmp = add(getDistance(graph.getNeighbourEdge(k)), s.g);
 				if(coutTmp < coutMin)
 				{
 					coutMin = coutTmp;
 					min = s;
-					indexMin = i;
+					indexMin = k - first;
 				}
 			}
 			
@@ -423,16 +565,27 @@ public final class DStarLite
 
 	}
 
+	/**
+	 * The generation of the heuristic : it changes each time the heuristic may change (new path or new obstacles)
+	 * 
+	 * @return
+	 */
+	public int getGeneration()
+	{
+		return generation;
+	}
+	
 	/**
 	 * Renvoie l'heuristique au A* courbe.
-	 * L'heuristique est une distance en mm
+	 * L'heuristique est une distance en mm.
+	 * It only reads the D* Lite, so several threads can call it as long as the D* Lite isn't updated meanwhile : the
+	 * search awaits the tentacle threads before returning, even with FAST_AND_DIRTY (TentacleManager.abortExpansion).
 	 * 
 	 * @param c
 	 * @return
 	 */
-	public synchronized Double heuristicCostCourbe(Cinematique c, double coeffDistanceError, double coeffAngleError)
+	public Double heuristicCostCourbe(Cinematique c, double coeffDistanceError, double coeffAngleError)
 	{
-		// TODO synchronized nécessaire ?
 		if(!statObs.isInsideSearchDomain(c.getPosition()))
 			return null;
 		NavmeshNode pos = navmesh.getNearest(c.getPosition());
@@ -441,7 +594,11 @@ public final class DStarLite
 		if(pos.equals(arrivee.node))
 			return 0.;
 
-		DStarLiteNode premier = getFromMemory(pos);
+		DStarLiteNode premier = memory[pos.nb];
+		
+		// a node that hasn't been reached by this pathfinding has no heuristic (getFromMemory would reset it)
+		if(premier.nbPF != nbPF)
+			return null;
 		
 		if(premier == arrivee)
 			return c.getPosition().distanceFast(positionArrivee);
@@ -480,19 +637,19 @@ public final class DStarLite
 	 */
 	private int getBestVoisin(NavmeshNode node)
 	{
-		int nbVoisins = node.getNbNeighbours();
-		assert nbVoisins > 0; // un nœud a forcément au moins un voisin
+		int first = graph.getFirstNeighbour(node.nb);
+		int end = graph.getEndNeighbour(node.nb);
+		assert end > first; // un nœud a forcément au moins un voisin
 		int bestVoisin = 0;
-		int bestVoisinDistance = add(getFromMemory(node.getNeighbour(0)).rhs, node.getNeighbourEdge(0).getDistance());
+		int bestVoisinDistance = add(getFromMemory(graph.getNeighbourNode(first)).rhs, getDistance(graph.getNeighbourEdge(first)));
 		
-		for(int i = 1; i < nbVoisins; i++)
+		for(int k = first + 1; k < end; k++)
 		{
-			NavmeshNode voisin = node.getNeighbour(i);
-			int candidatDistance = add(getFromMemory(voisin).rhs, node.getNeighbourEdge(i).getDistance());
+			int candidatDistance = add(getFromMemory(graph.getNeighbourNode(k)).rhs, getDistance(graph.getNeighbourEdge(k)));
 			assert candidatDistance >= 0 : "Distance négative ! "+candidatDistance;
 			if(candidatDistance < bestVoisinDistance)
 			{
-				bestVoisin = i;
+				bestVoisin = k - first;
 				bestVoisinDistance = candidatDistance;
 			}
 		}
@@ -615,14 +772,7 @@ public final class DStarLite
 			}
 			else
 			{
-				int best = Integer.MAX_VALUE;
-				NavmeshNode s = n.node;
-				for(int j = 0; j < s.getNbNeighbours(); j++)
-				{
-					int candidat = add(getFromMemory(s.getNeighbour(j)).g, s.getNeighbourEdge(j).getDistance());
-					if(candidat < best)
-						best = candidat;
-				}
+				int best = computeRhs(n.node.nb);
 				if(n.rhs != best)
 					return "rhs invariant broken ! rhs = "+n.rhs+", min = "+best+" "+n;
 			}
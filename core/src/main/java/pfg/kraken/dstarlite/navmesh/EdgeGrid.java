@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.dstarlite.navmesh;
+
+import java.util.Arrays;
+import pfg.kraken.utils.BoundingBox;
+
+/**
+ * A uniform grid over the edges of the navmesh, to find the edges near an obstacle.
+ * Each edge is referenced in every cell its bounding box overlaps. Not thread-safe.
+ * 
+ * @author pf
+ *
+ */
+
+public final class EdgeGrid
+{
+	private final NavmeshEdge[] edges;
+	private final double minX, minY, cellSize;
+	private final int nbX, nbY;
+	private final int[] cellStart; // the edges of the cell c are entries[cellStart[c]] to entries[cellStart[c+1] - 1]
+	private final int[] entries;
+	
+	/*
+	 * The edges found by the queries since the last clear()
+	 */
+	private final boolean[] marked;
+	private int[] found;
+	private int nbFound = 0;
+	
+	public EdgeGrid(NavmeshEdge[] edges, double cellSize)
+	{
+		assert cellSize > 0;
+		this.edges = edges;
+		this.cellSize = cellSize;
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for(NavmeshEdge e : edges)
+			for(NavmeshNode n : e.points)
+			{
+				minX = Math.min(minX, n.position.getX());
+				minY = Math.min(minY, n.position.getY());
+				maxX = Math.max(maxX, n.position.getX());
+				maxY = Math.max(maxY, n.position.getY());
+			}
+		if(edges.length == 0)
+			minX = minY = maxX = maxY = 0;
+		this.minX = minX;
+		this.minY = minY;
+		nbX = (int) ((maxX - minX) / cellSize) + 1;
+		nbY = (int) ((maxY - minY) / cellSize) + 1;
+		
+		cellStart = new int[nbX * nbY + 1];
+		for(NavmeshEdge e : edges)
+			for(int j = cellY(minY(e)); j <= cellY(maxY(e)); j++)
+				for(int i = cellX(minX(e)); i <= cellX(maxX(e)); i++)
+					cellStart[i + nbX * j + 1]++;
+		for(int c = 0; c < nbX * nbY; c++)
+			cellStart[c + 1] += cellStart[c];
+		
+		entries = new int[cellStart[nbX * nbY]];
+		int[] next = Arrays.copyOf(cellStart, nbX * nbY);
+		for(int k = 0; k < edges.length; k++)
+		{
+			NavmeshEdge e = edges[k];
+			for(int j = cellY(minY(e)); j <= cellY(maxY(e)); j++)
+				for(int i = cellX(minX(e)); i <= cellX(maxX(e)); i++)
+					entries[next[i + nbX * j]++] = k;
+		}
+		
+		marked = new boolean[edges.length];
+		found = new int[16];
+	}
+	
+	private static double minX(NavmeshEdge e)
+	{
+		return Math.min(e.points[0].position.getX(), e.points[1].position.getX());
+	}
+	
+	private static double minY(NavmeshEdge e)
+	{
+		return Math.min(e.points[0].position.getY(), e.points[1].position.getY());
+	}
+	
+	private static double maxX(NavmeshEdge e)
+	{
+		return Math.max(e.points[0].position.getX(), e.points[1].position.getX());
+	}
+	
+	private static double maxY(NavmeshEdge e)
+	{
+		return Math.max(e.points[0].position.getY(), e.points[1].position.getY());
+	}
+	
+	private int cellX(double x)
+	{
+		return Math.max(0, Math.min(nbX - 1, (int) Math.floor((x - minX) / cellSize)));
+	}
+	
+	private int cellY(double y)
+	{
+		return Math.max(0, Math.min(nbY - 1, (int) Math.floor((y - minY) / cellSize)));
+	}
+	
+	/**
+	 * Adds to the found edges the edges whose bounding box intersects this box
+	 * 
+	 * @param box
+	 */
+	public void query(BoundingBox box)
+	{
+		for(int j = cellY(box.getMinY()); j <= cellY(box.getMaxY()); j++)
+			for(int i = cellX(box.getMinX()); i <= cellX(box.getMaxX()); i++)
+			{
+				int c = i + nbX * j;
+				for(int e = cellStart[c]; e < cellStart[c + 1]; e++)
+				{
+					int k = entries[e];
+					NavmeshEdge edge = edges[k];
+					if(marked[k] || maxX(edge) < box.getMinX() || minX(edge) > box.getMaxX() || maxY(edge) < box.getMinY() || minY(edge) > box.getMaxY())
+						continue;
+					marked[k] = true;
+					if(nbFound == found.length)
+						found = Arrays.copyOf(found, 2 * nbFound);
+					found[nbFound++] = k;
+				}
+			}
+	}
+	
+	/**
+	 * Sorts the found edges in the order of the navmesh
+	 * 
+	 * @return the number of found edges
+	 */
+	public int sortFound()
+	{
+		Arrays.sort(found, 0, nbFound);
+		return nbFound;
+	}
+	
+	/**
+	 * The i-th found edge
+	 * 
+	 * @param i
+	 * @return
+	 */
+	public NavmeshEdge getFound(int i)
+	{
+		return edges[found[i]];
+	}
+	
+	/**
+	 * Forgets the found edges
+	 */
+	public void clear()
+	{
+		for(int i = 0; i < nbFound; i++)
+			marked[found[i]] = false;
+		nbFound = 0;
+	}
+}
@@ -7,6 +7,7 @@ package pfg.kraken.dstarlite.navmesh;
 
 import pfg.config.Config;
 import pfg.graphic.GraphicDisplay;
+import pfg.kraken.utils.ArtifactCache;
 import pfg.kraken.utils.XY;
 import pfg.log.Log;
 import pfg.kraken.ConfigInfoKraken;
@@ -18,7 +19,9 @@ import java.io.IOException;
 
 /**
  * A navmesh, used by the D* Lite.
- * It can load and save a navmesh. If necessary, it generate a new one.
+ * It can load and save a navmesh. If necessary, it generate a new one, or patches the loaded one if only some static
+ * obstacles have changed.
+ * With an artifact cache directory, the navmesh file is named by the digest of the obstacles and of the parameters.
  * 
  * @author pf
  *
@@ -33,32 +36,48 @@ public final class Navmesh
 	{
 		this.log = log;
 		String filename = config.getString(ConfigInfoKraken.NAVMESH_FILENAME);
+		String cache = config.getString(ConfigInfoKraken.ARTIFACT_CACHE_DIRECTORY);
+		if(ArtifactCache.isEnabled(cache))
+			filename = ArtifactCache.getFilename(cache, "navmesh", computer.getDigest(obs));
 		try {
 			log.write("D* NavMesh loading…", LogCategoryKraken.PF);
 			mesh = TriangulatedMesh.loadNavMesh(filename);
-			if(mesh.obsHashCode != obs.hashCode())
-				throw new NullPointerException("different obstacles ("+mesh.obsHashCode+" != "+obs.hashCode()+")"); // l'objectif est juste d'entrer dans le catch ci-dessous…
 			if(!computer.checkNavmesh(mesh))
 				throw new NullPointerException("invalid navmesh");
+			if(!computer.isUpToDate(mesh, obs))
+			{
+				// only the neighbourhood of the obstacles that have changed is computed again
+				TriangulatedMesh patched = computer.patchNavMesh(mesh, obs);
+				if(patched == null)
+					throw new NullPointerException("different obstacles"); // l'objectif est juste d'entrer dans le catch ci-dessous…
+				mesh = patched;
+				log.write("The static obstacles have changed : the navmesh has been patched.", LogCategoryKraken.PF);
+				save(filename);
+			}
 		}
 		catch(IOException | ClassNotFoundException | NullPointerException e)
 		{
 			log.write("The navmesh can't be loaded ("+e.getMessage()+") : generation of a new one.", SeverityCategoryKraken.WARNING, LogCategoryKraken.PF);
 			mesh = computer.generateNavMesh(obs);
-			try {
-				mesh.saveNavMesh(filename);
-				log.write("Navmesh saved into "+filename, LogCategoryKraken.PF);
-			}
-			catch(IOException e1)
-			{
-				log.write("Error during navmesh save ! " + e1, SeverityCategoryKraken.CRITICAL, LogCategoryKraken.PF);
-			}
+			save(filename);
 		}
 		assert mesh != null;
 		if(config.getBoolean(ConfigInfoKraken.GRAPHIC_NAVMESH))
 			mesh.addToBuffer(buffer);
 	}
 	
+	private void save(String filename)
+	{
+		try {
+			mesh.saveNavMesh(filename);
+			log.write("Navmesh saved into "+filename, LogCategoryKraken.PF);
+		}
+		catch(IOException e)
+		{
+			log.write("Error during navmesh save ! " + e, SeverityCategoryKraken.CRITICAL, LogCategoryKraken.PF);
+		}
+	}
+	
 	@Override
 	public String toString()
 	{
@@ -67,19 +86,7 @@ public final class Navmesh
 	
 	public NavmeshNode getNearest(XY position)
 	{
-		NavmeshNode bestNode = null;
-		double smallestDistance = 0;
-		for(NavmeshNode n : mesh.nodes)
-		{
-			double candidateDistance = position.squaredDistance(n.position);
-			if(bestNode == null || candidateDistance < smallestDistance)
-			{
-				bestNode = n;
-				smallestDistance = candidateDistance;
-			}
-		}
-		assert bestNode != null;
-		return bestNode;
+		return mesh.getNearest(position);
 	}
 
 }
@@ -5,18 +5,30 @@
 
 package pfg.kraken.dstarlite.navmesh;
 
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
 
 import pfg.config.Config;
 import pfg.kraken.ConfigInfoKraken;
 import pfg.kraken.obstacles.Obstacle;
 import pfg.kraken.obstacles.RectangularObstacle;
 import pfg.kraken.obstacles.container.StaticObstacles;
+import pfg.kraken.utils.BoundingBox;
+import pfg.kraken.utils.ContentDigest;
 import pfg.kraken.utils.XY;
 import pfg.log.Log;
 
@@ -49,12 +61,14 @@ public final class NavmeshComputer
 	protected Log log;
 
 	private LinkedList<NavmeshEdge> needFlipCheck;
-	private PriorityQueue<NavmeshTriangle> triangles;
-	private PriorityQueue<NavmeshEdge> edgesInProgress;
+	private Queue<NavmeshTriangle> triangles;
+	private Queue<NavmeshEdge> edgesInProgress;
 	private List<NavmeshNode> nodesList;
+	private NavmeshTriangle lastLocated; // the start of the next point location
 
 	private int expansion;
 	private int largestAllowedArea, longestAllowedLength;
+	private boolean indexed; // indexed queues and point location by walking
 	
 	public NavmeshComputer(Log log, Config config)
 	{
@@ -62,25 +76,110 @@ public final class NavmeshComputer
 		expansion = config.getInt(ConfigInfoKraken.NAVMESH_OBSTACLE_DILATATION);
 		largestAllowedArea = config.getInt(ConfigInfoKraken.LARGEST_TRIANGLE_AREA_IN_NAVMESH);
 		longestAllowedLength = config.getInt(ConfigInfoKraken.LONGEST_EDGE_IN_NAVMESH)*1000; // converting mm to µm
+		String type = config.getString(ConfigInfoKraken.NAVMESH_GENERATION);
+		if(type.equals("INDEXED"))
+			indexed = true;
+		else if(type.equals("PRIORITY_QUEUE"))
+			indexed = false;
+		else
+			throw new IllegalArgumentException("Unknown navmesh generation : "+type);
 	}
 	
-	public TriangulatedMesh generateNavMesh(StaticObstacles obs)
+	private void initialize()
 	{
 		needFlipCheck = new LinkedList<NavmeshEdge>();
-		triangles = new PriorityQueue<NavmeshTriangle>(1000, new NavmeshTriangleComparator());
-		edgesInProgress = new PriorityQueue<NavmeshEdge>(1000, new NavmeshEdgeComparator());
-		 nodesList = new ArrayList<NavmeshNode>();
-
-		List<Obstacle> obsList = obs.getObstacles();
-		String s;
-		
+		createQueues();
+		nodesList = new ArrayList<NavmeshNode>();
+		lastLocated = null;
+	}
+	
+	private void createQueues()
+	{
+		if(indexed)
+		{
+			triangles = new NavmeshQueue<NavmeshTriangle>(1000, new NavmeshTriangleComparator());
+			edgesInProgress = new NavmeshQueue<NavmeshEdge>(1000, new NavmeshEdgeComparator());
+		}
+		else
+		{
+			triangles = new PriorityQueue<NavmeshTriangle>(1000, new NavmeshTriangleComparator());
+			edgesInProgress = new PriorityQueue<NavmeshEdge>(1000, new NavmeshEdgeComparator());
+		}
+	}
+	
+	/**
+	 * The rectangle of the navmesh
+	 * @param obs
+	 * @return
+	 */
+	private RectangularObstacle getExternal(StaticObstacles obs)
+	{
 		XY bottomLeftCorner = obs.getBottomLeftCorner();
 		XY topRightCorner = obs.getTopRightCorner();
+		return new RectangularObstacle(bottomLeftCorner.plusNewVector(topRightCorner).scalar(0.5), (int) (topRightCorner.getX() - bottomLeftCorner.getX()), (int) (topRightCorner.getY() - bottomLeftCorner.getY()), 0.);
+	}
+	
+	/**
+	 * The four corners of the navmesh (bottom right, top right, top left, bottom left)
+	 * @param obs
+	 * @return
+	 */
+	private XY[] getCorners(StaticObstacles obs)
+	{
+		XY[] hull = getExternal(obs).getExpandedConvexHull(- expansion * 1.1, obs.getBottomLeftCorner().distance(obs.getTopRightCorner()));
+		assert hull.length == 4 : hull.length;
+		return hull;
+	}
+	
+	/**
+	 * The convex hull of an obstacle, whose points are nodes of the navmesh
+	 * @param o
+	 * @return
+	 */
+	private XY[] getHull(Obstacle o)
+	{
+		XY[] hull = o.getExpandedConvexHull(expansion * 1.1, longestAllowedLength * 0.7 / 1000.);
+		assert hull.length >= 3;
+		return hull;
+	}
+	
+	/**
+	 * Should this point of a convex hull become a node ?
+	 * @param point
+	 * @param addedPoints
+	 * @param bottomLeft
+	 * @param topRight
+	 * @return
+	 */
+	private boolean isNewPoint(XY point, List<XY> addedPoints, XY bottomLeft, XY topRight)
+	{
+		// Si on trouve deux points très proches, on en retire un
+		for(XY pos : addedPoints)
+			if(point.distance(pos) < longestAllowedLength / 5000)
+				return false;
 		
-		RectangularObstacle external = new RectangularObstacle(bottomLeftCorner.plusNewVector(topRightCorner).scalar(0.5), (int) (topRightCorner.getX() - bottomLeftCorner.getX()), (int) (topRightCorner.getY() - bottomLeftCorner.getY()), 0.);
+		// On n'inclut pas les nœuds en dehors du rectangle
+		return !addedPoints.contains(point) && point.getX() >= bottomLeft.getX() && point.getX() <= topRight.getX()
+				&& point.getY() >= bottomLeft.getY() && point.getY() <= topRight.getY();
+	}
+	
+	private boolean isNearObstacle(XY position, List<Obstacle> obsList)
+	{
+		for(Obstacle o : obsList)
+			if(o.squaredDistance(position) < expansion * expansion)
+				return true;
+		return false;
+	}
+	
+	public TriangulatedMesh generateNavMesh(StaticObstacles obs)
+	{
+		initialize();
 
-		XY[] hull = external.getExpandedConvexHull(- expansion * 1.1, bottomLeftCorner.distance(topRightCorner));
-		assert hull.length == 4 : hull.length;
+		List<Obstacle> obsList = obs.getObstacles();
+		String s;
+		
+		RectangularObstacle external = getExternal(obs);
+		XY[] hull = getCorners(obs);
 		
 		NavmeshNode br = new NavmeshNode(hull[0]);
 		NavmeshNode tr = new NavmeshNode(hull[1]);
@@ -108,32 +207,18 @@ public final class NavmeshComputer
 			}
 		}
 		
-		for(Obstacle o : obsList)
+		XY[][] obstacleHulls = new XY[obsList.size()][];
+		for(int k = 0; k < obsList.size(); k++)
 		{
-			hull = o.getExpandedConvexHull(expansion * 1.1, longestAllowedLength * 0.7 / 1000.);
-			assert hull.length >= 3;
+			hull = getHull(obsList.get(k));
+			obstacleHulls[k] = hull;
 			for(int i = 0; i < hull.length; i++)
-			{
-				// Si on trouve deux points très proches, on en retire un
-				boolean abort = false;
-				for(XY pos : addedPoints)
-					if(hull[i].distance(pos) < longestAllowedLength / 5000)
-					{
-						abort = true;
-						break;
-					}
-				if(abort)
-					continue;
-				
-				// On n'inclut pas les nœuds en dehors du rectangle
-				if(!addedPoints.contains(hull[i]) && hull[i].getX() >= bl.position.getX() && hull[i].getX() <= tr.position.getX()
-						&& hull[i].getY() >= bl.position.getY() && hull[i].getY() <= tr.position.getY())
+				if(isNewPoint(hull[i], addedPoints, bl.position, tr.position))
 				{
 					NavmeshNode n = new NavmeshNode(hull[i]);
 					nodesList.add(n);
 					addedPoints.add(hull[i]);
 				}
-			}
 		}
 		
 		Iterator<NavmeshNode> iter = nodesList.iterator();
@@ -143,70 +228,13 @@ public final class NavmeshComputer
 			iter.next(); // on ne touche pas aux quatre coins !
 		}
 		while(iter.hasNext())
-		{
-			NavmeshNode node = iter.next();
-			for(Obstacle o : obsList)
-			{
-				if(o.squaredDistance(node.position) < expansion * expansion)
-				{
-					iter.remove();
-					break;
-				}
-			}
-		}
+			if(isNearObstacle(iter.next().position, obsList))
+				iter.remove();
 
 		assert ((s = checkNoDuplicate()) == null) : s;
 		
-		/*
-		 * This is not the fastest algorithm… but it is enough for an off-line computation
-		 * This is a Delaunay triangulation.
-		 */
-		
-		// Initial triangles
-		NavmeshEdge e1 = new NavmeshEdge(tl, tr);
-		edgesInProgress.add(e1);
-		NavmeshEdge e2 = new NavmeshEdge(tr, br);
-		edgesInProgress.add(e2);
-		NavmeshEdge e3 = new NavmeshEdge(br, tl);
-		edgesInProgress.add(e3);
-		NavmeshEdge e4 = new NavmeshEdge(br, bl);
-		edgesInProgress.add(e4);
-		NavmeshEdge e5 = new NavmeshEdge(bl, tl);
-		edgesInProgress.add(e5);
-		triangles.add(new NavmeshTriangle(e1, e2, e3));
-		triangles.add(new NavmeshTriangle(e3, e4, e5));
-		
-		// We add the points one by one
-		for(int index = 4; index < nodesList.size(); index++)
-			addNewNodeInitialization(nodesList.get(index));
-				
-		assert checkDelaunay();
-		
-		// We add other points in order to avoid large triangle
-		NavmeshTriangle largestTriangle = triangles.peek();
-		while(largestTriangle.area > largestAllowedArea)
-		{
-			triangles.poll();
-			addCenterPoint(largestTriangle);
-			largestTriangle = triangles.peek();
-		}
-		
-		assert triangles.peek().area <= largestAllowedArea : triangles.peek().area + " > " + largestAllowedArea;
-		
-		// We add other points in order to avoir long edges
-		NavmeshEdge longestEdge = edgesInProgress.peek();
-		while(longestEdge.length > longestAllowedLength)
-		{
-			assert ((s = checkLongestEdge()) == null) : s;
-			edgesInProgress.poll();
-			assert ((s = checkLongestEdge()) == null) : s;
-			addMiddleEdgePoint(longestEdge);
-			longestEdge = edgesInProgress.peek();
-		}
-		
-		assert edgesInProgress.peek().length <= longestAllowedLength : edgesInProgress.peek().length + " > " + longestAllowedLength;
-		assert triangles.peek().area <= largestAllowedArea : triangles.peek().area + " > " + largestAllowedArea;
-
+		triangulate(tl, tr, br, bl);
+		refine();
 
 		assert ((s = checkCrossingEdges()) == null) : s;
 		assert ((s = checkNodeInTriangle()) == null) : s;
@@ -363,6 +391,7 @@ public final class NavmeshComputer
 		 * Retirer ces nœuds retire des arêtes, ce qui peut entraîner une réaction en chaîne
 		 * (une chaîne de nœuds sera détruite par exemple) 
 		 */
+		Set<NavmeshNode> disconnected = new HashSet<NavmeshNode>();
 		while(!needDestruction.isEmpty())
 		{
 			NavmeshEdge e = needDestruction.poll();
@@ -375,12 +404,21 @@ public final class NavmeshComputer
 					int nbVoisins = e.points[i].getNbNeighbours(); 
 					// If the node isn't connected anymore
 					if(nbVoisins == 0)
-						nodesList.remove(e.points[i]);
+						disconnected.add(e.points[i]);
 					else if(nbVoisins == 1)
 						needDestruction.add(e.points[i].getNeighbourEdge(0));
 				}
 			}
 		}
+		
+		// the order of the other nodes is kept
+		if(!disconnected.isEmpty())
+		{
+			Iterator<NavmeshNode> iterN = nodesList.iterator();
+			while(iterN.hasNext())
+				if(disconnected.contains(iterN.next()))
+					iterN.remove();
+		}
 
 		// Si on a supprimé l'arête d'un triangle, on supprime ce triangle, et on retire ce triangle de ses autres côtés
 		Iterator<NavmeshTriangle> iterT = triangles.iterator();
@@ -430,7 +468,566 @@ public final class NavmeshComputer
 			t[i].prepareToSave();
 		}
 		
-		return new TriangulatedMesh(n, e, t, obs.hashCode());
+		return new TriangulatedMesh(n, e, t, obs.hashCode(), NavmeshGraph.build(n, e), obstacleHulls);
+	}
+	
+	/**
+	 * The digest of everything the generated navmesh depends on : the corners, the geometry of the obstacles, the
+	 * dilatation, the largest area and the longest edge. It names the navmesh in the artifact cache.
+	 *
+	 * @param obs
+	 * @return
+	 */
+	public String getDigest(StaticObstacles obs)
+	{
+		ContentDigest digest = new ContentDigest();
+		obs.updateDigest(digest);
+		digest.update(expansion).update(largestAllowedArea).update(longestAllowedLength);
+		return digest.digest();
+	}
+	
+	/**
+	 * Has this navmesh been computed with these obstacles ? The hash code of the obstacles only depends on their
+	 * positions, so the convex hulls saved with the navmesh are compared too (they also depend on the sizes, on
+	 * the orientations and on the dilatation).
+	 *
+	 * @param mesh
+	 * @param obs
+	 * @return
+	 */
+	public boolean isUpToDate(TriangulatedMesh mesh, StaticObstacles obs)
+	{
+		if(mesh.obsHashCode != obs.hashCode())
+			return false;
+		if(mesh.obstacleHulls == null)
+			return true; // nothing else to compare
+		List<Obstacle> obsList = obs.getObstacles();
+		if(obsList.size() != mesh.obstacleHulls.length)
+			return false;
+		Map<List<XY>, Integer> previousHulls = countHulls(mesh.obstacleHulls);
+		for(Obstacle o : obsList)
+			if(!removeHull(previousHulls, getHull(o)))
+				return false;
+		return true;
+	}
+	
+	/**
+	 * Patches a navmesh after a change of the static obstacles. The obstacles are compared with the convex hulls saved
+	 * with the navmesh. Only the nodes, edges and triangles near the added and removed obstacles are removed : the
+	 * cavity they leave is triangulated again (a Delaunay triangulation that doesn't flip the kept edges), refined and
+	 * cut by the obstacles as in a generation.
+	 *
+	 * @param mesh the navmesh of the previous obstacles
+	 * @param obs the new obstacles
+	 * @return the patched navmesh, or null if it can't be patched (it must be generated again)
+	 */
+	public TriangulatedMesh patchNavMesh(TriangulatedMesh mesh, StaticObstacles obs)
+	{
+		if(mesh.obstacleHulls == null)
+			return null;
+	
+		List<Obstacle> obsList = obs.getObstacles();
+		XY[][] obstacleHulls = new XY[obsList.size()][];
+		for(int k = 0; k < obsList.size(); k++)
+			obstacleHulls[k] = getHull(obsList.get(k));
+	
+		// An obstacle that hasn't changed has the same convex hull
+		List<XY[]> changed = new ArrayList<XY[]>();
+		Map<List<XY>, Integer> previousHulls = countHulls(mesh.obstacleHulls);
+		for(XY[] hull : obstacleHulls)
+			if(!removeHull(previousHulls, hull))
+				changed.add(hull); // added obstacle
+		Map<List<XY>, Integer> newHulls = countHulls(obstacleHulls);
+		for(XY[] hull : mesh.obstacleHulls)
+			if(!removeHull(newHulls, hull))
+				changed.add(hull); // removed obstacle
+	
+		// If most of the obstacles have changed, the generation is as fast
+		if(2 * changed.size() > obstacleHulls.length + mesh.obstacleHulls.length)
+			return null;
+	
+		XY[] corners = getCorners(obs);
+		XY bottomLeft = corners[3], topRight = corners[1];
+	
+		NavmeshNode[] oldNodes = mesh.nodes;
+		NavmeshEdge[] oldEdges = mesh.edges;
+		NavmeshTriangle[] oldTriangles = mesh.triangles;
+	
+		// A navmesh with other corners can't be patched
+		for(NavmeshNode n : oldNodes)
+			if(n.position.getX() < bottomLeft.getX() || n.position.getX() > topRight.getX() || n.position.getY() < bottomLeft.getY() || n.position.getY() > topRight.getY())
+				return null;
+	
+		// The boxes of the changed obstacles, with a margin for the new triangles
+		double margin = longestAllowedLength / 1000.;
+		List<BoundingBox> boxes = new ArrayList<BoundingBox>();
+		for(XY[] hull : changed)
+		{
+			double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+			for(XY p : hull)
+			{
+				minX = Math.min(minX, p.getX());
+				minY = Math.min(minY, p.getY());
+				maxX = Math.max(maxX, p.getX());
+				maxY = Math.max(maxY, p.getY());
+			}
+			boxes.add(new BoundingBox(minX - margin, minY - margin, maxX + margin, maxY + margin));
+		}
+	
+		// The edges and the triangles that intersect a box are removed. The kept nodes around them are the border of the cavity.
+		boolean[] removedEdge = new boolean[oldEdges.length];
+		boolean[] removedTriangle = new boolean[oldTriangles.length];
+		boolean[] border = new boolean[oldNodes.length];
+		for(int i = 0; i < oldEdges.length; i++)
+		{
+			NavmeshEdge e = oldEdges[i];
+			removedEdge[i] = intersects(boxes, e.points);
+			if(removedEdge[i])
+				for(NavmeshNode n : e.points)
+					if(!isInside(boxes, n.position))
+						border[n.nb] = true;
+		}
+		for(int i = 0; i < oldTriangles.length; i++)
+		{
+			NavmeshTriangle t = oldTriangles[i];
+			removedTriangle[i] = intersects(boxes, t.points);
+			if(removedTriangle[i])
+				for(NavmeshNode n : t.points)
+					if(!isInside(boxes, n.position))
+						border[n.nb] = true;
+		}
+	
+		initialize();
+	
+		NavmeshNode br = new NavmeshNode(corners[0]);
+		NavmeshNode tr = new NavmeshNode(corners[1]);
+		NavmeshNode tl = new NavmeshNode(corners[2]);
+		NavmeshNode bl = new NavmeshNode(corners[3]);
+	
+		nodesList.add(tl);
+		nodesList.add(tr);
+		nodesList.add(br);
+		nodesList.add(bl);
+	
+		List<XY> addedPoints = new ArrayList<XY>();
+		for(NavmeshNode n : nodesList)
+			addedPoints.add(n.position);
+	
+		// The nodes of the triangulation that are nodes of the previous navmesh
+		Map<NavmeshNode, Integer> indices = new IdentityHashMap<NavmeshNode, Integer>();
+		NavmeshNode[] copies = new NavmeshNode[oldNodes.length];
+		for(int i = 0; i < oldNodes.length; i++)
+			for(int j = 0; j < 4; j++)
+				if(nodesList.get(j).position.equals(oldNodes[i].position))
+				{
+					copies[i] = nodesList.get(j);
+					indices.put(copies[i], i);
+				}
+		for(int i = 0; i < oldNodes.length; i++)
+			if(border[i] && copies[i] == null)
+			{
+				copies[i] = new NavmeshNode(oldNodes[i].position);
+				nodesList.add(copies[i]);
+				addedPoints.add(oldNodes[i].position);
+				indices.put(copies[i], i);
+			}
+		int nbCopies = nodesList.size();
+	
+		// The points of the convex hulls within the boxes
+		XY[] hull = getExternal(obs).getExpandedConvexHull(- expansion * 1.1, longestAllowedLength * 0.7 / 1000.);
+		for(int i = 0; i < hull.length; i++)
+			if(isInside(boxes, hull[i]) && !addedPoints.contains(hull[i]))
+			{
+				nodesList.add(new NavmeshNode(hull[i]));
+				addedPoints.add(hull[i]);
+			}
+		for(XY[] h : obstacleHulls)
+			for(int i = 0; i < h.length; i++)
+				if(isInside(boxes, h[i]) && isNewPoint(h[i], addedPoints, bottomLeft, topRight))
+				{
+					nodesList.add(new NavmeshNode(h[i]));
+					addedPoints.add(h[i]);
+				}
+		for(int i = nodesList.size() - 1; i >= nbCopies; i--)
+			if(isNearObstacle(nodesList.get(i).position, obsList))
+				nodesList.remove(i);
+	
+		triangulate(tl, tr, br, bl);
+	
+		// The kept edges can't be flipped : they close the cavity
+		Map<NavmeshEdge, Integer> edgeIndices = new IdentityHashMap<NavmeshEdge, Integer>();
+		for(int i = 0; i < oldEdges.length; i++)
+		{
+			NavmeshNode a = copies[oldEdges[i].points[0].nb];
+			NavmeshNode b = copies[oldEdges[i].points[1].nb];
+			if(!removedEdge[i] && a != null && b != null)
+				for(int j = 0; j < a.getNbNeighbours(); j++)
+					if(a.getNeighbour(j) == b)
+					{
+						a.getNeighbourEdge(j).constrained = true;
+						edgeIndices.put(a.getNeighbourEdge(j), i);
+					}
+		}
+	
+		// The cavity : the triangles reached from the removed triangles and from the new nodes without crossing a kept edge
+		Set<NavmeshTriangle> cavity = new HashSet<NavmeshTriangle>();
+		List<NavmeshTriangle> cavityList = new ArrayList<NavmeshTriangle>();
+		for(int i = 0; i < oldTriangles.length; i++)
+			if(removedTriangle[i])
+			{
+				XY[] p = new XY[3];
+				for(int j = 0; j < 3; j++)
+					p[j] = oldTriangles[i].points[j].position;
+				NavmeshTriangle t = find(p[0].plusNewVector(p[1]).plus(p[2]).scalar(1./3.));
+				if(t != null && cavity.add(t))
+					cavityList.add(t);
+			}
+		for(int i = nbCopies; i < nodesList.size(); i++)
+		{
+			NavmeshNode n = nodesList.get(i);
+			for(int j = 0; j < n.getNbNeighbours(); j++)
+			{
+				NavmeshEdge e = n.getNeighbourEdge(j);
+				for(int k = 0; k < e.nbTriangles; k++)
+					if(cavity.add(e.triangles[k]))
+						cavityList.add(e.triangles[k]);
+			}
+		}
+		for(int i = 0; i < cavityList.size(); i++)
+			for(NavmeshEdge e : cavityList.get(i).edges)
+				if(!e.constrained)
+					for(int k = 0; k < e.nbTriangles; k++)
+						if(cavity.add(e.triangles[k]))
+							cavityList.add(e.triangles[k]);
+	
+		// Only the cavity is refined
+		createQueues();
+		for(NavmeshTriangle t : cavityList)
+		{
+			triangles.add(t);
+			for(NavmeshEdge e : t.edges)
+				if(!e.constrained && !edgesInProgress.contains(e))
+					edgesInProgress.add(e);
+		}
+		refine();
+	
+		List<NavmeshEdge> newEdges = new ArrayList<NavmeshEdge>();
+		while(!edgesInProgress.isEmpty())
+			newEdges.add(edgesInProgress.poll());
+		List<NavmeshTriangle> newTriangles = new ArrayList<NavmeshTriangle>();
+		while(!triangles.isEmpty())
+			newTriangles.add(triangles.poll());
+	
+		// The new edges can't cross a kept edge (otherwise a kept edge is missing in the triangulation and the cavity isn't closed)
+		List<NavmeshEdge> keptEdges = new ArrayList<NavmeshEdge>();
+		if(!newEdges.isEmpty())
+		{
+			double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+			for(NavmeshEdge e : newEdges)
+				for(NavmeshNode n : e.points)
+				{
+					minX = Math.min(minX, n.position.getX());
+					minY = Math.min(minY, n.position.getY());
+					maxX = Math.max(maxX, n.position.getX());
+					maxY = Math.max(maxY, n.position.getY());
+				}
+			List<BoundingBox> cavityBox = Collections.singletonList(new BoundingBox(minX, minY, maxX, maxY));
+			for(int i = 0; i < oldEdges.length; i++)
+				if(!removedEdge[i] && intersects(cavityBox, oldEdges[i].points))
+					keptEdges.add(oldEdges[i]);
+		}
+		EdgeGrid grid = new EdgeGrid(keptEdges.toArray(new NavmeshEdge[keptEdges.size()]), margin);
+		for(NavmeshEdge e : newEdges)
+		{
+			XY a = e.points[0].position, b = e.points[1].position;
+			grid.query(new BoundingBox(Math.min(a.getX(), b.getX()), Math.min(a.getY(), b.getY()), Math.max(a.getX(), b.getX()), Math.max(a.getY(), b.getY())));
+			int nbFound = grid.sortFound();
+			for(int i = 0; i < nbFound; i++)
+			{
+				XY c = grid.getFound(i).points[0].position, d = grid.getFound(i).points[1].position;
+				if(!a.equals(c) && !a.equals(d) && !b.equals(c) && !b.equals(d) && XY.segmentIntersection(a, b, c, d))
+					return null;
+			}
+			grid.clear();
+		}
+	
+		// The nodes : the nodes of the previous navmesh, then the new nodes
+		List<XY> positions = new ArrayList<XY>();
+		for(NavmeshNode n : oldNodes)
+			positions.add(n.position);
+		for(NavmeshNode n : nodesList)
+			if(!indices.containsKey(n))
+			{
+				indices.put(n, positions.size());
+				positions.add(n.position);
+			}
+	
+		// The edges : the edges of the previous navmesh, then the new edges
+		int nbEdges = oldEdges.length + newEdges.size();
+		int[] endpoints = new int[2 * nbEdges];
+		int[] lengths = new int[nbEdges];
+		boolean[] kept = new boolean[nbEdges];
+		LinkedList<Integer> needDestruction = new LinkedList<Integer>();
+		for(int i = 0; i < oldEdges.length; i++)
+		{
+			endpoints[2 * i] = oldEdges[i].points[0].nb;
+			endpoints[2 * i + 1] = oldEdges[i].points[1].nb;
+			lengths[i] = oldEdges[i].length;
+			kept[i] = !removedEdge[i];
+		}
+		for(int i = oldEdges.length; i < nbEdges; i++)
+		{
+			NavmeshEdge e = newEdges.get(i - oldEdges.length);
+			edgeIndices.put(e, i);
+			endpoints[2 * i] = indices.get(e.points[0]);
+			endpoints[2 * i + 1] = indices.get(e.points[1]);
+			lengths[i] = e.length;
+			kept[i] = true;
+			// Suppression des arêtes qui coupent des obstacles
+			for(Obstacle o : obsList)
+				if(o.isColliding(e.points[0].position, e.points[1].position))
+				{
+					needDestruction.add(i);
+					break;
+				}
+		}
+	
+		// The edges of each node (the kept edges in the same order)
+		int[] nodeOffsets = new int[positions.size() + 1];
+		for(int i = 0; i < 2 * nbEdges; i++)
+			nodeOffsets[endpoints[i] + 1]++;
+		for(int n = 0; n < positions.size(); n++)
+			nodeOffsets[n + 1] += nodeOffsets[n];
+		int[] nodeEdges = new int[2 * nbEdges];
+		int[] fill = Arrays.copyOf(nodeOffsets, positions.size());
+		NavmeshGraph graph = mesh.getGraph();
+		for(int n = 0; n < oldNodes.length; n++)
+			for(int k = graph.getFirstNeighbour(n); k < graph.getEndNeighbour(n); k++)
+				nodeEdges[fill[n]++] = graph.getNeighbourEdge(k);
+		for(int i = oldEdges.length; i < nbEdges; i++)
+			for(int j = 0; j < 2; j++)
+				nodeEdges[fill[endpoints[2 * i + j]]++] = i;
+	
+		int[] degree = new int[positions.size()];
+		for(int i = 0; i < nbEdges; i++)
+			if(kept[i])
+			{
+				degree[endpoints[2 * i]]++;
+				degree[endpoints[2 * i + 1]]++;
+			}
+	
+		// On ne veut garder que des nœuds qui ont au moins deux voisins
+		while(!needDestruction.isEmpty())
+		{
+			int e = needDestruction.poll();
+			if(kept[e])
+			{
+				kept[e] = false;
+				for(int j = 0; j < 2; j++)
+				{
+					int n = endpoints[2 * e + j];
+					if(--degree[n] == 1)
+						for(int k = nodeOffsets[n]; k < nodeOffsets[n + 1]; k++)
+							if(kept[nodeEdges[k]])
+								needDestruction.add(nodeEdges[k]);
+				}
+			}
+		}
+	
+		// Si on a supprimé l'arête d'un triangle, on supprime ce triangle
+		List<int[]> keptTriangles = new ArrayList<int[]>();
+		for(int i = 0; i < oldTriangles.length; i++)
+			if(!removedTriangle[i])
+				keptTriangles.add(new int[] {oldTriangles[i].edges[0].nb, oldTriangles[i].edges[1].nb, oldTriangles[i].edges[2].nb, oldTriangles[i].area});
+		for(NavmeshTriangle t : newTriangles)
+			keptTriangles.add(new int[] {edgeIndices.get(t.edges[0]), edgeIndices.get(t.edges[1]), edgeIndices.get(t.edges[2]), t.area});
+		Iterator<int[]> iterT = keptTriangles.iterator();
+		while(iterT.hasNext())
+		{
+			int[] t = iterT.next();
+			if(!kept[t[0]] || !kept[t[1]] || !kept[t[2]])
+				iterT.remove();
+		}
+	
+		// The disconnected nodes are removed and the rest is numbered again
+		int[] nodeNumbers = new int[positions.size()];
+		int nbNodes = 0;
+		for(int n = 0; n < positions.size(); n++)
+			nodeNumbers[n] = degree[n] == 0 ? -1 : nbNodes++;
+		int[] edgeNumbers = new int[nbEdges];
+		int nbKeptEdges = 0;
+		for(int i = 0; i < nbEdges; i++)
+			edgeNumbers[i] = kept[i] ? nbKeptEdges++ : -1;
+	
+		double[] coordinates = new double[2 * nbNodes];
+		int[] offsets = new int[nbNodes + 1];
+		int[] neighbourNodes = new int[2 * nbKeptEdges];
+		int[] neighbourEdges = new int[2 * nbKeptEdges];
+		int k = 0;
+		for(int n = 0; n < positions.size(); n++)
+			if(nodeNumbers[n] != -1)
+			{
+				coordinates[2 * nodeNumbers[n]] = positions.get(n).getX();
+				coordinates[2 * nodeNumbers[n] + 1] = positions.get(n).getY();
+				offsets[nodeNumbers[n]] = k;
+				for(int j = nodeOffsets[n]; j < nodeOffsets[n + 1]; j++)
+				{
+					int e = nodeEdges[j];
+					if(kept[e])
+					{
+						neighbourNodes[k] = nodeNumbers[endpoints[2 * e] == n ? endpoints[2 * e + 1] : endpoints[2 * e]];
+						neighbourEdges[k] = edgeNumbers[e];
+						k++;
+					}
+				}
+			}
+		offsets[nbNodes] = k;
+		assert k == 2 * nbKeptEdges : k + " " + nbKeptEdges;
+	
+		int[] keptEndpoints = new int[2 * nbKeptEdges];
+		int[] keptLengths = new int[nbKeptEdges];
+		for(int i = 0; i < nbEdges; i++)
+			if(kept[i])
+			{
+				keptEndpoints[2 * edgeNumbers[i]] = nodeNumbers[endpoints[2 * i]];
+				keptEndpoints[2 * edgeNumbers[i] + 1] = nodeNumbers[endpoints[2 * i + 1]];
+				keptLengths[edgeNumbers[i]] = lengths[i];
+			}
+	
+		int[] triangleEdges = new int[3 * keptTriangles.size()];
+		int[] areas = new int[keptTriangles.size()];
+		for(int i = 0; i < keptTriangles.size(); i++)
+		{
+			for(int j = 0; j < 3; j++)
+				triangleEdges[3 * i + j] = edgeNumbers[keptTriangles.get(i)[j]];
+			areas[i] = keptTriangles.get(i)[3];
+		}
+	
+		TriangulatedMesh patched = NavmeshFile.build(DoubleBuffer.wrap(coordinates), IntBuffer.wrap(keptEndpoints), IntBuffer.wrap(keptLengths),
+				new NavmeshGraph(IntBuffer.wrap(offsets), IntBuffer.wrap(neighbourNodes), IntBuffer.wrap(neighbourEdges), IntBuffer.wrap(keptLengths)),
+				IntBuffer.wrap(triangleEdges), IntBuffer.wrap(areas), obs.hashCode(), obstacleHulls);
+	
+		if(!checkNavmesh(patched))
+			return null;
+		return patched;
+	}
+	
+	private static Map<List<XY>, Integer> countHulls(XY[][] hulls)
+	{
+		Map<List<XY>, Integer> out = new HashMap<List<XY>, Integer>();
+		for(XY[] hull : hulls)
+		{
+			Integer nb = out.get(Arrays.asList(hull));
+			out.put(Arrays.asList(hull), nb == null ? 1 : nb + 1);
+		}
+		return out;
+	}
+	
+	private static boolean removeHull(Map<List<XY>, Integer> hulls, XY[] hull)
+	{
+		Integer nb = hulls.get(Arrays.asList(hull));
+		if(nb == null)
+			return false;
+		if(nb == 1)
+			hulls.remove(Arrays.asList(hull));
+		else
+			hulls.put(Arrays.asList(hull), nb - 1);
+		return true;
+	}
+	
+	/**
+	 * Is this position strictly inside a box ?
+	 */
+	private static boolean isInside(List<BoundingBox> boxes, XY position)
+	{
+		for(BoundingBox b : boxes)
+			if(position.getX() > b.getMinX() && position.getX() < b.getMaxX() && position.getY() > b.getMinY() && position.getY() < b.getMaxY())
+				return true;
+		return false;
+	}
+	
+	/**
+	 * Does the bounding box of these nodes intersect a box ?
+	 */
+	private static boolean intersects(List<BoundingBox> boxes, NavmeshNode[] nodes)
+	{
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for(NavmeshNode n : nodes)
+		{
+			minX = Math.min(minX, n.position.getX());
+			minY = Math.min(minY, n.position.getY());
+			maxX = Math.max(maxX, n.position.getX());
+			maxY = Math.max(maxY, n.position.getY());
+		}
+		BoundingBox box = new BoundingBox(minX, minY, maxX, maxY);
+		for(BoundingBox b : boxes)
+			if(b.intersects(box))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * The Delaunay triangulation of the nodes of nodesList (the four first nodes are the corners)
+	 */
+	private void triangulate(NavmeshNode tl, NavmeshNode tr, NavmeshNode br, NavmeshNode bl)
+	{
+		/*
+		 * This is not the fastest algorithm… but it is enough for an off-line computation
+		 * This is a Delaunay triangulation.
+		 */
+		
+		// Initial triangles
+		NavmeshEdge e1 = new NavmeshEdge(tl, tr);
+		edgesInProgress.add(e1);
+		NavmeshEdge e2 = new NavmeshEdge(tr, br);
+		edgesInProgress.add(e2);
+		NavmeshEdge e3 = new NavmeshEdge(br, tl);
+		edgesInProgress.add(e3);
+		NavmeshEdge e4 = new NavmeshEdge(br, bl);
+		edgesInProgress.add(e4);
+		NavmeshEdge e5 = new NavmeshEdge(bl, tl);
+		edgesInProgress.add(e5);
+		triangles.add(new NavmeshTriangle(e1, e2, e3));
+		triangles.add(new NavmeshTriangle(e3, e4, e5));
+		
+		// We add the points one by one
+		for(int index = 4; index < nodesList.size(); index++)
+			addNewNodeInitialization(nodesList.get(index));
+				
+		assert checkDelaunay();
+	}
+	
+	/**
+	 * Adds nodes until the triangles of the queue are small enough
+	 */
+	private void refine()
+	{
+		String s;
+		
+		// We add other points in order to avoid large triangle
+		NavmeshTriangle largestTriangle = triangles.peek();
+		while(largestTriangle != null && largestTriangle.area > largestAllowedArea)
+		{
+			triangles.poll();
+			addCenterPoint(largestTriangle);
+			largestTriangle = triangles.peek();
+		}
+		
+		assert triangles.isEmpty() || triangles.peek().area <= largestAllowedArea : triangles.peek().area + " > " + largestAllowedArea;
+		
+		// We add other points in order to avoir long edges
+		NavmeshEdge longestEdge = edgesInProgress.peek();
+		while(longestEdge != null && longestEdge.length > longestAllowedLength)
+		{
+			assert ((s = checkLongestEdge()) == null) : s;
+			edgesInProgress.poll();
+			assert ((s = checkLongestEdge()) == null) : s;
+			addMiddleEdgePoint(longestEdge);
+			longestEdge = edgesInProgress.peek();
+		}
+		
+		assert edgesInProgress.isEmpty() || edgesInProgress.peek().length <= longestAllowedLength : edgesInProgress.peek().length + " > " + longestAllowedLength;
+		assert triangles.isEmpty() || triangles.peek().area <= largestAllowedArea : triangles.peek().area + " > " + largestAllowedArea;
 	}
 	
 	/**
@@ -598,6 +1195,7 @@ public final class NavmeshComputer
 		edgesInProgress.add(newEdge);
 
 		edge.points[1] = newNode;
+		edge.points[0].updateNeighbours(); // its neighbour has changed
 		assert !edgesInProgress.contains(edge);
 		edge.update();
 		
@@ -641,23 +1239,19 @@ public final class NavmeshComputer
 
 		// first we check if this point is in a triangle
 				
-		NavmeshTriangle tr = null;
+		NavmeshTriangle tr = find(nextNode.position);
 		NavmeshEdge edge = null;
-		for(NavmeshTriangle t : triangles)
-			if(t.isInside(nextNode.position))
-			{
-				tr = t;
-				for(NavmeshEdge e : t.edges)
-					if(e.containsNode(nextNode))
-					{
-						assert edge == null : "The node "+nextNode+" belongs to "+edge+" and "+e+" "+tr;
-						edge = e;
-					}
-				break;
-			}
 		
 		if(tr != null)
 		{
+			for(NavmeshEdge e : tr.edges)
+				if(e.containsNode(nextNode))
+				{
+					assert edge == null : "The node "+nextNode+" belongs to "+edge+" and "+e+" "+tr;
+					edge = e;
+				}
+			lastLocated = tr; // the triangles are never destroyed during the triangulation
+			
 			if(edge == null)
 			{
 				// The node is (strictly) inside a triangle
@@ -717,6 +1311,75 @@ public final class NavmeshComputer
 		flip();
 	}
 	
+	/**
+	 * The triangle that contains a position
+	 * 
+	 * @param position
+	 * @return the triangle, or null if the position is outside the triangles
+	 */
+	private NavmeshTriangle find(XY position)
+	{
+		NavmeshTriangle tr = null;
+		if(indexed)
+			tr = locate(position);
+		if(tr == null)
+			for(NavmeshTriangle t : triangles)
+				if(t.isInside(position))
+				{
+					tr = t;
+					break;
+				}
+		return tr;
+	}
+	
+	/**
+	 * Finds the triangle that contains a position by walking from the last located triangle : from a triangle, we go to
+	 * the neighbour triangle behind the edge that separates the triangle from the position.
+	 * The points are added obstacle by obstacle, in the order of their convex hull, so the walks are short.
+	 * 
+	 * @param position
+	 * @return the triangle, or null if the walk fails (the position is then searched in all the triangles)
+	 */
+	private NavmeshTriangle locate(XY position)
+	{
+		NavmeshTriangle t = lastLocated;
+		if(t == null || !triangles.contains(t))
+			t = triangles.peek();
+		
+		int nbTriangles = triangles.size();
+		for(int step = 0; step < nbTriangles; step++)
+		{
+			NavmeshTriangle next = null;
+			for(NavmeshEdge e : t.edges)
+			{
+				NavmeshNode opposite = null;
+				for(NavmeshNode n : t.points)
+					if(n != e.points[0] && n != e.points[1])
+						opposite = n;
+				XY a = e.points[0].position, b = e.points[1].position;
+				double sidePosition = crossProduct(a, b, position);
+				double sideOpposite = crossProduct(a, b, opposite.position);
+				if(sidePosition * sideOpposite < 0)
+				{
+					// the position is behind this edge
+					if(e.nbTriangles < 2)
+						return null;
+					next = e.triangles[0] == t ? e.triangles[1] : e.triangles[0];
+					break;
+				}
+			}
+			if(next == null)
+				return t.isInside(position) ? t : null;
+			t = next;
+		}
+		return null;
+	}
+	
+	private static double crossProduct(XY a, XY b, XY c)
+	{
+		return (b.getX() - a.getX()) * (c.getY() - a.getY()) - (b.getY() - a.getY()) * (c.getX() - a.getX());
+	}
+	
 	private String checkNoDuplicate()
 	{
 		for(int i = 0; i < nodesList.size(); i++)
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.dstarlite.navmesh;
+
+import java.io.IOException;
+
+/**
+ * Converts a navmesh (serialized by a previous version or already in the binary format) into the binary format
+ * of NavmeshFile. The hash code of the obstacles is kept, so the converted navmesh is still used by Kraken.
+ * The obstacles of a serialized navmesh are unknown, so it will be generated again (and not patched) if they change.
+ *
+ * @author pf
+ *
+ */
+
+public final class NavmeshConverter
+{
+	private NavmeshConverter()
+	{}
+
+	public static void main(String[] args) throws IOException, ClassNotFoundException
+	{
+		if(args.length != 1 && args.length != 2)
+		{
+			System.out.println("Usage : NavmeshConverter input [output]");
+			System.out.println("The input is overwritten if no output is given");
+		}
+		else
+		{
+			String output = args.length == 2 ? args[1] : args[0];
+			TriangulatedMesh mesh = TriangulatedMesh.loadNavMesh(args[0]);
+			mesh.saveNavMesh(output);
+			System.out.println("Navmesh (" + mesh.nodes.length + " nodes, " + mesh.edges.length + " edges, " + mesh.triangles.length + " triangles) saved into " + output);
+		}
+	}
+}
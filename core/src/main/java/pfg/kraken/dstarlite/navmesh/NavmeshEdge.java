@@ -7,14 +7,10 @@ package pfg.kraken.dstarlite.navmesh;
 
 import java.awt.Graphics;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
 
 import pfg.graphic.GraphicPanel;
 import pfg.graphic.printable.Printable;
 import pfg.kraken.ColorKraken;
-import pfg.kraken.obstacles.Obstacle;
 import pfg.kraken.utils.XY;
 import pfg.kraken.utils.XY_RW;
 
@@ -25,18 +21,19 @@ import pfg.kraken.utils.XY_RW;
  *
  */
 
-public final class NavmeshEdge implements Serializable, Printable
+public final class NavmeshEdge implements Serializable, Printable, NavmeshQueue.Element
 {
 	private static final long serialVersionUID = 7904466980326128967L;
 	int length;
-	int nb;
+	public int nb; // index in the mesh
 	private double orientation;
 	public transient NavmeshNode[] points = new NavmeshNode[2];
 	public final int[] pointsNb = new int[2];
 	final transient NavmeshTriangle[] triangles = new NavmeshTriangle[2]; // transient because it is used only at the building of the navmesh
 	int nbTriangles = 0;
 	private boolean highlight = false;
-	final List<Obstacle> obstructingObstacles = new ArrayList<Obstacle>();
+	private transient int indexQueue = -1; // index in the queue of the navmesh generation
+	transient boolean constrained = false; // an edge kept by a patch of the navmesh can't be flipped
 	
 	public void prepareToSave()
 	{
@@ -119,6 +116,21 @@ public final class NavmeshEdge implements Serializable, Printable
 		update();
 	}
 	
+	/**
+	 * An edge of a navmesh file : its nodes are given by loadFromSave
+	 * @param nb
+	 * @param point0
+	 * @param point1
+	 * @param length
+	 */
+	NavmeshEdge(int nb, int point0, int point1, int length)
+	{
+		this.nb = nb;
+		pointsNb[0] = point0;
+		pointsNb[1] = point1;
+		this.length = length;
+	}
+	
 	public void updateOrientation()
 	{
 		orientation = Math.atan2(points[1].position.getY() - points[0].position.getY(), points[1].position.getX() - points[0].position.getX());		
@@ -178,33 +190,24 @@ public final class NavmeshEdge implements Serializable, Printable
 		assert checkNbTriangles();
 	}
 	
-	/**
-	 * Update the "blocked" state
-	 * @param currentList
-	 */
-	public void updateState(List<Obstacle> currentList)
-	{
-		// Add the new obstacles that collide the edge  
-		for(Obstacle o : currentList)
-			if(!obstructingObstacles.contains(o) && o.isColliding(points[0].position, points[1].position))
-				obstructingObstacles.add(o);
-		
-		// Remove the obstacles that are *absent* from the list or the obstacles that moved (not colliding anymore)
-		Iterator<Obstacle> iter = obstructingObstacles.iterator();
-		while(iter.hasNext())
-		{
-			Obstacle o = iter.next();
-			if(!currentList.contains(o) || !o.isColliding(points[0].position, points[1].position))
-				iter.remove();
-		}
-	}
-	
 	@Override
 	public int hashCode()
 	{
 		return (8 * points[0].nb + 7) * (8 * points[1].nb + 7);
 	}
 
+	@Override
+	public int getIndexQueue()
+	{
+		return indexQueue;
+	}
+
+	@Override
+	public void setIndexQueue(int index)
+	{
+		indexQueue = index;
+	}
+
 	@Override
 	public boolean equals(Object d)
 	{
@@ -266,7 +269,7 @@ public final class NavmeshEdge implements Serializable, Printable
 	
 	private boolean flip(boolean force)
 	{
-		if(nbTriangles < 2)
+		if(nbTriangles < 2 || constrained)
 			return false;
 				
 		NavmeshTriangle tr0 = triangles[0];
@@ -381,34 +384,20 @@ public final class NavmeshEdge implements Serializable, Printable
 	}
 
 	/**
-	 * Returns the distance of the edge.
-	 * If the edge is blocked, returns infinity
+	 * Returns the distance of the edge, without the dynamic obstacles
+	 * (the D* Lite knows whether it is blocked)
 	 * @return
 	 */
-	public int getDistance()
-	{
-		if(!obstructingObstacles.isEmpty())
-			return Integer.MAX_VALUE;
-		return length;
-	}
-	
 	public int getUnblockedDistance()
 	{
 		return length;
 	}
 
-	public boolean isBlocked()
-	{
-		return !obstructingObstacles.isEmpty();
-	}
-
 	@Override
 	public void print(Graphics g, GraphicPanel f)
 	{
 		if(highlight)
 			g.setColor(ColorKraken.RED.color);
-		else if(isBlocked())
-			g.setColor(ColorKraken.NAVMESH_BLOCKED.color);
 		g.drawLine(f.XtoWindow(points[0].position.getX()), f.YtoWindow(points[0].position.getY()), f.XtoWindow(points[1].position.getX()), f.YtoWindow(points[1].position.getY()));
 	}
 
@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.dstarlite.navmesh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import pfg.kraken.utils.ArtifactCache;
+import pfg.kraken.utils.XY;
+
+/**
+ * The binary format of the navmesh. All the values are little-endian :
+ * - the header : magic number, version, hash code of the obstacles, number of nodes, of edges and of triangles (int)
+ * - the coordinates of the nodes (x and y, double)
+ * - the two nodes of each edge, then the length of each edge (int)
+ * - the graph in compressed sparse rows : the offsets of the nodes, the neighbour nodes, the neighbour edges (int)
+ * - the three edges of each triangle, then the area of each triangle (int)
+ * - since the version 2 : the number of static obstacles (int, -1 if unknown), then for each obstacle the number of
+ * points of its convex hull (int) and their coordinates (x and y, double). They are used to patch the navmesh.
+ * - the CRC32 of everything above (long)
+ * The file can be memory-mapped : the D* Lite reads the graph from the mapped file. So the file is replaced, never
+ * rewritten in place (see ArtifactCache.write).
+ * The version 1 (without the obstacles) can still be read.
+ *
+ * @author pf
+ *
+ */
+
+final class NavmeshFile
+{
+	static final int MAGIC = 0x4D4E524B; // "KRNM" in little-endian
+	static final int VERSION = 2;
+	private static final int HEADER_SIZE = 6 * 4;
+
+	private NavmeshFile()
+	{}
+
+	/**
+	 * Is it a navmesh in this format (and not a serialized one) ?
+	 *
+	 * @param buffer
+	 * @return
+	 */
+	static boolean isNavmeshFile(ByteBuffer buffer)
+	{
+		return buffer.limit() >= 4 && buffer.order(ByteOrder.LITTLE_ENDIAN).getInt(0) == MAGIC;
+	}
+
+	/**
+	 * Reads a navmesh. The graph is a view of the buffer.
+	 *
+	 * @param buffer
+	 * @return
+	 * @throws IOException
+	 */
+	static TriangulatedMesh read(ByteBuffer buffer) throws IOException
+	{
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if(buffer.limit() < HEADER_SIZE + 8 || buffer.getInt(0) != MAGIC)
+			throw new IOException("Not a navmesh file");
+		int version = buffer.getInt(4);
+		if(version != 1 && version != VERSION)
+			throw new IOException("Unknown navmesh version : " + version);
+
+		CRC32 crc = new CRC32();
+		ByteBuffer content = buffer.duplicate();
+		content.position(0).limit(buffer.limit() - 8);
+		crc.update(content);
+		if(crc.getValue() != buffer.getLong(buffer.limit() - 8))
+			throw new IOException("Corrupted navmesh (wrong checksum)");
+
+		int obsHashCode = buffer.getInt(8);
+		int nbNodes = buffer.getInt(12);
+		int nbEdges = buffer.getInt(16);
+		int nbTriangles = buffer.getInt(20);
+		int size = getSize(nbNodes, nbEdges, nbTriangles);
+		if(version == 1 ? buffer.limit() != size : buffer.limit() < size + 4)
+			throw new IOException("Corrupted navmesh (wrong size)");
+
+		int position = HEADER_SIZE;
+		DoubleBuffer coordinates = slice(buffer, position, 2 * nbNodes * 8).asDoubleBuffer();
+		position += 2 * nbNodes * 8;
+		IntBuffer endpoints = intSlice(buffer, position, 2 * nbEdges);
+		position += 2 * nbEdges * 4;
+		IntBuffer lengths = intSlice(buffer, position, nbEdges);
+		position += nbEdges * 4;
+		IntBuffer offsets = intSlice(buffer, position, nbNodes + 1);
+		position += (nbNodes + 1) * 4;
+		IntBuffer neighbourNodes = intSlice(buffer, position, 2 * nbEdges);
+		position += 2 * nbEdges * 4;
+		IntBuffer neighbourEdges = intSlice(buffer, position, 2 * nbEdges);
+		position += 2 * nbEdges * 4;
+		IntBuffer triangleEdges = intSlice(buffer, position, 3 * nbTriangles);
+		position += 3 * nbTriangles * 4;
+		IntBuffer areas = intSlice(buffer, position, nbTriangles);
+		position += nbTriangles * 4;
+
+		XY[][] obstacleHulls = null;
+		if(version > 1)
+		{
+			int nbObstacles = buffer.getInt(position);
+			position += 4;
+			if(nbObstacles > (buffer.limit() - 8 - position) / 4)
+				throw new IOException("Corrupted navmesh (wrong size)");
+			if(nbObstacles >= 0)
+			{
+				obstacleHulls = new XY[nbObstacles][];
+				for(int i = 0; i < nbObstacles; i++)
+				{
+					int nbPoints = buffer.getInt(position);
+					position += 4;
+					if(nbPoints < 0 || position + nbPoints * 16L > buffer.limit() - 8)
+						throw new IOException("Corrupted navmesh (wrong size)");
+					obstacleHulls[i] = new XY[nbPoints];
+					for(int j = 0; j < nbPoints; j++)
+					{
+						obstacleHulls[i][j] = new XY(buffer.getDouble(position), buffer.getDouble(position + 8));
+						position += 16;
+					}
+				}
+			}
+			if(position != buffer.limit() - 8)
+				throw new IOException("Corrupted navmesh (wrong size)");
+		}
+
+		return build(coordinates, endpoints, lengths, new NavmeshGraph(offsets, neighbourNodes, neighbourEdges, lengths), triangleEdges, areas, obsHashCode, obstacleHulls);
+	}
+
+	/**
+	 * Builds the objects of a navmesh from its arrays (read from a file or computed by a patch)
+	 *
+	 * @return
+	 */
+	static TriangulatedMesh build(DoubleBuffer coordinates, IntBuffer endpoints, IntBuffer lengths, NavmeshGraph graph, IntBuffer triangleEdges, IntBuffer areas, int obsHashCode, XY[][] obstacleHulls)
+	{
+		int nbNodes = graph.getNbNodes();
+		int nbEdges = graph.getNbEdges();
+		int nbTriangles = areas.limit();
+
+		NavmeshNode[] nodes = new NavmeshNode[nbNodes];
+		for(int i = 0; i < nbNodes; i++)
+			nodes[i] = new NavmeshNode(i, new XY(coordinates.get(2 * i), coordinates.get(2 * i + 1)));
+
+		NavmeshEdge[] edges = new NavmeshEdge[nbEdges];
+		for(int i = 0; i < nbEdges; i++)
+		{
+			edges[i] = new NavmeshEdge(i, endpoints.get(2 * i), endpoints.get(2 * i + 1), lengths.get(i));
+			edges[i].loadFromSave(nodes);
+			edges[i].updateOrientation();
+		}
+
+		for(NavmeshNode n : nodes)
+			n.loadFromGraph(edges, graph);
+
+		NavmeshTriangle[] triangles = new NavmeshTriangle[nbTriangles];
+		for(int i = 0; i < nbTriangles; i++)
+		{
+			triangles[i] = new NavmeshTriangle(triangleEdges.get(3 * i), triangleEdges.get(3 * i + 1), triangleEdges.get(3 * i + 2), areas.get(i));
+			triangles[i].loadFromSave(edges);
+		}
+
+		return new TriangulatedMesh(nodes, edges, triangles, obsHashCode, graph, obstacleHulls);
+	}
+
+	/**
+	 * Reads a navmesh file through a memory mapping
+	 *
+	 * @param filename
+	 * @return
+	 * @throws IOException
+	 */
+	static ByteBuffer map(String filename) throws IOException
+	{
+		try(FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ))
+		{
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	static void write(TriangulatedMesh mesh, String filename) throws IOException
+	{
+		NavmeshNode[] nodes = mesh.nodes;
+		NavmeshEdge[] edges = mesh.edges;
+		NavmeshTriangle[] triangles = mesh.triangles;
+		NavmeshGraph graph = mesh.getGraph();
+
+		XY[][] obstacleHulls = mesh.obstacleHulls;
+		int size = getSize(nodes.length, edges.length, triangles.length) + 4;
+		if(obstacleHulls != null)
+			for(XY[] hull : obstacleHulls)
+				size += 4 + hull.length * 16;
+
+		ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(mesh.obsHashCode);
+		buffer.putInt(nodes.length).putInt(edges.length).putInt(triangles.length);
+
+		for(NavmeshNode n : nodes)
+			buffer.putDouble(n.position.getX()).putDouble(n.position.getY());
+		for(NavmeshEdge e : edges)
+			buffer.putInt(e.points[0].nb).putInt(e.points[1].nb);
+		for(NavmeshEdge e : edges)
+			buffer.putInt(e.getUnblockedDistance());
+		for(int n = 0; n <= nodes.length; n++)
+			buffer.putInt(n == nodes.length ? graph.getEndNeighbour(n - 1) : graph.getFirstNeighbour(n));
+		for(int k = 0; k < 2 * edges.length; k++)
+			buffer.putInt(graph.getNeighbourNode(k));
+		for(int k = 0; k < 2 * edges.length; k++)
+			buffer.putInt(graph.getNeighbourEdge(k));
+		for(NavmeshTriangle t : triangles)
+			for(int i = 0; i < 3; i++)
+				buffer.putInt(t.edges[i].nb);
+		for(NavmeshTriangle t : triangles)
+			buffer.putInt(t.area);
+		if(obstacleHulls == null)
+			buffer.putInt(-1);
+		else
+		{
+			buffer.putInt(obstacleHulls.length);
+			for(XY[] hull : obstacleHulls)
+			{
+				buffer.putInt(hull.length);
+				for(XY p : hull)
+					buffer.putDouble(p.getX()).putDouble(p.getY());
+			}
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, buffer.position());
+		buffer.putLong(crc.getValue());
+		assert !buffer.hasRemaining();
+
+		buffer.flip();
+		ArtifactCache.write(filename, buffer);
+	}
+
+	private static int getSize(int nbNodes, int nbEdges, int nbTriangles)
+	{
+		return HEADER_SIZE + 2 * nbNodes * 8 + (2 * nbEdges + nbEdges + nbNodes + 1 + 4 * nbEdges + 4 * nbTriangles) * 4 + 8;
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int position, int size)
+	{
+		ByteBuffer out = buffer.duplicate();
+		out.position(position).limit(position + size);
+		return out.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static IntBuffer intSlice(ByteBuffer buffer, int position, int nb)
+	{
+		return slice(buffer, position, nb * 4).asIntBuffer();
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.dstarlite.navmesh;
+
+import java.nio.IntBuffer;
+
+/**
+ * The graph of the navmesh in compressed sparse rows, read by the D* Lite.
+ * The neighbours of the node n are at the indices getFirstNeighbour(n) to getEndNeighbour(n) - 1, in the
+ * same order as NavmeshNode.getNeighbour. The buffers are either arrays or views of the memory-mapped
+ * navmesh file (see NavmeshFile).
+ *
+ * @author pf
+ *
+ */
+
+public final class NavmeshGraph
+{
+	private final IntBuffer offsets; // nbNodes + 1
+	private final IntBuffer neighbourNodes; // 2 * nbEdges
+	private final IntBuffer neighbourEdges; // 2 * nbEdges
+	private final IntBuffer lengths; // nbEdges, in μm
+
+	NavmeshGraph(IntBuffer offsets, IntBuffer neighbourNodes, IntBuffer neighbourEdges, IntBuffer lengths)
+	{
+		this.offsets = offsets;
+		this.neighbourNodes = neighbourNodes;
+		this.neighbourEdges = neighbourEdges;
+		this.lengths = lengths;
+	}
+
+	/**
+	 * The graph of the nodes (and their edges) of a navmesh
+	 *
+	 * @param nodes
+	 * @param edges
+	 * @return
+	 */
+	static NavmeshGraph build(NavmeshNode[] nodes, NavmeshEdge[] edges)
+	{
+		int[] offsets = new int[nodes.length + 1];
+		int[] neighbourNodes = new int[2 * edges.length];
+		int[] neighbourEdges = new int[2 * edges.length];
+		int[] lengths = new int[edges.length];
+
+		int k = 0;
+		for(int n = 0; n < nodes.length; n++)
+		{
+			assert nodes[n].nb == n;
+			offsets[n] = k;
+			for(int i = 0; i < nodes[n].getNbNeighbours(); i++)
+			{
+				neighbourNodes[k] = nodes[n].getNeighbour(i).nb;
+				neighbourEdges[k] = nodes[n].getNeighbourEdge(i).nb;
+				k++;
+			}
+		}
+		offsets[nodes.length] = k;
+		assert k == 2 * edges.length : k + " " + edges.length;
+
+		for(NavmeshEdge e : edges)
+			lengths[e.nb] = e.getUnblockedDistance();
+
+		return new NavmeshGraph(IntBuffer.wrap(offsets), IntBuffer.wrap(neighbourNodes), IntBuffer.wrap(neighbourEdges), IntBuffer.wrap(lengths));
+	}
+
+	public int getNbNodes()
+	{
+		return offsets.limit() - 1;
+	}
+
+	public int getNbEdges()
+	{
+		return lengths.limit();
+	}
+
+	public int getFirstNeighbour(int node)
+	{
+		return offsets.get(node);
+	}
+
+	public int getEndNeighbour(int node)
+	{
+		return offsets.get(node + 1);
+	}
+
+	/**
+	 * The node at the other end of the k-th adjacency
+	 *
+	 * @param k
+	 * @return
+	 */
+	public int getNeighbourNode(int k)
+	{
+		return neighbourNodes.get(k);
+	}
+
+	/**
+	 * The edge of the k-th adjacency
+	 *
+	 * @param k
+	 * @return
+	 */
+	public int getNeighbourEdge(int k)
+	{
+		return neighbourEdges.get(k);
+	}
+
+	/**
+	 * The length of an edge, without the dynamic obstacles
+	 *
+	 * @param edge
+	 * @return
+	 */
+	public int getLength(int edge)
+	{
+		return lengths.get(edge);
+	}
+}
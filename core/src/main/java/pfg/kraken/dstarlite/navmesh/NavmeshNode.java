@@ -48,6 +48,20 @@ public final class NavmeshNode implements Printable, Serializable
 		updateNeighbours();
 	}
 	
+	/**
+	 * The edges of a node of a navmesh file, in the order of the graph
+	 * 
+	 * @param allEdges
+	 * @param graph
+	 */
+	void loadFromGraph(NavmeshEdge[] allEdges, NavmeshGraph graph)
+	{
+		edgesNb.clear();
+		for(int k = graph.getFirstNeighbour(nb); k < graph.getEndNeighbour(nb); k++)
+			edgesNb.add(graph.getNeighbourEdge(k));
+		loadFromSave(allEdges);
+	}
+	
 	public void addEdge(NavmeshEdge e)
 	{
 		assert !edges.contains(e) : "Can't add an edge already added";
@@ -74,6 +88,18 @@ public final class NavmeshNode implements Printable, Serializable
 //		neighbourInConvexHull = null;
 	}
 	
+	/**
+	 * A node of a navmesh file
+	 * 
+	 * @param nb
+	 * @param position
+	 */
+	NavmeshNode(int nb, XY position)
+	{
+		this.position = position;
+		this.nb = nb;
+	}
+	
 /*	NavmeshNode(XY position, NavmeshNode neighbourInConvexHull)
 	{
 		this.position = position;
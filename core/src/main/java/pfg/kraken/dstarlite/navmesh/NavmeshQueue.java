@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.dstarlite.navmesh;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The binary heap of java.util.PriorityQueue, with the index of each element kept in the element : remove and
+ * contains are in O(log n) and O(1) instead of O(n).
+ * The elements are moved exactly as in java.util.PriorityQueue (including the removals of the iterator), so the
+ * generated navmesh doesn't depend on the queue.
+ * The elements are compared by identity.
+ *
+ * @author pf
+ *
+ */
+
+final class NavmeshQueue<T extends NavmeshQueue.Element> extends AbstractQueue<T>
+{
+	/**
+	 * An element that knows its index in the queue
+	 *
+	 * @author pf
+	 *
+	 */
+	interface Element
+	{
+		int getIndexQueue();
+
+		void setIndexQueue(int index);
+	}
+
+	private Object[] queue;
+	private int size = 0;
+	private final Comparator<? super T> comparator;
+
+	NavmeshQueue(int initialCapacity, Comparator<? super T> comparator)
+	{
+		queue = new Object[initialCapacity];
+		this.comparator = comparator;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T get(int i)
+	{
+		return (T) queue[i];
+	}
+
+	private void set(int i, T e)
+	{
+		queue[i] = e;
+		e.setIndexQueue(i);
+	}
+
+	@Override
+	public boolean offer(T e)
+	{
+		if(e == null)
+			throw new NullPointerException();
+		if(size == queue.length)
+			queue = Arrays.copyOf(queue, 2 * queue.length + 2);
+		int i = size++;
+		siftUp(i, e);
+		return true;
+	}
+
+	@Override
+	public T poll()
+	{
+		if(size == 0)
+			return null;
+		T result = get(0);
+		int n = --size;
+		T x = get(n);
+		queue[n] = null;
+		if(n > 0)
+			siftDown(0, x);
+		result.setIndexQueue(-1);
+		return result;
+	}
+
+	@Override
+	public T peek()
+	{
+		return size == 0 ? null : get(0);
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public boolean contains(Object o)
+	{
+		if(!(o instanceof Element))
+			return false;
+		int i = ((Element) o).getIndexQueue();
+		return i >= 0 && i < size && queue[i] == o;
+	}
+
+	@Override
+	public boolean remove(Object o)
+	{
+		if(!contains(o))
+			return false;
+		removeAt(((Element) o).getIndexQueue());
+		return true;
+	}
+
+	/**
+	 * Removes the i-th element. Returns the last element if it has been moved before i, null otherwise.
+	 *
+	 * @param i
+	 * @return
+	 */
+	private T removeAt(int i)
+	{
+		get(i).setIndexQueue(-1);
+		int s = --size;
+		if(s == i)
+			queue[i] = null;
+		else
+		{
+			T moved = get(s);
+			queue[s] = null;
+			siftDown(i, moved);
+			if(queue[i] == moved)
+			{
+				siftUp(i, moved);
+				if(queue[i] != moved)
+					return moved;
+			}
+		}
+		return null;
+	}
+
+	private void siftUp(int k, T x)
+	{
+		while(k > 0)
+		{
+			int parent = (k - 1) >>> 1;
+			T e = get(parent);
+			if(comparator.compare(x, e) >= 0)
+				break;
+			set(k, e);
+			k = parent;
+		}
+		set(k, x);
+	}
+
+	private void siftDown(int k, T x)
+	{
+		int half = size >>> 1;
+		while(k < half)
+		{
+			int child = (k << 1) + 1;
+			T c = get(child);
+			int right = child + 1;
+			if(right < size && comparator.compare(c, get(right)) > 0)
+				c = get(child = right);
+			if(comparator.compare(x, c) <= 0)
+				break;
+			set(k, c);
+			k = child;
+		}
+		set(k, x);
+	}
+
+	@Override
+	public Iterator<T> iterator()
+	{
+		return new Itr();
+	}
+
+	/**
+	 * The iterator of java.util.PriorityQueue : the elements moved before the cursor by a removal are returned at the end
+	 *
+	 * @author pf
+	 *
+	 */
+	private final class Itr implements Iterator<T>
+	{
+		private int cursor = 0;
+		private int lastRet = -1;
+		private ArrayDeque<T> forgetMeNot = null;
+		private T lastRetElt = null;
+
+		@Override
+		public boolean hasNext()
+		{
+			return cursor < size || (forgetMeNot != null && !forgetMeNot.isEmpty());
+		}
+
+		@Override
+		public T next()
+		{
+			if(cursor < size)
+				return get(lastRet = cursor++);
+			if(forgetMeNot != null)
+			{
+				lastRet = -1;
+				lastRetElt = forgetMeNot.poll();
+				if(lastRetElt != null)
+					return lastRetElt;
+			}
+			throw new NoSuchElementException();
+		}
+
+		@Override
+		public void remove()
+		{
+			if(lastRet != -1)
+			{
+				T moved = removeAt(lastRet);
+				lastRet = -1;
+				if(moved == null)
+					cursor--;
+				else
+				{
+					if(forgetMeNot == null)
+						forgetMeNot = new ArrayDeque<T>();
+					forgetMeNot.add(moved);
+				}
+			}
+			else if(lastRetElt != null)
+			{
+				NavmeshQueue.this.remove(lastRetElt);
+				lastRetElt = null;
+			}
+			else
+				throw new IllegalStateException();
+		}
+	}
+}
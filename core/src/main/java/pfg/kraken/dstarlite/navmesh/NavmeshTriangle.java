@@ -18,19 +18,31 @@ import pfg.kraken.utils.XY;
  *
  */
 
-public final class NavmeshTriangle implements Serializable, Printable
+public final class NavmeshTriangle implements Serializable, Printable, NavmeshQueue.Element
 {
 	private static final long serialVersionUID = 1L;
 	transient NavmeshNode[] points = new NavmeshNode[3];
 	transient NavmeshEdge[] edges = new NavmeshEdge[3];
 	int[] edgesNb = new int[3];
 	int area;
+	private transient int indexQueue = -1; // index in the queue of the navmesh generation
 	
 	NavmeshTriangle(NavmeshEdge a, NavmeshEdge b, NavmeshEdge c)
 	{
 		setEdges(a, b, c);
 	}
 	
+	/**
+	 * A triangle of a navmesh file : its edges are given by loadFromSave
+	 */
+	NavmeshTriangle(int a, int b, int c, int area)
+	{
+		edgesNb[0] = a;
+		edgesNb[1] = b;
+		edgesNb[2] = c;
+		this.area = area;
+	}
+	
 	public void prepareToSave()
 	{
 		for(int i = 0; i < 3; i++)
@@ -242,6 +254,18 @@ public final class NavmeshTriangle implements Serializable, Printable
 				3);
 	}
 	
+	@Override
+	public int getIndexQueue()
+	{
+		return indexQueue;
+	}
+
+	@Override
+	public void setIndexQueue(int index)
+	{
+		indexQueue = index;
+	}
+
 	@Override
 	public boolean equals(Object o)
 	{
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.dstarlite.navmesh;
+
+import java.io.Serializable;
+import pfg.kraken.utils.XY;
+
+/**
+ * A uniform grid over the nodes of the navmesh, to find the nearest node without testing all of them.
+ * The cells are searched ring by ring around the position, until no unvisited cell can contain a nearer node.
+ * It gives exactly the same node as a linear scan (in case of tie, the node with the lowest index).
+ * It is saved with the navmesh.
+ * 
+ * @author pf
+ *
+ */
+
+final class NodeGrid implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+	
+	private static final int NODES_PER_CELL = 2;
+	
+	private final double minX, minY, cellSize;
+	private final int nbX, nbY;
+	private final int[] cellStart; // the nodes of the cell c are entries[cellStart[c]] to entries[cellStart[c+1] - 1]
+	private final int[] entries; // the indices of the nodes, in increasing order in each cell
+	
+	NodeGrid(NavmeshNode[] nodes)
+	{
+		assert nodes.length > 0;
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for(NavmeshNode n : nodes)
+		{
+			minX = Math.min(minX, n.position.getX());
+			minY = Math.min(minY, n.position.getY());
+			maxX = Math.max(maxX, n.position.getX());
+			maxY = Math.max(maxY, n.position.getY());
+		}
+		this.minX = minX;
+		this.minY = minY;
+		
+		// about NODES_PER_CELL nodes per cell if the nodes are uniformly spread
+		double area = Math.max(maxX - minX, 1) * Math.max(maxY - minY, 1);
+		cellSize = Math.max(Math.sqrt(area * NODES_PER_CELL / nodes.length), 1);
+		nbX = (int) ((maxX - minX) / cellSize) + 1;
+		nbY = (int) ((maxY - minY) / cellSize) + 1;
+		
+		cellStart = new int[nbX * nbY + 1];
+		for(NavmeshNode n : nodes)
+			cellStart[cell(n.position) + 1]++;
+		for(int c = 0; c < nbX * nbY; c++)
+			cellStart[c + 1] += cellStart[c];
+		
+		entries = new int[nodes.length];
+		int[] next = new int[nbX * nbY];
+		System.arraycopy(cellStart, 0, next, 0, next.length);
+		for(int i = 0; i < nodes.length; i++)
+			entries[next[cell(nodes[i].position)]++] = i;
+	}
+	
+	private int cellX(double x)
+	{
+		return Math.min(Math.max((int) Math.floor((x - minX) / cellSize), 0), nbX - 1);
+	}
+	
+	private int cellY(double y)
+	{
+		return Math.min(Math.max((int) Math.floor((y - minY) / cellSize), 0), nbY - 1);
+	}
+	
+	private int cell(XY position)
+	{
+		return cellX(position.getX()) + nbX * cellY(position.getY());
+	}
+	
+	/**
+	 * The nearest node of this position
+	 * 
+	 * @param position
+	 * @param nodes : the nodes used to build this grid
+	 * @return
+	 */
+	NavmeshNode getNearest(XY position, NavmeshNode[] nodes)
+	{
+		int cx = cellX(position.getX()), cy = cellY(position.getY());
+		int best = -1;
+		double smallestDistance = 0;
+		
+		for(int r = 0;; r++)
+		{
+			int minCX = cx - r, maxCX = cx + r, minCY = cy - r, maxCY = cy + r;
+			for(int j = Math.max(minCY, 0); j <= Math.min(maxCY, nbY - 1); j++)
+			{
+				boolean border = j == minCY || j == maxCY;
+				// only the cells of the ring r
+				for(int i = border ? Math.max(minCX, 0) : minCX; i <= Math.min(maxCX, nbX - 1); i += border ? 1 : maxCX - minCX)
+				{
+					if(i < 0)
+						continue;
+					int c = i + nbX * j;
+					for(int e = cellStart[c]; e < cellStart[c + 1]; e++)
+					{
+						int k = entries[e];
+						double candidateDistance = position.squaredDistance(nodes[k].position);
+						if(best < 0 || candidateDistance < smallestDistance || (candidateDistance == smallestDistance && k < best))
+						{
+							best = k;
+							smallestDistance = candidateDistance;
+						}
+					}
+				}
+			}
+			
+			boolean left = minCX <= 0, right = maxCX >= nbX - 1, bottom = minCY <= 0, top = maxCY >= nbY - 1;
+			if(left && right && bottom && top)
+				break; // the whole grid has been searched
+			
+			if(best >= 0)
+			{
+				// the distance from the position to the cells that haven't been searched yet
+				double bound = Double.POSITIVE_INFINITY;
+				if(!left)
+					bound = Math.min(bound, position.getX() - (minX + minCX * cellSize));
+				if(!right)
+					bound = Math.min(bound, minX + (maxCX + 1) * cellSize - position.getX());
+				if(!bottom)
+					bound = Math.min(bound, position.getY() - (minY + minCY * cellSize));
+				if(!top)
+					bound = Math.min(bound, minY + (maxCY + 1) * cellSize - position.getY());
+				if(bound > 0 && smallestDistance < bound * bound)
+					break;
+			}
+		}
+		
+		assert best >= 0;
+		return nodes[best];
+	}
+}
@@ -6,18 +6,18 @@
 package pfg.kraken.dstarlite.navmesh;
 
 import java.awt.Color;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 
 import pfg.graphic.GraphicDisplay;
 import pfg.graphic.printable.Layer;
 import pfg.kraken.ColorKraken;
+import pfg.kraken.utils.XY;
 
 /**
  * The mesh itself
@@ -32,21 +32,94 @@ public final class TriangulatedMesh implements Serializable
 	public final NavmeshNode[] nodes;
 	public final NavmeshEdge[] edges;
 	public final NavmeshTriangle[] triangles;
+	private NodeGrid grid; // null in the navmeshes saved before the grid
+	private transient NavmeshGraph graph;
+	transient XY[][] obstacleHulls; // the convex hulls of the static obstacles, null if unknown (the navmesh can't be patched)
 	
 	public TriangulatedMesh(NavmeshNode[] nodes, NavmeshEdge[] edges, NavmeshTriangle[] triangles, int obsHashCode)
+	{
+		this(nodes, edges, triangles, obsHashCode, NavmeshGraph.build(nodes, edges), null);
+	}
+	
+	TriangulatedMesh(NavmeshNode[] nodes, NavmeshEdge[] edges, NavmeshTriangle[] triangles, int obsHashCode, NavmeshGraph graph, XY[][] obstacleHulls)
 	{
 		this.nodes = nodes;
 		this.edges = edges;
 		this.triangles = triangles;
 		this.obsHashCode = obsHashCode;
+		this.graph = graph;
+		this.obstacleHulls = obstacleHulls;
+		grid = new NodeGrid(nodes);
+	}
+	
+	/**
+	 * The graph read by the D* Lite
+	 * 
+	 * @return
+	 */
+	public NavmeshGraph getGraph()
+	{
+		return graph;
+	}
+	
+	/**
+	 * The nearest node of a position
+	 * 
+	 * @param position
+	 * @return
+	 */
+	public NavmeshNode getNearest(XY position)
+	{
+		return grid.getNearest(position, nodes);
 	}
 
+	/**
+	 * Loads a navmesh from the classpath or from a file. A file is memory-mapped.
+	 * The navmeshes serialized by the previous versions can still be loaded.
+	 * 
+	 * @param filename
+	 * @return
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
 	public static TriangulatedMesh loadNavMesh(String filename) throws IOException, ClassNotFoundException
 	{
+		ByteBuffer buffer;
 		InputStream is = TriangulatedMesh.class.getResourceAsStream(filename);
-		if(is == null)
-			is = new FileInputStream(filename);
-		ObjectInputStream ois = new ObjectInputStream(is);
+		if(is != null)
+			buffer = ByteBuffer.wrap(readAll(is));
+		else
+			buffer = NavmeshFile.map(filename);
+		
+		if(NavmeshFile.isNavmeshFile(buffer))
+			return NavmeshFile.read(buffer);
+		return loadSerializedNavMesh(buffer);
+	}
+	
+	private static byte[] readAll(InputStream is) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] tmp = new byte[65536];
+		int nb;
+		while((nb = is.read(tmp)) != -1)
+			out.write(tmp, 0, nb);
+		is.close();
+		return out.toByteArray();
+	}
+	
+	/**
+	 * The format of the previous versions (Java serialization)
+	 * 
+	 * @param buffer
+	 * @return
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private static TriangulatedMesh loadSerializedNavMesh(ByteBuffer buffer) throws IOException, ClassNotFoundException
+	{
+		byte[] content = new byte[buffer.remaining()];
+		buffer.get(content);
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(content));
 		TriangulatedMesh o = (TriangulatedMesh) ois.readObject();
 		ois.close();
 		for(NavmeshEdge e : o.edges)
@@ -55,20 +128,21 @@ public final class TriangulatedMesh implements Serializable
 			n.loadFromSave(o.edges);		
 		for(NavmeshTriangle t : o.triangles)
 			t.loadFromSave(o.edges);
+		if(o.grid == null)
+			o.grid = new NodeGrid(o.nodes);
+		o.graph = NavmeshGraph.build(o.nodes, o.edges);
 		return o;
 	}
 
+	/**
+	 * Saves the navmesh in the binary format of NavmeshFile
+	 * 
+	 * @param filename
+	 * @throws IOException
+	 */
 	public void saveNavMesh(String filename) throws IOException
 	{
-		FileOutputStream fichier;
-		ObjectOutputStream oos;
-
-		new File(filename).createNewFile();
-		fichier = new FileOutputStream(filename);
-		oos = new ObjectOutputStream(fichier);
-		oos.writeObject(this);
-		oos.flush();
-		oos.close();
+		NavmeshFile.write(this, filename);
 	}
 	
 	@Override
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.jfr;
+
+/**
+ * The events of Java Flight Recorder (see FlightRecorder.EVENTS). The implementation uses jdk.jfr, so it is compiled
+ * apart (src/jfr/java) and loaded by reflection.
+ * The duration events are given as Object, so the callers don't depend on jdk.jfr.
+ *
+ * @author pf
+ *
+ */
+
+public interface Events
+{
+	public Object beginSearch();
+
+	public void endSearch(Object search, String outcome, int expandedNodes, int generatedNodes, long collisionChecks);
+
+	public Object beginDStarLite();
+
+	public void endDStarLite(Object update, String operation, int checkedEdges, boolean changed);
+
+	public void partialRebuild(int addedPoints, int pathSize);
+
+	public void notFastEnough(int missingPoints);
+
+	public void poolGrowth(String pool, int capacity);
+}
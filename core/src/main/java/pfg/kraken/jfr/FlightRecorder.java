@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.jfr;
+
+/**
+ * The events of Java Flight Recorder, if they can be emitted. The classes of the package jdk.jfr are missing
+ * from some JVM (Java 8 for example) : the implementation of Events (JfrEvents, in src/jfr/java) is compiled apart
+ * for Java 11 and is loaded by reflection, only if it can be.
+ * The call sites look like :
+ * if(FlightRecorder.AVAILABLE)
+ *     FlightRecorder.EVENTS.something(...);
+ * When no recording is running, the events are disabled and are neither filled nor committed.
+ *
+ * @author pf
+ *
+ */
+
+public final class FlightRecorder
+{
+	public static final Events EVENTS = load();
+	public static final boolean AVAILABLE = EVENTS != null;
+
+	private FlightRecorder()
+	{}
+
+	private static Events load()
+	{
+		try
+		{
+			Class.forName("jdk.jfr.Event");
+			return (Events) Class.forName("pfg.kraken.jfr.JfrEvents").newInstance();
+		}
+		catch(ReflectiveOperationException | LinkageError | ClassCastException e)
+		{
+			return null;
+		}
+	}
+}
@@ -31,7 +31,7 @@ public final class CinemObsPool extends MemoryPool<CinematiqueObs>
 	{
 		super(CinematiqueObs.class, log);
 		this.vehicleTemplate = vehicleTemplate;
-		init(config.getInt(ConfigInfoKraken.OBSTACLES_MEMORY_POOL_SIZE));
+		init(config.getInt(ConfigInfoKraken.OBSTACLES_MEMORY_POOL_SIZE), config.getBoolean(ConfigInfoKraken.MEMORY_POOL_THREAD_LOCAL));
 	}
 
 	@Override
@@ -10,11 +10,16 @@ import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.List;
 import pfg.kraken.LogCategoryKraken;
+import pfg.kraken.jfr.FlightRecorder;
 import pfg.log.Log;
 
 
 /**
- * A memory pool
+ * A memory pool.
+ * By default, the objects in use are the first of the pool and the pool is synchronized.
+ * In thread-local mode, each thread gets the objects by chunks (its slab) and keeps the objects it destroys
+ * in its own free list ; the pool is only locked once per chunk. A full free list is given back to the pool,
+ * so other threads can use it. The slabs are stamped with a generation, so empty() stays in O(1).
  * @author pf
  *
  */
@@ -28,8 +33,52 @@ public abstract class MemoryPool<T extends Memorizable>
 	private final Class<T> classe;
 	protected Log log;
 	private volatile int firstAvailable;
+	private int highWaterMark = 0;
 	private static final int tailleMax = 1 << 24;
 
+	/*
+	 * Thread-local mode
+	 */
+	private static final int CHUNK_SIZE = 64;
+	private boolean threadLocal = false;
+	private volatile int generation = 0;
+	private List<T[]> magazines = new ArrayList<T[]>(); // the first nbFullMagazines are full, the others are empty
+	private int nbFullMagazines = 0;
+	private final ThreadLocal<Slab> slabs = new ThreadLocal<Slab>()
+	{
+		@Override
+		protected Slab initialValue()
+		{
+			return new Slab();
+		}
+	};
+
+	/**
+	 * The objects owned by a thread
+	 */
+	private final class Slab
+	{
+		private T[] available = newArray(CHUNK_SIZE); // objects ready to be used
+		private int nbAvailable = 0;
+		private T[] freed = newArray(CHUNK_SIZE); // objects destroyed by this thread
+		private int nbFreed = 0;
+		private int generation = MemoryPool.this.generation;
+
+		/**
+		 * If the pool has been emptied, this slab doesn't own anything anymore
+		 */
+		private void check()
+		{
+			int g = MemoryPool.this.generation;
+			if(generation != g)
+			{
+				nbAvailable = 0;
+				nbFreed = 0;
+				generation = g;
+			}
+		}
+	}
+
 	protected abstract void make(T[] nodes);
 	
 	public MemoryPool(Class<T> classe, Log log)
@@ -38,6 +87,23 @@ public abstract class MemoryPool<T extends Memorizable>
 		this.log = log;
 	}
 	
+	@SuppressWarnings("unchecked")
+	private T[] newArray(int size)
+	{
+		return (T[]) Array.newInstance(classe, size);
+	}
+
+	/**
+	 * Initializes the pool
+	 * @param nb_instances
+	 * @param threadLocal : use a slab per thread instead of a synchronized pool
+	 */
+	protected void init(int nb_instances, boolean threadLocal)
+	{
+		this.threadLocal = threadLocal;
+		init(nb_instances);
+	}
+
 	@SuppressWarnings("unchecked")
 	protected void init(int nb_instances)
 	{
@@ -57,8 +123,79 @@ public abstract class MemoryPool<T extends Memorizable>
 	 * 
 	 * @return
 	 */
+	public T getNewNode()
+	{
+		if(!threadLocal)
+			synchronized(this)
+			{
+				return getNewNodeFromPool();
+			}
+
+		Slab slab = slabs.get();
+		slab.check();
+		T out;
+		if(slab.nbFreed > 0) // the last destroyed objects first
+			out = slab.freed[--slab.nbFreed];
+		else
+		{
+			if(slab.nbAvailable == 0)
+				refill(slab);
+			out = slab.available[--slab.nbAvailable];
+		}
+		String s;
+		assert (s = checkStateNew(out)) == null : s;
+		return out;
+	}
+
+	/**
+	 * Gives a chunk to this slab : a full free list given back by a thread if possible, new objects otherwise
+	 * @param slab
+	 */
+	private synchronized void refill(Slab slab)
+	{
+		if(nbFullMagazines > 0)
+		{
+			// on échange le tableau vide du slab avec un tableau plein
+			nbFullMagazines--;
+			T[] full = magazines.get(nbFullMagazines);
+			magazines.set(nbFullMagazines, slab.available);
+			slab.available = full;
+			slab.nbAvailable = CHUNK_SIZE;
+		}
+		else
+			for(int i = 0; i < CHUNK_SIZE; i++)
+				slab.available[slab.nbAvailable++] = nextNode();
+	}
+
+	/**
+	 * Gives back a full free list to the pool
+	 * @param slab
+	 */
+	private synchronized void giveBack(Slab slab)
+	{
+		T[] empty;
+		if(magazines.size() > nbFullMagazines)
+		{
+			empty = magazines.get(magazines.size() - 1);
+			magazines.set(magazines.size() - 1, magazines.get(nbFullMagazines));
+			magazines.set(nbFullMagazines, slab.freed);
+		}
+		else
+		{
+			empty = newArray(CHUNK_SIZE);
+			magazines.add(slab.freed);
+		}
+		nbFullMagazines++;
+		slab.freed = empty;
+		slab.nbFreed = 0;
+	}
+
+	/**
+	 * The next unused object of the pool. The pool grows if necessary.
+	 * @return
+	 */
 	@SuppressWarnings("unchecked")
-	public synchronized T getNewNode()
+	private T nextNode()
 	{
 		if(firstAvailable == initialNbInstances * nodes.size())
 		{
@@ -75,13 +212,21 @@ public abstract class MemoryPool<T extends Memorizable>
 				newNodes[i].setIndiceMemoryManager(i + firstAvailable);
 
 			nodes.add(newNodes);
+			if(FlightRecorder.AVAILABLE)
+				FlightRecorder.EVENTS.poolGrowth(classe.getSimpleName(), initialNbInstances * nodes.size());
 		}
 
+		T out = nodes.get(firstAvailable / initialNbInstances)[firstAvailable++ % initialNbInstances];
+		if(firstAvailable > highWaterMark)
+			highWaterMark = firstAvailable;
+		return out;
+	}
+
+	private T getNewNodeFromPool()
+	{
 		String s;
-		T out = nodes.get(firstAvailable / initialNbInstances)[firstAvailable % initialNbInstances];
+		T out = nextNode();
 		assert (s = checkStateNew(out)) == null : s;
-		firstAvailable++;
-
 		return out;
 	}
 
@@ -92,8 +237,24 @@ public abstract class MemoryPool<T extends Memorizable>
 	 */
 	public synchronized void empty()
 	{
-		assert checkEmpty();
+		assert threadLocal ? checkEmptyThreadLocal() : checkEmpty();
 		firstAvailable = 0;
+		if(threadLocal)
+		{
+			generation++; // the slabs are emptied the next time they are used
+			nbFullMagazines = 0;
+		}
+	}
+
+	/**
+	 * In thread-local mode, the objects in use may be anywhere before firstAvailable
+	 * @return
+	 */
+	private boolean checkEmptyThreadLocal()
+	{
+		for(int i = 0; i < firstAvailable; i++)
+			nodes.get(i / initialNbInstances)[i % initialNbInstances].setState(MemPoolState.FREE);
+		return true;
 	}
 
 	private boolean checkEmpty()
@@ -124,7 +285,7 @@ public abstract class MemoryPool<T extends Memorizable>
 	 * @param objet
 	 * @throws MemoryPoolException 
 	 */
-	public synchronized void destroyNode(T objet)
+	public void destroyNode(T objet)
 	{
 		destroyNode(objet, true);
 	}
@@ -134,7 +295,25 @@ public abstract class MemoryPool<T extends Memorizable>
 	 * @param objet
 	 * @param check
 	 */
-	synchronized void destroyNode(T objet, boolean check)
+	void destroyNode(T objet, boolean check)
+	{
+		if(!threadLocal)
+			synchronized(this)
+			{
+				destroyNodeInPool(objet, check);
+				return;
+			}
+
+		String s;
+		assert (s = checkStateDestroy(objet)) == null : s;
+		Slab slab = slabs.get();
+		slab.check();
+		if(slab.nbFreed == CHUNK_SIZE)
+			giveBack(slab);
+		slab.freed[slab.nbFreed++] = objet;
+	}
+
+	private void destroyNodeInPool(T objet, boolean check)
 	{
 		int indexObject = objet.getIndiceMemoryManager();
 
@@ -168,7 +347,7 @@ public abstract class MemoryPool<T extends Memorizable>
 
 	private String checkStateDestroy(T objet)
 	{
-		String out = objet.getState() == MemPoolState.CURRENT || objet.getState() == MemPoolState.NEXT ? null : objet.getState().toString();
+		String out = objet.getState() == MemPoolState.CURRENT || objet.getState() == MemPoolState.NEXT || objet.getState() == MemPoolState.WAITING ? null : objet.getState().toString();
 		objet.setState(MemPoolState.FREE);
 		return out;
 	}
@@ -180,13 +359,13 @@ public abstract class MemoryPool<T extends Memorizable>
 		return out;
 	}
 
-	public synchronized final void destroy(Iterable<T> c)
+	public final void destroy(Iterable<T> c)
 	{
 		for(T o : c)
 			destroyNode(o);
 	}
 	
-	synchronized final void destroy(Iterable<T> c, boolean check)
+	final void destroy(Iterable<T> c, boolean check)
 	{
 		for(T o : c)
 			destroyNode(o, check);
@@ -194,10 +373,24 @@ public abstract class MemoryPool<T extends Memorizable>
 	
 	/**
 	 * Retourne le nombre d'élément utilisé
+	 * (in thread-local mode, the objects in the slabs and in the free lists are counted too)
 	 */
 	public synchronized int getCurrentlyUsedObjectsNumber()
 	{
 		return firstAvailable;
 	}
 
+	/**
+	 * The maximal number of objects used since the last reset (counted like getCurrentlyUsedObjectsNumber)
+	 */
+	public synchronized int getHighWaterMark()
+	{
+		return highWaterMark;
+	}
+
+	public synchronized void resetHighWaterMark()
+	{
+		highWaterMark = firstAvailable;
+	}
+
 }
@@ -22,6 +22,7 @@ import pfg.log.Log;
 
 public final class NodePool extends MemoryPool<AStarNode>
 {
+	private static final int NB_NODES_WITH_STORE = 500;
 	private RectangularObstacle vehicleTemplate;
 	private CinemObsPool pool;
 
@@ -30,7 +31,11 @@ public final class NodePool extends MemoryPool<AStarNode>
 		super(AStarNode.class, log);
 		this.pool = pool;
 		this.vehicleTemplate = vehicleTemplate;
-		init(config.getInt(ConfigInfoKraken.NODE_MEMORY_POOL_SIZE));
+		int size = config.getInt(ConfigInfoKraken.NODE_MEMORY_POOL_SIZE);
+		// with the node store, only the node being expanded and its successors are AStarNode
+		if(config.getString(ConfigInfoKraken.NODE_STORAGE).equals("ARRAYS"))
+			size = Math.min(size, NB_NODES_WITH_STORE);
+		init(size, config.getBoolean(ConfigInfoKraken.MEMORY_POOL_THREAD_LOCAL));
 	}
 
 	@Override
@@ -41,7 +46,7 @@ public final class NodePool extends MemoryPool<AStarNode>
 	}
 
 	@Override
-	public synchronized AStarNode getNewNode()
+	public AStarNode getNewNode()
 	{
 		AStarNode out = super.getNewNode();
 		out.cameFromArcDynamique = null;
@@ -49,7 +54,7 @@ public final class NodePool extends MemoryPool<AStarNode>
 	}
 	
 	@Override
-	public synchronized void destroyNode(AStarNode objet)
+	public void destroyNode(AStarNode objet)
 	{
 		if(objet.cameFromArcDynamique != null)
 		{
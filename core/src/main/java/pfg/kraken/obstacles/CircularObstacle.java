@@ -10,6 +10,8 @@ import java.awt.Color;
 import java.awt.Graphics;
 
 import pfg.graphic.GraphicPanel;
+import pfg.kraken.utils.BoundingBox;
+import pfg.kraken.utils.ContentDigest;
 import pfg.kraken.utils.XY;
 import pfg.kraken.utils.XY_RW;
 
@@ -36,6 +38,13 @@ public class CircularObstacle extends Obstacle
 		squared_radius = rad * rad;
 	}
 
+	@Override
+	public void updateDigest(ContentDigest digest)
+	{
+		super.updateDigest(digest);
+		digest.update(radius);
+	}
+
 	@Override
 	public String toString()
 	{
@@ -113,6 +122,12 @@ public class CircularObstacle extends Obstacle
 	    return isInObstacle(pointA) || isInObstacle(pointB);
 	}
 	
+	@Override
+	public BoundingBox getBoundingBox()
+	{
+		return new BoundingBox(position.getX() - radius, position.getY() - radius, position.getX() + radius, position.getY() + radius);
+	}
+
 	private boolean isCollidingLine(XY pointA, XY pointB)
 	{
 		XY C = position;
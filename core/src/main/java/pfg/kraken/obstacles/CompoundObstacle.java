@@ -12,6 +12,8 @@ import java.util.Arrays;
 import java.util.List;
 
 import pfg.graphic.GraphicPanel;
+import pfg.kraken.utils.BoundingBox;
+import pfg.kraken.utils.ContentDigest;
 import pfg.kraken.utils.XY;
 
 /**
@@ -53,6 +55,15 @@ public class CompoundObstacle extends Obstacle
 		return false;
 	}
 	
+	@Override
+	public void updateDigest(ContentDigest digest)
+	{
+		super.updateDigest(digest);
+		digest.update(obs.length);
+		for(Obstacle o : obs)
+			o.updateDigest(digest);
+	}
+	
 	@Override
 	public String toString()
 	{
@@ -126,5 +137,16 @@ public class CompoundObstacle extends Obstacle
 				return true;
 		return false;
 	}
+	
+	@Override
+	public BoundingBox getBoundingBox()
+	{
+		if(obs.length == 0)
+			return BoundingBox.INFINITE;
+		BoundingBox out = obs[0].getBoundingBox();
+		for(int i = 1; i < obs.length; i++)
+			out = out.union(obs[i].getBoundingBox());
+		return out;
+	}
 
 }
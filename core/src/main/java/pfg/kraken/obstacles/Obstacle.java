@@ -8,6 +8,8 @@ package pfg.kraken.obstacles;
 
 import java.io.Serializable;
 import pfg.graphic.printable.Printable;
+import pfg.kraken.utils.BoundingBox;
+import pfg.kraken.utils.ContentDigest;
 import pfg.kraken.utils.XY;
 import pfg.kraken.utils.XY_RW;
 
@@ -72,6 +74,29 @@ public abstract class Obstacle implements Printable, Serializable
 	{
 		return position.hashCode();
 	}
+	
+	/**
+	 * Adds the whole geometry of the obstacle to a digest (unlike hashCode, that only uses the position).
+	 * By default : the class, the position and the bounding box. Override it if the bounding box doesn't
+	 * describe the obstacle. It is also called for each dynamic obstacle at each update of the D* Lite (with a
+	 * GeometryHash), so it should be cheap.
+	 * @param digest
+	 */
+	public void updateDigest(ContentDigest digest)
+	{
+		BoundingBox box = getBoundingBox();
+		digest.update(getClass().getName()).update(position);
+		digest.update(box.getMinX()).update(box.getMinY()).update(box.getMaxX()).update(box.getMaxY());
+	}
+	
+	/**
+	 * The rotation center of the obstacle
+	 * @return
+	 */
+	public XY getPosition()
+	{
+		return position;
+	}
 
 	public abstract double squaredDistance(XY position);
 	
@@ -99,4 +124,15 @@ public abstract class Obstacle implements Printable, Serializable
 	 */
 	public abstract boolean isColliding(XY pointA, XY pointB);
 	
+	/**
+	 * An axis-aligned box that contains the whole obstacle.
+	 * It is used by the broad phase of the collision check : an obstacle whose box is infinite
+	 * (the default) is tested against every point of every tentacle, so override it.
+	 * @return
+	 */
+	public BoundingBox getBoundingBox()
+	{
+		return BoundingBox.INFINITE;
+	}
+	
 }
@@ -11,6 +11,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import pfg.graphic.GraphicPanel;
+import pfg.kraken.utils.BoundingBox;
+import pfg.kraken.utils.ContentDigest;
 import pfg.kraken.utils.XY;
 import pfg.kraken.utils.XY_RW;
 
@@ -214,6 +216,13 @@ public class RectangularObstacle extends Obstacle
 		return min1 > max2 || min2 > max1; // vrai s'il y a une séparation
 	}
 
+	@Override
+	public void updateDigest(ContentDigest digest)
+	{
+		super.updateDigest(digest);
+		digest.update(coinBasGauche).update(coinHautDroite).update(angle);
+	}
+
 	@Override
 	public String toString()
 	{
@@ -266,6 +275,41 @@ public class RectangularObstacle extends Obstacle
 		return demieDiagonale;
 	}
 
+	public double getAngle()
+	{
+		return angle;
+	}
+
+	/**
+	 * Do these rectangles have the same size and the same rotation center ? (their position and angle may differ)
+	 * @param other
+	 * @return
+	 */
+	public boolean isSameShape(RectangularObstacle other)
+	{
+		return coinBasGauche.getX() == other.coinBasGauche.getX() && coinBasGauche.getY() == other.coinBasGauche.getY()
+				&& coinHautDroite.getX() == other.coinHautDroite.getX() && coinHautDroite.getY() == other.coinHautDroite.getY();
+	}
+
+	/**
+	 * A copy of this rectangle whose sides are pushed away by this margin (with the same rotation center)
+	 * @param margin
+	 * @return
+	 */
+	public RectangularObstacle getExpandedCopy(double margin)
+	{
+		return new RectangularObstacle(position, new XY(coinHautDroite.getX() + margin, coinHautDroite.getY() + margin), new XY(coinBasGauche.getX() - margin, coinBasGauche.getY() - margin), angle);
+	}
+
+	/**
+	 * The center of the rectangle (not the rotation center)
+	 * @return
+	 */
+	public XY getCentreGeometrique()
+	{
+		return centreGeometrique;
+	}
+
 	@Override
 	public void print(Graphics g, GraphicPanel f)
 	{
@@ -349,6 +393,15 @@ public class RectangularObstacle extends Obstacle
 	}
 	
 
+	@Override
+	public BoundingBox getBoundingBox()
+	{
+		return new BoundingBox(Math.min(Math.min(coinBasGaucheRotate.getX(), coinHautGaucheRotate.getX()), Math.min(coinBasDroiteRotate.getX(), coinHautDroiteRotate.getX())),
+				Math.min(Math.min(coinBasGaucheRotate.getY(), coinHautGaucheRotate.getY()), Math.min(coinBasDroiteRotate.getY(), coinHautDroiteRotate.getY())),
+				Math.max(Math.max(coinBasGaucheRotate.getX(), coinHautGaucheRotate.getX()), Math.max(coinBasDroiteRotate.getX(), coinHautDroiteRotate.getX())),
+				Math.max(Math.max(coinBasGaucheRotate.getY(), coinHautGaucheRotate.getY()), Math.max(coinBasDroiteRotate.getY(), coinHautDroiteRotate.getY())));
+	}
+
 	/**
 	 * Met à jour cet obstacle
 	 * 
@@ -8,6 +8,7 @@ package pfg.kraken.obstacles.container;
 import java.util.ArrayList;
 import java.util.List;
 import pfg.kraken.obstacles.Obstacle;
+import pfg.kraken.utils.ContentDigest;
 import pfg.kraken.utils.XY;
 
 /**
@@ -39,6 +40,18 @@ public final class StaticObstacles
     	return out;
     }
 
+    /**
+     * Adds the corners and the whole geometry of the obstacles to a digest. Unlike hashCode, two obstacles at
+     * the same position but with different sizes or orientations give different digests.
+     * @param digest
+     */
+    public void updateDigest(ContentDigest digest)
+    {
+    	digest.update(bottomLeftCorner).update(topRightCorner).update(obstacles.size());
+    	for(Obstacle o : obstacles)
+    		o.updateDigest(digest);
+    }
+
 	public void setCorners(XY bottomLeftCorner, XY topRightCorner)
 	{
 		this.bottomLeftCorner = bottomLeftCorner;
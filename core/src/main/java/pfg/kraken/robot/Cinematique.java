@@ -184,6 +184,21 @@ public class Cinematique implements Printable, Serializable
 		this.courbureReelle = courbureReelle;
 	}
 
+	/**
+	 * Sets every field, without any computation (used to restore a cinematique that has been stored)
+	 */
+	public void set(double x, double y, double orientationGeometrique, double orientationReelle, boolean enMarcheAvant, double courbureGeometrique, double courbureReelle, boolean stop)
+	{
+		position.setX(x);
+		position.setY(y);
+		this.orientationGeometrique = orientationGeometrique;
+		this.orientationReelle = orientationReelle;
+		this.enMarcheAvant = enMarcheAvant;
+		this.courbureGeometrique = courbureGeometrique;
+		this.courbureReelle = courbureReelle;
+		this.stop = stop;
+	}
+
 	protected void update(double x, double y, double orientationGeometrique, boolean enMarcheAvant, double courbureGeometrique, boolean stop)
 	{
 		if(enMarcheAvant)
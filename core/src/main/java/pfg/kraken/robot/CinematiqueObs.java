@@ -95,6 +95,17 @@ public final class CinematiqueObs extends Cinematique implements Memorizable, Se
 		obstacle.update(position, orientationReelle);
 	}
 	
+	/**
+	 * Restores a stored point
+	 */
+	public void set(double x, double y, double orientationGeometrique, double orientationReelle, boolean enMarcheAvant, double courbureGeometrique, double courbureReelle, boolean stop, double maxSpeed, double possibleSpeed)
+	{
+		super.set(x, y, orientationGeometrique, orientationReelle, enMarcheAvant, courbureGeometrique, courbureReelle, stop);
+		this.maxSpeed = maxSpeed;
+		this.possibleSpeed = possibleSpeed;
+		obstacle.update(position, orientationReelle);
+	}
+	
 /*	public void updateReel(double x, double y, double orientationReelle, double courbure, double rootedMaxAcceleration)
 	{
 		super.updateReel(x, y, orientationReelle, courbure);
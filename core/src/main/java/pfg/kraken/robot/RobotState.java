@@ -58,4 +58,9 @@ public class RobotState
 		return date;
 	}
 
+	public void setDate(long date)
+	{
+		this.date = date;
+	}
+
 }
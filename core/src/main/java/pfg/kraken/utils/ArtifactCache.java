@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The local directory of the precomputed files (navmesh, occupancy grid, unitary clothoid).
+ * Each file is named by the digest of everything it depends on, so a file is never used with other obstacles
+ * or other parameters, and several configurations can share the directory.
+ *
+ * @author pf
+ *
+ */
+
+public final class ArtifactCache
+{
+	private ArtifactCache()
+	{}
+
+	/**
+	 * Is there a cache directory ?
+	 *
+	 * @param directory
+	 * @return
+	 */
+	public static boolean isEnabled(String directory)
+	{
+		return !directory.isEmpty();
+	}
+
+	/**
+	 * The filename of a precomputed file in the cache directory, that is created if necessary
+	 *
+	 * @param directory
+	 * @param prefix : the kind of file (navmesh, occupancy…)
+	 * @param key : the digest of the content the file depends on
+	 * @return
+	 */
+	public static String getFilename(String directory, String prefix, String key)
+	{
+		File dir = new File(directory);
+		if(!dir.isDirectory())
+			dir.mkdirs();
+		return new File(dir, prefix + "-" + key + ".krk").getPath();
+	}
+
+	/**
+	 * Writes the remaining content of the buffer into a file. The content is written into a temporary file of the
+	 * same directory that then replaces the file : the file is never seen half-written, and the previous file
+	 * remains valid for those who have memory-mapped it (the navmesh, the clothoid points).
+	 *
+	 * @param filename
+	 * @param buffer
+	 * @throws IOException
+	 */
+	public static void write(String filename, ByteBuffer buffer) throws IOException
+	{
+		Path path = Paths.get(filename).toAbsolutePath();
+		Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+		try
+		{
+			try(FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE))
+			{
+				while(buffer.hasRemaining())
+					channel.write(buffer);
+			}
+			try
+			{
+				Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch(AtomicMoveNotSupportedException e)
+			{
+				Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally
+		{
+			Files.deleteIfExists(tmp);
+		}
+	}
+}
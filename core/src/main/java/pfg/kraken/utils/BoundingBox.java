@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.utils;
+
+import java.io.Serializable;
+
+/**
+ * An axis-aligned bounding box. Immutable.
+ *
+ * @author pf
+ *
+ */
+
+public final class BoundingBox implements Serializable
+{
+	private static final long serialVersionUID = 2847316425712066541L;
+
+	/**
+	 * The bounding box of an obstacle whose extent is unknown
+	 */
+	public static final BoundingBox INFINITE = new BoundingBox(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+	private final double minX, minY, maxX, maxY;
+
+	public BoundingBox(double minX, double minY, double maxX, double maxY)
+	{
+		assert minX <= maxX && minY <= maxY;
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+	}
+
+	public double getMinX()
+	{
+		return minX;
+	}
+
+	public double getMinY()
+	{
+		return minY;
+	}
+
+	public double getMaxX()
+	{
+		return maxX;
+	}
+
+	public double getMaxY()
+	{
+		return maxY;
+	}
+
+	/**
+	 * Is this box bounded in every direction ?
+	 *
+	 * @return
+	 */
+	public boolean isFinite()
+	{
+		return !Double.isInfinite(minX) && !Double.isInfinite(minY) && !Double.isInfinite(maxX) && !Double.isInfinite(maxY);
+	}
+
+	/**
+	 * Do these boxes intersect ? (touching boxes do intersect)
+	 *
+	 * @param other
+	 * @return
+	 */
+	public boolean intersects(BoundingBox other)
+	{
+		return minX <= other.maxX && other.minX <= maxX && minY <= other.maxY && other.minY <= maxY;
+	}
+
+	/**
+	 * The smallest box that contains both boxes
+	 *
+	 * @param other
+	 * @return
+	 */
+	public BoundingBox union(BoundingBox other)
+	{
+		return new BoundingBox(Math.min(minX, other.minX), Math.min(minY, other.minY), Math.max(maxX, other.maxX), Math.max(maxY, other.maxY));
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if(!(o instanceof BoundingBox))
+			return false;
+		BoundingBox other = (BoundingBox) o;
+		return minX == other.minX && minY == other.minY && maxX == other.maxX && maxY == other.maxY;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Double.hashCode(minX) + 31 * (Double.hashCode(minY) + 31 * (Double.hashCode(maxX) + 31 * Double.hashCode(maxY)));
+	}
+
+	@Override
+	public String toString()
+	{
+		return "[" + minX + ", " + maxX + "] x [" + minY + ", " + maxY + "]";
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A stable digest of some content (the geometry of the obstacles, some config values…), used to name the
+ * precomputed files of the artifact cache. Unlike the hash codes, it doesn't depend on the JVM and two different
+ * contents have (almost surely) different digests : it is the first 128 bits of a SHA-256.
+ * The values are written in big-endian, and -0.0 is written as 0.0.
+ *
+ * @author pf
+ *
+ */
+
+public class ContentDigest
+{
+	private static final int SIZE = 16; // in bytes
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final MessageDigest digest;
+	private final byte[] buffer = new byte[8];
+
+	public ContentDigest()
+	{
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException e)
+		{
+			// every JVM must provide SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * For the subclasses that don't use SHA-256 (see GeometryHash)
+	 *
+	 * @param digest
+	 */
+	protected ContentDigest(MessageDigest digest)
+	{
+		this.digest = digest;
+	}
+
+	/**
+	 * Adds the nbBytes lowest bytes of the value
+	 *
+	 * @param value
+	 * @param nbBytes
+	 */
+	protected void write(long value, int nbBytes)
+	{
+		for(int i = 0; i < nbBytes; i++)
+			buffer[i] = (byte) (value >>> (8 * (nbBytes - 1 - i)));
+		digest.update(buffer, 0, nbBytes);
+	}
+
+	public ContentDigest update(int value)
+	{
+		write(value, 4);
+		return this;
+	}
+
+	public ContentDigest update(long value)
+	{
+		write(value, 8);
+		return this;
+	}
+
+	public ContentDigest update(double value)
+	{
+		return update(Double.doubleToLongBits(value + 0.));
+	}
+
+	public ContentDigest update(XY point)
+	{
+		return update(point.getX()).update(point.getY());
+	}
+
+	public ContentDigest update(String value)
+	{
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		update(bytes.length);
+		digest.update(bytes);
+		return this;
+	}
+
+	/**
+	 * The digest, in hexadecimal (32 characters). The digest is reset.
+	 *
+	 * @return
+	 */
+	public String digest()
+	{
+		byte[] out = digest.digest();
+		char[] hex = new char[2 * SIZE];
+		for(int i = 0; i < SIZE; i++)
+		{
+			hex[2 * i] = HEX[(out[i] >> 4) & 0xF];
+			hex[2 * i + 1] = HEX[out[i] & 0xF];
+		}
+		return new String(hex);
+	}
+}
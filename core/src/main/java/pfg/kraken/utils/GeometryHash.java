@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.utils;
+
+/**
+ * A cheap 64-bit hash of the geometry of an obstacle (see Obstacle.updateDigest), to know whether it has changed.
+ * Unlike ContentDigest, it doesn't allocate anything and it isn't stable between the JVM (the strings are hashed
+ * with hashCode) : it must not name a file.
+ *
+ * @author pf
+ *
+ */
+
+public final class GeometryHash extends ContentDigest
+{
+	private static final long SEED = 0x9E3779B97F4A7C15L;
+	private long hash = SEED;
+
+	public GeometryHash()
+	{
+		super(null);
+	}
+
+	@Override
+	protected void write(long value, int nbBytes)
+	{
+		hash = Long.rotateLeft((hash ^ value) * 0xC2B2AE3D27D4EB4FL, 31);
+	}
+
+	@Override
+	public ContentDigest update(String value)
+	{
+		write(value.hashCode(), 4);
+		return this;
+	}
+
+	/**
+	 * The hash. The hash is reset.
+	 *
+	 * @return
+	 */
+	public long getHash()
+	{
+		long out = hash ^ (hash >>> 29);
+		hash = SEED;
+		return out;
+	}
+
+	/**
+	 * The hash, in hexadecimal. The hash is reset.
+	 */
+	@Override
+	public String digest()
+	{
+		return Long.toHexString(getHash());
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.utils;
+
+import java.util.Arrays;
+
+/**
+ * A set of int with open addressing (linear probing).
+ * There is no boxing and no allocation, except when the table grows.
+ * A slot is used iff its stamp is the current generation, so clear() is in O(1).
+ *
+ * @author pf
+ *
+ */
+
+public final class IntHashSet
+{
+	private int[] keys;
+	private int[] stamps;
+	private int generation = 1;
+	private int mask;
+	private int size = 0;
+	private int threshold;
+
+	/**
+	 * @param expectedSize : the table grows automatically if this size is exceeded
+	 */
+	public IntHashSet(int expectedSize)
+	{
+		int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity)
+	{
+		keys = new int[capacity];
+		stamps = new int[capacity];
+		mask = capacity - 1;
+		threshold = capacity / 2; // load factor 0.5 : the probes stay short
+	}
+
+	/**
+	 * Spreads the bits of the hash (the hashcode of the cinematique is very regular)
+	 *
+	 * @param key
+	 * @return
+	 */
+	private static int mix(int key)
+	{
+		key ^= key >>> 16;
+		key *= 0x85ebca6b;
+		key ^= key >>> 13;
+		return key;
+	}
+
+	/**
+	 * Adds a key
+	 *
+	 * @param key
+	 * @return false iff the key was already in the set
+	 */
+	public boolean add(int key)
+	{
+		int i = mix(key) & mask;
+		while(stamps[i] == generation)
+		{
+			if(keys[i] == key)
+				return false;
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		stamps[i] = generation;
+		size++;
+		if(size > threshold)
+			grow();
+		return true;
+	}
+
+	/**
+	 * Is this key in the set ?
+	 *
+	 * @param key
+	 * @return
+	 */
+	public boolean contains(int key)
+	{
+		int i = mix(key) & mask;
+		while(stamps[i] == generation)
+		{
+			if(keys[i] == key)
+				return true;
+			i = (i + 1) & mask;
+		}
+		return false;
+	}
+
+	/**
+	 * Empties the set in O(1)
+	 */
+	public void clear()
+	{
+		size = 0;
+		generation++;
+		if(generation == 0) // overflow : the old stamps may be valid again
+		{
+			Arrays.fill(stamps, 0);
+			generation = 1;
+		}
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Doubles the capacity of the table and reinserts the current keys
+	 */
+	private void grow()
+	{
+		int[] oldKeys = keys;
+		int[] oldStamps = stamps;
+		int oldGeneration = generation;
+		allocate(keys.length * 2);
+		generation = 1;
+		for(int j = 0; j < oldKeys.length; j++)
+			if(oldStamps[j] == oldGeneration)
+			{
+				int i = mix(oldKeys[j]) & mask;
+				while(stamps[i] == generation)
+					i = (i + 1) & mask;
+				keys[i] = oldKeys[j];
+				stamps[i] = generation;
+			}
+	}
+}
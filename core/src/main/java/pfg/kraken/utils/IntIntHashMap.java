@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken.utils;
+
+import java.util.Arrays;
+
+/**
+ * A map from int to nonnegative int with open addressing (linear probing).
+ * As in IntHashSet, a slot is used iff its stamp is the current generation, so clear() is in O(1).
+ *
+ * @author pf
+ *
+ */
+
+public final class IntIntHashMap
+{
+	private int[] keys;
+	private int[] values;
+	private int[] stamps;
+	private int generation = 1;
+	private int mask;
+	private int size = 0;
+	private int threshold;
+
+	public IntIntHashMap(int expectedSize)
+	{
+		allocate(Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1);
+	}
+
+	private void allocate(int capacity)
+	{
+		keys = new int[capacity];
+		values = new int[capacity];
+		stamps = new int[capacity];
+		mask = capacity - 1;
+		threshold = capacity / 2;
+	}
+
+	private static int mix(int key)
+	{
+		key ^= key >>> 16;
+		key *= 0x85ebca6b;
+		key ^= key >>> 13;
+		return key;
+	}
+
+	/**
+	 * The value of this key
+	 *
+	 * @param key
+	 * @return the value, or -1 if there is no such key
+	 */
+	public int get(int key)
+	{
+		int i = mix(key) & mask;
+		while(stamps[i] == generation)
+		{
+			if(keys[i] == key)
+				return values[i];
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Sets the value of a key
+	 *
+	 * @param key
+	 * @param value
+	 */
+	public void put(int key, int value)
+	{
+		int i = mix(key) & mask;
+		while(stamps[i] == generation)
+		{
+			if(keys[i] == key)
+			{
+				values[i] = value;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		stamps[i] = generation;
+		if(++size > threshold)
+			grow();
+	}
+
+	/**
+	 * Empties the map in O(1)
+	 */
+	public void clear()
+	{
+		size = 0;
+		generation++;
+		if(generation == 0)
+		{
+			Arrays.fill(stamps, 0);
+			generation = 1;
+		}
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	private void grow()
+	{
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		int[] oldStamps = stamps;
+		int oldGeneration = generation;
+		allocate(keys.length * 2);
+		generation = 1;
+		for(int j = 0; j < oldKeys.length; j++)
+			if(oldStamps[j] == oldGeneration)
+			{
+				int i = mix(oldKeys[j]) & mask;
+				while(stamps[i] == generation)
+					i = (i + 1) & mask;
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+				stamps[i] = generation;
+			}
+	}
+}
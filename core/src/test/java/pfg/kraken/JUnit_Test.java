@@ -135,6 +135,8 @@ public abstract class JUnit_Test
 			display.refresh();
 			Thread.sleep(1000);
 		}
+		if(kraken != null)
+			kraken.close();
 	}
 	
 	/**
@@ -6,6 +6,10 @@
 package pfg.kraken;
 
 import java.awt.Color;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -90,4 +94,24 @@ public class Test_ClothoidesComputer extends JUnit_Test
 
 		Assert.assertEquals(0, arc[nbArc - 1].arcselems[arc[nbArc - 1].arcselems.length - 1].getPosition().distance(new XY(-220.06,1372.82)), 0.1);
 	}
+	
+	@Test
+	public void test_unitary_clothoid() throws Exception
+	{
+		// the table of the classpath has been computed with the series expansion in BigDecimal
+		File file = File.createTempFile("clotho", ".krk");
+		file.deleteOnExit();
+		clotho.sauvegardePoints(file.getPath());
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+		int nbPoints = buffer.getInt(8);
+		Assert.assertEquals(12 + 16 * nbPoints + 8, buffer.limit());
+
+		double[] x = new double[nbPoints], y = new double[nbPoints];
+		ClothoidesComputer.computeUnitaryClothoid(x, y);
+		for(int i = 0; i < nbPoints; i++)
+		{
+			Assert.assertEquals(buffer.getDouble(12 + 8 * i), x[i], 1e-6);
+			Assert.assertEquals(buffer.getDouble(12 + 8 * (nbPoints + i)), y[i], 1e-6);
+		}
+	}
 }
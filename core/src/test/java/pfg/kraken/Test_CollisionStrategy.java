@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import pfg.kraken.astar.engine.CollisionCounters;
+import pfg.kraken.astar.engine.CollisionStrategy;
+import pfg.kraken.astar.engine.DefaultPhysicsEngine;
+import pfg.kraken.astar.engine.OccupancyGridPhysicsEngine;
+import pfg.kraken.astar.engine.PhysicsEngine;
+import pfg.kraken.astar.tentacles.StaticTentacle;
+import pfg.kraken.astar.tentacles.Tentacle;
+import pfg.kraken.obstacles.CircularObstacle;
+import pfg.kraken.obstacles.Obstacle;
+import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.robot.ItineraryPoint;
+import pfg.kraken.utils.XY;
+import pfg.kraken.utils.XYO;
+
+/**
+ * Tests unitaires des stratégies de vérification des collisions
+ *
+ * @author pf
+ *
+ */
+
+public class Test_CollisionStrategy extends JUnit_Test
+{
+	private Random r = new Random(0);
+
+	@Test
+	public void test_may_collide() throws Exception
+	{
+		// le test rapide ne doit jamais écarter une collision
+		setUpStandard("default");
+		RectangularObstacle vehicle = injector.getService(RectangularObstacle.class);
+		PhysicsEngine[] engines = new PhysicsEngine[] {injector.getService(DefaultPhysicsEngine.class), injector.getService(OccupancyGridPhysicsEngine.class)};
+		StaticTentacle tentacle = new StaticTentacle(vehicle);
+		for(PhysicsEngine engine : engines)
+		{
+			engine.update();
+			int nbClear = 0, nbCollisions = 0;
+			for(int i = 0; i < 10000; i++)
+			{
+				double x = r.nextDouble() * 3000 - 1500, y = r.nextDouble() * 2000;
+				double o = r.nextDouble() * 2 * Math.PI, courbure = r.nextDouble() * 10 - 5;
+				for(int j = 0; j < Tentacle.NB_POINTS; j++)
+				{
+					double angle = o + courbure * Tentacle.PRECISION_TRACE * j;
+					tentacle.arcselems[j].update(x + j * Tentacle.PRECISION_TRACE_MM * Math.cos(angle), y + j * Tentacle.PRECISION_TRACE_MM * Math.sin(angle), angle, true, courbure, 1, false);
+				}
+				tentacle.updateSweptBox();
+				boolean collision = engine.isThereCollision(tentacle);
+				if(collision)
+					nbCollisions++;
+				if(!engine.mayCollide(tentacle))
+				{
+					nbClear++;
+					Assert.assertFalse(collision);
+				}
+			}
+			Assert.assertTrue(nbClear > 0);
+			Assert.assertTrue(nbCollisions > 0);
+		}
+	}
+
+	private List<String> search(String... profiles) throws Exception
+	{
+		List<Obstacle> obs = new ArrayList<Obstacle>();
+		obs.add(new RectangularObstacle(new XY(800, 200), 200, 200));
+		obs.add(new RectangularObstacle(new XY(-800, 1200), 100, 200));
+		obs.add(new RectangularObstacle(new XY(-1000, 300), 500, 500));
+		obs.add(new RectangularObstacle(new XY(200, 1600), 800, 300));
+		obs.add(new CircularObstacle(new XY(500, 600), 100));
+		setUpWith(obs, profiles);
+		List<String> out = new ArrayList<String>();
+		kraken.initializeNewSearch(new SearchParameters(new XYO(-1200, 1500, 0), new XY(1000, 1000)));
+		for(ItineraryPoint p : kraken.search())
+			out.add(p.toString());
+		return out;
+	}
+
+	@Test
+	public void test_counters() throws Exception
+	{
+		List<String> lazy = search("default");
+		CollisionCounters counters = kraken.getCollisionCounters();
+		Assert.assertFalse(lazy.isEmpty());
+		Assert.assertEquals(CollisionStrategy.LAZY, counters.getStrategy());
+		Assert.assertTrue(counters.getNbChecks() > 0);
+		Assert.assertEquals(0, counters.getNbPreTests());
+		long lazyChecks = counters.getNbChecks();
+
+		// tous les successeurs sont vérifiés
+		Assert.assertFalse(search("default", "eager").isEmpty());
+		counters = kraken.getCollisionCounters();
+		Assert.assertEquals(CollisionStrategy.EAGER, counters.getStrategy());
+		Assert.assertTrue(counters.getNbChecks() >= lazyChecks);
+		Assert.assertEquals(0, counters.getNbPreTests());
+
+		// les successeurs loin des obstacles ne sont pas vérifiés
+		Assert.assertEquals(lazy, search("default", "hybrid"));
+		counters = kraken.getCollisionCounters();
+		Assert.assertEquals(CollisionStrategy.HYBRID, counters.getStrategy());
+		Assert.assertTrue(counters.getNbPreTestsClear() > 0);
+		Assert.assertTrue(counters.getNbChecks() <= lazyChecks);
+
+		Assert.assertEquals(lazy, search("default", "multithreading", "hybrid", "arrays"));
+	}
+}
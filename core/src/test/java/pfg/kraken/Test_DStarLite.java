@@ -5,16 +5,24 @@
 
 package pfg.kraken;
 
+import java.awt.Graphics;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import pfg.graphic.GraphicPanel;
 
 import pfg.kraken.LogCategoryKraken;
 import pfg.kraken.dstarlite.DStarLite;
+import pfg.kraken.obstacles.CircularObstacle;
 import pfg.kraken.obstacles.Obstacle;
 import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.obstacles.container.DefaultDynamicObstacles;
+import pfg.kraken.robot.ItineraryPoint;
+import pfg.kraken.utils.BoundingBox;
+import pfg.kraken.utils.ContentDigest;
 import pfg.kraken.utils.XY;
 import pfg.kraken.utils.XYO;
 import pfg.kraken.utils.XY_RW;
@@ -151,4 +159,119 @@ public class Test_DStarLite extends JUnit_Test
 			chemin = pathfinding.itineraireBrut();
 		}
 	}*/
+
+	/**
+	 * An obstacle whose shape changes without moving its rotation center
+	 */
+	private static class ChangingObstacle extends Obstacle
+	{
+		private static final long serialVersionUID = 1L;
+		private final BoundingBox box;
+		private CircularObstacle shape;
+
+		private ChangingObstacle(CircularObstacle shape, BoundingBox box)
+		{
+			super(new XY(0, 0));
+			this.shape = shape;
+			this.box = box;
+		}
+
+		@Override
+		public BoundingBox getBoundingBox()
+		{
+			return box;
+		}
+
+		@Override
+		public void updateDigest(ContentDigest digest)
+		{
+			super.updateDigest(digest);
+			shape.updateDigest(digest);
+		}
+
+		@Override
+		public boolean isInObstacle(XY pos)
+		{
+			return shape.isInObstacle(pos);
+		}
+
+		@Override
+		public double squaredDistance(XY position)
+		{
+			return shape.squaredDistance(position);
+		}
+
+		@Override
+		public XY[] getExpandedConvexHull(double expansion, double longestAllowedLength)
+		{
+			return shape.getExpandedConvexHull(expansion, longestAllowedLength);
+		}
+
+		@Override
+		public boolean isColliding(RectangularObstacle obs)
+		{
+			return shape.isColliding(obs);
+		}
+
+		@Override
+		public boolean isColliding(XY pointA, XY pointB)
+		{
+			return shape.isColliding(pointA, pointB);
+		}
+
+		@Override
+		public void print(Graphics g, GraphicPanel f)
+		{
+			shape.print(g, f);
+		}
+	}
+
+	private void checkChangingObstacle(BoundingBox box) throws Exception
+	{
+		List<Obstacle> obs = new ArrayList<Obstacle>();
+		obs.add(new RectangularObstacle(new XY(-800, 1200), 100, 200));
+		obs.add(new RectangularObstacle(new XY(200, 1600), 800, 300));
+		obs.add(new CircularObstacle(new XY(500, 600), 100));
+		RectangularObstacle robot = new RectangularObstacle(250, 80, 110, 110, 0);
+		SearchParameters sp = new SearchParameters(new XYO(-1200, 1500, 0), new XY(1000, 1000));
+
+		// the D* Lite of the second search is the one of the first search, updated with the changed obstacle
+		DefaultDynamicObstacles dynObs = new DefaultDynamicObstacles();
+		ChangingObstacle o = new ChangingObstacle(new CircularObstacle(new XY(-1000, 300), 100), box);
+		dynObs.add(o);
+		Kraken incremental = new Kraken(robot, obs, dynObs, new XY(-1500, 0), new XY(1500, 2000), "kraken-test.conf", "default");
+		Kraken fresh = null;
+		try
+		{
+			incremental.initializeNewSearch(sp);
+			List<ItineraryPoint> before = incremental.search();
+			// same rotation center, same bounding box
+			o.shape = new CircularObstacle(new XY(100, 1100), 200);
+			incremental.initializeNewSearch(sp);
+			List<ItineraryPoint> after = incremental.search();
+			Assert.assertNotEquals(before, after);
+
+			fresh = new Kraken(robot, obs, dynObs, new XY(-1500, 0), new XY(1500, 2000), "kraken-test.conf", "default");
+			fresh.initializeNewSearch(sp);
+			Assert.assertEquals(fresh.search(), after);
+		}
+		finally
+		{
+			incremental.close();
+			if(fresh != null)
+				fresh.close();
+		}
+	}
+
+	@Test
+	public void test_changed_obstacle() throws Exception
+	{
+		checkChangingObstacle(new BoundingBox(-1500, 0, 1500, 2000));
+	}
+
+	@Test
+	public void test_unbounded_obstacle() throws Exception
+	{
+		checkChangingObstacle(BoundingBox.INFINITE);
+	}
 }
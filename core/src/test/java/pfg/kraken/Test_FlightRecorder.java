@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pfg.kraken.jfr.FlightRecorder;
+import pfg.kraken.utils.XY;
+import pfg.kraken.utils.XYO;
+
+/**
+ * Tests unitaires des événements de Java Flight Recorder
+ *
+ * @author pf
+ *
+ */
+
+public class Test_FlightRecorder extends JUnit_Test
+{
+	@Before
+	public void setUp() throws Exception
+	{
+		super.setUpWith(null, "default", "empty");
+	}
+
+	@Test
+	public void test_events() throws Exception
+	{
+		Assert.assertTrue(FlightRecorder.AVAILABLE);
+		Map<String, RecordedEvent> events = new HashMap<String, RecordedEvent>();
+		File file = File.createTempFile("kraken", ".jfr");
+		try
+		{
+			Recording recording = new Recording();
+			recording.enable("pfg.kraken.Search");
+			recording.enable("pfg.kraken.DStarLite");
+			recording.start();
+			kraken.initializeNewSearch(new SearchParameters(new XYO(0, 200, 0), new XY(1000, 1000)));
+			Assert.assertFalse(kraken.search().isEmpty());
+			recording.stop();
+			recording.dump(file.toPath());
+			recording.close();
+
+			for(RecordedEvent e : RecordingFile.readAllEvents(file.toPath()))
+				if(e.getEventType().getName().equals("pfg.kraken.Search"))
+					events.put("search", e);
+				else
+					events.put(e.getString("operation"), e);
+		}
+		finally
+		{
+			file.delete();
+		}
+
+		Assert.assertEquals("PATH_FOUND", events.get("search").getString("outcome"));
+		Assert.assertEquals(kraken.getSearchStatistics().getNbExpandedNodes(), events.get("search").getInt("expandedNodes"));
+		Assert.assertNotNull(events.get("computeNewPath"));
+		Assert.assertNotNull(events.get("updateObstacles"));
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pfg.kraken.astar.tentacles.HeuristicCache;
+import pfg.kraken.obstacles.CircularObstacle;
+import pfg.kraken.obstacles.Obstacle;
+import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.utils.XY;
+import pfg.kraken.utils.XYO;
+
+/**
+ * Tests unitaires du cache de l'heuristique
+ *
+ * @author pf
+ *
+ */
+
+public class Test_HeuristicCache extends JUnit_Test
+{
+	private static final Integer MISSING = Integer.MIN_VALUE;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		super.setUpWith(null, "default", "empty");
+	}
+
+	@Test
+	public void test_get_put() throws Exception
+	{
+		HeuristicCache cache = new HeuristicCache(8);
+		Assert.assertTrue(cache.get(0, 1, MISSING) == MISSING);
+		cache.put(0, 1, 1234);
+		Assert.assertEquals(1234, (int) cache.get(0, 1, MISSING));
+		cache.put(-5, 1, null);
+		Assert.assertNull(cache.get(-5, 1, MISSING));
+
+		// une autre génération
+		Assert.assertTrue(cache.get(0, 2, MISSING) == MISSING);
+
+		// trop grand pour le cache
+		cache.put(42, 1, Integer.MAX_VALUE);
+		Assert.assertTrue(cache.get(42, 1, MISSING) == MISSING);
+
+		cache.clear();
+		Assert.assertTrue(cache.get(0, 1, MISSING) == MISSING);
+	}
+
+	@Test
+	public void test_random() throws Exception
+	{
+		// une entrée lue est toujours celle qui a été écrite avec cette clé et cette génération
+		HeuristicCache cache = new HeuristicCache(6);
+		Random r = new Random(0);
+		int[] values = new int[1000];
+		for(int i = 0; i < values.length; i++)
+			values[i] = r.nextInt(100000);
+		int nbHits = 0;
+		for(int i = 0; i < 100000; i++)
+		{
+			int key = r.nextInt(values.length) * 7919 - 3000000;
+			int stamp = 1 + r.nextInt(3);
+			Integer h = cache.get(key, stamp, MISSING);
+			int expected = values[(key + 3000000) / 7919] + stamp;
+			if(h != MISSING)
+			{
+				Assert.assertEquals(expected, (int) h);
+				nbHits++;
+			}
+			else
+				cache.put(key, stamp, expected);
+		}
+		Assert.assertTrue(nbHits > 0);
+	}
+
+	private void search(String... profiles) throws Exception
+	{
+		setUpWith(null, profiles);
+		kraken.initializeNewSearch(new SearchParameters(new XYO(0, 200, 0), new XY(1000, 1000)));
+		List<?> path = kraken.search();
+		Assert.assertFalse(path.isEmpty());
+	}
+
+	@Test
+	public void test_search() throws Exception
+	{
+		// le cache ne doit pas empêcher de trouver un chemin, même quand les threads calculent l'heuristique
+		search("default", "empty", "heuristic_cache");
+		search("default", "empty", "heuristic_cache", "multithreading");
+	}
+
+	@Test
+	public void test_near_arrival() throws Exception
+	{
+		// près de l'arrivée (FINAL_ANGLE_ERROR_DISTANCE), l'heuristique dépend de l'orientation exacte et n'est pas mise en cache
+		Assert.assertTrue(searchAroundObstacles("default", "heuristic_cache") > 0);
+		Assert.assertEquals(0, searchAroundObstacles("default", "heuristic_cache", "near_arrival_everywhere"));
+	}
+
+	private long searchAroundObstacles(String... profiles) throws Exception
+	{
+		List<Obstacle> obs = new ArrayList<Obstacle>();
+		obs.add(new RectangularObstacle(new XY(-800, 1200), 100, 200));
+		obs.add(new RectangularObstacle(new XY(200, 1600), 800, 300));
+		obs.add(new CircularObstacle(new XY(500, 600), 100));
+		setUpWith(obs, profiles);
+		kraken.initializeNewSearch(new SearchParameters(new XYO(-1200, 1500, Math.PI), new XYO(1000, 1000, Math.PI / 2)));
+		Assert.assertFalse(kraken.search().isEmpty());
+		return kraken.getSearchStatistics().getNbHeuristicCacheHits();
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken;
+
+import java.util.HashSet;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pfg.kraken.utils.IntHashSet;
+
+/**
+ * Tests unitaires de l'IntHashSet (le closed set de l'A*)
+ *
+ * @author pf
+ *
+ */
+
+public class Test_IntHashSet extends JUnit_Test
+{
+
+	private IntHashSet set;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		super.setUpWith(null, "default", "empty");
+		set = new IntHashSet(16);
+	}
+
+	@Test
+	public void test() throws Exception
+	{
+		Assert.assertTrue(set.isEmpty());
+		Assert.assertTrue(set.add(42));
+		Assert.assertTrue(!set.add(42));
+		Assert.assertTrue(set.add(-42));
+		Assert.assertTrue(set.add(0));
+		Assert.assertTrue(set.contains(42));
+		Assert.assertTrue(set.contains(0));
+		Assert.assertTrue(!set.contains(43));
+		Assert.assertEquals(3, set.size());
+		set.clear();
+		Assert.assertTrue(set.isEmpty());
+		Assert.assertTrue(!set.contains(42));
+		Assert.assertTrue(set.add(42));
+	}
+
+	@Test
+	public void test_random() throws Exception
+	{
+		Random r = new Random(0);
+		HashSet<Integer> reference = new HashSet<Integer>();
+		for(int k = 0; k < 5; k++)
+		{
+			// assez de clés pour que la table s'agrandisse
+			for(int i = 0; i < 10000; i++)
+			{
+				int key = r.nextInt(200000) - 100000;
+				Assert.assertEquals(reference.add(key), set.add(key));
+				key = r.nextInt(200000) - 100000;
+				Assert.assertEquals(reference.contains(key), set.contains(key));
+			}
+			Assert.assertEquals(reference.size(), set.size());
+			reference.clear();
+			set.clear();
+		}
+	}
+
+}
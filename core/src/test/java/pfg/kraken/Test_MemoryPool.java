@@ -6,15 +6,20 @@
 package pfg.kraken;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import pfg.kraken.astar.AStarNode;
+import pfg.kraken.memory.CinemObsPool;
 import pfg.kraken.memory.NodePool;
+import pfg.kraken.obstacles.RectangularObstacle;
 
 /**
  * Memory pool test
@@ -56,6 +61,72 @@ public class Test_MemoryPool extends JUnit_Test
 		}
 	}
 	
+	@Test
+	public void test_thread_local() throws Exception
+	{
+		config.override(ConfigInfoKraken.MEMORY_POOL_THREAD_LOCAL, true);
+		RectangularObstacle vehicle = injector.getService(RectangularObstacle.class);
+		final NodePool pool = new NodePool(log, config, vehicle, new CinemObsPool(log, config, vehicle));
+		// les objets utilisés en même temps doivent être différents
+		final Set<AStarNode> used = Collections.newSetFromMap(new IdentityHashMap<AStarNode, Boolean>());
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+		for(int k = 0; k < 3; k++)
+		{
+			Thread[] threads = new Thread[4];
+			for(int i = 0; i < threads.length; i++)
+			{
+				threads[i] = new Thread()
+				{
+					@Override
+					public void run()
+					{
+						try {
+							Random r = new Random();
+							List<AStarNode> liste = new ArrayList<AStarNode>();
+							for(int j = 0; j < 20000; j++)
+							{
+								if(liste.isEmpty() || r.nextInt(3) != 0)
+								{
+									AStarNode n = pool.getNewNode();
+									synchronized(used)
+									{
+										Assert.assertTrue(used.add(n));
+									}
+									liste.add(n);
+								}
+								else
+								{
+									AStarNode n = liste.remove(r.nextInt(liste.size()));
+									synchronized(used)
+									{
+										used.remove(n);
+									}
+									pool.destroyNode(n);
+								}
+							}
+							// the nodes left are given back by empty()
+							synchronized(used)
+							{
+								used.removeAll(liste);
+							}
+						} catch(Throwable e) {
+							errors.add(e);
+						}
+					}
+				};
+				threads[i].start();
+			}
+			for(Thread t : threads)
+				t.join();
+			Assert.assertTrue(errors.toString(), errors.isEmpty());
+			Assert.assertTrue(pool.getCurrentlyUsedObjectsNumber() > 0);
+			// every object is available again, including those still held by the threads
+			pool.empty();
+			Assert.assertEquals(0, pool.getCurrentlyUsedObjectsNumber());
+			used.clear();
+		}
+	}
+
 	private class ThreadPool extends Thread
 	{
 		protected NodePool pool;
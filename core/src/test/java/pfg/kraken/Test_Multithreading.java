@@ -15,6 +15,7 @@ import org.junit.Test;
 
 import pfg.graphic.printable.Layer;
 import pfg.kraken.astar.TentacularAStar;
+import pfg.kraken.astar.SearchStatistics.Outcome;
 import pfg.kraken.exceptions.PathfindingException;
 import pfg.kraken.obstacles.CircularObstacle;
 import pfg.kraken.obstacles.Obstacle;
@@ -85,4 +86,59 @@ public class Test_Multithreading extends JUnit_Test
 		}
 	}
 
-}
\ No newline at end of file
+	private List<String> search(String... profiles) throws Exception
+	{
+		List<Obstacle> obs = new ArrayList<Obstacle>();
+		obs.add(new RectangularObstacle(new XY(800,200), 200, 200));
+		obs.add(new RectangularObstacle(new XY(-1000,300), 500, 500));
+		obs.add(new RectangularObstacle(new XY(200,1600), 800, 300));
+		setUpWith(obs, profiles);
+		kraken.initializeNewSearch(new SearchParameters(new XYO(0, 200, 0), new XY(1000, 1000)));
+		List<String> out = new ArrayList<String>();
+		for(ItineraryPoint p : kraken.search())
+			out.add(p.toString());
+		return out;
+	}
+
+	@Test
+	public void test_fork_join() throws Exception
+	{
+		// les successeurs arrivent dans le même ordre qu'avec un seul thread, donc le chemin est le même
+		List<String> expected = search("default");
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(expected, search("default", "multithreading", "fork_join"));
+		Assert.assertEquals(expected, search("default", "multithreading", "fork_join"));
+	}
+
+	@Test
+	public void test_speculative() throws Exception
+	{
+		// les nœuds sont développés dans le même ordre, quel que soit le nombre de threads
+		List<String> expected = search("default");
+		Assert.assertEquals(expected, search("default", "speculative"));
+		Assert.assertEquals(expected, search("default", "multithreading", "speculative"));
+		Assert.assertEquals(expected, search("default", "multithreading", "speculative", "arrays"));
+	}
+
+	@Test
+	public void test_fast_and_dirty() throws Exception
+	{
+		// la recherche s'arrête au premier chemin : les threads doivent avoir fini avant que le D* Lite change de but
+		List<Obstacle> obs = new ArrayList<Obstacle>();
+		obs.add(new RectangularObstacle(new XY(800,200), 200, 200));
+		obs.add(new RectangularObstacle(new XY(-1000,300), 500, 500));
+		obs.add(new RectangularObstacle(new XY(200,1600), 800, 300));
+		setUpWith(obs, "default", "multithreading", "fast_and_dirty");
+		XY[] arrivals = new XY[] {new XY(1000, 1000), new XY(-1000, 1500), new XY(0, 1000), new XY(1200, 1700)};
+		for(int i = 0; i < 20; i++)
+		{
+			kraken.initializeNewSearch(new SearchParameters(new XYO(0, 200, 0), arrivals[i % arrivals.length]));
+			Assert.assertFalse(kraken.search().isEmpty());
+			Assert.assertEquals(Outcome.FAST_AND_DIRTY_PATH, kraken.getSearchStatistics().getOutcome());
+			// no tentacle is still computed (it would call the heuristic)
+			long nbHeuristicCalls = kraken.getSearchStatistics().getNbHeuristicCalls();
+			Thread.sleep(20);
+			Assert.assertEquals(nbHeuristicCalls, kraken.getSearchStatistics().getNbHeuristicCalls());
+		}
+	}
+}
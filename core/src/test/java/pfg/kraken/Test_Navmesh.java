@@ -5,16 +5,32 @@
 
 package pfg.kraken;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import pfg.kraken.dstarlite.navmesh.EdgeGrid;
 import pfg.kraken.dstarlite.navmesh.Navmesh;
+import pfg.kraken.dstarlite.navmesh.NavmeshComputer;
+import pfg.kraken.dstarlite.navmesh.NavmeshEdge;
+import pfg.kraken.dstarlite.navmesh.NavmeshGraph;
+import pfg.kraken.dstarlite.navmesh.NavmeshNode;
+import pfg.kraken.dstarlite.navmesh.TriangulatedMesh;
+import pfg.kraken.obstacles.CircularObstacle;
 import pfg.kraken.obstacles.Obstacle;
 import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.obstacles.container.StaticObstacles;
+import pfg.kraken.utils.ArtifactCache;
+import pfg.kraken.utils.BoundingBox;
+import pfg.kraken.utils.XY;
 import pfg.kraken.utils.XY_RW;
 
 /**
@@ -50,4 +66,294 @@ public class Test_Navmesh extends JUnit_Test
 		super.setUpWith(obs, "default", "graphic", "navmesh");
 		navmesh = injector.getService(Navmesh.class);
 	}
+	
+	@Test
+	public void test_nearest() throws Exception
+	{
+		super.setUpStandard("default");
+		navmesh = injector.getService(Navmesh.class);
+		Random r = new Random(0);
+		for(int k = 0; k < 10000; k++)
+		{
+			// aussi en dehors de la table
+			XY position = new XY(r.nextDouble() * 4000 - 2000, r.nextDouble() * 3000 - 500);
+			if(k % 10 == 0) // exactement sur un nœud
+				position = navmesh.mesh.nodes[r.nextInt(navmesh.mesh.nodes.length)].position;
+			NavmeshNode expected = null;
+			for(NavmeshNode n : navmesh.mesh.nodes)
+				if(expected == null || position.squaredDistance(n.position) < position.squaredDistance(expected.position))
+					expected = n;
+			Assert.assertTrue(expected == navmesh.getNearest(position));
+		}
+	}
+	
+	@Test
+	public void test_edge_grid() throws Exception
+	{
+		super.setUpStandard("default");
+		navmesh = injector.getService(Navmesh.class);
+		NavmeshEdge[] edges = navmesh.mesh.edges;
+		EdgeGrid grid = new EdgeGrid(edges, 200);
+		Random r = new Random(0);
+		for(int k = 0; k < 1000; k++)
+		{
+			// une ou deux boîtes, aussi en dehors de la table
+			List<BoundingBox> boxes = new ArrayList<BoundingBox>();
+			for(int b = 0; b < 1 + k % 2; b++)
+			{
+				double x = r.nextDouble() * 4000 - 2000, y = r.nextDouble() * 3000 - 500;
+				boxes.add(new BoundingBox(x, y, x + r.nextDouble() * 600, y + r.nextDouble() * 600));
+			}
+			List<NavmeshEdge> expected = new ArrayList<NavmeshEdge>();
+			for(NavmeshEdge e : edges)
+			{
+				BoundingBox edgeBox = new BoundingBox(Math.min(e.points[0].position.getX(), e.points[1].position.getX()), Math.min(e.points[0].position.getY(), e.points[1].position.getY()), Math.max(e.points[0].position.getX(), e.points[1].position.getX()), Math.max(e.points[0].position.getY(), e.points[1].position.getY()));
+				for(BoundingBox box : boxes)
+					if(box.intersects(edgeBox))
+					{
+						expected.add(e);
+						break;
+					}
+			}
+			for(BoundingBox box : boxes)
+				grid.query(box);
+			int nb = grid.sortFound();
+			Assert.assertEquals(expected.size(), nb);
+			for(int i = 0; i < nb; i++)
+				Assert.assertTrue(expected.get(i) == grid.getFound(i));
+			grid.clear();
+		}
+	}
+	
+	@Test
+	public void test_navmesh_file() throws Exception
+	{
+		super.setUpStandard("default");
+		// the navmesh of the tests is serialized in the format of the previous versions
+		TriangulatedMesh serialized = TriangulatedMesh.loadNavMesh("/navmesh.krk");
+		File file = File.createTempFile("navmesh", ".krk");
+		file.deleteOnExit();
+		serialized.saveNavMesh(file.getPath());
+		TriangulatedMesh mapped = TriangulatedMesh.loadNavMesh(file.getPath());
+
+		Assert.assertEquals(serialized.obsHashCode, mapped.obsHashCode);
+		Assert.assertEquals(serialized.nodes.length, mapped.nodes.length);
+		Assert.assertEquals(serialized.edges.length, mapped.edges.length);
+		Assert.assertEquals(serialized.triangles.length, mapped.triangles.length);
+		for(int i = 0; i < serialized.nodes.length; i++)
+		{
+			NavmeshNode n1 = serialized.nodes[i], n2 = mapped.nodes[i];
+			Assert.assertEquals(n1.position, n2.position);
+			Assert.assertEquals(n1.getNbNeighbours(), n2.getNbNeighbours());
+			for(int j = 0; j < n1.getNbNeighbours(); j++)
+			{
+				Assert.assertEquals(n1.getNeighbour(j).nb, n2.getNeighbour(j).nb);
+				Assert.assertEquals(n1.getNeighbourEdge(j).nb, n2.getNeighbourEdge(j).nb);
+			}
+		}
+		for(int i = 0; i < serialized.edges.length; i++)
+			Assert.assertEquals(serialized.edges[i].getUnblockedDistance(), mapped.edges[i].getUnblockedDistance());
+
+		NavmeshGraph g1 = serialized.getGraph(), g2 = mapped.getGraph();
+		Assert.assertEquals(g1.getNbNodes(), g2.getNbNodes());
+		Assert.assertEquals(g1.getNbEdges(), g2.getNbEdges());
+		for(int n = 0; n < g1.getNbNodes(); n++)
+		{
+			Assert.assertEquals(g1.getFirstNeighbour(n), g2.getFirstNeighbour(n));
+			Assert.assertEquals(g1.getEndNeighbour(n), g2.getEndNeighbour(n));
+			for(int k = g1.getFirstNeighbour(n); k < g1.getEndNeighbour(n); k++)
+			{
+				Assert.assertEquals(serialized.nodes[n].getNeighbour(k - g1.getFirstNeighbour(n)).nb, g2.getNeighbourNode(k));
+				Assert.assertEquals(g1.getNeighbourEdge(k), g2.getNeighbourEdge(k));
+			}
+		}
+		for(int e = 0; e < g1.getNbEdges(); e++)
+			Assert.assertEquals(g1.getLength(e), g2.getLength(e));
+	}
+	
+	@Test
+	public void test_navmesh_file_replaced() throws Exception
+	{
+		// a navmesh saved over a mapped file doesn't change the mapped graph
+		super.setUpWith(getObstacles(false), "default");
+		TriangulatedMesh serialized = TriangulatedMesh.loadNavMesh("/navmesh.krk");
+		File file = File.createTempFile("navmesh", ".krk");
+		file.deleteOnExit();
+		serialized.saveNavMesh(file.getPath());
+		NavmeshGraph mapped = TriangulatedMesh.loadNavMesh(file.getPath()).getGraph();
+		injector.getService(Navmesh.class).mesh.saveNavMesh(file.getPath());
+
+		NavmeshGraph expected = serialized.getGraph();
+		Assert.assertEquals(expected.getNbEdges(), mapped.getNbEdges());
+		for(int n = 0; n < expected.getNbNodes(); n++)
+			for(int k = expected.getFirstNeighbour(n); k < expected.getEndNeighbour(n); k++)
+				Assert.assertEquals(expected.getNeighbourEdge(k), mapped.getNeighbourEdge(k));
+		for(int e = 0; e < expected.getNbEdges(); e++)
+			Assert.assertEquals(expected.getLength(e), mapped.getLength(e));
+		Assert.assertNotEquals(serialized.edges.length, TriangulatedMesh.loadNavMesh(file.getPath()).edges.length);
+	}
+	
+	@Test(expected = IOException.class)
+	public void test_navmesh_file_checksum() throws Exception
+	{
+		super.setUpStandard("default");
+		File file = File.createTempFile("navmesh", ".krk");
+		file.deleteOnExit();
+		TriangulatedMesh.loadNavMesh("/navmesh.krk").saveNavMesh(file.getPath());
+		try(RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+		{
+			raf.seek(100);
+			int b = raf.read();
+			raf.seek(100);
+			raf.write(b ^ 1);
+		}
+		TriangulatedMesh.loadNavMesh(file.getPath());
+	}
+	
+	@Test
+	public void test_generation() throws Exception
+	{
+		// the previous generator (without the indexed queues) gives the same navmesh
+		super.setUpStandard("default", "navmesh_priority_queue");
+		TriangulatedMesh expected = injector.getService(NavmeshComputer.class).generateNavMesh(injector.getService(StaticObstacles.class));
+		super.setUpStandard("default");
+		TriangulatedMesh mesh = injector.getService(NavmeshComputer.class).generateNavMesh(injector.getService(StaticObstacles.class));
+
+		Assert.assertEquals(expected.nodes.length, mesh.nodes.length);
+		Assert.assertEquals(expected.edges.length, mesh.edges.length);
+		Assert.assertEquals(expected.triangles.length, mesh.triangles.length);
+		for(int i = 0; i < mesh.nodes.length; i++)
+			Assert.assertEquals(expected.nodes[i].position, mesh.nodes[i].position);
+		for(int i = 0; i < mesh.edges.length; i++)
+			for(int j = 0; j < 2; j++)
+				Assert.assertEquals(expected.edges[i].points[j].nb, mesh.edges[i].points[j].nb);
+	}
+	
+	@Test
+	public void test_cache() throws Exception
+	{
+		super.setUpWith(getObstacles(false), "default", "cache");
+		NavmeshComputer computer = injector.getService(NavmeshComputer.class);
+		StaticObstacles obs = injector.getService(StaticObstacles.class);
+		TriangulatedMesh mesh = injector.getService(Navmesh.class).mesh;
+		String cache = config.getString(ConfigInfoKraken.ARTIFACT_CACHE_DIRECTORY);
+		Assert.assertTrue(new File(ArtifactCache.getFilename(cache, "navmesh", computer.getDigest(obs))).exists());
+		Assert.assertTrue(computer.isUpToDate(mesh, obs));
+		
+		// a larger obstacle at the same position : same hash code, but another navmesh
+		List<Obstacle> larger = getObstacles(false);
+		larger.set(3, new CircularObstacle(new XY(500, 600), 200));
+		super.setUpWith(larger, "default", "cache");
+		StaticObstacles obs2 = injector.getService(StaticObstacles.class);
+		Assert.assertEquals(obs.hashCode(), obs2.hashCode());
+		Assert.assertNotEquals(computer.getDigest(obs), computer.getDigest(obs2));
+		Assert.assertFalse(computer.isUpToDate(mesh, obs2));
+		TriangulatedMesh mesh2 = injector.getService(Navmesh.class).mesh;
+		Assert.assertTrue(computer.isUpToDate(mesh2, obs2));
+		for(NavmeshEdge e : mesh2.edges)
+			Assert.assertFalse(larger.get(3).isColliding(e.points[0].position, e.points[1].position));
+		
+		// the first navmesh is still in the cache
+		super.setUpWith(getObstacles(false), "default", "cache");
+		TriangulatedMesh loaded = injector.getService(Navmesh.class).mesh;
+		Assert.assertEquals(mesh.nodes.length, loaded.nodes.length);
+		Assert.assertEquals(mesh.edges.length, loaded.edges.length);
+	}
+	
+	private List<Obstacle> getObstacles(boolean moved)
+	{
+		List<Obstacle> obs = new ArrayList<Obstacle>();
+		obs.add(new RectangularObstacle(new XY(-800, 1200), 100, 200));
+		obs.add(new RectangularObstacle(new XY(200, 1600), 800, 300));
+		obs.add(new CircularObstacle(new XY(-1000, 400), 150));
+		if(moved)
+			obs.add(new CircularObstacle(new XY(900, 700), 100));
+		else
+			obs.add(new CircularObstacle(new XY(500, 600), 100));
+		return obs;
+	}
+	
+	/**
+	 * Checks a navmesh as the generator does
+	 */
+	private void checkMesh(TriangulatedMesh mesh, List<Obstacle> obs, NavmeshComputer computer)
+	{
+		Assert.assertTrue(computer.checkNavmesh(mesh));
+		for(NavmeshNode n : mesh.nodes)
+			Assert.assertTrue(n.getNbNeighbours() >= 2);
+		for(NavmeshEdge e : mesh.edges)
+			for(Obstacle o : obs)
+				Assert.assertFalse(o.isColliding(e.points[0].position, e.points[1].position));
+		for(NavmeshEdge e1 : mesh.edges)
+			for(NavmeshEdge e2 : mesh.edges)
+				if(e1.points[0] != e2.points[0] && e1.points[0] != e2.points[1] && e1.points[1] != e2.points[0] && e1.points[1] != e2.points[1])
+					Assert.assertFalse(XY.segmentIntersection(e1.points[0].position, e1.points[1].position, e2.points[0].position, e2.points[1].position));
+		NavmeshGraph graph = mesh.getGraph();
+		Assert.assertEquals(mesh.nodes.length, graph.getNbNodes());
+		Assert.assertEquals(mesh.edges.length, graph.getNbEdges());
+		for(NavmeshNode n : mesh.nodes)
+			for(int k = graph.getFirstNeighbour(n.nb); k < graph.getEndNeighbour(n.nb); k++)
+			{
+				NavmeshEdge e = mesh.edges[graph.getNeighbourEdge(k)];
+				Assert.assertTrue(e.points[0] == n || e.points[1] == n);
+				Assert.assertSame(mesh.nodes[graph.getNeighbourNode(k)], e.points[0] == n ? e.points[1] : e.points[0]);
+			}
+	}
+	
+	@Test
+	public void test_patch() throws Exception
+	{
+		super.setUpWith(getObstacles(false), "default");
+		TriangulatedMesh previous = injector.getService(NavmeshComputer.class).generateNavMesh(injector.getService(StaticObstacles.class));
+		File file = File.createTempFile("navmesh", ".krk");
+		file.deleteOnExit();
+		previous.saveNavMesh(file.getPath());
+		previous = TriangulatedMesh.loadNavMesh(file.getPath());
+
+		// an obstacle has moved
+		super.setUpWith(getObstacles(true), "default");
+		NavmeshComputer computer = injector.getService(NavmeshComputer.class);
+		StaticObstacles obs = injector.getService(StaticObstacles.class);
+		TriangulatedMesh patched = computer.patchNavMesh(previous, obs);
+		Assert.assertNotNull(patched);
+		Assert.assertEquals(obs.hashCode(), patched.obsHashCode);
+		checkMesh(patched, obs.getObstacles(), computer);
+
+		// the nodes far from this obstacle are kept
+		HashSet<XY> positions = new HashSet<XY>();
+		for(NavmeshNode n : patched.nodes)
+			positions.add(n.position);
+		int nbKept = 0;
+		for(NavmeshNode n : previous.nodes)
+			if(positions.contains(n.position))
+				nbKept++;
+		Assert.assertTrue(nbKept > previous.nodes.length / 2);
+		
+		// no node near the removed obstacle, and nodes around the added one
+		Assert.assertNotSame(patched.getNearest(new XY(500, 600)), previous.getNearest(new XY(500, 600)));
+		Assert.assertTrue(patched.getNearest(new XY(900, 700)).position.distance(new XY(900, 700)) < 250);
+
+		// the patched navmesh can be patched again
+		patched.saveNavMesh(file.getPath());
+		TriangulatedMesh loaded = TriangulatedMesh.loadNavMesh(file.getPath());
+		TriangulatedMesh same = computer.patchNavMesh(loaded, obs);
+		Assert.assertEquals(loaded.nodes.length, same.nodes.length);
+		Assert.assertEquals(loaded.edges.length, same.edges.length);
+		Assert.assertEquals(loaded.triangles.length, same.triangles.length);
+	}
+	
+	@Test
+	public void test_patch_fallback() throws Exception
+	{
+		super.setUpWith(getObstacles(true), "default");
+		NavmeshComputer computer = injector.getService(NavmeshComputer.class);
+		StaticObstacles obs = injector.getService(StaticObstacles.class);
+		// the obstacles of a navmesh of the previous versions are unknown
+		Assert.assertNull(computer.patchNavMesh(TriangulatedMesh.loadNavMesh("/navmesh.krk"), obs));
+		
+		// most of the obstacles have changed
+		super.setUpWith(null, "default");
+		TriangulatedMesh empty = injector.getService(NavmeshComputer.class).generateNavMesh(injector.getService(StaticObstacles.class));
+		Assert.assertNull(computer.patchNavMesh(empty, obs));
+	}
 }
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pfg.kraken.astar.AStarNode;
+import pfg.kraken.astar.NodeStore;
+import pfg.kraken.astar.SearchStatistics;
+import pfg.kraken.astar.SearchStatistics.Outcome;
+import pfg.kraken.astar.engine.PhysicsEngine;
+import pfg.kraken.astar.tentacles.Tentacle;
+import pfg.kraken.astar.tentacles.types.ClothoTentacle;
+import pfg.kraken.memory.CinemObsPool;
+import pfg.kraken.obstacles.Obstacle;
+import pfg.kraken.obstacles.container.EmptyDynamicObstacles;
+import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.robot.Cinematique;
+import pfg.kraken.robot.CinematiqueObs;
+import pfg.kraken.robot.ItineraryPoint;
+import pfg.kraken.robot.RobotState;
+import pfg.kraken.utils.BoundingBox;
+import pfg.kraken.utils.XY;
+import pfg.kraken.utils.XYO;
+
+/**
+ * Tests unitaires du stockage des nœuds dans des tableaux
+ *
+ * @author pf
+ *
+ */
+
+public class Test_NodeStore extends JUnit_Test
+{
+
+	private Random r = new Random(0);
+
+	@Before
+	public void setUp() throws Exception
+	{
+		super.setUpWith(null, "default", "empty");
+	}
+
+	private void assertSame(Cinematique a, Cinematique b)
+	{
+		Assert.assertEquals(a.getPosition().getX(), b.getPosition().getX(), 0);
+		Assert.assertEquals(a.getPosition().getY(), b.getPosition().getY(), 0);
+		Assert.assertEquals(a.orientationGeometrique, b.orientationGeometrique, 0);
+		Assert.assertEquals(a.orientationReelle, b.orientationReelle, 0);
+		Assert.assertEquals(a.courbureGeometrique, b.courbureGeometrique, 0);
+		Assert.assertEquals(a.courbureReelle, b.courbureReelle, 0);
+		Assert.assertEquals(a.enMarcheAvant, b.enMarcheAvant);
+		Assert.assertEquals(a.stop, b.stop);
+	}
+
+	@Test
+	public void test_restore() throws Exception
+	{
+		RectangularObstacle vehicle = injector.getService(RectangularObstacle.class);
+		NodeStore store = new NodeStore(injector.getService(CinemObsPool.class), vehicle, 4);
+		AStarNode depart = new AStarNode(new RobotState(), vehicle);
+		depart.robot.setCinematique(new Cinematique(new XYO(0, 1000, 0)));
+		store.add(depart, -1);
+
+		List<AStarNode> nodes = new ArrayList<AStarNode>();
+		List<AStarNode> handles = new ArrayList<AStarNode>();
+		for(int k = 0; k < 20; k++)
+		{
+			AStarNode n = new AStarNode(new RobotState(), vehicle);
+			n.parent = depart;
+			double x = r.nextDouble() * 2000 - 1000, y = r.nextDouble() * 2000, o = r.nextDouble() * 2 * Math.PI, courbure = r.nextDouble() * 10 - 5;
+			boolean forward = r.nextBoolean();
+			for(int j = 0; j < Tentacle.NB_POINTS; j++)
+			{
+				n.cameFromArcStatique.arcselems[j].update(x + j * 20 * Math.cos(o), y + j * 20 * Math.sin(o), o, forward, courbure, 1, j == 0);
+				n.cameFromArcStatique.arcselems[j].possibleSpeed = r.nextDouble();
+			}
+			n.cameFromArcStatique.vitesse = ClothoTentacle.values()[r.nextInt(ClothoTentacle.values().length)];
+			n.robot.suitArcCourbe(n.cameFromArcStatique, r.nextInt(1000));
+			n.g_score = r.nextInt(10000);
+			n.f_score = n.g_score + r.nextInt(10000);
+			nodes.add(n);
+			// the arrays grow
+			handles.add(store.add(n, 0));
+		}
+		Assert.assertEquals(21, store.size());
+
+		for(int k = 0; k < nodes.size(); k++)
+		{
+			AStarNode n = nodes.get(k), handle = handles.get(k);
+			Assert.assertEquals(n.hashCode(), handle.hashCode());
+			Assert.assertEquals(n.f_score, handle.f_score);
+			Assert.assertEquals(0, store.getParent(k + 1));
+
+			AStarNode restored = store.restore(handle, new AStarNode(new RobotState(), vehicle));
+			Assert.assertEquals(n.g_score, restored.g_score);
+			Assert.assertEquals(n.robot.getDate(), restored.robot.getDate());
+			assertSame(n.robot.getCinematique(), restored.robot.getCinematique());
+			Assert.assertTrue(restored.getArc() != null);
+			Assert.assertEquals(n.getArc().vitesse, restored.getArc().vitesse);
+			Assert.assertTrue(restored.getArc().hasSweptBox());
+			for(int j = 0; j < Tentacle.NB_POINTS; j++)
+			{
+				CinematiqueObs a = n.getArc().getPoint(j), b = restored.getArc().getPoint(j);
+				assertSame(a, b);
+				Assert.assertEquals(a.maxSpeed, b.maxSpeed, 0);
+				Assert.assertEquals(a.possibleSpeed, b.possibleSpeed, 0);
+				BoundingBox boxA = a.obstacle.getBoundingBox(), boxB = b.obstacle.getBoundingBox();
+				Assert.assertEquals(boxA.getMinX(), boxB.getMinX(), 0);
+				Assert.assertEquals(boxA.getMaxY(), boxB.getMaxY(), 0);
+			}
+		}
+
+		// only the last node can be removed
+		store.remove(handles.get(0));
+		Assert.assertEquals(21, store.size());
+		store.remove(handles.get(handles.size() - 1));
+		Assert.assertEquals(20, store.size());
+		store.clear();
+		Assert.assertEquals(0, store.size());
+	}
+
+	private List<String> search(String... profiles) throws Exception
+	{
+		List<Obstacle> obs = new ArrayList<Obstacle>();
+		obs.add(new RectangularObstacle(new XY(800, 200), 200, 200));
+		obs.add(new RectangularObstacle(new XY(-1000, 300), 500, 500));
+		obs.add(new RectangularObstacle(new XY(200, 1600), 800, 300));
+		setUpWith(obs, profiles);
+		List<String> out = new ArrayList<String>();
+		kraken.initializeNewSearch(new SearchParameters(new XYO(0, 200, 0), new XY(1000, 1000)));
+		for(ItineraryPoint p : kraken.search())
+			out.add(p.toString());
+		kraken.initializeNewSearch(new SearchParameters(new XYO(0, 200, 0), new XYO(1000, 1000, Math.PI / 2), "XYO"));
+		for(ItineraryPoint p : kraken.search())
+			out.add(p.toString());
+		return out;
+	}
+
+	@Test
+	public void test_same_path() throws Exception
+	{
+		// les deux stockages donnent exactement le même chemin
+		List<String> objects = search("default");
+		List<String> arrays = search("default", "arrays");
+		Assert.assertTrue(!objects.isEmpty());
+		Assert.assertEquals(objects, arrays);
+	}
+
+	/**
+	 * The outcome and the duration of a search with a wall unknown to the D* Lite. With stopAtArrival, the search is
+	 * stopped when a node is chosen after a first tentacle has reached the arrival : this tentacle is the backup path.
+	 */
+	private String searchWithEngine(final boolean stopAtArrival, String... profiles) throws Exception
+	{
+		final XY arrival = new XY(1000, 1000);
+		final Kraken[] stopped = new Kraken[1];
+		final boolean[] backupFound = new boolean[1];
+		PhysicsEngine engine = new PhysicsEngine()
+		{
+			@Override
+			public void update()
+			{}
+
+			@Override
+			public boolean isThereCollision(Iterable<RectangularObstacle> tentacle)
+			{
+				return false;
+			}
+
+			@Override
+			public boolean isThereCollision(Tentacle tentacle)
+			{
+				for(int i = 0; i < tentacle.getNbPoints(); i++)
+				{
+					XY p = tentacle.getPoint(i).getPosition();
+					if(p.getX() < 1200 && p.getY() > 500 && p.getY() < 700)
+						return true;
+				}
+				if(stopAtArrival)
+				{
+					if(tentacle.getLast().getPosition().squaredDistance(arrival) < 5)
+						backupFound[0] = true;
+					else if(backupFound[0])
+						stopped[0].stop();
+				}
+				return false;
+			}
+		};
+		RectangularObstacle robot = new RectangularObstacle(250, 80, 110, 110, 0);
+		stopped[0] = new Kraken(robot, engine, null, new EmptyDynamicObstacles(), new XY(-1500, 0), new XY(1500, 2000), "kraken-test.conf", profiles);
+		stopped[0].initializeNewSearch(new SearchParameters(new XYO(0, 200, 0), arrival));
+		List<ItineraryPoint> path = stopped[0].search();
+		Assert.assertFalse(path.isEmpty());
+		SearchStatistics stats = stopped[0].getSearchStatistics();
+		Assert.assertTrue(stats.getPathDuration() > 0);
+		return stats.getOutcome() + " " + stats.getPathDuration() + " " + path.size();
+	}
+
+	@Test
+	public void test_backup_and_fast_paths() throws Exception
+	{
+		// the backup path and the fast-and-dirty path are handles of the node store
+		String fast = searchWithEngine(false, "default", "empty", "fast_and_dirty");
+		Assert.assertTrue(fast.startsWith(Outcome.FAST_AND_DIRTY_PATH.toString()));
+		Assert.assertEquals(fast, searchWithEngine(false, "default", "empty", "fast_and_dirty", "arrays"));
+
+		String backup = searchWithEngine(true, "default", "empty");
+		Assert.assertTrue(backup, backup.startsWith(Outcome.BACKUP_PATH.toString()));
+		Assert.assertEquals(backup, searchWithEngine(true, "default", "empty", "arrays"));
+	}
+}
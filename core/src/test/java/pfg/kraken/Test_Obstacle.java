@@ -10,7 +10,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import pfg.kraken.obstacles.CircularObstacle;
+import pfg.kraken.obstacles.Obstacle;
 import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.utils.ContentDigest;
 import pfg.kraken.utils.XY;
 
 /**
@@ -28,6 +30,33 @@ public class Test_Obstacle extends JUnit_Test
 		super.setUpWith(null, "default");
 	}
 
+	@Test
+	public void test_digest() throws Exception
+	{
+		// same position : same hash code, but different digests
+		CircularObstacle c1 = new CircularObstacle(new XY(100, 200), 30);
+		CircularObstacle c2 = new CircularObstacle(new XY(100, 200), 40);
+		Assert.assertEquals(c1.hashCode(), c2.hashCode());
+		Assert.assertNotEquals(getDigest(c1), getDigest(c2));
+		Assert.assertEquals(getDigest(c1), getDigest(new CircularObstacle(new XY(100, 200), 30)));
+		
+		RectangularObstacle r1 = new RectangularObstacle(new XY(0, 0), 30, 10, 0);
+		RectangularObstacle r2 = new RectangularObstacle(new XY(0, 0), 30, 10, Math.PI / 4);
+		RectangularObstacle r3 = new RectangularObstacle(new XY(0, 0), 10, 30, 0);
+		Assert.assertEquals(r1.hashCode(), r2.hashCode());
+		Assert.assertNotEquals(getDigest(r1), getDigest(r2));
+		Assert.assertNotEquals(getDigest(r1), getDigest(r3));
+		Assert.assertEquals(getDigest(r1), getDigest(new RectangularObstacle(new XY(-0., 0), 30, 10, 0)));
+		Assert.assertEquals(32, getDigest(r1).length());
+	}
+	
+	private String getDigest(Obstacle o)
+	{
+		ContentDigest digest = new ContentDigest();
+		o.updateDigest(digest);
+		return digest.digest();
+	}
+
 	@Test
 	public void test_collision_cercle() throws Exception
 	{
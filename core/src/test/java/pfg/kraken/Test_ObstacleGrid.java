@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pfg.kraken.astar.engine.ObstacleGrid;
+import pfg.kraken.astar.tentacles.StaticTentacle;
+import pfg.kraken.astar.tentacles.Tentacle;
+import pfg.kraken.obstacles.CircularObstacle;
+import pfg.kraken.obstacles.CompoundObstacle;
+import pfg.kraken.obstacles.Obstacle;
+import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.utils.BoundingBox;
+import pfg.kraken.utils.XY;
+
+/**
+ * Tests unitaires de la grille de la broad phase : elle doit donner les mêmes collisions que le test de tous les obstacles
+ *
+ * @author pf
+ *
+ */
+
+public class Test_ObstacleGrid extends JUnit_Test
+{
+
+	private Random r;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		super.setUpWith(null, "default", "empty");
+		r = new Random(0);
+	}
+
+	private XY randomPoint()
+	{
+		// un peu en dehors de la table aussi
+		return new XY(r.nextInt(3600) - 1800, r.nextInt(2600) - 300);
+	}
+
+	private Obstacle randomObstacle()
+	{
+		int type = r.nextInt(3);
+		if(type == 0)
+			return new CircularObstacle(randomPoint(), 10 + r.nextInt(300));
+		if(type == 1)
+			return new RectangularObstacle(randomPoint(), 10 + r.nextInt(600), 10 + r.nextInt(600), r.nextDouble() * 2 * Math.PI);
+		XY center = randomPoint();
+		return new CompoundObstacle(center, new CircularObstacle(center, 10 + r.nextInt(100)), new RectangularObstacle(center.plusNewVector(new XY(r.nextInt(200), r.nextInt(200))), 10 + r.nextInt(300), 10 + r.nextInt(300), r.nextDouble()));
+	}
+
+	@Test
+	public void test_bounding_box() throws Exception
+	{
+		for(int i = 0; i < 1000; i++)
+		{
+			Obstacle o = randomObstacle();
+			BoundingBox box = o.getBoundingBox();
+			Assert.assertTrue(box.isFinite());
+			for(int j = 0; j < 20; j++)
+			{
+				XY p = randomPoint();
+				if(o.isInObstacle(p))
+					Assert.assertTrue(p.getX() >= box.getMinX() && p.getX() <= box.getMaxX() && p.getY() >= box.getMinY() && p.getY() <= box.getMaxY());
+			}
+		}
+		Assert.assertTrue(!BoundingBox.INFINITE.isFinite());
+		BoundingBox b = new BoundingBox(0, 0, 10, 10);
+		Assert.assertTrue(b.intersects(new BoundingBox(10, 10, 20, 20)));
+		Assert.assertTrue(!b.intersects(new BoundingBox(11, 0, 20, 10)));
+		BoundingBox u = b.union(new BoundingBox(-5, 3, 2, 15));
+		Assert.assertEquals(-5, u.getMinX(), 0);
+		Assert.assertEquals(15, u.getMaxY(), 0);
+	}
+
+	@Test
+	public void test_random() throws Exception
+	{
+		ObstacleGrid grid = new ObstacleGrid(new XY(-1500, 0), new XY(1500, 2000), 200);
+		RectangularObstacle robot = new RectangularObstacle(250, 80, 110, 110);
+		for(int k = 0; k < 20; k++)
+		{
+			List<Obstacle> obs = new ArrayList<Obstacle>();
+			int nb = r.nextInt(40);
+			for(int i = 0; i < nb; i++)
+				obs.add(randomObstacle());
+			// la grille est réutilisée avec un nombre d'obstacles différent
+			grid.build(obs);
+			Assert.assertEquals(nb, grid.size());
+			for(int i = 0; i < 500; i++)
+			{
+				XY p = randomPoint();
+				robot.update(p.getX(), p.getY(), r.nextDouble() * 2 * Math.PI);
+				boolean expected = false;
+				for(Obstacle o : obs)
+					expected |= o.isColliding(robot);
+				Assert.assertEquals(expected, grid.isColliding(robot));
+			}
+		}
+	}
+
+	@Test
+	public void test_tentacle() throws Exception
+	{
+		// la boîte balayée ne doit rien changer au résultat
+		ObstacleGrid grid = new ObstacleGrid(new XY(-1500, 0), new XY(1500, 2000), 200);
+		StaticTentacle tentacle = new StaticTentacle(new RectangularObstacle(250, 80, 110, 110));
+		int nbCollisions = 0;
+		for(int k = 0; k < 20; k++)
+		{
+			List<Obstacle> obs = new ArrayList<Obstacle>();
+			int nb = r.nextInt(40);
+			for(int i = 0; i < nb; i++)
+				obs.add(randomObstacle());
+			grid.build(obs);
+			for(int i = 0; i < 500; i++)
+			{
+				XY p = randomPoint();
+				double o = r.nextDouble() * 2 * Math.PI, courbure = r.nextDouble() * 10 - 5;
+				for(int j = 0; j < Tentacle.NB_POINTS; j++)
+				{
+					double angle = o + courbure * Tentacle.PRECISION_TRACE * j;
+					tentacle.arcselems[j].update(p.getX() + j * Tentacle.PRECISION_TRACE_MM * Math.cos(angle), p.getY() + j * Tentacle.PRECISION_TRACE_MM * Math.sin(angle), angle, true, courbure, 1, false);
+				}
+				tentacle.updateSweptBox();
+				Assert.assertTrue(tentacle.hasSweptBox());
+				boolean expected = false;
+				for(RectangularObstacle point : tentacle)
+					expected |= grid.isColliding(point);
+				Assert.assertEquals(expected, grid.isColliding(tentacle));
+				if(expected)
+					nbCollisions++;
+			}
+		}
+		Assert.assertTrue(nbCollisions > 0);
+	}
+
+	@Test
+	public void test_unbounded() throws Exception
+	{
+		// un obstacle sans boîte englobante est toujours testé
+		ObstacleGrid grid = new ObstacleGrid(new XY(-1500, 0), new XY(1500, 2000), 200);
+		List<Obstacle> obs = new ArrayList<Obstacle>();
+		obs.add(new CompoundObstacle(new XY(0, 0)));
+		obs.add(new CircularObstacle(new XY(1000, 1000), 100));
+		grid.build(obs);
+		Assert.assertEquals(2, grid.size());
+		RectangularObstacle robot = new RectangularObstacle(250, 80, 110, 110);
+		Assert.assertTrue(!grid.isColliding(robot.update(-1000, 1000, 0)));
+		Assert.assertTrue(grid.isColliding(robot.update(1000, 1000, 0)));
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pfg.kraken.astar.engine.DefaultPhysicsEngine;
+import pfg.kraken.astar.engine.OccupancyGridPhysicsEngine;
+import pfg.kraken.astar.tentacles.StaticTentacle;
+import pfg.kraken.astar.tentacles.Tentacle;
+import pfg.kraken.obstacles.CircularObstacle;
+import pfg.kraken.obstacles.Obstacle;
+import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.obstacles.container.StaticObstacles;
+import pfg.kraken.utils.XY;
+
+/**
+ * Tests unitaires du moteur physique à grille d'occupation : il doit donner les mêmes collisions que le moteur par défaut
+ *
+ * @author pf
+ *
+ */
+
+public class Test_OccupancyGrid extends JUnit_Test
+{
+
+	private DefaultPhysicsEngine exact;
+	private OccupancyGridPhysicsEngine grid;
+	private RectangularObstacle vehicle;
+	private Random r = new Random(0);
+
+	@Before
+	public void setUp() throws Exception
+	{
+		super.setUpStandard("default");
+		exact = injector.getService(DefaultPhysicsEngine.class);
+		grid = injector.getService(OccupancyGridPhysicsEngine.class);
+		vehicle = injector.getService(RectangularObstacle.class);
+		exact.update();
+		grid.update();
+	}
+
+	@Test
+	public void test_points() throws Exception
+	{
+		int nbCollisions = 0;
+		List<RectangularObstacle> l = new ArrayList<RectangularObstacle>();
+		l.add(vehicle.clone());
+		for(int i = 0; i < 100000; i++)
+		{
+			// un peu en dehors de la table aussi
+			l.get(0).update(r.nextDouble() * 3200 - 1600, r.nextDouble() * 2200 - 100, r.nextDouble() * 20 - 10);
+			boolean expected = exact.isThereCollision(l);
+			Assert.assertEquals(expected, grid.isThereCollision(l));
+			if(expected)
+				nbCollisions++;
+		}
+		Assert.assertTrue(nbCollisions > 0);
+	}
+
+	@Test
+	public void test_other_shape() throws Exception
+	{
+		// la grille n'est pas valable pour un autre rectangle que le véhicule
+		List<RectangularObstacle> l = new ArrayList<RectangularObstacle>();
+		l.add(vehicle.getExpandedCopy(100));
+		for(int i = 0; i < 10000; i++)
+		{
+			l.get(0).update(r.nextDouble() * 3000 - 1500, r.nextDouble() * 2000, r.nextDouble() * 2 * Math.PI);
+			Assert.assertEquals(exact.isThereCollision(l), grid.isThereCollision(l));
+		}
+	}
+
+	@Test
+	public void test_tentacles() throws Exception
+	{
+		StaticTentacle tentacle = new StaticTentacle(vehicle);
+		for(int i = 0; i < 10000; i++)
+		{
+			double x = r.nextDouble() * 3000 - 1500, y = r.nextDouble() * 2000;
+			double o = r.nextDouble() * 2 * Math.PI, courbure = r.nextDouble() * 10 - 5;
+			for(int j = 0; j < Tentacle.NB_POINTS; j++)
+			{
+				double angle = o + courbure * Tentacle.PRECISION_TRACE * j;
+				tentacle.arcselems[j].update(x + j * Tentacle.PRECISION_TRACE_MM * Math.cos(angle), y + j * Tentacle.PRECISION_TRACE_MM * Math.sin(angle), angle, true, courbure, 1, false);
+			}
+			tentacle.updateSweptBox();
+			Assert.assertEquals(exact.isThereCollision(tentacle), grid.isThereCollision(tentacle));
+		}
+	}
+
+	private void checkPoints(int nb)
+	{
+		List<RectangularObstacle> l = new ArrayList<RectangularObstacle>();
+		l.add(vehicle.clone());
+		for(int i = 0; i < nb; i++)
+		{
+			l.get(0).update(r.nextDouble() * 3000 - 1500, r.nextDouble() * 2000, r.nextDouble() * 2 * Math.PI);
+			Assert.assertEquals(exact.isThereCollision(l), grid.isThereCollision(l));
+		}
+	}
+
+	@Test
+	public void test_resized_obstacle() throws Exception
+	{
+		// même position (donc même hash code), mais la grille sauvegardée ne doit pas être réutilisée
+		List<Obstacle> obs = new ArrayList<Obstacle>();
+		obs.add(new CircularObstacle(new XY(0, 1000), 100));
+		obs.add(new RectangularObstacle(new XY(-800, 1200), 100, 400, 0));
+		setUpWith(obs, "default");
+		injector.getService(OccupancyGridPhysicsEngine.class); // computed and saved
+		int hashCode = injector.getService(StaticObstacles.class).hashCode();
+
+		obs.set(0, new CircularObstacle(new XY(0, 1000), 400));
+		obs.set(1, new RectangularObstacle(new XY(-800, 1200), 100, 400, Math.PI / 2));
+		setUpWith(obs, "default");
+		Assert.assertEquals(hashCode, injector.getService(StaticObstacles.class).hashCode());
+		exact = injector.getService(DefaultPhysicsEngine.class);
+		grid = injector.getService(OccupancyGridPhysicsEngine.class);
+		exact.update();
+		grid.update();
+		checkPoints(20000);
+	}
+
+	@Test
+	public void test_cache() throws Exception
+	{
+		// dans le cache, la grille est nommée par le digest des obstacles, du véhicule et des paramètres
+		List<Obstacle> obs = new ArrayList<Obstacle>();
+		obs.add(new CircularObstacle(new XY(0, 1000), 100));
+		setUpWith(obs, "default", "cache");
+		injector.getService(OccupancyGridPhysicsEngine.class);
+		File[] files = new File(config.getString(ConfigInfoKraken.ARTIFACT_CACHE_DIRECTORY)).listFiles();
+		int nbGrids = 0;
+		for(File f : files)
+			if(f.getName().startsWith("occupancy-"))
+				nbGrids++;
+		Assert.assertTrue(nbGrids > 0);
+
+		obs.set(0, new CircularObstacle(new XY(0, 1000), 400));
+		setUpWith(obs, "default", "cache"); // another grid
+		grid = injector.getService(OccupancyGridPhysicsEngine.class);
+		exact = injector.getService(DefaultPhysicsEngine.class);
+		exact.update();
+		grid.update();
+		checkPoints(10000);
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pfg.kraken.astar.AStarNode;
+import pfg.kraken.astar.BucketOpenSet;
+import pfg.kraken.astar.IndexedHeapOpenSet;
+import pfg.kraken.astar.OpenSet;
+import pfg.kraken.astar.PriorityQueueOpenSet;
+import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.robot.Cinematique;
+import pfg.kraken.robot.RobotState;
+
+/**
+ * Tests unitaires des opensets de l'A*
+ *
+ * @author pf
+ *
+ */
+
+public class Test_OpenSet extends JUnit_Test
+{
+
+	private RectangularObstacle vehicle = new RectangularObstacle(250, 80, 110, 110);
+
+	@Before
+	public void setUp() throws Exception
+	{
+		super.setUpWith(null, "default", "empty");
+	}
+
+	private AStarNode node(int etat, int f, int g)
+	{
+		AStarNode n = new AStarNode(new RobotState(), vehicle);
+		// deux cinématiques de même x sont dans le même état discrétisé
+		n.robot.setCinematique(new Cinematique(etat * 100 - 1400, 1000, 0, true, 0, false));
+		n.f_score = f;
+		n.g_score = g;
+		return n;
+	}
+
+	@Test
+	public void test_heap() throws Exception
+	{
+		replace(new IndexedHeapOpenSet(4));
+		random(new IndexedHeapOpenSet(4), true);
+	}
+
+	@Test
+	public void test_heap_large() throws Exception
+	{
+		// une taille réaliste : les assertions ne vérifient que le voisinage du nœud déplacé
+		IndexedHeapOpenSet openset = new IndexedHeapOpenSet(4);
+		Random r = new Random(0);
+		for(int i = 0; i < 200000; i++)
+			openset.addOrReplace(node(i, r.nextInt(100000), r.nextInt(100)));
+		for(int i = 0; i < 50000; i++)
+			openset.addOrReplace(node(r.nextInt(200000), r.nextInt(1000), 0));
+		AStarNode previous = openset.poll();
+		while(!openset.isEmpty())
+		{
+			AStarNode n = openset.poll();
+			Assert.assertTrue(previous.f_score < n.f_score || (previous.f_score == n.f_score && previous.g_score <= n.g_score));
+			previous = n;
+		}
+	}
+
+	@Test
+	public void test_bucket() throws Exception
+	{
+		replace(new BucketOpenSet(4));
+		random(new BucketOpenSet(4), true);
+	}
+
+	@Test
+	public void test_priority_queue() throws Exception
+	{
+		random(new PriorityQueueOpenSet(4), false);
+	}
+
+	private void replace(OpenSet openset)
+	{
+		Assert.assertTrue(openset.isEmpty());
+		AStarNode n1 = node(1, 10, 5);
+		AStarNode n2 = node(2, 8, 5);
+		Assert.assertTrue(openset.addOrReplace(n1) == null);
+		Assert.assertTrue(openset.addOrReplace(n2) == null);
+		Assert.assertEquals(2, openset.size());
+
+		// un nœud moins bon de même état est refusé
+		AStarNode n3 = node(1, 12, 5);
+		Assert.assertTrue(openset.addOrReplace(n3) == n3);
+
+		// un nœud meilleur de même état remplace l'ancien
+		AStarNode n4 = node(1, 7, 3);
+		Assert.assertTrue(openset.addOrReplace(n4) == n1);
+		Assert.assertEquals(2, openset.size());
+
+		// sans indexation, pas de remplacement
+		AStarNode n5 = node(2, 9, 3);
+		openset.add(n5);
+		Assert.assertEquals(3, openset.size());
+
+		Assert.assertTrue(openset.poll() == n4);
+		Assert.assertTrue(openset.poll() == n2);
+		Assert.assertTrue(openset.poll() == n5);
+		Assert.assertTrue(openset.isEmpty());
+
+		openset.addOrReplace(n1);
+		openset.clear();
+		Assert.assertTrue(openset.isEmpty());
+		Assert.assertTrue(openset.addOrReplace(n3) == null);
+	}
+
+	private void random(OpenSet openset, boolean indexed)
+	{
+		Random r = new Random(0);
+		for(int k = 0; k < 3; k++)
+		{
+			Map<Integer, AStarNode> best = new HashMap<Integer, AStarNode>();
+			int nb = 0;
+			for(int i = 0; i < 2000; i++)
+			{
+				AStarNode n = node(r.nextInt(25), r.nextInt(100) - 50, r.nextInt(100));
+				AStarNode old = best.get(n.hashCode());
+				AStarNode destroyed = openset.addOrReplace(n);
+				nb++;
+				if(!indexed)
+					Assert.assertTrue(destroyed == null);
+				else if(old == null || n.f_score < old.f_score || (n.f_score == old.f_score && n.g_score < old.g_score))
+				{
+					Assert.assertTrue(destroyed == old);
+					best.put(n.hashCode(), n);
+					if(old != null)
+						nb--;
+				}
+				else
+				{
+					Assert.assertTrue(destroyed == n);
+					nb--;
+				}
+			}
+			Assert.assertEquals(nb, openset.size());
+	
+			// l'ordre : f puis g
+			List<AStarNode> polled = new ArrayList<AStarNode>();
+			while(openset.size() > nb / 2)
+			{
+				AStarNode first = openset.peek();
+				Assert.assertTrue(openset.poll() == first);
+				polled.add(first);
+			}
+			openset.add(node(0, -100, 0));
+			Assert.assertEquals(-100, openset.poll().f_score);
+			while(!openset.isEmpty())
+				polled.add(openset.poll());
+			for(int i = 1; i < polled.size(); i++)
+				Assert.assertTrue(polled.get(i - 1).f_score < polled.get(i).f_score || (polled.get(i - 1).f_score == polled.get(i).f_score && polled.get(i - 1).g_score <= polled.get(i).g_score));
+			if(indexed)
+				Assert.assertTrue(best.values().containsAll(polled));
+			openset.clear();
+		}
+	}
+
+}
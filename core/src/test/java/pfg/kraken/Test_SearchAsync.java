@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.Assert;
+import org.junit.Test;
+import pfg.kraken.exceptions.NoPathException;
+import pfg.kraken.obstacles.CircularObstacle;
+import pfg.kraken.obstacles.Obstacle;
+import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.robot.ItineraryPoint;
+import pfg.kraken.utils.XY;
+import pfg.kraken.utils.XYO;
+
+/**
+ * Tests unitaires des recherches concurrentes
+ *
+ * @author pf
+ *
+ */
+
+public class Test_SearchAsync extends JUnit_Test
+{
+	private void setUp(String... profiles) throws Exception
+	{
+		List<Obstacle> obs = new ArrayList<Obstacle>();
+		obs.add(new RectangularObstacle(new XY(-800, 1200), 100, 200));
+		obs.add(new RectangularObstacle(new XY(200, 1600), 800, 300));
+		obs.add(new CircularObstacle(new XY(500, 600), 100));
+		setUpWith(obs, profiles);
+	}
+
+	private List<SearchParameters> getQueries()
+	{
+		List<SearchParameters> queries = new ArrayList<SearchParameters>();
+		queries.add(new SearchParameters(new XYO(-1200, 1500, 0), new XY(1000, 1000)));
+		queries.add(new SearchParameters(new XYO(1000, 1000, Math.PI), new XY(-600, 800)));
+		queries.add(new SearchParameters(new XYO(0, 1000, Math.PI / 2), new XY(800, 400)));
+		queries.add(new SearchParameters(new XYO(800, 400, Math.PI), new XY(-1200, 1500)));
+		queries.add(new SearchParameters(new XYO(-600, 800, 0), new XY(1200, 300)));
+		return queries;
+	}
+
+	private void checkAgainstSequentialSearches() throws Exception
+	{
+		List<SearchParameters> queries = getQueries();
+		List<CompletableFuture<List<ItineraryPoint>>> futures = new ArrayList<CompletableFuture<List<ItineraryPoint>>>();
+		for(SearchParameters sp : queries)
+			futures.add(kraken.searchAsync(sp));
+
+		// the same searches, one after the other, by the main A*
+		for(int i = 0; i < queries.size(); i++)
+		{
+			kraken.initializeNewSearch(queries.get(i));
+			List<ItineraryPoint> expected = kraken.search();
+			Assert.assertFalse(expected.isEmpty());
+			Assert.assertEquals(expected, futures.get(i).get());
+		}
+	}
+
+	@Test
+	public void test_concurrent_searches() throws Exception
+	{
+		setUp("default");
+		checkAgainstSequentialSearches();
+		// the contexts are reused
+		checkAgainstSequentialSearches();
+	}
+
+	@Test
+	public void test_concurrent_searches_multithreading() throws Exception
+	{
+		setUp("default", "multithreading");
+		checkAgainstSequentialSearches();
+	}
+
+	@Test
+	public void test_no_path() throws Exception
+	{
+		setUp("default");
+		CompletableFuture<List<ItineraryPoint>> future = kraken.searchAsync(new SearchParameters(new XYO(-1200, 1500, 0), new XY(10000, 10000)));
+		try
+		{
+			future.get();
+			Assert.fail();
+		}
+		catch(ExecutionException e)
+		{
+			Assert.assertTrue(e.getCause() instanceof NoPathException);
+		}
+		// the context can still search
+		Assert.assertFalse(kraken.searchAsync(getQueries().get(0)).get().isEmpty());
+	}
+
+	private Set<Thread> getKrakenThreads()
+	{
+		Set<Thread> threads = new HashSet<Thread>();
+		for(Thread t : Thread.getAllStackTraces().keySet())
+			if(t.getName().startsWith("TentacleThread") || t.getName().startsWith("Kraken search context") || t.getName().startsWith("ForkJoinPool"))
+				threads.add(t);
+		return threads;
+	}
+
+	@Test
+	public void test_close() throws Exception
+	{
+		Set<Thread> before = getKrakenThreads();
+		setUp("default", "multithreading");
+		checkAgainstSequentialSearches();
+		Set<Thread> threads = getKrakenThreads();
+		threads.removeAll(before);
+		Assert.assertFalse(threads.isEmpty());
+
+		kraken.close();
+		for(Thread t : threads)
+		{
+			t.join(2000);
+			Assert.assertFalse(t.getName(), t.isAlive());
+		}
+		try
+		{
+			kraken.searchAsync(getQueries().get(0));
+			Assert.fail();
+		}
+		catch(IllegalStateException e)
+		{}
+	}
+}
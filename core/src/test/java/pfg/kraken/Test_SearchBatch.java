@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import pfg.kraken.exceptions.NoPathException;
+import pfg.kraken.obstacles.CircularObstacle;
+import pfg.kraken.obstacles.Obstacle;
+import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.obstacles.container.DefaultDynamicObstacles;
+import pfg.kraken.robot.ItineraryPoint;
+import pfg.kraken.utils.XY;
+import pfg.kraken.utils.XYO;
+
+/**
+ * Tests unitaires des recherches par lot
+ *
+ * @author pf
+ *
+ */
+
+public class Test_SearchBatch extends JUnit_Test
+{
+	private List<XYO> starts = Arrays.asList(new XYO(-1200, 1500, 0), new XYO(0, 1000, Math.PI / 2), new XYO(800, 400, Math.PI));
+	private List<XY> arrivals = Arrays.asList(new XY(1000, 1000), new XY(-600, 800));
+
+	private List<Obstacle> getObstacles()
+	{
+		List<Obstacle> obs = new ArrayList<Obstacle>();
+		obs.add(new RectangularObstacle(new XY(-800, 1200), 100, 200));
+		obs.add(new RectangularObstacle(new XY(200, 1600), 800, 300));
+		obs.add(new CircularObstacle(new XY(500, 600), 100));
+		return obs;
+	}
+
+	@Test
+	public void test_batch() throws Exception
+	{
+		setUpWith(getObstacles(), "default");
+		// the queries alternate the arrivals, so the main A* computes the D* Lite again at each query
+		List<SearchParameters> queries = new ArrayList<SearchParameters>();
+		for(XYO start : starts)
+			for(XY arrival : arrivals)
+				queries.add(new SearchParameters(start, arrival));
+		queries.add(new SearchParameters(new XYO(-1200, 1500, 0), new XY(10000, 10000)));
+
+		List<SearchResult> results = kraken.searchBatch(queries, true);
+		Assert.assertEquals(queries.size(), results.size());
+		for(int i = 0; i < starts.size() * arrivals.size(); i++)
+		{
+			kraken.initializeNewSearch(queries.get(i));
+			List<ItineraryPoint> expected = kraken.search();
+			SearchResult result = results.get(i);
+			Assert.assertSame(queries.get(i), result.parameters);
+			Assert.assertTrue(result.isPathFound());
+			Assert.assertEquals(expected, result.path);
+			Assert.assertEquals(kraken.getSearchStatistics().getPathDuration(), result.duration);
+			Assert.assertTrue(result.duration > 0);
+		}
+
+		SearchResult noPath = results.get(results.size() - 1);
+		Assert.assertFalse(noPath.isPathFound());
+		Assert.assertTrue(noPath.exception instanceof NoPathException);
+		Assert.assertNull(noPath.path);
+		Assert.assertEquals(-1, noPath.duration);
+	}
+
+	@Test
+	public void test_durations() throws Exception
+	{
+		setUpWith(getObstacles(), "default");
+		long[][] durations = kraken.computeDurations(starts, arrivals);
+		Assert.assertEquals(starts.size(), durations.length);
+		for(int i = 0; i < starts.size(); i++)
+		{
+			Assert.assertEquals(arrivals.size(), durations[i].length);
+			for(int j = 0; j < arrivals.size(); j++)
+			{
+				kraken.initializeNewSearch(new SearchParameters(starts.get(i), arrivals.get(j)));
+				kraken.search();
+				Assert.assertEquals(kraken.getSearchStatistics().getPathDuration(), durations[i][j]);
+			}
+		}
+	}
+
+	@Test
+	public void test_same_arrival_with_new_obstacle() throws Exception
+	{
+		setUpWith(getObstacles(), "default");
+		RectangularObstacle robot = new RectangularObstacle(250, 80, 110, 110, 0);
+		SearchParameters sp = new SearchParameters(new XYO(-1200, 1500, 0), new XY(1000, 1000));
+
+		// the D* Lite of the second search is the one of the first search, updated with the new obstacle
+		DefaultDynamicObstacles dynObs = new DefaultDynamicObstacles();
+		Kraken incremental = new Kraken(robot, getObstacles(), dynObs, new XY(-1500, 0), new XY(1500, 2000), "kraken-test.conf", "default");
+		Kraken fresh = null;
+		try
+		{
+			incremental.initializeNewSearch(sp);
+			List<ItineraryPoint> before = incremental.search();
+			dynObs.add(new CircularObstacle(new XY(100, 1100), 200));
+			incremental.initializeNewSearch(sp);
+			List<ItineraryPoint> after = incremental.search();
+			Assert.assertNotEquals(before, after);
+
+			// the same search from scratch
+			fresh = new Kraken(robot, getObstacles(), dynObs, new XY(-1500, 0), new XY(1500, 2000), "kraken-test.conf", "default");
+			fresh.initializeNewSearch(sp);
+			Assert.assertEquals(fresh.search(), after);
+		}
+		finally
+		{
+			incremental.close();
+			if(fresh != null)
+				fresh.close();
+		}
+	}
+}
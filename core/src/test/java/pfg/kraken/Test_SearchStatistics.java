@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2013-2018 Pierre-François Gimenez
+ * Distributed under the MIT License.
+ */
+
+package pfg.kraken;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import pfg.kraken.astar.SearchStatistics;
+import pfg.kraken.astar.SearchStatistics.Outcome;
+import pfg.kraken.astar.engine.PhysicsEngine;
+import pfg.kraken.astar.tentacles.Tentacle;
+import pfg.kraken.exceptions.TimeoutException;
+import pfg.kraken.obstacles.CircularObstacle;
+import pfg.kraken.obstacles.Obstacle;
+import pfg.kraken.obstacles.RectangularObstacle;
+import pfg.kraken.obstacles.container.EmptyDynamicObstacles;
+import pfg.kraken.utils.XY;
+import pfg.kraken.utils.XYO;
+
+/**
+ * Tests unitaires des statistiques des recherches
+ *
+ * @author pf
+ *
+ */
+
+public class Test_SearchStatistics extends JUnit_Test
+{
+	private Map<String, Double> metrics = new HashMap<String, Double>();
+
+	private void setUp(String... profiles) throws Exception
+	{
+		List<Obstacle> obs = new ArrayList<Obstacle>();
+		obs.add(new RectangularObstacle(new XY(-800, 1200), 100, 200));
+		obs.add(new RectangularObstacle(new XY(200, 1600), 800, 300));
+		obs.add(new CircularObstacle(new XY(500, 600), 100));
+		setUpWith(obs, profiles);
+		kraken.setMetricsRegistry(new MetricsRegistry()
+		{
+			@Override
+			public synchronized void recordDuration(String name, long nanoseconds)
+			{
+				increment(name, nanoseconds);
+			}
+
+			@Override
+			public synchronized void recordAmount(String name, double amount)
+			{
+				increment(name, amount);
+			}
+
+			@Override
+			public synchronized void increment(String name, double amount)
+			{
+				Double previous = metrics.get(name);
+				metrics.put(name, previous == null ? amount : previous + amount);
+			}
+		});
+	}
+
+	@Test
+	public void test_statistics() throws Exception
+	{
+		setUp("default");
+		kraken.initializeNewSearch(new SearchParameters(new XYO(-1200, 1500, 0), new XY(1000, 1000)));
+		SearchStatistics stats = kraken.getSearchStatistics();
+		Assert.assertEquals(Outcome.NOT_STARTED, stats.getOutcome());
+		Assert.assertTrue(stats.getInitializationDuration() >= stats.getDStarLiteDuration());
+		Assert.assertTrue(stats.getDStarLiteDuration() > 0);
+
+		Assert.assertFalse(kraken.search().isEmpty());
+		Assert.assertEquals(Outcome.PATH_FOUND, stats.getOutcome());
+		Assert.assertTrue(stats.getNbExpandedNodes() > 0);
+		Assert.assertTrue(stats.getNbGeneratedNodes() > 0);
+		Assert.assertTrue(stats.getNbPrunedNodes() <= stats.getNbGeneratedNodes());
+		// au moins une heuristique par successeur
+		Assert.assertTrue(stats.getNbHeuristicCalls() >= stats.getNbGeneratedNodes());
+		Assert.assertEquals(0, stats.getNbHeuristicCacheHits());
+		Assert.assertTrue(stats.getCollisionCounters().getNbChecks() > 0);
+		Assert.assertTrue(stats.getSearchDuration() >= stats.getExpansionDuration() + stats.getCollisionDuration());
+		Assert.assertTrue(stats.getExpansionDuration() > 0);
+		Assert.assertTrue(stats.getReconstructionDuration() > 0);
+		Assert.assertTrue(stats.getNodePoolHighWaterMark() > 0);
+		Assert.assertTrue(stats.getCinemPoolHighWaterMark() > 0);
+		Assert.assertEquals(0, stats.getNbStoredNodes());
+
+		Assert.assertEquals(1, metrics.get("kraken.search.outcome.path_found"), 0);
+		Assert.assertEquals(stats.getSearchDuration(), metrics.get("kraken.search.duration"), 0);
+		Assert.assertEquals(stats.getNbExpandedNodes(), metrics.get("kraken.search.expanded.nodes"), 0);
+
+		// les statistiques sont remises à zéro par l'initialisation
+		int nbExpandedNodes = stats.getNbExpandedNodes();
+		kraken.initializeNewSearch(new SearchParameters(new XYO(-1200, 1500, 0), new XY(1000, 1000)));
+		Assert.assertEquals(0, stats.getNbExpandedNodes());
+		Assert.assertEquals(0, stats.getNbHeuristicCalls());
+		Assert.assertEquals(Outcome.NOT_STARTED, stats.getOutcome());
+
+		// la même recherche avec les tableaux de primitives
+		setUp("default", "arrays");
+		kraken.initializeNewSearch(new SearchParameters(new XYO(-1200, 1500, 0), new XY(1000, 1000)));
+		Assert.assertFalse(kraken.search().isEmpty());
+		Assert.assertTrue(kraken.getSearchStatistics().getNbStoredNodes() > 0);
+		Assert.assertEquals(nbExpandedNodes, kraken.getSearchStatistics().getNbExpandedNodes());
+	}
+
+	@Test
+	public void test_timeout() throws Exception
+	{
+		// la recherche est interrompue avant d'avoir trouvé un chemin
+		setUp("default");
+		kraken.initializeNewSearch(new SearchParameters(new XYO(-1200, 1500, 0), new XY(1000, 1000)));
+		kraken.stop();
+		try
+		{
+			kraken.search();
+			Assert.fail();
+		}
+		catch(TimeoutException e)
+		{
+			Assert.assertEquals(Outcome.TIMEOUT, kraken.getSearchStatistics().getOutcome());
+			Assert.assertEquals(1, kraken.getSearchStatistics().getNbExpandedNodes());
+			Assert.assertEquals(1, metrics.get("kraken.search.outcome.timeout"), 0);
+		}
+	}
+
+	@Test
+	public void test_async_metrics() throws Exception
+	{
+		// the searches of the search contexts are recorded too
+		setUp("default");
+		kraken.searchAsync(new SearchParameters(new XYO(-1200, 1500, 0), new XY(1000, 1000))).get();
+		List<SearchParameters> queries = new ArrayList<SearchParameters>();
+		queries.add(new SearchParameters(new XYO(1000, 1000, Math.PI), new XY(-600, 800)));
+		queries.add(new SearchParameters(new XYO(0, 1000, Math.PI / 2), new XY(-600, 800)));
+		kraken.searchBatch(queries, false);
+		Assert.assertEquals(3, metrics.get("kraken.search.outcome.path_found"), 0);
+	}
+
+	@Test
+	public void test_collision_checks() throws Exception
+	{
+		// every collision check of the A* is counted, including the check of the arrival
+		setUp("default");
+		final int[] nbChecks = new int[1];
+		PhysicsEngine engine = new PhysicsEngine()
+		{
+			@Override
+			public void update()
+			{}
+
+			@Override
+			public boolean isThereCollision(Iterable<RectangularObstacle> tentacle)
+			{
+				return false;
+			}
+
+			@Override
+			public boolean isThereCollision(Tentacle tentacle)
+			{
+				nbChecks[0]++;
+				for(int i = 0; i < tentacle.getNbPoints(); i++)
+				{
+					XY p = tentacle.getPoint(i).getPosition();
+					if(p.getX() < 1200 && p.getY() > 500 && p.getY() < 700)
+						return true;
+				}
+				return false;
+			}
+		};
+		RectangularObstacle robot = new RectangularObstacle(250, 80, 110, 110, 0);
+		Kraken custom = new Kraken(robot, engine, null, new EmptyDynamicObstacles(), new XY(-1500, 0), new XY(1500, 2000), "kraken-test.conf", "default", "empty");
+		try
+		{
+			custom.initializeNewSearch(new SearchParameters(new XYO(0, 200, 0), new XY(1000, 1000)));
+			Assert.assertFalse(custom.search().isEmpty());
+			Assert.assertEquals(nbChecks[0], custom.getSearchStatistics().getCollisionCounters().getNbChecks());
+		}
+		finally
+		{
+			custom.close();
+		}
+	}
+}